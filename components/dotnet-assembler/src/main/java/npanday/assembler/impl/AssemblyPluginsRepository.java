@@ -23,6 +23,7 @@ import npanday.assembler.AssemblyInfoException;
 import npanday.model.assembly.plugins.AssemblyPlugin;
 import npanday.model.assembly.plugins.AssemblyPluginsModel;
 import npanday.model.assembly.plugins.io.xpp3.AssemblyPluginXpp3Reader;
+import npanday.model.assembly.plugins.io.xpp3.AssemblyPluginXpp3Writer;
 import npanday.registry.ModelInterpolator;
 import npanday.registry.NPandayRepositoryException;
 import npanday.registry.Repository;
@@ -32,6 +33,7 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Hashtable;
@@ -72,6 +74,14 @@ public final class AssemblyPluginsRepository
         return xpp3Reader.read( reader );
     }
 
+    @Override
+    protected boolean writeToWriter( Writer writer, AssemblyPluginsModel model )
+        throws IOException
+    {
+        new AssemblyPluginXpp3Writer().write( writer, model );
+        return true;
+    }
+
     @Override
     protected void mergeLoadedModel( AssemblyPluginsModel model )
         throws NPandayRepositoryException
@@ -0,0 +1,117 @@
+package npanday.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import npanday.resolver.ArtifactResolvingContributor;
+import npanday.resolver.DefaultNPandayArtifactResolver;
+import npanday.resolver.NPandayResolutionCache;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a transitive resolution through the {@link DefaultNPandayArtifactResolver} with one contributor
+ * at a time. Each invocation starts with new artifacts and an empty resolution cache, like a build that
+ * can't use the results of earlier builds; the GAC index is rebuilt each time, too.
+ * <p/>
+ * GAC artifacts are left out for the other contributors, since only the GAC resolver can resolve them.
+ * The synthetic repository holds no COM references, hence the COM contributor only adds its checks
+ * for each artifact.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class ArtifactResolverBenchmark
+{
+    @Param( { "100", "1000", "10000" } )
+    public int size;
+
+    @Param( { Components.GAC, Components.PDB, Components.COM } )
+    public String contributor;
+
+    /**
+     * The value of {@link DefaultNPandayArtifactResolver#CONTRIBUTOR_THREADS}.
+     */
+    @Param( { "1", "4" } )
+    public String threads;
+
+    private SyntheticRepository repository;
+
+    private ArtifactRepository localRepository;
+
+    private DefaultNPandayArtifactResolver resolver;
+
+    private Set<Artifact> artifacts;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        System.setProperty( DefaultNPandayArtifactResolver.CONTRIBUTOR_THREADS, threads );
+        repository = SyntheticRepository.of( size );
+        localRepository = repository.getLocalRepository();
+    }
+
+    @Setup( Level.Invocation )
+    public void setUpResolution()
+    {
+        NPandayResolutionCache cache = Components.newResolutionCache();
+        ArtifactResolvingContributor resolvingContributor = Components.newContributor(
+            contributor, cache, repository
+        );
+        resolver = Components.newArtifactResolver( Collections.singletonList( resolvingContributor ), repository );
+        resolver.initializeWithFilter( null );
+        artifacts = repository.newDependencyArtifacts( Components.GAC.equals( contributor ) );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        System.clearProperty( DefaultNPandayArtifactResolver.CONTRIBUTOR_THREADS );
+    }
+
+    @Benchmark
+    public ArtifactResolutionResult resolveTransitively() throws Exception
+    {
+        return resolver.resolveTransitively(
+            artifacts, null, Collections.EMPTY_MAP, localRepository, Collections.EMPTY_LIST, null, null, null
+        );
+    }
+}
@@ -0,0 +1,102 @@
+package npanday.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import npanday.ArtifactType;
+import npanday.ArtifactTypeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the artifact types for all known packaging names and a few unknown ones, the way the
+ * resolving contributors do for every artifact in a dependency graph.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class ArtifactTypeBenchmark
+{
+    private String[] packagingNames;
+
+    @Setup
+    public void setUp()
+    {
+        List<String> names = new ArrayList<String>();
+        for ( ArtifactType type : ArtifactType.values() )
+        {
+            if ( type.getPackagingType() != null )
+            {
+                names.add( type.getPackagingType() );
+            }
+        }
+        names.add( "jar" );
+        names.add( "pom" );
+        names.add( "unknown-type" );
+        packagingNames = names.toArray( new String[names.size()] );
+    }
+
+    @Benchmark
+    public void getArtifactTypeForPackagingName( Blackhole blackhole )
+    {
+        for ( String name : packagingNames )
+        {
+            blackhole.consume( ArtifactType.getArtifactTypeForPackagingName( name ) );
+        }
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public void getArtifactTypeForPackagingNameConcurrently( Blackhole blackhole )
+    {
+        getArtifactTypeForPackagingName( blackhole );
+    }
+
+    /**
+     * The checks all contributors run for each artifact.
+     */
+    @Benchmark
+    public void classifyPackagingNames( Blackhole blackhole )
+    {
+        for ( String name : packagingNames )
+        {
+            blackhole.consume( ArtifactTypeHelper.isDotnetAnyGac( name ) );
+            blackhole.consume( ArtifactTypeHelper.isComReference( name ) );
+            blackhole.consume( ArtifactTypeHelper.isDotnetLibraryOrExecutable( name ) );
+        }
+    }
+}
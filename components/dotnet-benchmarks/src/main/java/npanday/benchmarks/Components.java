@@ -0,0 +1,174 @@
+package npanday.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import npanday.resolver.ArtifactResolvingContributor;
+import npanday.resolver.DefaultNPandayArtifactResolver;
+import npanday.resolver.GacIndex;
+import npanday.resolver.NPandayDependencyResolution;
+import npanday.resolver.NPandayResolutionCache;
+import npanday.resolver.ResolutionReport;
+import npanday.resolver.ResolvedDependenciesCache;
+import npanday.resolver.resolvers.ComReferenceResolver;
+import npanday.resolver.resolvers.GacResolver;
+import npanday.resolver.resolvers.PdbAssemblyResolver;
+import org.codehaus.plexus.logging.LogEnabled;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wires the resolver components the way the Plexus container does, by setting their requirement
+ * fields, but without starting a container; the Maven components are replaced by those of a
+ * {@link SyntheticRepository}.
+ */
+public final class Components
+{
+    /**
+     * Names of the contributors, as used for the role hints of their components.
+     */
+    public static final String GAC = "gac";
+
+    public static final String PDB = "pdb";
+
+    public static final String COM = "com";
+
+    private static final Logger LOGGER = new ConsoleLogger( Logger.LEVEL_ERROR, "benchmark" );
+
+    private Components()
+    {
+    }
+
+    public static NPandayResolutionCache newResolutionCache()
+    {
+        return enableLogging( new NPandayResolutionCache() );
+    }
+
+    public static GacIndex newGacIndex( NPandayResolutionCache cache, File root )
+    {
+        GacIndex gacIndex = enableLogging( new GacIndex() );
+        inject( gacIndex, "cache", cache );
+        gacIndex.setRoots( Collections.singletonList( root ) );
+        return gacIndex;
+    }
+
+    /**
+     * Creates the contributor registered under the given name.
+     */
+    public static ArtifactResolvingContributor newContributor( String name, NPandayResolutionCache cache,
+                                                               SyntheticRepository repository )
+    {
+        if ( GAC.equals( name ) )
+        {
+            GacResolver resolver = new GacResolver();
+            inject( resolver, "cache", cache );
+            inject( resolver, "gacIndex", newGacIndex( cache, repository.getGacRoot() ) );
+            return resolver;
+        }
+        if ( PDB.equals( name ) )
+        {
+            PdbAssemblyResolver resolver = enableLogging( new PdbAssemblyResolver() );
+            inject( resolver, "cache", cache );
+            inject( resolver, "mavenResolver", repository.newArtifactResolver() );
+            inject( resolver, "artifactFactory", repository.newArtifactFactory() );
+            return resolver;
+        }
+        if ( COM.equals( name ) )
+        {
+            // the synthetic repository holds no COM references, TLBIMP is never called
+            ComReferenceResolver resolver = enableLogging( new ComReferenceResolver() );
+            inject( resolver, "cache", cache );
+            return resolver;
+        }
+        throw new IllegalArgumentException( "Unknown contributor " + name );
+    }
+
+    public static List<ArtifactResolvingContributor> newContributors( NPandayResolutionCache cache,
+                                                                      SyntheticRepository repository )
+    {
+        List<ArtifactResolvingContributor> contributors = new ArrayList<ArtifactResolvingContributor>();
+        for ( String name : new String[]{ GAC, PDB, COM } )
+        {
+            contributors.add( newContributor( name, cache, repository ) );
+        }
+        return contributors;
+    }
+
+    public static DefaultNPandayArtifactResolver newArtifactResolver(
+        List<ArtifactResolvingContributor> contributors, SyntheticRepository repository )
+    {
+        DefaultNPandayArtifactResolver resolver = enableLogging( new DefaultNPandayArtifactResolver() );
+        inject( resolver, "contributors", contributors );
+        inject( resolver, "original", repository.newArtifactResolver() );
+        resolver.initialize();
+        return resolver;
+    }
+
+    public static NPandayDependencyResolution newDependencyResolution( NPandayResolutionCache cache,
+                                                                       SyntheticRepository repository )
+    {
+        NPandayDependencyResolution resolution = enableLogging( new NPandayDependencyResolution() );
+        DefaultNPandayArtifactResolver resolver = newArtifactResolver( newContributors( cache, repository ), repository );
+        inject( resolution, "artifactResolver", resolver );
+        inject( resolution, "artifactFactory", repository.newArtifactFactory() );
+        inject( resolution, "resolvedDependenciesCache", enableLogging( new ResolvedDependenciesCache() ) );
+        inject( resolution, "resolutionCache", cache );
+        inject( resolution, "resolutionReport", enableLogging( new ResolutionReport() ) );
+        return resolution;
+    }
+
+    private static <T> T enableLogging( T component )
+    {
+        ( (LogEnabled) component ).enableLogging( LOGGER );
+        return component;
+    }
+
+    /**
+     * Sets a field of the component or one of its super classes, regardless of its visibility.
+     */
+    static void inject( Object component, String name, Object value )
+    {
+        for ( Class<?> type = component.getClass(); type != null; type = type.getSuperclass() )
+        {
+            try
+            {
+                Field field = type.getDeclaredField( name );
+                field.setAccessible( true );
+                field.set( component, value );
+                return;
+            }
+            catch ( NoSuchFieldException e )
+            {
+                // look in the super class
+            }
+            catch ( IllegalAccessException e )
+            {
+                throw new IllegalStateException( "Could not set " + name + " of " + component, e );
+            }
+        }
+        throw new IllegalArgumentException( "No field " + name + " in " + component.getClass() );
+    }
+}
@@ -0,0 +1,142 @@
+package npanday.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import npanday.ArtifactType;
+import npanday.resolver.NPandayDependencyResolution;
+import npanday.resolver.NPandayResolutionCache;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the dependencies of a project referencing all artifacts of a synthetic repository through
+ * {@link NPandayDependencyResolution#require}, with all contributors.
+ * <p/>
+ * {@link #require} resolves like the first mojo of a module does, with new components; it can use the
+ * results stored by earlier builds when the resolution cache is persistent. {@link #requireAgain} resolves
+ * like the following mojos of the same module, that reuse the resolved dependencies.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class DependencyResolutionBenchmark
+{
+    private static final String SCOPE = Artifact.SCOPE_COMPILE;
+
+    @Param( { "100", "1000", "10000" } )
+    public int size;
+
+    /**
+     * The value of {@link NPandayResolutionCache#PERSISTENT}.
+     */
+    @Param( { "false", "true" } )
+    public String persistentCache;
+
+    private SyntheticRepository repository;
+
+    private ArtifactRepository localRepository;
+
+    private NPandayDependencyResolution resolution;
+
+    private MavenProject project;
+
+    private NPandayDependencyResolution warmResolution;
+
+    private MavenProject warmProject;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        System.setProperty( NPandayResolutionCache.PERSISTENT, persistentCache );
+        repository = SyntheticRepository.of( size );
+        localRepository = repository.getLocalRepository();
+
+        warmResolution = Components.newDependencyResolution( Components.newResolutionCache(), repository );
+        warmProject = newProject();
+        warmResolution.require( warmProject, localRepository, SCOPE );
+    }
+
+    @Setup( Level.Invocation )
+    public void setUpResolution()
+    {
+        resolution = Components.newDependencyResolution( Components.newResolutionCache(), repository );
+        project = newProject();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        System.clearProperty( NPandayResolutionCache.PERSISTENT );
+    }
+
+    @Benchmark
+    public Set<Artifact> require() throws Exception
+    {
+        return resolution.require( project, localRepository, SCOPE );
+    }
+
+    @Benchmark
+    public Set<Artifact> requireAgain() throws Exception
+    {
+        return warmResolution.require( warmProject, localRepository, SCOPE );
+    }
+
+    private MavenProject newProject()
+    {
+        Model model = new Model();
+        model.setGroupId( "npanday.benchmarks" );
+        model.setArtifactId( "Reactor" + repository.getSize() );
+        model.setVersion( "1.0" );
+        model.setPackaging( ArtifactType.DOTNET_LIBRARY.getPackagingType() );
+
+        MavenProject project = new MavenProject( model );
+        project.setArtifact(
+            repository.newArtifactFactory().createArtifactWithClassifier(
+                model.getGroupId(), model.getArtifactId(), model.getVersion(), model.getPackaging(), null
+            )
+        );
+        project.setDependencyArtifacts( repository.newDependencyArtifacts() );
+        project.setRemoteArtifactRepositories( Collections.EMPTY_LIST );
+        return project;
+    }
+}
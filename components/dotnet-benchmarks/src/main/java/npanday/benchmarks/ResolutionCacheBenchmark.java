@@ -0,0 +1,138 @@
+package npanday.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import npanday.resolver.NPandayResolutionCache;
+import org.apache.maven.artifact.Artifact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves all artifacts of a synthetic repository through the {@link NPandayResolutionCache}: with
+ * the results in memory, with the results stored by an earlier build, and without any results.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class ResolutionCacheBenchmark
+{
+    private static final String FINGERPRINT = "benchmark";
+
+    @Param( { "100", "1000", "10000" } )
+    public int size;
+
+    private SyntheticRepository repository;
+
+    private List<Artifact> artifacts;
+
+    private NPandayResolutionCache warmCache;
+
+    private NPandayResolutionCache attachedCache;
+
+    private NPandayResolutionCache emptyCache;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        repository = SyntheticRepository.of( size );
+        artifacts = new ArrayList<Artifact>( repository.newDependencyArtifacts() );
+
+        warmCache = Components.newResolutionCache();
+        resolveAll( warmCache, null );
+
+        // stores the results, as an earlier build would have done
+        NPandayResolutionCache earlier = Components.newResolutionCache();
+        earlier.attach( repository.getBasedir() );
+        resolveAll( earlier, FINGERPRINT );
+        earlier.flush();
+    }
+
+    @Setup( Level.Invocation )
+    public void setUpCaches()
+    {
+        attachedCache = Components.newResolutionCache();
+        attachedCache.attach( repository.getBasedir() );
+        emptyCache = Components.newResolutionCache();
+    }
+
+    @Benchmark
+    public int memoryHits() throws ExecutionException
+    {
+        return resolveAll( warmCache, null );
+    }
+
+    /**
+     * Includes reading the stored results.
+     */
+    @Benchmark
+    public int storedHits() throws ExecutionException
+    {
+        return resolveAll( attachedCache, FINGERPRINT );
+    }
+
+    @Benchmark
+    public int misses() throws ExecutionException
+    {
+        return resolveAll( emptyCache, null );
+    }
+
+    private int resolveAll( NPandayResolutionCache cache, String fingerprint ) throws ExecutionException
+    {
+        int resolved = 0;
+        for ( final Artifact artifact : artifacts )
+        {
+            boolean found = cache.resolve(
+                artifact, fingerprint, new Callable<File>()
+                {
+                    public File call()
+                    {
+                        return repository.getFile( artifact );
+                    }
+                }
+            );
+            if ( found )
+            {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+}
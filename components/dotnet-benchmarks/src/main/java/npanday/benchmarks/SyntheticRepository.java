@@ -0,0 +1,361 @@
+package npanday.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import npanday.ArtifactType;
+import npanday.LocalRepositoryUtil;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.ResolutionListener;
+import org.apache.maven.artifact.resolver.ResolutionNode;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A generated local repository of .NET artifacts, along with a GAC holding the referenced GAC
+ * assemblies. Out of ten artifacts, six are libraries, two are executables and two are installed
+ * into the GAC; every other library and executable comes with a pdb, so that the pdb lookups both
+ * hit and miss.
+ * <p/>
+ * Repositories are generated below the temporary directory once per size and reused by later runs.
+ * The resolver and artifact factory returned here stand in for the Maven components; they look up
+ * the generated files only and never access the network.
+ */
+public class SyntheticRepository
+{
+    private static final String TOKEN = "b77a5c561934e089";
+
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private final File basedir;
+
+    private final File gacRoot;
+
+    private final int size;
+
+    private SyntheticRepository( File directory, int size )
+    {
+        this.basedir = new File( directory, "repository" );
+        this.gacRoot = new File( directory, "gac" );
+        this.size = size;
+    }
+
+    /**
+     * Returns the repository of the given number of artifacts, generating it if necessary.
+     */
+    public static SyntheticRepository of( int size ) throws IOException
+    {
+        File directory = new File(
+            System.getProperty( "java.io.tmpdir" ), "npanday-benchmarks" + File.separator + "repository-" + size
+        );
+        SyntheticRepository repository = new SyntheticRepository( directory, size );
+        File marker = new File( directory, COMPLETE_MARKER );
+        if ( !marker.isFile() )
+        {
+            repository.generate();
+            write( marker );
+        }
+        return repository;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public File getBasedir()
+    {
+        return basedir;
+    }
+
+    public File getGacRoot()
+    {
+        return gacRoot;
+    }
+
+    public ArtifactRepository getLocalRepository()
+    {
+        return LocalRepositoryUtil.create( basedir );
+    }
+
+    /**
+     * Creates new, unresolved artifacts for all assemblies in the repository, as declared by the
+     * dependencies of a project.
+     */
+    public Set<Artifact> newDependencyArtifacts()
+    {
+        return newDependencyArtifacts( true );
+    }
+
+    /**
+     * @param includeGac if the GAC artifacts should be included; those can only be resolved by the GAC resolver.
+     */
+    public Set<Artifact> newDependencyArtifacts( boolean includeGac )
+    {
+        Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( includeGac || !isGac( i ) )
+            {
+                artifacts.add( newArtifact( i ) );
+            }
+        }
+        return artifacts;
+    }
+
+    public Artifact newArtifact( int index )
+    {
+        ArtifactType type = typeOf( index );
+        String classifier = isGac( index ) ? TOKEN : null;
+        return createArtifact(
+            groupIdOf( index ), artifactIdOf( index ), versionOf( index ), type.getPackagingType(), classifier
+        );
+    }
+
+    /**
+     * Stands in for Maven's resolver: resolves files from the generated repository, and reports each artifact
+     * of a transitive resolution to the listeners before resolving its file, like the Maven 2 collector does.
+     */
+    public ArtifactResolver newArtifactResolver()
+    {
+        return (ArtifactResolver) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{ ArtifactResolver.class }, new InvocationHandler()
+            {
+                public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+                {
+                    if ( method.getDeclaringClass() == Object.class )
+                    {
+                        return method.invoke( this, args );
+                    }
+                    if ( method.getName().equals( "resolve" ) || method.getName().equals( "resolveAlways" ) )
+                    {
+                        resolve( (Artifact) args[0] );
+                        return null;
+                    }
+                    if ( method.getName().equals( "resolveTransitively" ) && args.length == 8 )
+                    {
+                        return resolveTransitively( (Set<?>) args[0], (List<?>) args[7] );
+                    }
+                    throw new UnsupportedOperationException( method.getName() );
+                }
+            }
+        );
+    }
+
+    public ArtifactFactory newArtifactFactory()
+    {
+        return (ArtifactFactory) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{ ArtifactFactory.class }, new InvocationHandler()
+            {
+                public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+                {
+                    if ( method.getDeclaringClass() == Object.class )
+                    {
+                        return method.invoke( this, args );
+                    }
+                    if ( method.getName().equals( "createArtifactWithClassifier" ) )
+                    {
+                        return createArtifact(
+                            (String) args[0], (String) args[1], (String) args[2], (String) args[3], (String) args[4]
+                        );
+                    }
+                    if ( method.getName().equals( "createDependencyArtifact" ) && args.length >= 6 )
+                    {
+                        String classifier = args.length >= 7 && args[6] instanceof String ? (String) args[6] : null;
+                        return new DefaultArtifact(
+                            (String) args[0], (String) args[1], (VersionRange) args[2], (String) args[5],
+                            (String) args[4], classifier, new DefaultArtifactHandler( (String) args[4] )
+                        );
+                    }
+                    throw new UnsupportedOperationException( method.getName() );
+                }
+            }
+        );
+    }
+
+    private static Artifact createArtifact( String groupId, String artifactId, String version, String type,
+                                            String classifier )
+    {
+        return new DefaultArtifact(
+            groupId, artifactId, VersionRange.createFromVersion( version ), Artifact.SCOPE_COMPILE, type, classifier,
+            new DefaultArtifactHandler( type )
+        );
+    }
+
+    /**
+     * @return the file of the artifact in the repository, or <code>null</code> if there is none.
+     */
+    public File getFile( Artifact artifact )
+    {
+        File file = new File( basedir, pathOf( artifact ) );
+        return file.isFile() ? file : null;
+    }
+
+    private void resolve( Artifact artifact ) throws ArtifactNotFoundException
+    {
+        if ( artifact.isResolved() )
+        {
+            return;
+        }
+        File file = getFile( artifact );
+        if ( file == null )
+        {
+            throw new ArtifactNotFoundException( "Not in the synthetic repository: " + artifact.getId(), artifact );
+        }
+        artifact.setFile( file );
+        artifact.setResolved( true );
+    }
+
+    private ArtifactResolutionResult resolveTransitively( Set<?> artifacts, List<?> listeners )
+        throws ArtifactNotFoundException
+    {
+        Set<ResolutionNode> nodes = new LinkedHashSet<ResolutionNode>();
+        for ( Object o : artifacts )
+        {
+            Artifact artifact = (Artifact) o;
+            if ( listeners != null )
+            {
+                for ( Object listener : listeners )
+                {
+                    ( (ResolutionListener) listener ).includeArtifact( artifact );
+                }
+            }
+            resolve( artifact );
+            nodes.add( new ResolutionNode( artifact, Collections.EMPTY_LIST ) );
+        }
+
+        ArtifactResolutionResult result = new ArtifactResolutionResult();
+        result.setArtifactResolutionNodes( nodes );
+        return result;
+    }
+
+    private void generate() throws IOException
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            Artifact artifact = newArtifact( i );
+            if ( isGac( i ) )
+            {
+                String name = artifactIdOf( i );
+                File versionDirectory = new File(
+                    gacRoot, "GAC_MSIL" + File.separator + name + File.separator + versionOf( i ) + ".0__" + TOKEN
+                );
+                write( new File( versionDirectory, name + ".dll" ) );
+                continue;
+            }
+
+            write( new File( basedir, pathOf( artifact ) ) );
+            if ( i % 2 == 0 )
+            {
+                Artifact pdb = createArtifact(
+                    artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                    ArtifactType.DOTNET_SYMBOLS.getPackagingType(), null
+                );
+                write( new File( basedir, pathOf( pdb ) ) );
+            }
+        }
+    }
+
+    private static String pathOf( Artifact artifact )
+    {
+        String extension = ArtifactType.getArtifactTypeForPackagingName( artifact.getType() ).getExtension();
+        StringBuilder path = new StringBuilder();
+        path.append( artifact.getGroupId().replace( '.', '/' ) ).append( '/' );
+        path.append( artifact.getArtifactId() ).append( '/' ).append( artifact.getVersion() ).append( '/' );
+        path.append( artifact.getArtifactId() ).append( '-' ).append( artifact.getVersion() );
+        if ( artifact.getClassifier() != null )
+        {
+            path.append( '-' ).append( artifact.getClassifier() );
+        }
+        return path.append( '.' ).append( extension ).toString();
+    }
+
+    private static void write( File file ) throws IOException
+    {
+        File parent = file.getParentFile();
+        if ( !parent.isDirectory() && !parent.mkdirs() )
+        {
+            throw new IOException( "Could not create directory " + parent );
+        }
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            // small, but distinct contents, so that digests differ
+            out.write( ( "MZ " + file.getName() ).getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static ArtifactType typeOf( int index )
+    {
+        switch ( index % 10 )
+        {
+            case 5:
+            case 6:
+                return ArtifactType.DOTNET_EXECUTABLE;
+            case 7:
+            case 8:
+                return ArtifactType.GAC_MSIL;
+            default:
+                return ArtifactType.DOTNET_LIBRARY;
+        }
+    }
+
+    private static boolean isGac( int index )
+    {
+        return typeOf( index ) == ArtifactType.GAC_MSIL;
+    }
+
+    private static String groupIdOf( int index )
+    {
+        return "npanday.benchmarks.group" + ( index % 20 );
+    }
+
+    private static String artifactIdOf( int index )
+    {
+        return "Assembly" + index;
+    }
+
+    private static String versionOf( int index )
+    {
+        return "1." + ( index % 3 ) + "." + ( index % 7 );
+    }
+}
@@ -0,0 +1,513 @@
+package npanday;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Stages a set of files into one directory, skipping those that are already there with the same
+ * contents.
+ * <p/>
+ * A manifest below the build directory remembers size and last modification time of the source and
+ * the staged copy; when both still match, the file is skipped without reading it. Without a build
+ * directory, a staged copy with the size and modification time of its source is skipped. Otherwise
+ * sizes and then digests are compared. Nothing but the staged files is written to the target directory,
+ * which may well be part of the sources, like the <code>Bin</code> folder of a web project.
+ * <p/>
+ * Changed files are replaced by a hard link to the source where the JVM and the file system support it,
+ * and copied through file channels otherwise. An existing target is always removed before it gets
+ * replaced, so that a file never gets written through a link into its source.
+ */
+public class FileStager
+{
+    /**
+     * The directory below the build directory holding the manifests, one per target directory.
+     */
+    static final String MANIFESTS = "npanday-staged";
+
+    private static final int MAX_THREADS = 4;
+
+    /**
+     * Some platforms fail to transfer large chunks at once.
+     */
+    private static final long TRANSFER_SIZE = 32 * 1024 * 1024;
+
+    private static final char SEPARATOR = '|';
+
+    private static final Method TO_PATH;
+
+    private static final Method CREATE_LINK;
+
+    static
+    {
+        Method toPath = null;
+        Method createLink = null;
+        try
+        {
+            // java.nio.file is only available as of Java 7
+            Class<?> pathClass = Class.forName( "java.nio.file.Path" );
+            toPath = File.class.getMethod( "toPath" );
+            createLink = Class.forName( "java.nio.file.Files" ).getMethod( "createLink", pathClass, pathClass );
+        }
+        catch ( Exception e )
+        {
+            toPath = null;
+            createLink = null;
+        }
+        TO_PATH = toPath;
+        CREATE_LINK = createLink;
+    }
+
+    private final File directory;
+
+    private final File manifestFile;
+
+    private final Map<String, File> files = new LinkedHashMap<String, File>();
+
+    private boolean link = true;
+
+    /**
+     * Creates a stager that decides from the existing files only.
+     */
+    public FileStager( File directory )
+    {
+        this( directory, null );
+    }
+
+    /**
+     * @param buildDirectory the build directory of the project the manifest is kept in; or <code>null</code> for
+     *                       none
+     */
+    public FileStager( File directory, File buildDirectory )
+    {
+        this.directory = directory;
+        this.manifestFile = buildDirectory == null ? null : new File(
+            new File( buildDirectory, MANIFESTS ),
+            directory.getName() + "-" + InputFingerprint.digest( directory.getAbsolutePath() ).substring( 0, 12 )
+                + ".properties"
+        );
+    }
+
+    /**
+     * Adds a file to be staged under its own name.
+     *
+     * @return the file that was added under the same name before, or <code>null</code>.
+     */
+    public File add( File source )
+    {
+        return add( source, source.getName() );
+    }
+
+    /**
+     * Adds a file to be staged under the given name; a later file added with the same name wins.
+     * Adding the same file twice stages it once.
+     *
+     * @return the file that was added under the same name before, or <code>null</code>.
+     */
+    public File add( File source, String targetName )
+    {
+        return files.put( targetName, source );
+    }
+
+    /**
+     * @param link if files may be staged as hard links to their source; defaults to <code>true</code>.
+     */
+    public void setLink( boolean link )
+    {
+        this.link = link;
+    }
+
+    public boolean isLink()
+    {
+        return link;
+    }
+
+    /**
+     * Stages all added files, using up to four threads.
+     */
+    public Result stage() throws IOException
+    {
+        if ( !directory.exists() && !directory.mkdirs() )
+        {
+            throw new IOException( "NPANDAY-173-000: Could not create directory " + directory );
+        }
+
+        final Properties manifest = loadManifest();
+        final Properties staged = new Properties();
+        Result result = new Result();
+        if ( files.isEmpty() )
+        {
+            return result;
+        }
+
+        int threads = Math.min( Math.min( MAX_THREADS, files.size() ), Runtime.getRuntime().availableProcessors() );
+        ThreadFactory threadFactory =
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "npanday-file-stager-%d" ).build();
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, threads ), threadFactory );
+        try
+        {
+            List<Future<Outcome>> outcomes = new ArrayList<Future<Outcome>>();
+            for ( final Map.Entry<String, File> file : files.entrySet() )
+            {
+                outcomes.add(
+                    executor.submit(
+                        new Callable<Outcome>()
+                        {
+                            public Outcome call() throws IOException
+                            {
+                                return stage( file.getValue(), file.getKey(), manifest, staged );
+                            }
+                        }
+                    )
+                );
+            }
+
+            IOException failure = null;
+            for ( Future<Outcome> outcome : outcomes )
+            {
+                try
+                {
+                    result.add( outcome.get() );
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( failure == null )
+                    {
+                        failure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause()
+                            : (IOException) new IOException( e.getCause().getMessage() ).initCause( e.getCause() );
+                    }
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException( "NPANDAY-173-001: Interrupted while staging files to " + directory );
+                }
+            }
+
+            // entries of files staged earlier that were not part of this run are kept
+            for ( String name : manifest.stringPropertyNames() )
+            {
+                if ( !files.containsKey( name ) )
+                {
+                    staged.setProperty( name, manifest.getProperty( name ) );
+                }
+            }
+            storeManifest( staged );
+
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        return result;
+    }
+
+    private Outcome stage( File source, String name, Properties manifest, Properties staged ) throws IOException
+    {
+        if ( source == null || !source.isFile() )
+        {
+            throw new IOException( "NPANDAY-173-002: Could not stage " + name + ", the source " + source
+                + " does not exist" );
+        }
+
+        File target = new File( directory, name );
+        String sourceStamp = source.getAbsolutePath() + SEPARATOR + stamp( source );
+        if ( target.isFile() )
+        {
+            boolean unchanged;
+            if ( manifestFile != null )
+            {
+                String recorded = manifest.getProperty( name );
+                unchanged = ( sourceStamp + SEPARATOR + stamp( target ) ).equals( recorded );
+            }
+            else
+            {
+                // copies keep the modification time of their source, links share it
+                unchanged = stamp( source ).equals( stamp( target ) );
+            }
+            if ( !unchanged && target.length() == source.length() )
+            {
+                unchanged = InputFingerprint.digest( source ).equals( InputFingerprint.digest( target ) );
+            }
+            if ( unchanged )
+            {
+                record( staged, name, sourceStamp, target );
+                return new Outcome( Outcome.UNCHANGED, 0 );
+            }
+        }
+
+        if ( target.exists() && !target.delete() )
+        {
+            throw new IOException( "NPANDAY-173-003: Could not replace " + target );
+        }
+
+        int kind;
+        if ( link && createLink( target, source ) )
+        {
+            kind = Outcome.LINKED;
+        }
+        else
+        {
+            try
+            {
+                copy( source, target );
+            }
+            catch ( IOException e )
+            {
+                throw (IOException) new IOException(
+                    "NPANDAY-173-004: Error on copying " + source + " to " + target ).initCause( e );
+            }
+            kind = Outcome.COPIED;
+        }
+        record( staged, name, sourceStamp, target );
+        return new Outcome( kind, target.length() );
+    }
+
+    /**
+     * Copies through file channels, keeping the modification time of the source.
+     */
+    static void copy( File source, File target ) throws IOException
+    {
+        FileInputStream in = new FileInputStream( source );
+        try
+        {
+            FileOutputStream out = new FileOutputStream( target );
+            try
+            {
+                FileChannel from = in.getChannel();
+                FileChannel to = out.getChannel();
+                long size = from.size();
+                long position = 0;
+                while ( position < size )
+                {
+                    position += from.transferTo( position, Math.min( TRANSFER_SIZE, size - position ), to );
+                }
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        if ( target.length() != source.length() )
+        {
+            throw new IOException( "Copied " + target.length() + " of " + source.length() + " bytes" );
+        }
+        target.setLastModified( source.lastModified() );
+    }
+
+    private static void record( Properties staged, String name, String sourceStamp, File target )
+    {
+        synchronized ( staged )
+        {
+            staged.setProperty( name, sourceStamp + SEPARATOR + stamp( target ) );
+        }
+    }
+
+    private static String stamp( File file )
+    {
+        return file.length() + ":" + file.lastModified();
+    }
+
+    /**
+     * Creates a hard link, if the JVM supports it.
+     *
+     * @return <code>false</code> if the link could not be created.
+     */
+    static boolean createLink( File link, File existing )
+    {
+        if ( CREATE_LINK == null )
+        {
+            return false;
+        }
+        try
+        {
+            CREATE_LINK.invoke( null, TO_PATH.invoke( link ), TO_PATH.invoke( existing ) );
+            return true;
+        }
+        catch ( Exception e )
+        {
+            // different file systems, no support for links, ...
+            return false;
+        }
+    }
+
+    private Properties loadManifest()
+    {
+        Properties manifest = new Properties();
+        if ( manifestFile == null || !manifestFile.isFile() )
+        {
+            return manifest;
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( manifestFile );
+            manifest.load( in );
+        }
+        catch ( IOException e )
+        {
+            // every file will be compared by contents
+            manifest.clear();
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return manifest;
+    }
+
+    private void storeManifest( Properties manifest ) throws IOException
+    {
+        if ( manifestFile == null )
+        {
+            return;
+        }
+        File manifests = manifestFile.getParentFile();
+        if ( !manifests.exists() && !manifests.mkdirs() )
+        {
+            throw new IOException( "NPANDAY-173-005: Could not create directory " + manifests );
+        }
+
+        OutputStream out = new FileOutputStream( manifestFile );
+        try
+        {
+            manifest.store( out, "NPanday files staged to " + directory.getAbsolutePath() );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    private static class Outcome
+    {
+        static final int UNCHANGED = 0;
+
+        static final int LINKED = 1;
+
+        static final int COPIED = 2;
+
+        private final int kind;
+
+        private final long bytes;
+
+        Outcome( int kind, long bytes )
+        {
+            this.kind = kind;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Counts what happened to the staged files.
+     */
+    public static class Result
+    {
+        private int unchanged;
+
+        private int linked;
+
+        private int copied;
+
+        private long bytesCopied;
+
+        private long bytesLinked;
+
+        void add( Outcome outcome )
+        {
+            switch ( outcome.kind )
+            {
+                case Outcome.LINKED:
+                    linked++;
+                    bytesLinked += outcome.bytes;
+                    break;
+                case Outcome.COPIED:
+                    copied++;
+                    bytesCopied += outcome.bytes;
+                    break;
+                default:
+                    unchanged++;
+            }
+        }
+
+        public int getUnchanged()
+        {
+            return unchanged;
+        }
+
+        public int getLinked()
+        {
+            return linked;
+        }
+
+        public int getCopied()
+        {
+            return copied;
+        }
+
+        public long getBytesCopied()
+        {
+            return bytesCopied;
+        }
+
+        public long getBytesLinked()
+        {
+            return bytesLinked;
+        }
+
+        public String toString()
+        {
+            return copied + " copied (" + bytesCopied + " bytes), " + linked + " linked (" + bytesLinked
+                + " bytes), " + unchanged + " unchanged";
+        }
+    }
+}
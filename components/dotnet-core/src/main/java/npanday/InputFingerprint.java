@@ -0,0 +1,262 @@
+package npanday;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Records content digests for a set of build inputs (files and plain values), so that a later
+ * build can find out whether any of them changed.
+ * <p/>
+ * File entries also remember size and last modification time. When a previous fingerprint is
+ * passed in and both match, the recorded digest is reused instead of reading the file again;
+ * only the digests are compared, hence touched but unchanged files still count as up-to-date.
+ */
+public class InputFingerprint
+{
+    private static final String ALGORITHM = "SHA-1";
+
+    private static final String MISSING = "missing";
+
+    private static final char SEPARATOR = '|';
+
+    private final Map<String, String> entries = new TreeMap<String, String>();
+
+    private final InputFingerprint previous;
+
+    public InputFingerprint()
+    {
+        this( null );
+    }
+
+    /**
+     * @param previous a fingerprint recorded earlier; used to avoid rehashing files that were not modified.
+     */
+    public InputFingerprint( InputFingerprint previous )
+    {
+        this.previous = previous;
+    }
+
+    /**
+     * Adds a plain value, like a command line or a configuration setting.
+     */
+    public void addValue( String key, String value )
+    {
+        entries.put( "value:" + key, value == null ? MISSING : digest( value ) );
+    }
+
+    /**
+     * Adds the contents of a file. Missing files are recorded as such.
+     */
+    public void addFile( File file ) throws IOException
+    {
+        String key = "file:" + file.getAbsolutePath();
+        if ( !file.isFile() )
+        {
+            entries.put( key, MISSING );
+            return;
+        }
+
+        String stamp = file.length() + ":" + file.lastModified();
+        if ( previous != null )
+        {
+            String recorded = previous.entries.get( key );
+            if ( recorded != null && recorded.startsWith( stamp + SEPARATOR ) )
+            {
+                entries.put( key, recorded );
+                return;
+            }
+        }
+
+        entries.put( key, stamp + SEPARATOR + digest( file ) );
+    }
+
+    public void addFiles( Iterable<File> files ) throws IOException
+    {
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            addFile( file );
+        }
+    }
+
+    /**
+     * Compares the digests of both fingerprints, ignoring file sizes and timestamps.
+     *
+     * @return a description of the first differing entry, or <code>null</code> if both fingerprints match.
+     */
+    public String findDifference( InputFingerprint other )
+    {
+        if ( other == null )
+        {
+            return "no fingerprint recorded";
+        }
+
+        for ( Map.Entry<String, String> entry : entries.entrySet() )
+        {
+            String otherValue = other.entries.get( entry.getKey() );
+            if ( otherValue == null )
+            {
+                return "added " + entry.getKey();
+            }
+            if ( !contentOf( entry.getValue() ).equals( contentOf( otherValue ) ) )
+            {
+                return "changed " + entry.getKey();
+            }
+        }
+
+        for ( String key : other.entries.keySet() )
+        {
+            if ( !entries.containsKey( key ) )
+            {
+                return "removed " + key;
+            }
+        }
+
+        return null;
+    }
+
+    public boolean matches( InputFingerprint other )
+    {
+        return findDifference( other ) == null;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    public void store( File file ) throws IOException
+    {
+        File parent = file.getParentFile();
+        if ( parent != null && !parent.exists() && !parent.mkdirs() )
+        {
+            throw new IOException( "NPANDAY-170-001: Could not create directory " + parent );
+        }
+
+        Properties properties = new Properties();
+        properties.putAll( entries );
+
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            properties.store( out, "NPanday input fingerprint" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * Loads a stored fingerprint.
+     *
+     * @return the fingerprint, or <code>null</code> if there is none or if it can't be read.
+     */
+    public static InputFingerprint load( File file )
+    {
+        if ( file == null || !file.isFile() )
+        {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        InputFingerprint fingerprint = new InputFingerprint();
+        for ( String key : properties.stringPropertyNames() )
+        {
+            fingerprint.entries.put( key, properties.getProperty( key ) );
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Computes the hex encoded digest of a file's contents.
+     */
+    public static String digest( File file ) throws IOException
+    {
+        return toHex( Files.getDigest( file, newMessageDigest() ) );
+    }
+
+    public static String digest( String value )
+    {
+        return toHex( newMessageDigest().digest( value.getBytes( Charsets.UTF_8 ) ) );
+    }
+
+    private static String contentOf( String value )
+    {
+        int index = value.lastIndexOf( SEPARATOR );
+        return index < 0 ? value : value.substring( index + 1 );
+    }
+
+    private static MessageDigest newMessageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( ALGORITHM );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "NPANDAY-170-000: " + ALGORITHM + " is not supported by this JVM", e );
+        }
+    }
+
+    private static String toHex( byte[] bytes )
+    {
+        StringBuilder builder = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes )
+        {
+            builder.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) );
+            builder.append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,300 @@
+package npanday;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A version string split into its components at the delimiters '.', '_' and '-'. The string is
+ * scanned once; numeric components are kept as ints so that versions can be compared without parsing
+ * them again.
+ * <p/>
+ * Instances are immutable and interned: {@link #of(String)} returns the same instance for equal strings
+ * as long as it stays in the cache.
+ */
+public final class ParsedVersion
+{
+    /**
+     * Returned by {@link #getModifier()} if the version does not end with '+' or '*'.
+     */
+    public static final char NO_MODIFIER = 0;
+
+    /**
+     * The number of versions to keep interned at most; the cache is emptied once it grows beyond.
+     */
+    private static final int MAX_INTERNED = 1024;
+
+    private static final ConcurrentMap<String, ParsedVersion> interned =
+        new ConcurrentHashMap<String, ParsedVersion>();
+
+    private static final String PADDING = "0";
+
+    private final String text;
+
+    private final String[] tokens;
+
+    /**
+     * The value of each token, or -1 if the token is not a number that fits into an int.
+     */
+    private final int[] numbers;
+
+    private final boolean valid;
+
+    private final boolean dotted;
+
+    private final char modifier;
+
+    private volatile ParsedVersion withoutModifier;
+
+    /**
+     * Returns the parsed version for the given string.
+     *
+     * @param version the version, not null
+     * @return the parsed version
+     */
+    public static ParsedVersion of( String version )
+    {
+        ParsedVersion parsed = interned.get( version );
+        if ( parsed == null )
+        {
+            if ( interned.size() >= MAX_INTERNED )
+            {
+                interned.clear();
+            }
+            parsed = new ParsedVersion( version );
+            ParsedVersion existing = interned.putIfAbsent( version, parsed );
+            if ( existing != null )
+            {
+                parsed = existing;
+            }
+        }
+        return parsed;
+    }
+
+    private ParsedVersion( String version )
+    {
+        text = version;
+
+        int length = version.length();
+        boolean validChars = true;
+        boolean dots = true;
+        List<String> found = new ArrayList<String>();
+        int start = 0;
+        for ( int i = 0; i <= length; i++ )
+        {
+            char c = i < length ? version.charAt( i ) : '.';
+            if ( c == '.' || c == '_' || c == '-' )
+            {
+                found.add( version.substring( start, i ) );
+                start = i + 1;
+                dots &= c == '.';
+            }
+            else if ( !isAlphanumeric( c ) && !( i == length - 1 && ( c == '+' || c == '*' ) ) )
+            {
+                validChars = false;
+            }
+        }
+
+        // like String.split, drop trailing empty tokens unless the version itself is empty
+        int size = found.size();
+        while ( size > 0 && found.get( size - 1 ).length() == 0 && length > 0 )
+        {
+            size--;
+        }
+
+        tokens = found.subList( 0, size ).toArray( new String[size] );
+        numbers = new int[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            numbers[i] = toNumber( tokens[i] );
+        }
+        valid = validChars;
+        dotted = dots;
+
+        char last = length > 0 ? version.charAt( length - 1 ) : NO_MODIFIER;
+        modifier = last == '+' || last == '*' ? last : NO_MODIFIER;
+    }
+
+    private ParsedVersion( ParsedVersion version )
+    {
+        text = version.text.substring( 0, version.text.length() - 1 );
+        tokens = version.tokens.clone();
+        numbers = version.numbers.clone();
+        int last = tokens.length - 1;
+        if ( last >= 0 )
+        {
+            tokens[last] = tokens[last].substring( 0, tokens[last].length() - 1 );
+            numbers[last] = toNumber( tokens[last] );
+        }
+        valid = version.valid;
+        dotted = version.dotted;
+        modifier = NO_MODIFIER;
+    }
+
+    /**
+     * Returns true if the version consists of letters, digits and delimiters only, optionally followed
+     * by a single '+' or '*' modifier.
+     */
+    public boolean isValid()
+    {
+        return valid;
+    }
+
+    /**
+     * Returns true if all components are delimited by '.'.
+     */
+    public boolean isDotted()
+    {
+        return dotted;
+    }
+
+    /**
+     * Returns the trailing '+' or '*', or {@link #NO_MODIFIER}.
+     */
+    public char getModifier()
+    {
+        return modifier;
+    }
+
+    /**
+     * Returns this version with the trailing modifier removed from the last component. The number of
+     * components does not change, even if the last one becomes empty.
+     */
+    public ParsedVersion withoutModifier()
+    {
+        if ( modifier == NO_MODIFIER )
+        {
+            return this;
+        }
+        ParsedVersion stripped = withoutModifier;
+        if ( stripped == null )
+        {
+            stripped = new ParsedVersion( this );
+            withoutModifier = stripped;
+        }
+        return stripped;
+    }
+
+    /**
+     * Returns the number of components.
+     */
+    public int size()
+    {
+        return tokens.length;
+    }
+
+    /**
+     * Returns the component at the given index; components beyond {@link #size()} are "0".
+     */
+    public String getToken( int index )
+    {
+        return index < tokens.length ? tokens[index] : PADDING;
+    }
+
+    /**
+     * Returns true if the component at the given index is a number that fits into an int; components
+     * beyond {@link #size()} are 0.
+     */
+    public boolean isNumber( int index )
+    {
+        return index >= tokens.length || numbers[index] >= 0;
+    }
+
+    /**
+     * Returns the numeric value of the component at the given index, or -1 if it is not a number.
+     */
+    public int getNumber( int index )
+    {
+        return index < tokens.length ? numbers[index] : 0;
+    }
+
+    /**
+     * Returns the version with ".0" appended until it has at least the given number of components.
+     */
+    public String pad( int size )
+    {
+        StringBuilder padded = new StringBuilder( text );
+        for ( int i = tokens.length; i < size; i++ )
+        {
+            padded.append( '.' ).append( PADDING );
+        }
+        return padded.toString();
+    }
+
+    /**
+     * Compares the versions component by component as numbers; components that are not numbers count as 0,
+     * as do those beyond {@link #size()}.
+     *
+     * @return a negative number, zero or a positive number if this version is lower, equal or higher
+     */
+    public int compareNumbers( ParsedVersion other )
+    {
+        int size = Math.max( tokens.length, other.tokens.length );
+        for ( int i = 0; i < size; i++ )
+        {
+            int left = Math.max( 0, getNumber( i ) );
+            int right = Math.max( 0, other.getNumber( i ) );
+            if ( left != right )
+            {
+                return left < right ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+
+    private static boolean isAlphanumeric( char c )
+    {
+        return ( c >= '0' && c <= '9' ) || ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' );
+    }
+
+    private static int toNumber( String token )
+    {
+        int length = token.length();
+        if ( length == 0 )
+        {
+            return -1;
+        }
+        long value = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = token.charAt( i );
+            if ( c < '0' || c > '9' )
+            {
+                return -1;
+            }
+            value = value * 10 + ( c - '0' );
+            if ( value > Integer.MAX_VALUE )
+            {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+}
@@ -21,11 +21,11 @@ package npanday;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.logging.Logger;
 
 /**
@@ -202,19 +202,45 @@ public final class PathUtil
     public static void copyPlainArtifactFileToDirectory( Artifact artifact, File targetFolder)
         throws IOException
     {
-        File destination = new File(
-            targetFolder, PathUtil.getPlainArtifactFileName( artifact )
-        );
+        copyPlainArtifactFilesToDirectory( Collections.singleton( artifact ), targetFolder, false );
+    }
 
-        try
-        {
-            FileUtils.copyFile(
-                artifact.getFile(), destination
-            );
-        }
-        catch ( IOException e )
+    /**
+     * Copies the files of the artifacts into the folder, stripping version and classifier. Files that are
+     * already there with the same contents are skipped, the others are copied in parallel, or hard linked
+     * if <code>link</code> is set and the file system supports it. Of several artifacts with the same
+     * plain file name, the last one is copied.
+     */
+    public static FileStager.Result copyPlainArtifactFilesToDirectory( Collection<Artifact> artifacts,
+                                                                       File targetFolder, boolean link )
+        throws IOException
+    {
+        return copyPlainArtifactFilesToDirectory( artifacts, targetFolder, link, null );
+    }
+
+    /**
+     * Copies the files of the artifacts into the folder, like
+     * {@link #copyPlainArtifactFilesToDirectory(Collection, File, boolean)}; remembering what was copied in a
+     * manifest below the build directory of the project.
+     */
+    public static FileStager.Result copyPlainArtifactFilesToDirectory( Collection<Artifact> artifacts,
+                                                                       File targetFolder, boolean link,
+                                                                       File buildDirectory )
+        throws IOException
+    {
+        FileStager stager = new FileStager( targetFolder, buildDirectory );
+        stager.setLink( link );
+        for ( Artifact artifact : artifacts )
         {
-            throw new IOException( "Error on copying " + artifact + " to " + destination);
+            File previous = stager.add( artifact.getFile(), PathUtil.getPlainArtifactFileName( artifact ) );
+            if ( previous != null && !previous.equals( artifact.getFile() ) )
+            {
+                logger.warning(
+                    "NPANDAY-040-023: Both " + previous + " and " + artifact.getFile() + " would be copied to "
+                        + PathUtil.getPlainArtifactFileName( artifact ) + " in " + targetFolder + ", using the latter"
+                );
+            }
         }
+        return stager.stage();
     }
 }
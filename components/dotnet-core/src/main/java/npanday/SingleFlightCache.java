@@ -0,0 +1,239 @@
+package npanday;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe cache that loads each value only once: concurrent requests for a key that is being
+ * loaded wait for the first request to finish instead of loading the value again. Values may be
+ * <code>null</code>. Failed loads are not cached.
+ * <p/>
+ * Lookups do not lock. When the cache grows beyond its maximum size, the least recently used tenth
+ * of the entries gets evicted.
+ */
+public class SingleFlightCache<K, V>
+{
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final Object evictionLock = new Object();
+
+    private final int maximumSize;
+
+    /**
+     * @param maximumSize the number of entries to keep at most.
+     */
+    public SingleFlightCache( int maximumSize )
+    {
+        if ( maximumSize < 1 )
+        {
+            throw new IllegalArgumentException( "NPANDAY-175-000: The maximum size must be positive" );
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cached value, or loads it.
+     *
+     * @throws ExecutionException if the loader failed, either in this call or in a concurrent one.
+     */
+    public V get( K key, Callable<V> loader ) throws ExecutionException
+    {
+        Entry<V> entry = entries.get( key );
+        if ( entry == null )
+        {
+            Entry<V> created = new Entry<V>( new FutureTask<V>( loader ) );
+            entry = entries.putIfAbsent( key, created );
+            if ( entry == null )
+            {
+                entry = created;
+                entry.task.run();
+                evictIfNeeded();
+            }
+        }
+        entry.lastAccess = clock.incrementAndGet();
+
+        try
+        {
+            return entry.task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            entries.remove( key, entry );
+            throw e;
+        }
+    }
+
+    /**
+     * @return if a value for the key is cached, or being loaded.
+     */
+    public boolean containsKey( K key )
+    {
+        return entries.containsKey( key );
+    }
+
+    /**
+     * Returns the cached value without loading it.
+     *
+     * @return the value, or <code>null</code> if there is none; see {@link #containsKey}.
+     */
+    public V getIfPresent( K key ) throws ExecutionException
+    {
+        Entry<V> entry = entries.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+
+        try
+        {
+            return entry.task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException( e );
+        }
+    }
+
+    public void put( K key, V value )
+    {
+        FutureTask<V> task = new FutureTask<V>( new Constant<V>( value ) );
+        task.run();
+        Entry<V> entry = new Entry<V>( task );
+        entry.lastAccess = clock.incrementAndGet();
+        entries.put( key, entry );
+        evictIfNeeded();
+    }
+
+    public void remove( K key )
+    {
+        entries.remove( key );
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    private void evictIfNeeded()
+    {
+        if ( entries.size() <= maximumSize )
+        {
+            return;
+        }
+
+        synchronized ( evictionLock )
+        {
+            int excess = entries.size() - maximumSize;
+            if ( excess <= 0 )
+            {
+                return;
+            }
+
+            // sort on a snapshot, since the access times keep changing
+            List<Candidate<K, V>> oldest = new ArrayList<Candidate<K, V>>( entries.size() );
+            for ( Map.Entry<K, Entry<V>> entry : entries.entrySet() )
+            {
+                oldest.add( new Candidate<K, V>( entry.getKey(), entry.getValue() ) );
+            }
+            Collections.sort( oldest );
+
+            int evict = Math.min( oldest.size(), excess + maximumSize / 10 );
+            for ( int i = 0; i < evict; i++ )
+            {
+                Candidate<K, V> candidate = oldest.get( i );
+                entries.remove( candidate.key, candidate.entry );
+            }
+        }
+    }
+
+    private static class Entry<V>
+    {
+        private final FutureTask<V> task;
+
+        private volatile long lastAccess;
+
+        Entry( FutureTask<V> task )
+        {
+            this.task = task;
+        }
+    }
+
+    private static class Candidate<K, V>
+        implements Comparable<Candidate<K, V>>
+    {
+        private final K key;
+
+        private final Entry<V> entry;
+
+        private final long lastAccess;
+
+        Candidate( K key, Entry<V> entry )
+        {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+
+        public int compareTo( Candidate<K, V> other )
+        {
+            return lastAccess < other.lastAccess ? -1 : ( lastAccess > other.lastAccess ? 1 : 0 );
+        }
+    }
+
+    private static class Constant<V>
+        implements Callable<V>
+    {
+        private final V value;
+
+        Constant( V value )
+        {
+            this.value = value;
+        }
+
+        public V call()
+        {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday
+
+import org.apache.maven.artifact.DefaultArtifact
+import org.apache.maven.artifact.handler.DefaultArtifactHandler
+import org.apache.maven.artifact.versioning.VersionRange
+import org.junit.Before
+import org.junit.Test
+
+class FileStagerTest {
+
+    File source
+    File target
+
+    @Before
+    void createDirectories() {
+        source = createTempDirectory("source")
+        target = createTempDirectory("target")
+    }
+
+    File createTempDirectory(String name) {
+        File dir = File.createTempFile("stager-" + name, "")
+        dir.delete()
+        dir.mkdirs()
+        dir.deleteOnExit()
+        return dir
+    }
+
+    File createFile(String name, String contents) {
+        File file = new File(source, name)
+        file.text = contents
+        return file
+    }
+
+    FileStager.Result stage(File... files) {
+        def stager = new FileStager(target)
+        stager.link = false
+        files.each { stager.add(it) }
+        return stager.stage()
+    }
+
+    @Test
+    void copiesNewFiles() {
+        def result = stage(createFile("A.dll", "a"), createFile("B.dll", "bb"))
+
+        assert result.copied == 2
+        assert result.bytesCopied == 3
+        assert new File(target, "A.dll").text == "a"
+        assert new File(target, "B.dll").text == "bb"
+    }
+
+    @Test
+    void skipsUnchangedFiles() {
+        def a = createFile("A.dll", "a")
+        stage(a)
+
+        def result = stage(a)
+
+        assert result.unchanged == 1
+        assert result.copied == 0
+    }
+
+    @Test
+    void skipsTouchedFilesWithSameContents() {
+        def a = createFile("A.dll", "a")
+        stage(a)
+        a.lastModified = a.lastModified() - 10000
+
+        def result = stage(a)
+
+        assert result.unchanged == 1
+    }
+
+    @Test
+    void replacesChangedFiles() {
+        def a = createFile("A.dll", "a")
+        stage(a)
+        a.text = "b"
+
+        def result = stage(a)
+
+        assert result.copied == 1
+        assert new File(target, "A.dll").text == "b"
+    }
+
+    @Test
+    void stagesUnderTargetName() {
+        def stager = new FileStager(target)
+        stager.add(createFile("A-1.0.dll", "a"), "A.dll")
+        stager.stage()
+
+        assert new File(target, "A.dll").text == "a"
+    }
+
+    @Test
+    void neverWritesThroughLinks() {
+        def a = createFile("A.dll", "a")
+        def stager = new FileStager(target)
+        stager.add(a)
+        def result = stager.stage()
+        assert result.linked + result.copied == 1
+
+        def other = new File(createTempDirectory("other"), "A.dll")
+        other.text = "other"
+        stager = new FileStager(target)
+        stager.add(other)
+        stager.stage()
+
+        assert new File(target, "A.dll").text == "other"
+        assert a.text == "a"
+    }
+
+    @Test
+    void copiesKeepModificationTime() {
+        def a = createFile("A.dll", "a" * 100000)
+        a.lastModified = a.lastModified() - 60000
+
+        stage(a)
+
+        def copy = new File(target, "A.dll")
+        assert copy.length() == 100000
+        assert copy.lastModified() == a.lastModified()
+    }
+
+    @Test
+    void reportsFilesAddedUnderTheSameName() {
+        def stager = new FileStager(target)
+        def first = createFile("A.dll", "a")
+
+        assert stager.add(first) == null
+        assert stager.add(first) == first
+        assert stager.add(new File(createTempDirectory("other"), "A.dll"), "A.dll") == first
+    }
+
+    @Test
+    void copiesPlainArtifactFiles() {
+        def library = new DefaultArtifact("test", "library", VersionRange.createFromVersion("1.0"), "compile",
+                                          "dotnet-library", null, new DefaultArtifactHandler("dll"))
+        library.file = createFile("library-1.0.dll", "library")
+
+        def result = PathUtil.copyPlainArtifactFilesToDirectory([library], target, false)
+        assert result.copied == 1
+        assert new File(target, "library.dll").text == "library"
+
+        library.file.text = "updated"
+        PathUtil.copyPlainArtifactFilesToDirectory([library], target, false)
+        assert new File(target, "library.dll").text == "updated"
+    }
+
+    @Test
+    void copiesLastArtifactWithTheSamePlainName() {
+        def first = new DefaultArtifact("first", "library", VersionRange.createFromVersion("1.0"), "compile",
+                                        "dotnet-library", null, new DefaultArtifactHandler("dll"))
+        first.file = createFile("first.dll", "first")
+        def second = new DefaultArtifact("second", "library", VersionRange.createFromVersion("1.0"), "compile",
+                                         "dotnet-library", null, new DefaultArtifactHandler("dll"))
+        second.file = createFile("second.dll", "second")
+
+        def result = PathUtil.copyPlainArtifactFilesToDirectory([first, second], target, false)
+
+        assert result.copied == 1
+        assert new File(target, "library.dll").text == "second"
+    }
+
+    @Test
+    void keepsManifestInBuildDirectory() {
+        def build = createTempDirectory("build")
+        def a = createFile("A.dll", "a")
+
+        def stager = new FileStager(target, build)
+        stager.add(a)
+        stager.stage()
+
+        assert target.list() as List == ["A.dll"]
+        def manifests = new File(build, FileStager.MANIFESTS).listFiles()
+        assert manifests.length == 1
+        assert manifests[0].name.startsWith(target.name + "-")
+
+        stager = new FileStager(target, build)
+        stager.add(a)
+        assert stager.stage().unchanged == 1
+    }
+
+    @Test
+    void writesNothingButTheFilesWithoutBuildDirectory() {
+        def a = createFile("A.dll", "a")
+        stage(a)
+        assert target.list() as List == ["A.dll"]
+
+        // a copy with the size and time of its source is not read again
+        a.withWriter { it.write("b") }
+        a.lastModified = new File(target, "A.dll").lastModified()
+        assert stage(a).unchanged == 1
+    }
+
+    @Test(expected = IOException)
+    void failsOnMissingSource() {
+        stage(new File(source, "Missing.dll"))
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package npanday
+
+import org.junit.Test
+
+class InputFingerprintTest {
+
+    File createFile(String contents) {
+        File file = File.createTempFile("fingerprint", ".cs")
+        file.deleteOnExit()
+        file.text = contents
+        return file
+    }
+
+    @Test
+    void sameInputsMatch() {
+        def file = createFile("class A {}")
+
+        def first = new InputFingerprint()
+        first.addValue("commands", "/target:library")
+        first.addFile(file)
+
+        def second = new InputFingerprint()
+        second.addValue("commands", "/target:library")
+        second.addFile(file)
+
+        assert second.findDifference(first) == null
+    }
+
+    @Test
+    void touchedButUnchangedFileMatches() {
+        def file = createFile("class A {}")
+
+        def first = new InputFingerprint()
+        first.addFile(file)
+
+        file.setLastModified(file.lastModified() - 10000)
+
+        def second = new InputFingerprint(first)
+        second.addFile(file)
+
+        assert second.matches(first)
+    }
+
+    @Test
+    void changedContentsAreDetected() {
+        def file = createFile("class A {}")
+
+        def first = new InputFingerprint()
+        first.addFile(file)
+
+        file.text = "class B {}"
+
+        def second = new InputFingerprint(first)
+        second.addFile(file)
+
+        assert second.findDifference(first).startsWith("changed file:")
+    }
+
+    @Test
+    void changedValuesAndFileSetsAreDetected() {
+        def first = new InputFingerprint()
+        first.addValue("commands", "/target:library")
+
+        def second = new InputFingerprint()
+        second.addValue("commands", "/target:exe")
+        assert !second.matches(first)
+
+        def third = new InputFingerprint()
+        third.addValue("commands", "/target:library")
+        third.addFile(createFile("class A {}"))
+        assert third.findDifference(first).startsWith("added")
+        assert first.findDifference(third).startsWith("removed")
+    }
+
+    @Test
+    void storeAndLoad() {
+        def file = createFile("class A {}")
+        def store = File.createTempFile("fingerprint", ".properties")
+        store.deleteOnExit()
+
+        def fingerprint = new InputFingerprint()
+        fingerprint.addValue("commands", "/target:library")
+        fingerprint.addFile(file)
+        fingerprint.store(store)
+
+        def loaded = InputFingerprint.load(store)
+        assert loaded.size() == 2
+        assert loaded.matches(fingerprint)
+        assert InputFingerprint.load(new File(store.path + ".missing")) == null
+    }
+}
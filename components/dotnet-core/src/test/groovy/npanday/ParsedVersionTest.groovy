@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday
+
+import org.junit.Test
+
+class ParsedVersionTest {
+
+    @Test
+    void splitsAtDelimiters() {
+        def version = ParsedVersion.of("1.2_beta-30")
+
+        assert version.valid
+        assert !version.dotted
+        assert version.size() == 4
+        assert (0..3).collect { version.getToken(it) } == ["1", "2", "beta", "30"]
+        assert (0..3).collect { version.getNumber(it) } == [1, 2, -1, 30]
+        assert version.getModifier() == ParsedVersion.NO_MODIFIER
+    }
+
+    @Test
+    void padsWithZeros() {
+        def version = ParsedVersion.of("3.5")
+
+        assert version.getToken(3) == "0"
+        assert version.isNumber(3)
+        assert version.getNumber(3) == 0
+    }
+
+    @Test
+    void dropsTrailingEmptyComponents() {
+        assert ParsedVersion.of("1.0..").size() == 2
+        assert ParsedVersion.of(".1").getToken(0) == ""
+        assert ParsedVersion.of("").size() == 1
+    }
+
+    @Test
+    void numbersMustFitIntoAnInt() {
+        assert ParsedVersion.of("2147483647").getNumber(0) == Integer.MAX_VALUE
+        assert ParsedVersion.of("2147483648").getNumber(0) == -1
+        assert !ParsedVersion.of("2147483648").isNumber(0)
+    }
+
+    @Test
+    void stripsModifier() {
+        def version = ParsedVersion.of("2.0+")
+
+        assert version.valid
+        assert version.getModifier() == ('+' as char)
+        assert version.getToken(1) == "0+"
+        assert version.withoutModifier().getToken(1) == "0"
+        assert version.withoutModifier().getNumber(1) == 0
+        assert version.withoutModifier().is(version.withoutModifier())
+        assert ParsedVersion.of("1.*").withoutModifier().size() == 2
+    }
+
+    @Test
+    void detectsInvalidVersions() {
+        assert !ParsedVersion.of("2.0 ").valid
+        assert !ParsedVersion.of("2+.0").valid
+        assert !ParsedVersion.of("2.0*+").valid
+        assert ParsedVersion.of("*").valid
+    }
+
+    @Test
+    void padsToSize() {
+        assert ParsedVersion.of("1.2").pad(4) == "1.2.0.0"
+        assert ParsedVersion.of("1.2.3.4").pad(4) == "1.2.3.4"
+        assert ParsedVersion.of("1.2.3.4.5").pad(4) == "1.2.3.4.5"
+    }
+
+    @Test
+    void comparesNumerically() {
+        assert ParsedVersion.of("1.10").compareNumbers(ParsedVersion.of("1.9")) > 0
+        assert ParsedVersion.of("1.2").compareNumbers(ParsedVersion.of("1.2.0.0")) == 0
+        assert ParsedVersion.of("1.2").compareNumbers(ParsedVersion.of("1.2.0.1")) < 0
+        assert ParsedVersion.of("1.beta").compareNumbers(ParsedVersion.of("1.0")) == 0
+    }
+
+    @Test
+    void internsEqualStrings() {
+        assert ParsedVersion.of("4.0.30319").is(ParsedVersion.of(new String("4.0.30319")))
+    }
+}
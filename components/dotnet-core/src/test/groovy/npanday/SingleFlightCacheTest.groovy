@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.Test
+
+class SingleFlightCacheTest {
+
+    Callable<String> constant(String value) {
+        return { value } as Callable<String>
+    }
+
+    @Test
+    void loadsOnce() {
+        def cache = new SingleFlightCache<String, String>(10)
+        def loads = new AtomicInteger()
+        def loader = { loads.incrementAndGet(); "value" } as Callable<String>
+
+        assert cache.get("key", loader) == "value"
+        assert cache.get("key", loader) == "value"
+        assert loads.get() == 1
+    }
+
+    @Test
+    void concurrentRequestsWaitForFirstLoad() {
+        def cache = new SingleFlightCache<String, String>(10)
+        def loads = new AtomicInteger()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def loader = {
+            loads.incrementAndGet()
+            started.countDown()
+            release.await()
+            "value"
+        } as Callable<String>
+
+        def executor = Executors.newFixedThreadPool(4)
+        def results = (1..4).collect { executor.submit({ cache.get("key", loader) } as Callable) }
+        started.await(5, TimeUnit.SECONDS)
+        Thread.sleep(100)
+        release.countDown()
+
+        assert results.collect { it.get(5, TimeUnit.SECONDS) } == ["value"] * 4
+        assert loads.get() == 1
+        executor.shutdown()
+    }
+
+    @Test
+    void cachesNullValues() {
+        def cache = new SingleFlightCache<String, String>(10)
+        cache.get("key", constant(null))
+
+        assert cache.containsKey("key")
+        assert cache.get("key", constant("other")) == null
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        def cache = new SingleFlightCache<String, String>(10)
+        try {
+            cache.get("key", { throw new IllegalStateException("failed") } as Callable<String>)
+            assert false
+        }
+        catch (ExecutionException e) {
+            assert e.cause instanceof IllegalStateException
+        }
+
+        assert !cache.containsKey("key")
+        assert cache.get("key", constant("value")) == "value"
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        def cache = new SingleFlightCache<String, String>(10)
+        (1..10).each { cache.put("key" + it, "value") }
+        cache.get("key1", constant("other"))
+
+        cache.put("key11", "value")
+
+        assert cache.size() <= 10
+        assert cache.containsKey("key1")
+        assert cache.containsKey("key11")
+        assert !cache.containsKey("key2")
+    }
+}
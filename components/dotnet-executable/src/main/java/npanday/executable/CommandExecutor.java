@@ -21,6 +21,8 @@ package npanday.executable;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
+import npanday.executable.execution.CapturePolicy;
+import npanday.executable.execution.ResponseFileCommandExecutor;
 import npanday.executable.execution.UnifiedShellCommandExecutor;
 import npanday.executable.execution.quoting.CustomSwitchAwareQuotingStrategy;
 import npanday.executable.execution.switches.SwitchFormat;
@@ -47,6 +49,14 @@ public interface CommandExecutor
      */
     void setLogger( Logger logger );
 
+    /**
+     * Passes the output of the next commands to the consumer, instead of logging it and keeping it for
+     * {@link #getStandardOut()} and {@link #getStandardError()}, which then return empty strings.
+     *
+     * @param consumer the consumer, or <code>null</code> to restore the default behaviour
+     */
+    void setOutputConsumer( OutputConsumer consumer );
+
     /**
      * Executes the command for the specified executable and list of command options.
      *
@@ -107,6 +117,20 @@ public interface CommandExecutor
      */
     String getStandardError();
 
+    /**
+     * Drops the output kept of the last command, including any files it was spilled to; afterwards
+     * {@link #getStandardOut()} and {@link #getStandardError()} return empty strings. Call it once the output is
+     * no longer needed; executing the next command drops the previous output as well.
+     */
+    void discardOutput();
+
+    /**
+     * Returns timing and resource usage of the last command executed.
+     *
+     * @return the metrics, or <code>null</code> if no command has been executed
+     */
+    ExecutionMetrics getMetrics();
+
     /**
      * Provides factory services for creating a default instance of the command executor.
      */
@@ -120,6 +144,39 @@ public interface CommandExecutor
         {
         }
 
+        /**
+         * Opts in to passing all arguments through a response file, either per executable or compiler
+         * plugin using the configuration property <code>responsefile</code>, or for all compilers using the
+         * system property <code>npanday.responsefile</code>; other executables are not affected by the
+         * system property.
+         */
+        public static final String RESPONSE_FILE = "responsefile";
+
+        /**
+         * Runs compiles on a long-lived compiler host, started with the command line given in either
+         * the compiler plugin configuration property <code>compilerhost</code> or, if the plugin does not
+         * configure one, the system property <code>npanday.compilerhost</code>. Other executables are
+         * always run one-shot.
+         */
+        public static final String COMPILER_HOST = "compilerhost";
+
+        /**
+         * The number of seconds a compile may take on the compiler host before the host is given up and
+         * the compile is run one-shot, either per compiler plugin using the configuration property
+         * <code>compilerhosttimeout</code>, or for all of them using the system property
+         * <code>npanday.compilerhosttimeout</code>; 600 by default, 0 for no limit.
+         */
+        public static final String COMPILER_HOST_TIMEOUT = "compilerhosttimeout";
+
+        private static final long DEFAULT_COMPILER_HOST_TIMEOUT = 600;
+
+        /**
+         * Limits how much process output is kept in memory, either per executable or compiler plugin using
+         * the configuration property <code>capture</code>, or for all of them using the system property
+         * <code>npanday.capture</code>; see {@link CapturePolicy} for the possible values.
+         */
+        public static final String CAPTURE = "capture";
+
         /**
          * Returns a default instance of the command executor
          *
@@ -127,6 +184,38 @@ public interface CommandExecutor
          * @param quotingConfiguration
          */
         public static CommandExecutor createDefaultCommmandExecutor( java.util.Properties quotingConfiguration )
+        {
+            return createDefaultCommmandExecutor( quotingConfiguration, null );
+        }
+
+        /**
+         * Returns a default instance of the command executor. If response files are enabled in the
+         * plugin configuration, the arguments are written to <code>responseFile</code> and the executable
+         * is started without a shell.
+         *
+         * @param quotingConfiguration the plugin configuration
+         * @param responseFile         the response file to use, or <code>null</code> for a temporary file
+         * @return a default instance of the command executor
+         */
+        public static CommandExecutor createDefaultCommmandExecutor(
+            java.util.Properties quotingConfiguration, File responseFile )
+        {
+            return createDefaultCommmandExecutor(
+                quotingConfiguration, responseFile, isResponseFileEnabled( quotingConfiguration )
+            );
+        }
+
+        /**
+         * Returns a default instance of the command executor, passing the arguments through
+         * <code>responseFile</code> if asked to.
+         *
+         * @param quotingConfiguration the plugin configuration
+         * @param responseFile         the response file to use, or <code>null</code> for a temporary file
+         * @param responseFileEnabled  if the arguments are passed through the response file
+         * @return a default instance of the command executor
+         */
+        public static CommandExecutor createDefaultCommmandExecutor(
+            java.util.Properties quotingConfiguration, File responseFile, boolean responseFileEnabled )
         {
 
             CustomSwitchAwareQuotingStrategy quotingStrategy = new CustomSwitchAwareQuotingStrategy();
@@ -153,7 +242,72 @@ public interface CommandExecutor
                     }
                 }
             }
-            return new UnifiedShellCommandExecutor( quotingStrategy );
+            UnifiedShellCommandExecutor executor = responseFileEnabled
+                ? new ResponseFileCommandExecutor( quotingStrategy, responseFile )
+                : new UnifiedShellCommandExecutor( quotingStrategy );
+            executor.setCapturePolicy( getCapturePolicy( quotingConfiguration ) );
+            return executor;
+        }
+
+        /**
+         * Returns the command line starting the compiler host, or <code>null</code> if none is configured;
+         * the plugin configuration takes precedence over the system property.
+         */
+        public static String getCompilerHostCommand( java.util.Properties configuration )
+        {
+            String hostCommand = configuration == null ? null : (String) configuration.get( COMPILER_HOST );
+            if ( isNullOrEmpty( hostCommand ) )
+            {
+                hostCommand = System.getProperty( "npanday." + COMPILER_HOST );
+            }
+            return isNullOrEmpty( hostCommand ) ? null : hostCommand.trim();
+        }
+
+        /**
+         * Returns the time in milliseconds a compile may take on the compiler host, 0 for no limit.
+         */
+        public static long getCompilerHostTimeout( java.util.Properties configuration )
+        {
+            String timeout = configuration == null ? null : (String) configuration.get( COMPILER_HOST_TIMEOUT );
+            if ( isNullOrEmpty( timeout ) )
+            {
+                timeout = System.getProperty( "npanday." + COMPILER_HOST_TIMEOUT );
+            }
+            if ( isNullOrEmpty( timeout ) )
+            {
+                return DEFAULT_COMPILER_HOST_TIMEOUT * 1000;
+            }
+            try
+            {
+                return Math.max( 0, Long.parseLong( timeout.trim() ) ) * 1000;
+            }
+            catch ( NumberFormatException e )
+            {
+                throw new IllegalArgumentException(
+                    "NPANDAY-040-022: Invalid compiler host timeout, expected seconds: " + timeout
+                );
+            }
+        }
+
+        /**
+         * Returns the configured output capture policy, {@link CapturePolicy#FULL} by default.
+         */
+        public static CapturePolicy getCapturePolicy( java.util.Properties configuration )
+        {
+            String policy = System.getProperty( "npanday." + CAPTURE );
+            if ( isNullOrEmpty( policy ) && configuration != null )
+            {
+                policy = (String) configuration.get( CAPTURE );
+            }
+            return isNullOrEmpty( policy ) ? CapturePolicy.FULL : CapturePolicy.parse( policy );
+        }
+
+        /**
+         * Checks whether the plugin configuration asks for arguments to be passed through a response file.
+         */
+        public static boolean isResponseFileEnabled( java.util.Properties configuration )
+        {
+            return configuration != null && "true".equals( configuration.get( RESPONSE_FILE ) );
         }
 
         static Splitter SPLIT_ON_PIPE = Splitter.on('|').trimResults().omitEmptyStrings();
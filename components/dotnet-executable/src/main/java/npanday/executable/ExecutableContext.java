@@ -48,6 +48,11 @@ public interface ExecutableContext
      */
     Vendor getVendor();
 
+    /**
+     * The framework version of the vendor the executable runs for.
+     */
+    String getFrameworkVersion();
+
     /**
      * Returns the exectuable name to be run.
      *
@@ -0,0 +1,240 @@
+package npanday.executable;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+/**
+ * Timing and resource usage of a single command execution, see {@link CommandExecutor#getMetrics()}.
+ * Values that could not be measured are -1.
+ */
+public class ExecutionMetrics
+{
+    private String executable;
+
+    private String vendor;
+
+    private String frameworkVersion;
+
+    private String module;
+
+    private long started;
+
+    private long wallTime = -1;
+
+    private int exitCode = -1;
+
+    private long outputChars;
+
+    private long errorChars;
+
+    private long peakResidentKilobytes = -1;
+
+    private long cpuTime = -1;
+
+    public ExecutionMetrics( String executable )
+    {
+        this.executable = executable == null ? null : new File( executable ).getName();
+        this.started = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the file name of the executable.
+     */
+    public String getExecutable()
+    {
+        return executable;
+    }
+
+    public String getVendor()
+    {
+        return vendor;
+    }
+
+    public void setVendor( String vendor )
+    {
+        this.vendor = vendor;
+    }
+
+    public String getFrameworkVersion()
+    {
+        return frameworkVersion;
+    }
+
+    public void setFrameworkVersion( String frameworkVersion )
+    {
+        this.frameworkVersion = frameworkVersion;
+    }
+
+    /**
+     * Returns the module the execution belongs to, like the name of the compiled assembly.
+     */
+    public String getModule()
+    {
+        return module;
+    }
+
+    public void setModule( String module )
+    {
+        this.module = module;
+    }
+
+    /**
+     * Returns the start time in milliseconds since the epoch.
+     */
+    public long getStarted()
+    {
+        return started;
+    }
+
+    /**
+     * Returns the wall clock time in milliseconds.
+     */
+    public long getWallTime()
+    {
+        return wallTime;
+    }
+
+    public void setWallTime( long wallTime )
+    {
+        this.wallTime = wallTime;
+    }
+
+    public int getExitCode()
+    {
+        return exitCode;
+    }
+
+    public void setExitCode( int exitCode )
+    {
+        this.exitCode = exitCode;
+    }
+
+    /**
+     * Returns the number of characters written to standard out, including line breaks.
+     */
+    public long getOutputChars()
+    {
+        return outputChars;
+    }
+
+    public void setOutputChars( long outputChars )
+    {
+        this.outputChars = outputChars;
+    }
+
+    /**
+     * Returns the number of characters written to standard error, including line breaks.
+     */
+    public long getErrorChars()
+    {
+        return errorChars;
+    }
+
+    public void setErrorChars( long errorChars )
+    {
+        this.errorChars = errorChars;
+    }
+
+    /**
+     * Returns the peak resident set size of the process in kilobytes.
+     */
+    public long getPeakResidentKilobytes()
+    {
+        return peakResidentKilobytes;
+    }
+
+    public void setPeakResidentKilobytes( long peakResidentKilobytes )
+    {
+        this.peakResidentKilobytes = peakResidentKilobytes;
+    }
+
+    /**
+     * Returns the user and system CPU time of the process and its children in milliseconds.
+     */
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    public void setCpuTime( long cpuTime )
+    {
+        this.cpuTime = cpuTime;
+    }
+
+    /**
+     * Formats the metrics as a single line JSON object.
+     */
+    public String toJson()
+    {
+        StringBuilder json = new StringBuilder( 256 );
+        json.append( '{' );
+        appendString( json, "executable", executable ).append( ',' );
+        appendString( json, "vendor", vendor ).append( ',' );
+        appendString( json, "frameworkVersion", frameworkVersion ).append( ',' );
+        appendString( json, "module", module ).append( ',' );
+        appendNumber( json, "started", started ).append( ',' );
+        appendNumber( json, "wallTimeMs", wallTime ).append( ',' );
+        appendNumber( json, "exitCode", exitCode ).append( ',' );
+        appendNumber( json, "stdoutChars", outputChars ).append( ',' );
+        appendNumber( json, "stderrChars", errorChars ).append( ',' );
+        appendNumber( json, "peakRssKb", peakResidentKilobytes ).append( ',' );
+        appendNumber( json, "cpuTimeMs", cpuTime );
+        return json.append( '}' ).toString();
+    }
+
+    private static StringBuilder appendNumber( StringBuilder json, String name, long value )
+    {
+        return json.append( '"' ).append( name ).append( "\":" ).append( value );
+    }
+
+    private static StringBuilder appendString( StringBuilder json, String name, String value )
+    {
+        json.append( '"' ).append( name ).append( "\":" );
+        if ( value == null )
+        {
+            return json.append( "null" );
+        }
+
+        json.append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                json.append( '\\' ).append( c );
+            }
+            else if ( c < 0x20 )
+            {
+                json.append( String.format( "\\u%04x", (int) c ) );
+            }
+            else
+            {
+                json.append( c );
+            }
+        }
+        return json.append( '"' );
+    }
+
+    public String toString()
+    {
+        return toJson();
+    }
+}
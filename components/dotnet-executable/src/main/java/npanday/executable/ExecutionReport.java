@@ -0,0 +1,130 @@
+package npanday.executable;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import npanday.vendor.Vendor;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appends the {@link ExecutionMetrics} of every executed command as one JSON object per line to
+ * <code>npanday-executions.jsonl</code> in the target directory of the module, or in
+ * <code>target</code> below the working directory if the module is unknown.
+ * <p/>
+ * The system property <code>npanday.executionReport</code> collects the whole build in a single file
+ * instead, or turns the report off if set to <code>false</code>.
+ */
+public final class ExecutionReport
+{
+    public static final String FILE_NAME = "npanday-executions.jsonl";
+
+    private static final String PROPERTY = "npanday.executionReport";
+
+    private ExecutionReport()
+    {
+    }
+
+    /**
+     * Tags the metrics of the last command run by the executor and appends them to the report.
+     *
+     * @param targetDirectory the target directory of the module, or <code>null</code> if unknown
+     */
+    public static void record(
+        CommandExecutor commandExecutor, Vendor vendor, String frameworkVersion, String module, File targetDirectory,
+        Logger logger )
+    {
+        ExecutionMetrics metrics = commandExecutor.getMetrics();
+        if ( metrics == null )
+        {
+            return;
+        }
+        metrics.setVendor( vendor == null ? null : vendor.getVendorName() );
+        metrics.setFrameworkVersion( frameworkVersion );
+        metrics.setModule( module );
+        record( metrics, targetDirectory, logger );
+    }
+
+    public static void record( ExecutionMetrics metrics, File targetDirectory, Logger logger )
+    {
+        File report = getReportFile( targetDirectory );
+        if ( report == null )
+        {
+            return;
+        }
+
+        logger.debug( "NPANDAY-172-000: " + metrics.toJson() );
+        try
+        {
+            append( report, metrics.toJson() );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "NPANDAY-172-001: Could not write execution report " + report + ": " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Returns the report file, or <code>null</code> if the report is turned off.
+     */
+    static File getReportFile( File targetDirectory )
+    {
+        String configured = System.getProperty( PROPERTY );
+        if ( "false".equals( configured ) )
+        {
+            return null;
+        }
+        if ( configured != null && configured.length() > 0 && !"true".equals( configured ) )
+        {
+            return new File( configured );
+        }
+        if ( targetDirectory == null )
+        {
+            targetDirectory = new File( System.getProperty( "user.dir" ), "target" );
+        }
+        return new File( targetDirectory, FILE_NAME );
+    }
+
+    // all modules of a build may append to the same file concurrently
+    private static synchronized void append( File report, String line )
+        throws IOException
+    {
+        File parent = report.getAbsoluteFile().getParentFile();
+        if ( !parent.exists() && !parent.mkdirs() )
+        {
+            throw new IOException( "Could not create directory " + parent );
+        }
+
+        Writer writer = new FileWriter( report, true );
+        try
+        {
+            writer.write( line );
+            writer.write( '\n' );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package npanday.executable;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Receives the output of an executed command line by line, instead of the command executor logging and
+ * keeping it.
+ *
+ * @see CommandExecutor#setOutputConsumer(OutputConsumer)
+ */
+public interface OutputConsumer
+{
+    /**
+     * Called for every line written to the standard output stream.
+     */
+    void consumeOutputLine( String line );
+
+    /**
+     * Called for every line written to the standard error stream.
+     */
+    void consumeErrorLine( String line );
+
+    /**
+     * Returns true if no further output is of interest; the command executor then stops the process.
+     */
+    boolean isAborted();
+}
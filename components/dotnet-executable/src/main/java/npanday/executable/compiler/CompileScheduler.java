@@ -0,0 +1,384 @@
+package npanday.executable.compiler;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import npanday.executable.ExecutionException;
+import npanday.executable.NetExecutable;
+import org.codehaus.plexus.logging.AbstractLogEnabled;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Compiles the modules of a reactor build concurrently, while a module is only planned after all
+ * modules it depends on have been compiled.
+ * <p/>
+ * Planning (resolving dependencies, configuring the compiler) happens on the calling thread, one
+ * module at a time, through a {@link Planner}. When the planner hands over an executable through
+ * {@link #submit(NetExecutable)}, it is executed on one of the worker threads, and the scheduler
+ * goes on with planning the next module whose upstream modules are done. Modules depending on
+ * a module that failed to compile are skipped.
+ * <p/>
+ * The instance of this scheduler should span the full maven reactor build.
+ *
+ * @plexus.component role="npanday.executable.compiler.CompileScheduler"
+ */
+public class CompileScheduler
+    extends AbstractLogEnabled
+{
+    /**
+     * Plans a single unit, usually by running the compile mojo for a module.
+     */
+    public interface Planner
+    {
+        /**
+         * Prepares the compile for the unit; a compile that has to be run must be passed to
+         * {@link CompileScheduler#submit(NetExecutable)} before returning.
+         */
+        void plan( Unit unit )
+            throws Exception;
+    }
+
+    public enum State
+    {
+        PENDING, QUEUED, COMPILING, COMPILED, UP_TO_DATE, FAILED, SKIPPED
+    }
+
+    /**
+     * A compile of a single module, like the main or the test compile of a maven project.
+     */
+    public static class Unit
+    {
+        private final String name;
+
+        private final Set<Unit> upstream = new LinkedHashSet<Unit>();
+
+        private volatile State state = State.PENDING;
+
+        private volatile long queued;
+
+        private volatile long started;
+
+        private volatile long finished;
+
+        private volatile Throwable failure;
+
+        public Unit( String name )
+        {
+            this.name = name;
+        }
+
+        /**
+         * Declares that this unit may only be planned after <code>other</code> has been compiled.
+         */
+        public void dependsOn( Unit other )
+        {
+            if ( other != this )
+            {
+                upstream.add( other );
+            }
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public State getState()
+        {
+            return state;
+        }
+
+        public Throwable getFailure()
+        {
+            return failure;
+        }
+
+        /**
+         * Time spent waiting for a free worker, in milliseconds.
+         */
+        public long getWaitTime()
+        {
+            return started == 0 ? 0 : started - queued;
+        }
+
+        /**
+         * Time spent compiling, in milliseconds.
+         */
+        public long getCompileTime()
+        {
+            return finished == 0 ? 0 : finished - started;
+        }
+
+        private boolean isDone()
+        {
+            return state == State.COMPILED || state == State.UP_TO_DATE;
+        }
+
+        private boolean isBroken()
+        {
+            return state == State.FAILED || state == State.SKIPPED;
+        }
+
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    private volatile Unit planning;
+
+    private CompletionService<Unit> completionService;
+
+    /**
+     * Returns true while a unit is being planned; the planner is then expected to
+     * {@link #submit(NetExecutable)} its compile instead of executing it.
+     */
+    public boolean isPlanning()
+    {
+        return planning != null;
+    }
+
+    /**
+     * Queues the compile for the unit currently being planned.
+     */
+    public void submit( NetExecutable executable )
+    {
+        submit( executable, null );
+    }
+
+    /**
+     * Queues the compile for the unit currently being planned.
+     *
+     * @param whenCompiled called on the worker thread after a successful compile, may be <code>null</code>;
+     *                     if it fails, the unit fails.
+     */
+    public void submit( final NetExecutable executable, final Callable<?> whenCompiled )
+    {
+        final Unit unit = planning;
+        if ( unit == null || unit.state != State.PENDING )
+        {
+            throw new IllegalStateException( "NPANDAY-171-000: Compiles can only be submitted while planning" );
+        }
+
+        unit.state = State.QUEUED;
+        unit.queued = System.currentTimeMillis();
+        completionService.submit(
+            new Callable<Unit>()
+            {
+                public Unit call()
+                {
+                    unit.started = System.currentTimeMillis();
+                    unit.state = State.COMPILING;
+                    try
+                    {
+                        executable.execute();
+                        if ( whenCompiled != null )
+                        {
+                            whenCompiled.call();
+                        }
+                        unit.state = State.COMPILED;
+                    }
+                    catch ( Throwable e )
+                    {
+                        unit.failure = e;
+                        unit.state = State.FAILED;
+                    }
+                    unit.finished = System.currentTimeMillis();
+
+                    getLogger().info(
+                        "NPANDAY-171-001: " + ( unit.state == State.COMPILED ? "Compiled " : "Failed to compile " )
+                            + unit + " in " + unit.getCompileTime() + " ms (waited " + unit.getWaitTime() + " ms)"
+                    );
+                    return unit;
+                }
+            }
+        );
+    }
+
+    /**
+     * Plans and compiles all units, running at most <code>threads</code> compiles at the same time.
+     *
+     * @throws ExecutionException if any of the units failed or could not be planned.
+     */
+    public synchronized void run( List<Unit> units, int threads, Planner planner )
+        throws ExecutionException
+    {
+        long start = System.currentTimeMillis();
+        ThreadFactory threadFactory =
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "npanday-compile-%d" ).build();
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, threads ), threadFactory );
+        completionService = new ExecutorCompletionService<Unit>( executor );
+        try
+        {
+            List<Unit> pending = Lists.newArrayList( units );
+            int running = 0;
+            while ( !pending.isEmpty() || running > 0 )
+            {
+                boolean progress = false;
+                for ( Iterator<Unit> i = pending.iterator(); i.hasNext(); )
+                {
+                    Unit unit = i.next();
+                    if ( hasBrokenUpstream( unit ) )
+                    {
+                        unit.state = State.SKIPPED;
+                        i.remove();
+                        progress = true;
+                    }
+                    else if ( isReady( unit ) )
+                    {
+                        i.remove();
+                        plan( unit, planner );
+                        // the compile might even be done already
+                        if ( unit.queued != 0 )
+                        {
+                            running++;
+                        }
+                        progress = true;
+                    }
+                }
+
+                Future<Unit> completed = completionService.poll();
+                while ( completed != null )
+                {
+                    running--;
+                    progress = true;
+                    completed = completionService.poll();
+                }
+
+                if ( !progress )
+                {
+                    if ( running == 0 )
+                    {
+                        throw new ExecutionException(
+                            "NPANDAY-171-002: Could not order the remaining modules: " + pending );
+                    }
+                    completionService.take();
+                    running--;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException( "NPANDAY-171-003: Interrupted while waiting for compiles", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            completionService = null;
+        }
+
+        logSummary( units, System.currentTimeMillis() - start );
+
+        List<Unit> failed = Lists.newArrayList();
+        for ( Unit unit : units )
+        {
+            if ( unit.state == State.FAILED )
+            {
+                failed.add( unit );
+            }
+        }
+        if ( !failed.isEmpty() )
+        {
+            throw new ExecutionException(
+                "NPANDAY-171-004: Failed to compile " + failed, failed.get( 0 ).failure );
+        }
+    }
+
+    private void plan( Unit unit, Planner planner )
+    {
+        planning = unit;
+        try
+        {
+            planner.plan( unit );
+            if ( unit.state == State.PENDING )
+            {
+                unit.state = State.UP_TO_DATE;
+            }
+        }
+        catch ( Exception e )
+        {
+            getLogger().error( "NPANDAY-171-005: Could not plan compile for " + unit, e );
+            unit.failure = e;
+            if ( unit.state == State.PENDING )
+            {
+                unit.state = State.FAILED;
+            }
+        }
+        finally
+        {
+            planning = null;
+        }
+    }
+
+    private static boolean isReady( Unit unit )
+    {
+        for ( Unit upstream : unit.upstream )
+        {
+            if ( !upstream.isDone() )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasBrokenUpstream( Unit unit )
+    {
+        for ( Unit upstream : unit.upstream )
+        {
+            if ( upstream.isBroken() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void logSummary( List<Unit> units, long total )
+    {
+        long compileTime = 0;
+        getLogger().info( "NPANDAY-171-006: Compile summary:" );
+        for ( Unit unit : units )
+        {
+            compileTime += unit.getCompileTime();
+            getLogger().info(
+                "  " + unit + " " + unit.state + " " + unit.getCompileTime() + " ms (waited " + unit.getWaitTime()
+                    + " ms)"
+            );
+        }
+        getLogger().info(
+            "NPANDAY-171-007: Compiled " + units.size() + " units in " + total + " ms; " + compileTime
+                + " ms of compile time"
+        );
+    }
+}
@@ -0,0 +1,187 @@
+package npanday.executable.compiler;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single error or warning reported by a compiler. Understands the formats used by csc, vbc and mcs:
+ * <pre>
+ * Program.cs(12,5): error CS1002: ; expected
+ * Module.vb(3) : warning BC42024: Unused local variable: 'x'.
+ * error CS2001: Source file 'Missing.cs' could not be found
+ * fatal error CS2008: No inputs specified
+ * </pre>
+ */
+public class CompilerDiagnostic
+{
+    public enum Severity
+    {
+        FATAL, ERROR, WARNING
+    }
+
+    /**
+     * Errors after which the compiler cannot produce anything useful: missing sources or references, no
+     * inputs, or an output file that cannot be written.
+     */
+    private static final Set<String> FATAL_CODES = ImmutableSet.of(
+        "CS0006", "CS0009", "CS0016", "CS2001", "CS2008", "CS2011", "BC2001", "BC2012", "BC2017"
+    );
+
+    private static final Pattern DIAGNOSTIC = Pattern.compile(
+        "^\\s*(?:(.*?)(?:\\((\\d+)(?:,(\\d+))?\\))?\\s*:\\s*)?(fatal error|error|warning)\\s+(\\w+)\\s*:\\s*(.*)$"
+    );
+
+    private final String file;
+
+    private final int line;
+
+    private final int column;
+
+    private final String code;
+
+    private final Severity severity;
+
+    private final String message;
+
+    public CompilerDiagnostic( String file, int line, int column, String code, Severity severity, String message )
+    {
+        this.file = file;
+        this.line = line;
+        this.column = column;
+        this.code = code;
+        this.severity = severity;
+        this.message = message;
+    }
+
+    /**
+     * Parses a line of compiler output.
+     *
+     * @return the diagnostic, or <code>null</code> if the line does not report an error or a warning
+     */
+    public static CompilerDiagnostic parse( String text )
+    {
+        // most lines are neither, so spare them the regular expression
+        if ( text == null || ( text.indexOf( "error" ) < 0 && text.indexOf( "warning" ) < 0 ) )
+        {
+            return null;
+        }
+
+        Matcher matcher = DIAGNOSTIC.matcher( text );
+        if ( !matcher.matches() )
+        {
+            return null;
+        }
+
+        String kind = matcher.group( 4 );
+        Severity severity = kind.equals( "warning" ) ? Severity.WARNING
+            : kind.equals( "error" ) ? Severity.ERROR : Severity.FATAL;
+
+        String file = matcher.group( 1 );
+        return new CompilerDiagnostic(
+            file == null || file.length() == 0 ? null : file, toInt( matcher.group( 2 ) ), toInt( matcher.group( 3 ) ),
+            matcher.group( 5 ), severity, matcher.group( 6 )
+        );
+    }
+
+    private static int toInt( String value )
+    {
+        return value == null ? 0 : Integer.parseInt( value );
+    }
+
+    /**
+     * Returns the source file, or <code>null</code> if the diagnostic is not related to a file.
+     */
+    public String getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Returns the line number, or 0 if unknown.
+     */
+    public int getLine()
+    {
+        return line;
+    }
+
+    /**
+     * Returns the column, or 0 if unknown.
+     */
+    public int getColumn()
+    {
+        return column;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    public Severity getSeverity()
+    {
+        return severity;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public boolean isError()
+    {
+        return severity != Severity.WARNING;
+    }
+
+    /**
+     * Returns true for errors reported as <code>fatal error</code>, and for errors that leave nothing to
+     * compile, such as a missing source file or reference.
+     */
+    public boolean isFatal()
+    {
+        return severity == Severity.FATAL || ( severity == Severity.ERROR && FATAL_CODES.contains( code ) );
+    }
+
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        if ( file != null )
+        {
+            builder.append( file );
+            if ( line > 0 )
+            {
+                builder.append( '(' ).append( line );
+                if ( column > 0 )
+                {
+                    builder.append( ',' ).append( column );
+                }
+                builder.append( ')' );
+            }
+            builder.append( ": " );
+        }
+        builder.append( severity == Severity.FATAL ? "fatal error" : severity.name().toLowerCase() );
+        builder.append( ' ' ).append( code ).append( ": " ).append( message );
+        return builder.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package npanday.executable.compiler;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import npanday.executable.OutputConsumer;
+import org.codehaus.plexus.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Parses compiler output while it is written, logging and counting errors and warnings. Only the first
+ * few errors are kept; all other output is logged and dropped.
+ * <p/>
+ * Warnings beyond {@link #MAX_LOGGED_WARNINGS} are only logged on debug level. If asked to, the
+ * compile is aborted on the first fatal error, see {@link CompilerDiagnostic#isFatal()}; other errors are
+ * left to the compiler, so that they are all reported in one run.
+ */
+public class CompilerDiagnostics
+    implements OutputConsumer
+{
+    static final int MAX_LOGGED_WARNINGS = 100;
+
+    static final int MAX_KEPT_ERRORS = 10;
+
+    private final Logger logger;
+
+    private final boolean stopOnError;
+
+    private final List<CompilerDiagnostic> errors = Lists.newArrayList();
+
+    private int errorCount;
+
+    private int warningCount;
+
+    private boolean aborted;
+
+    /**
+     * @param stopOnError if true, {@link #isAborted()} turns true with the first fatal error.
+     */
+    public CompilerDiagnostics( Logger logger, boolean stopOnError )
+    {
+        this.logger = logger;
+        this.stopOnError = stopOnError;
+    }
+
+    public void consumeOutputLine( String line )
+    {
+        consume( line, false );
+    }
+
+    public void consumeErrorLine( String line )
+    {
+        consume( line, true );
+    }
+
+    private synchronized void consume( String line, boolean errorStream )
+    {
+        CompilerDiagnostic diagnostic = CompilerDiagnostic.parse( line );
+        if ( diagnostic == null )
+        {
+            if ( errorStream )
+            {
+                logger.error( " | " + line );
+            }
+            else
+            {
+                logger.info( " | " + line );
+            }
+        }
+        else if ( diagnostic.isError() )
+        {
+            logger.error( " | " + line );
+            errorCount++;
+            if ( errors.size() < MAX_KEPT_ERRORS )
+            {
+                errors.add( diagnostic );
+            }
+            if ( stopOnError && diagnostic.isFatal() )
+            {
+                aborted = true;
+            }
+        }
+        else
+        {
+            warningCount++;
+            if ( warningCount <= MAX_LOGGED_WARNINGS )
+            {
+                logger.warn( " | " + line );
+            }
+            else
+            {
+                if ( warningCount == MAX_LOGGED_WARNINGS + 1 )
+                {
+                    logger.warn( " | [more than " + MAX_LOGGED_WARNINGS + " warnings, see debug log for the rest]" );
+                }
+                logger.debug( " | " + line );
+            }
+        }
+    }
+
+    public synchronized boolean isAborted()
+    {
+        return aborted;
+    }
+
+    public synchronized int getErrorCount()
+    {
+        return errorCount;
+    }
+
+    public synchronized int getWarningCount()
+    {
+        return warningCount;
+    }
+
+    /**
+     * Returns the first {@link #MAX_KEPT_ERRORS} errors.
+     */
+    public synchronized List<CompilerDiagnostic> getErrors()
+    {
+        return ImmutableList.copyOf( errors );
+    }
+
+    public synchronized String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append( errorCount ).append( " error(s), " ).append( warningCount ).append( " warning(s)" );
+        for ( CompilerDiagnostic error : errors )
+        {
+            builder.append( "\n  " ).append( error );
+        }
+        if ( errorCount > errors.size() )
+        {
+            builder.append( "\n  ..." );
+        }
+        return builder.toString();
+    }
+}
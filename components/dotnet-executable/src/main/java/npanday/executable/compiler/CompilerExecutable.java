@@ -19,6 +19,8 @@ package npanday.executable.compiler;
  * under the License.
  */
 
+import npanday.PlatformUnsupportedException;
+import npanday.executable.ExecutionException;
 import npanday.executable.NetExecutable;
 
 import java.io.File;
@@ -68,4 +70,20 @@ public interface CompilerExecutable
      */
     boolean failOnErrorOutput();
 
+    /**
+     * Returns the errors and warnings reported by the last compile.
+     *
+     * @return the diagnostics, or <code>null</code> if the compiler has not been executed yet
+     */
+    CompilerDiagnostics getDiagnostics();
+
+    /**
+     * Returns true if the compiled artifact exists and neither the sources, the referenced files, nor the
+     * command line changed since it was compiled the last time.
+     *
+     * @return true if compiling again would not change the compiled artifact
+     */
+    boolean isUpToDate()
+        throws ExecutionException, PlatformUnsupportedException;
+
 }
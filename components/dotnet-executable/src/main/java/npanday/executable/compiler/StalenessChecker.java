@@ -0,0 +1,63 @@
+package npanday.executable.compiler;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import npanday.InputFingerprint;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Decides whether a compiled artifact is stale with regard to the inputs it was built from, like the
+ * project model, the vendor settings, the referenced assemblies and the compiler switches.
+ * Implementations are registered with a role-hint and selected by the compiler plugins.
+ */
+public interface StalenessChecker
+{
+    /**
+     * Role used to register component implementations with the container.
+     */
+    String ROLE = StalenessChecker.class.getName();
+
+    /**
+     * Creates an empty set of inputs for the artifact, to be filled by the caller.
+     *
+     * @param artifact the compiled artifact
+     */
+    InputFingerprint createInputs( File artifact );
+
+    /**
+     * Compares the current inputs with the ones recorded for the last compile of the artifact.
+     *
+     * @param artifact the compiled artifact
+     * @param inputs   the current inputs, as created by {@link #createInputs(java.io.File)}
+     * @return a description of what changed, or <code>null</code> if the artifact is up-to-date.
+     */
+    String findChange( File artifact, InputFingerprint inputs );
+
+    /**
+     * Remembers the inputs after the artifact has been compiled successfully.
+     *
+     * @param artifact the compiled artifact
+     * @param inputs   the inputs the artifact was compiled from
+     */
+    void recordInputs( File artifact, InputFingerprint inputs )
+        throws IOException;
+}
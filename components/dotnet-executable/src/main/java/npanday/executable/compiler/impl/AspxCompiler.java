@@ -78,7 +78,14 @@ public class AspxCompiler
             );
         commandExecutor.setLogger( logger );
         String executable = PathUtil.getExecutable( getExecutable(), compilerContext.getProbingPaths(), logger );
-        commandExecutor.executeCommand( executable, getCommands(), null, failOnErrorOutput() );
+        try
+        {
+            commandExecutor.executeCommand( executable, getCommands(), null, failOnErrorOutput() );
+        }
+        finally
+        {
+            recordMetrics( commandExecutor );
+        }
         return null;
     }
 
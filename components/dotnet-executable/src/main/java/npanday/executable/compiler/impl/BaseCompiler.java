@@ -19,19 +19,25 @@ package npanday.executable.compiler.impl;
  * under the License.
  */
 
+import npanday.InputFingerprint;
 import npanday.NPandayContext;
 import npanday.PathUtil;
 import npanday.PlatformUnsupportedException;
 import npanday.executable.CommandExecutor;
 import npanday.executable.ExecutionException;
+import npanday.executable.ExecutionReport;
 import npanday.executable.ExecutionResult;
 import npanday.executable.compiler.CompilerContext;
+import npanday.executable.compiler.CompilerDiagnostics;
 import npanday.executable.compiler.CompilerExecutable;
 import npanday.executable.compiler.InvalidArtifactException;
+import npanday.executable.execution.CompilerHostCommandExecutor;
 import npanday.vendor.Vendor;
+import org.apache.maven.artifact.Artifact;
 import org.codehaus.plexus.logging.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
@@ -57,6 +63,15 @@ abstract class BaseCompiler
 
     protected Properties configuration;
 
+    /**
+     * Opts in to aborting the compile on the first fatal error, such as a missing source file, either per
+     * compiler plugin using the configuration property <code>stoponerror</code>, or for all of them using the
+     * system property <code>npanday.stoponerror</code>.
+     */
+    protected static final String STOP_ON_ERROR = "stoponerror";
+
+    private CompilerDiagnostics diagnostics;
+
     /**
      * This method may be overridden if the developer needs to create a profile of one of the other compilers.
      */
@@ -100,6 +115,14 @@ abstract class BaseCompiler
         return compilerContext.getExecutableName();
     }
 
+    /**
+     * The response file used if the compiler plugin opts in to passing its arguments through a response file.
+     */
+    protected File getResponseFile()
+    {
+        return new File( compilerContext.getTargetDirectory(), "responsefile.rsp" );
+    }
+
     /**
      * @see npanday.executable.compiler.CompilerExecutable#execute()
      */
@@ -112,14 +135,52 @@ abstract class BaseCompiler
 
         String executable = getExecutable();
         Collection<String> executablePaths = compilerContext.getProbingPaths();
+        List<String> commands = getCommands();
 
-        CommandExecutor commandExecutor = CommandExecutor.Factory.createDefaultCommmandExecutor(
-           configuration
-        );
+        // a failing compile must not leave a fingerprint of the previous run behind
+        File fingerprintFile = getFingerprintFile();
+        InputFingerprint fingerprint = createInputFingerprint( commands, InputFingerprint.load( fingerprintFile ) );
+        fingerprintFile.delete();
+
+        CommandExecutor commandExecutor = createCommandExecutor();
         commandExecutor.setLogger( logger );
-        commandExecutor.executeCommand(
-            PathUtil.getExecutable( executable, executablePaths, logger ), getCommands(), null, failOnErrorOutput()
-        );
+
+        diagnostics = new CompilerDiagnostics( logger, isStopOnError() );
+        commandExecutor.setOutputConsumer( diagnostics );
+        try
+        {
+            commandExecutor.executeCommand(
+                PathUtil.getExecutable( executable, executablePaths, logger ), commands, null, failOnErrorOutput()
+            );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( diagnostics.getErrorCount() > 0 )
+            {
+                throw new ExecutionException( "NPANDAY-068-012: Compile failed with " + diagnostics, e );
+            }
+            throw e;
+        }
+        finally
+        {
+            recordMetrics( commandExecutor );
+        }
+
+        // some compilers, like mcs, report errors on the error stream, which must not fail the build by itself
+        if ( diagnostics.getErrorCount() > 0 )
+        {
+            throw new ExecutionException( "NPANDAY-068-012: Compile failed with " + diagnostics );
+        }
+
+        try
+        {
+            fingerprint.addFile( getOutputFile() );
+            fingerprint.store( fingerprintFile );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "NPANDAY-068-009: Could not store compile fingerprint " + fingerprintFile, e );
+        }
 
         return new ExecutionResult(
             commandExecutor.getResult(),
@@ -128,6 +189,198 @@ abstract class BaseCompiler
         );
     }
 
+    /**
+     * Creates the executor running the compiler. If a compiler host is configured, the compile runs on a
+     * host kept for the vendor and framework version of this compile, or one-shot if no host is available.
+     */
+    protected CommandExecutor createCommandExecutor()
+    {
+        CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor(
+            configuration, getResponseFile(), isResponseFileEnabled()
+        );
+        String hostCommand = CommandExecutor.Factory.getCompilerHostCommand( configuration );
+        if ( hostCommand == null )
+        {
+            return executor;
+        }
+
+        String hostKey = compilerContext.getVendor() + "/" + compilerContext.getFrameworkVersion();
+        CompilerHostCommandExecutor hostExecutor = new CompilerHostCommandExecutor( hostKey, hostCommand, executor );
+        hostExecutor.setCapturePolicy( CommandExecutor.Factory.getCapturePolicy( configuration ) );
+        hostExecutor.setTimeout( CommandExecutor.Factory.getCompilerHostTimeout( configuration ) );
+        return hostExecutor;
+    }
+
+    /**
+     * Adds the last execution to the build's execution report, tagged with the compiled assembly.
+     */
+    protected void recordMetrics( CommandExecutor commandExecutor )
+    {
+        String module;
+        try
+        {
+            module = compilerContext.getArtifact().getName();
+        }
+        catch ( InvalidArtifactException e )
+        {
+            module = null;
+        }
+        ExecutionReport.record(
+            commandExecutor, compilerContext.getVendor(), compilerContext.getFrameworkVersion(), module,
+            compilerContext.getTargetDirectory(), logger
+        );
+    }
+
+    /**
+     * @see npanday.executable.compiler.CompilerExecutable#getDiagnostics()
+     */
+    public CompilerDiagnostics getDiagnostics()
+    {
+        return diagnostics;
+    }
+
+    protected boolean isStopOnError()
+    {
+        if ( Boolean.getBoolean( "npanday." + STOP_ON_ERROR ) )
+        {
+            return true;
+        }
+        return configuration != null && "true".equals( configuration.get( STOP_ON_ERROR ) );
+    }
+
+    /**
+     * Checks whether the arguments are passed through a response file, either per compiler plugin or for all
+     * compilers using the system property <code>npanday.responsefile</code>.
+     */
+    protected boolean isResponseFileEnabled()
+    {
+        if ( Boolean.getBoolean( "npanday." + CommandExecutor.Factory.RESPONSE_FILE ) )
+        {
+            return true;
+        }
+        return CommandExecutor.Factory.isResponseFileEnabled( configuration );
+    }
+
+    /**
+     * @see npanday.executable.compiler.CompilerExecutable#isUpToDate()
+     */
+    public boolean isUpToDate() throws ExecutionException, PlatformUnsupportedException
+    {
+        File outputFile = getOutputFile();
+        if ( !outputFile.exists() )
+        {
+            return false;
+        }
+
+        InputFingerprint recorded = InputFingerprint.load( getFingerprintFile() );
+        if ( recorded == null )
+        {
+            logger.debug( "NPANDAY-068-010: No compile fingerprint recorded for " + outputFile );
+            return false;
+        }
+
+        InputFingerprint current = createInputFingerprint( getCommands(), recorded );
+        try
+        {
+            current.addFile( outputFile );
+        }
+        catch ( IOException e )
+        {
+            throw new ExecutionException( "NPANDAY-068-008: Could not read compile inputs", e );
+        }
+
+        String difference = current.findDifference( recorded );
+        if ( difference != null )
+        {
+            logger.info( "NPANDAY-068-011: Compile inputs have changed, " + difference );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Collects digests of everything that influences the compiled artifact: the executable, the full command line
+     * including the contents of response files, the sources and all referenced files.
+     */
+    protected InputFingerprint createInputFingerprint( List<String> commands, InputFingerprint previous )
+        throws ExecutionException, PlatformUnsupportedException
+    {
+        InputFingerprint fingerprint = new InputFingerprint( previous );
+        try
+        {
+            fingerprint.addValue( "executable", getExecutable() );
+            fingerprint.addValue( "commands", String.valueOf( commands ) );
+            for ( String command : commands )
+            {
+                if ( command.startsWith( "@" ) )
+                {
+                    fingerprint.addFile( new File( command.substring( 1 ) ) );
+                }
+            }
+
+            fingerprint.addFiles( compilerContext.getSourceFiles() );
+            addArtifactFiles( fingerprint, compilerContext.getDirectLibraryDependencies() );
+            addArtifactFiles( fingerprint, compilerContext.getDirectModuleDependencies() );
+            fingerprint.addFiles( compilerContext.getEmbeddedResources() );
+            fingerprint.addFiles( compilerContext.getLinkedResources() );
+            fingerprint.addFiles( compilerContext.getWin32Resources() );
+            if ( compilerContext.getWin32Icon() != null )
+            {
+                fingerprint.addFile( compilerContext.getWin32Icon() );
+            }
+            if ( compilerContext.getKeyInfo().getKeyFileUri() != null )
+            {
+                fingerprint.addFile( new File( compilerContext.getKeyInfo().getKeyFileUri() ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new ExecutionException( "NPANDAY-068-008: Could not read compile inputs", e );
+        }
+        return fingerprint;
+    }
+
+    private void addArtifactFiles( InputFingerprint fingerprint, List<Artifact> artifacts ) throws IOException
+    {
+        if ( artifacts == null )
+        {
+            return;
+        }
+        for ( Artifact artifact : artifacts )
+        {
+            if ( artifact.getFile() != null )
+            {
+                fingerprint.addFile( artifact.getFile() );
+            }
+        }
+    }
+
+    /**
+     * The file the compiler writes to; differs from the compiled artifact if an output directory is configured.
+     */
+    protected File getOutputFile() throws InvalidArtifactException
+    {
+        File artifact = compilerContext.getArtifact();
+        if ( compilerContext.getOutputDirectory() != null )
+        {
+            artifact = new File( compilerContext.getOutputDirectory(), artifact.getName() );
+        }
+        if ( artifact.getName().toLowerCase().endsWith( ".zip" ) )
+        {
+            String path = artifact.getPath();
+            artifact = new File( path.substring( 0, path.length() - 3 ) + "dll" );
+        }
+        return artifact;
+    }
+
+    private File getFingerprintFile() throws InvalidArtifactException
+    {
+        return new File(
+            compilerContext.getTargetDirectory(),
+            "npanday-fingerprints" + File.separator + compilerContext.getArtifact().getName() + ".properties"
+        );
+    }
+
     protected abstract List<String> getCommands() throws ExecutionException, PlatformUnsupportedException;
 
     public Vendor getVendor()
@@ -28,10 +28,10 @@ import npanday.PlatformUnsupportedException;
 import npanday.executable.CommandFilter;
 import npanday.executable.ExecutionException;
 import npanday.executable.ExecutionResult;
+import npanday.executable.execution.ResponseFile;
 import npanday.executable.execution.quoting.CustomSwitchAwareQuotingStrategy;
 import npanday.vendor.Vendor;
 import org.apache.maven.artifact.Artifact;
-import org.codehaus.plexus.util.FileUtils;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -72,7 +72,7 @@ public final class DefaultCompiler
     public boolean failOnErrorOutput()
     {
         //MONO writes warnings to standard error: this turns off failing builds on warnings for MONO
-        // TODO: how do we detected mono compile errors then????
+        // errors are still detected by parsing the compiler output, see BaseCompiler#execute()
         return !compilerContext.getVendor().equals( Vendor.MONO );
     }
 
@@ -261,8 +261,6 @@ public final class DefaultCompiler
 
         List<String> filteredCommands = filter.filter( commands );
 
-        String targetDir = ""+compilerContext.getTargetDirectory();
-
         Set<File> sourceFiles = compilerContext.getSourceFiles();
         if( sourceFiles != null && !sourceFiles.isEmpty() )
         {
@@ -275,32 +273,21 @@ public final class DefaultCompiler
         {
             logger.debug( "commands: " + filteredCommands );
         }
-        String responseFilePath = targetDir + File.separator + "responsefile.rsp";
+        File responseFile = getResponseFile();
 
         try
         {
-            StringBuilder builder = new StringBuilder();
-            for(String command : filteredCommands)
-            {
-                builder.append(escapeCmdParams(command) + " ");
-            }
-            FileUtils.fileWrite(responseFilePath, builder.toString());
+            // escaped to make use of dotnet style of command escapes .
+            // Eg. /define:"CONFIG=\"Debug\",DEBUG=-1,TRACE=-1,_MyType=\"Windows\",PLATFORM=\"AnyCPU\""
+            // /resource:"path","more" doesn't work
+            ResponseFile.write( responseFile, filteredCommands, strategy );
         } catch (java.io.IOException e) {
             throw new ExecutionException( "NPANDAY-155-002: Error while creating response file for the commands.", e );
         }
         filteredCommands.clear();
-        responseFilePath = "@" + responseFilePath;
 
-        filteredCommands.add( responseFilePath );
+        filteredCommands.add( "@" + responseFile.getAbsolutePath() );
 
         return filteredCommands;
     }
-
-    // escaped to make use of dotnet style of command escapes .
-    // Eg. /define:"CONFIG=\"Debug\",DEBUG=-1,TRACE=-1,_MyType=\"Windows\",PLATFORM=\"AnyCPU\""
-    private String escapeCmdParams(String param)
-    {
-        // /resource:"path","more" doesn't work
-        return strategy.quoteAndEscape( param, '\"', new char[]{'\"'}, new char[]{' '}, '\\', false);
-    }
 }
@@ -0,0 +1,64 @@
+package npanday.executable.compiler.impl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import npanday.InputFingerprint;
+import npanday.executable.compiler.StalenessChecker;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares content digests of the inputs with the digests stored next to the artifact during the last
+ * compile. Files that were merely touched, like after a fresh checkout or a reinstall of an identical
+ * dependency, do not cause a recompile.
+ *
+ * @plexus.component role="npanday.executable.compiler.StalenessChecker" role-hint="digest"
+ */
+public class DigestStalenessChecker
+    implements StalenessChecker
+{
+    static final String INPUTS_SUFFIX = ".npanday-inputs";
+
+    public InputFingerprint createInputs( File artifact )
+    {
+        return new InputFingerprint( InputFingerprint.load( getInputsFile( artifact ) ) );
+    }
+
+    public String findChange( File artifact, InputFingerprint inputs )
+    {
+        if ( !artifact.exists() )
+        {
+            return "artifact " + artifact.getName() + " does not exist";
+        }
+        return inputs.findDifference( InputFingerprint.load( getInputsFile( artifact ) ) );
+    }
+
+    public void recordInputs( File artifact, InputFingerprint inputs )
+        throws IOException
+    {
+        inputs.store( getInputsFile( artifact ) );
+    }
+
+    static File getInputsFile( File artifact )
+    {
+        return new File( artifact.getParentFile(), artifact.getName() + INPUTS_SUFFIX );
+    }
+}
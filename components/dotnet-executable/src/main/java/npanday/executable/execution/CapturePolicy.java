@@ -0,0 +1,153 @@
+package npanday.executable.execution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Decides how much of the output of executed processes is kept in memory. Configured with one of:
+ * <ul>
+ * <li><code>full</code> (the default) keeps all output.</li>
+ * <li><code>none</code> keeps nothing; the output is only logged.</li>
+ * <li><code>tail</code> or <code>tail:&lt;KB&gt;</code> keeps the last kilobytes of each stream (64 by
+ * default) in a ring buffer.</li>
+ * <li><code>file</code> or <code>file:&lt;directory&gt;</code> writes each stream to a file, which is only read
+ * back if the output is requested. Without a directory, temporary files are used. The files are deleted once
+ * the output is discarded, see {@link npanday.executable.CommandExecutor#discardOutput()}.</li>
+ * </ul>
+ */
+public class CapturePolicy
+{
+    public static final CapturePolicy FULL = new CapturePolicy( Mode.FULL, 0, null );
+
+    static final int DEFAULT_TAIL_KB = 64;
+
+    enum Mode
+    {
+        FULL, NONE, TAIL, FILE
+    }
+
+    private final Mode mode;
+
+    private final int tailSize;
+
+    private final File directory;
+
+    private CapturePolicy( Mode mode, int tailSize, File directory )
+    {
+        this.mode = mode;
+        this.tailSize = tailSize;
+        this.directory = directory;
+    }
+
+    /**
+     * Parses a policy as described above.
+     *
+     * @throws IllegalArgumentException if the policy is not understood
+     */
+    public static CapturePolicy parse( String policy )
+    {
+        String value = policy.trim();
+        int colon = value.indexOf( ':' );
+        String name = ( colon < 0 ? value : value.substring( 0, colon ) ).toLowerCase();
+        String argument = colon < 0 ? null : value.substring( colon + 1 ).trim();
+
+        if ( name.equals( "full" ) && argument == null )
+        {
+            return FULL;
+        }
+        if ( name.equals( "none" ) && argument == null )
+        {
+            return new CapturePolicy( Mode.NONE, 0, null );
+        }
+        if ( name.equals( "tail" ) )
+        {
+            int kilobytes = DEFAULT_TAIL_KB;
+            if ( argument != null )
+            {
+                try
+                {
+                    kilobytes = Integer.parseInt( argument );
+                }
+                catch ( NumberFormatException e )
+                {
+                    kilobytes = 0;
+                }
+            }
+            if ( kilobytes > 0 )
+            {
+                return new CapturePolicy( Mode.TAIL, kilobytes * 1024, null );
+            }
+        }
+        if ( name.equals( "file" ) )
+        {
+            return new CapturePolicy(
+                Mode.FILE, 0, argument == null || argument.length() == 0 ? null : new File( argument )
+            );
+        }
+
+        throw new IllegalArgumentException(
+            "NPANDAY-040-014: Unknown output capture policy '" + policy
+                + "', expected full, none, tail[:<KB>] or file[:<directory>]"
+        );
+    }
+
+    /**
+     * Creates the capture for one stream of one process.
+     *
+     * @param streamName used to name spill files, like <code>out</code> or <code>err</code>
+     */
+    OutputCapture newCapture( String streamName )
+        throws IOException
+    {
+        switch ( mode )
+        {
+            case NONE:
+                return new OutputCapture.None();
+            case TAIL:
+                return new OutputCapture.Tail( tailSize );
+            case FILE:
+                if ( directory != null && !directory.exists() && !directory.mkdirs() )
+                {
+                    throw new IOException( "NPANDAY-040-017: Could not create directory " + directory );
+                }
+                File file = File.createTempFile( "npanday-", "." + streamName, directory );
+                // in case the output is never discarded
+                file.deleteOnExit();
+                return new OutputCapture.Spill( file );
+            default:
+                return new OutputCapture.Full();
+        }
+    }
+
+    public String toString()
+    {
+        switch ( mode )
+        {
+            case TAIL:
+                return "tail:" + ( tailSize / 1024 );
+            case FILE:
+                return directory == null ? "file" : "file:" + directory;
+            default:
+                return mode.name().toLowerCase();
+        }
+    }
+}
@@ -21,10 +21,13 @@ package npanday.executable.execution;
 
 import npanday.executable.CommandExecutor;
 import npanday.executable.ExecutionException;
+import npanday.executable.ExecutionMetrics;
+import npanday.executable.OutputConsumer;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -38,11 +41,86 @@ public abstract class CommandExecutorSkeleton
      */
     private Logger logger;
 
+    private OutputConsumer outputConsumer;
+
+    private CapturePolicy capturePolicy = CapturePolicy.FULL;
+
+    /**
+     * Metrics of the last execution.
+     */
+    protected ExecutionMetrics metrics;
+
     public void setLogger( Logger logger )
     {
         this.logger = logger;
     }
 
+    public void setOutputConsumer( OutputConsumer outputConsumer )
+    {
+        this.outputConsumer = outputConsumer;
+    }
+
+    public OutputConsumer getOutputConsumer()
+    {
+        return outputConsumer;
+    }
+
+    public ExecutionMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Sets how much of the output is kept for {@link #getStandardOut()} and {@link #getStandardError()}.
+     */
+    public void setCapturePolicy( CapturePolicy capturePolicy )
+    {
+        this.capturePolicy = capturePolicy;
+    }
+
+    public CapturePolicy getCapturePolicy()
+    {
+        return capturePolicy;
+    }
+
+    /**
+     * Creates the consumers for a process' output streams, following the output consumer and capture policy.
+     *
+     * @param commandline stopped if the output consumer aborts, may be <code>null</code>
+     */
+    StandardStreamConsumer createOutputConsumer( StoppableCommandline commandline )
+        throws ExecutionException
+    {
+        if ( outputConsumer != null )
+        {
+            return new StandardStreamConsumer( getLogger(), outputConsumer, commandline );
+        }
+        return new StandardStreamConsumer( getLogger(), newCapture( "out" ) );
+    }
+
+    ErrorStreamConsumer createErrorConsumer( StoppableCommandline commandline )
+        throws ExecutionException
+    {
+        if ( outputConsumer != null )
+        {
+            return new ErrorStreamConsumer( getLogger(), outputConsumer, commandline );
+        }
+        return new ErrorStreamConsumer( getLogger(), newCapture( "err" ) );
+    }
+
+    private OutputCapture newCapture( String streamName )
+        throws ExecutionException
+    {
+        try
+        {
+            return capturePolicy.newCapture( streamName );
+        }
+        catch ( IOException e )
+        {
+            throw new ExecutionException( "NPANDAY-040-018: Could not capture output as " + capturePolicy, e );
+        }
+    }
+
     public void executeCommand( String executable, List<String> commands ) throws ExecutionException
     {
         executeCommand( executable, commands, null, true );
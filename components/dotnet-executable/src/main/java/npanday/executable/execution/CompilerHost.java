@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.execution;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-lived process that runs compiles on request, so that the startup and JIT cost of the
+ * compiler is paid only once instead of on every module.
+ * <p/>
+ * Requests and responses are exchanged as UTF-8 lines over the standard input and output of
+ * the host process. A request consists of <code>exe &lt;executable&gt;</code>, an optional
+ * <code>dir &lt;working directory&gt;</code>, any number of <code>arg &lt;argument&gt;</code>
+ * and a final <code>run</code>. The host answers with any number of <code>out &lt;line&gt;</code>
+ * and <code>err &lt;line&gt;</code>, followed by <code>exit &lt;code&gt;</code>. Backslashes and
+ * line breaks within values are escaped as <code>\\</code>, <code>\n</code> and <code>\r</code>.
+ */
+public class CompilerHost
+{
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "npanday-compiler-host-watchdog-%d" ).build()
+    );
+
+    private final Process process;
+
+    private final BufferedReader in;
+
+    private final Writer out;
+
+    private volatile boolean timedOut;
+
+    public CompilerHost( List<String> command )
+        throws IOException
+    {
+        process = new ProcessBuilder( command ).start();
+        in = new BufferedReader( new InputStreamReader( process.getInputStream(), "UTF-8" ) );
+        out = new BufferedWriter( new OutputStreamWriter( process.getOutputStream(), "UTF-8" ) );
+        drain( process.getErrorStream() );
+    }
+
+    /**
+     * Runs a single compile on the host, passing its output on as it arrives.
+     *
+     * @param timeout the time in milliseconds after which the host is destroyed if it did not complete
+     *                the compile, 0 for no limit
+     * @return the exit code reported by the host
+     * @throws IOException if the host died, timed out or violated the protocol; the host must not be used
+     *                     afterwards.
+     */
+    public synchronized int execute(
+        String executable, List<String> arguments, File workingDirectory, StreamConsumer stdOut,
+        StreamConsumer stdErr, long timeout )
+        throws IOException
+    {
+        ScheduledFuture<?> watchdog = null;
+        if ( timeout > 0 )
+        {
+            watchdog = WATCHDOG.schedule(
+                new Runnable()
+                {
+                    public void run()
+                    {
+                        timedOut = true;
+                        process.destroy();
+                    }
+                }, timeout, TimeUnit.MILLISECONDS
+            );
+        }
+        try
+        {
+            return request( executable, arguments, workingDirectory, stdOut, stdErr );
+        }
+        catch ( IOException e )
+        {
+            if ( timedOut )
+            {
+                throw new IOException( "NPANDAY-040-019: Compiler host did not complete within " + timeout + " ms" );
+            }
+            throw e;
+        }
+        finally
+        {
+            if ( watchdog != null )
+            {
+                watchdog.cancel( false );
+            }
+        }
+    }
+
+    private int request(
+        String executable, List<String> arguments, File workingDirectory, StreamConsumer stdOut,
+        StreamConsumer stdErr )
+        throws IOException
+    {
+        writeLine( "exe", executable );
+        if ( workingDirectory != null )
+        {
+            writeLine( "dir", workingDirectory.getAbsolutePath() );
+        }
+        for ( String argument : arguments )
+        {
+            writeLine( "arg", argument );
+        }
+        out.write( "run\n" );
+        out.flush();
+
+        String line;
+        while ( ( line = in.readLine() ) != null )
+        {
+            if ( line.startsWith( "out " ) )
+            {
+                stdOut.consumeLine( unescape( line.substring( 4 ) ) );
+            }
+            else if ( line.startsWith( "err " ) )
+            {
+                stdErr.consumeLine( unescape( line.substring( 4 ) ) );
+            }
+            else if ( line.startsWith( "exit " ) )
+            {
+                try
+                {
+                    return Integer.parseInt( line.substring( 5 ).trim() );
+                }
+                catch ( NumberFormatException e )
+                {
+                    throw new IOException( "NPANDAY-040-009: Invalid exit code from compiler host: " + line );
+                }
+            }
+            else
+            {
+                throw new IOException( "NPANDAY-040-010: Unexpected response from compiler host: " + line );
+            }
+        }
+        throw new EOFException( "NPANDAY-040-011: Compiler host terminated unexpectedly" );
+    }
+
+    public boolean isAlive()
+    {
+        try
+        {
+            process.exitValue();
+            return false;
+        }
+        catch ( IllegalThreadStateException e )
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Closes the standard input of the host, which should make it exit, and then destroys it.
+     */
+    public void close()
+    {
+        IOUtil.close( out );
+        IOUtil.close( in );
+        process.destroy();
+    }
+
+    private void writeLine( String key, String value )
+        throws IOException
+    {
+        out.write( key );
+        out.write( ' ' );
+        out.write( escape( value ) );
+        out.write( '\n' );
+    }
+
+    public static String escape( String value )
+    {
+        StringBuilder builder = new StringBuilder( value.length() );
+        for ( char c : value.toCharArray() )
+        {
+            switch ( c )
+            {
+                case '\\':
+                    builder.append( "\\\\" );
+                    break;
+                case '\n':
+                    builder.append( "\\n" );
+                    break;
+                case '\r':
+                    builder.append( "\\r" );
+                    break;
+                default:
+                    builder.append( c );
+            }
+        }
+        return builder.toString();
+    }
+
+    public static String unescape( String value )
+    {
+        StringBuilder builder = new StringBuilder( value.length() );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '\\' && i + 1 < value.length() )
+            {
+                char next = value.charAt( ++i );
+                builder.append( next == 'n' ? '\n' : next == 'r' ? '\r' : next );
+            }
+            else
+            {
+                builder.append( c );
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Diagnostics of the host itself are discarded, but must be read to not block it.
+     */
+    private static void drain( final InputStream stream )
+    {
+        Thread thread = new Thread( "npanday-compiler-host-stderr" )
+        {
+            public void run()
+            {
+                byte[] buffer = new byte[1024];
+                try
+                {
+                    while ( stream.read( buffer ) >= 0 )
+                    {
+                    }
+                }
+                catch ( IOException e )
+                {
+                    // host is gone
+                }
+                finally
+                {
+                    IOUtil.close( stream );
+                }
+            }
+        };
+        thread.setDaemon( true );
+        thread.start();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.execution;
+
+import npanday.executable.CommandExecutor;
+import npanday.executable.ExecutionException;
+import npanday.executable.ExecutionMetrics;
+import npanday.executable.OutputConsumer;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs commands on a long-lived {@link CompilerHost} instead of starting a new process for each of
+ * them. If no host can be started, or if the host dies or times out before passing on any output, the
+ * command is run by the one-shot executor instead. Output is passed on as the host reports it; once
+ * that happened, a failing host fails the command, since running it again would report the output twice.
+ * An aborting output consumer stops the command by closing the host.
+ */
+public class CompilerHostCommandExecutor
+    extends CommandExecutorSkeleton
+{
+    private final String hostKey;
+
+    private final String hostCommand;
+
+    private final CommandExecutor oneShot;
+
+    private long timeout;
+
+    private boolean ranOneShot;
+
+    private StandardStreamConsumer stdOut;
+
+    private ErrorStreamConsumer stdErr;
+
+    private int result;
+
+    /**
+     * @param hostKey     identifies the compiler the host runs, usually its vendor and framework version;
+     *                    hosts are only shared between executors with the same key and command line
+     * @param hostCommand the command line starting the host
+     * @param oneShot     the executor to fall back to
+     */
+    public CompilerHostCommandExecutor( String hostKey, String hostCommand, CommandExecutor oneShot )
+    {
+        this.hostKey = hostKey;
+        this.hostCommand = hostCommand;
+        this.oneShot = oneShot;
+    }
+
+    /**
+     * Sets how long a command may take on the host before the host is closed, 0 for no limit.
+     */
+    public void setTimeout( long timeout )
+    {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void executeCommand(
+        String executable, List<String> commands, File workingDirectory, boolean failsOnErrorOutput )
+        throws ExecutionException
+    {
+        if ( commands == null )
+        {
+            commands = new ArrayList<String>();
+        }
+        discardOutput();
+        ranOneShot = false;
+
+        CompilerHost host;
+        try
+        {
+            host = CompilerHosts.borrow( hostKey, hostCommand );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn(
+                "NPANDAY-040-006: Could not start compiler host, falling back to one-shot execution: "
+                    + e.getMessage()
+            );
+            executeOneShot( executable, commands, workingDirectory, failsOnErrorOutput );
+            return;
+        }
+
+        stdOut = createOutputConsumer( null );
+        stdErr = createErrorConsumer( null );
+        Request request = new Request( host );
+
+        metrics = new ExecutionMetrics( executable );
+        getLogger().info( " +--[ RUNNING ON COMPILER HOST: " + executable + " " + commands + "]" );
+
+        try
+        {
+            result = host.execute(
+                executable, commands, workingDirectory, request.forward( stdOut ), request.forward( stdErr ),
+                timeout
+            );
+            metrics.setExitCode( result );
+            CompilerHosts.release( hostKey, hostCommand, host );
+        }
+        catch ( IOException e )
+        {
+            host.close();
+            if ( request.stopped )
+            {
+                throw new ExecutionException(
+                    "NPANDAY-040-020: Stopped execution on compiler host on request of the output consumer: "
+                        + "Executable = " + executable
+                );
+            }
+            if ( request.forwarded )
+            {
+                throw new ExecutionException(
+                    "NPANDAY-040-021: Compiler host failed after passing on output: Executable = " + executable, e
+                );
+            }
+            getLogger().warn(
+                "NPANDAY-040-007: Compiler host failed, falling back to one-shot execution: " + e.getMessage()
+            );
+            stdOut.discard();
+            stdErr.discard();
+            executeOneShot( executable, commands, workingDirectory, failsOnErrorOutput );
+            return;
+        }
+        finally
+        {
+            stdOut.close();
+            stdErr.close();
+            metrics.setWallTime( System.currentTimeMillis() - metrics.getStarted() );
+            metrics.setOutputChars( stdOut.getChars() );
+            metrics.setErrorChars( stdErr.getChars() );
+        }
+
+        if ( ( failsOnErrorOutput && stdErr.hasError() ) || result != 0 )
+        {
+            getLogger().info( " +--[ FAILED, result = " + result + ", error output = " + stdErr.hasError() + "]" );
+            throw new ExecutionException(
+                "NPANDAY-040-008: Could not execute on compiler host: Executable = " + executable + ", Result = "
+                    + result
+            );
+        }
+        getLogger().info( " +--[ DONE ]" );
+    }
+
+    private void executeOneShot(
+        String executable, List<String> commands, File workingDirectory, boolean failsOnErrorOutput )
+        throws ExecutionException
+    {
+        ranOneShot = true;
+        oneShot.setLogger( getLogger() );
+        oneShot.setOutputConsumer( getOutputConsumer() );
+        if ( oneShot instanceof CommandExecutorSkeleton )
+        {
+            ( (CommandExecutorSkeleton) oneShot ).setCapturePolicy( getCapturePolicy() );
+        }
+        oneShot.executeCommand( executable, commands, workingDirectory, failsOnErrorOutput );
+    }
+
+    /**
+     * Passes the output of one command on as it arrives, and closes the host if the output consumer aborts.
+     */
+    private class Request
+    {
+        private final CompilerHost host;
+
+        private boolean forwarded;
+
+        private boolean stopped;
+
+        Request( CompilerHost host )
+        {
+            this.host = host;
+        }
+
+        StreamConsumer forward( final StreamConsumer target )
+        {
+            return new StreamConsumer()
+            {
+                public void consumeLine( String line )
+                {
+                    forwarded = true;
+                    target.consumeLine( line );
+                    OutputConsumer consumer = getOutputConsumer();
+                    if ( !stopped && consumer != null && consumer.isAborted() )
+                    {
+                        stopped = true;
+                        host.close();
+                    }
+                }
+            };
+        }
+    }
+
+    @Override
+    public ExecutionMetrics getMetrics()
+    {
+        return ranOneShot ? oneShot.getMetrics() : metrics;
+    }
+
+    public int getResult()
+    {
+        return ranOneShot ? oneShot.getResult() : result;
+    }
+
+    public String getStandardOut()
+    {
+        return ranOneShot ? oneShot.getStandardOut() : stdOut.toString();
+    }
+
+    public String getStandardError()
+    {
+        return ranOneShot ? oneShot.getStandardError() : stdErr.toString();
+    }
+
+    public void discardOutput()
+    {
+        oneShot.discardOutput();
+        if ( stdOut != null )
+        {
+            stdOut.discard();
+            stdErr.discard();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.execution;
+
+import com.google.common.collect.Lists;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the idle compiler hosts, keyed by the compiler they run, usually its vendor and framework
+ * version, and the command line that starts them. Concurrent compiles borrow separate hosts, new
+ * hosts are started on demand. All hosts are closed when the JVM exits.
+ */
+public final class CompilerHosts
+{
+    private static final ConcurrentMap<String, Queue<CompilerHost>> IDLE =
+        new ConcurrentHashMap<String, Queue<CompilerHost>>();
+
+    static
+    {
+        Runtime.getRuntime().addShutdownHook(
+            new Thread( "npanday-compiler-host-shutdown" )
+            {
+                public void run()
+                {
+                    closeAll();
+                }
+            }
+        );
+    }
+
+    private CompilerHosts()
+    {
+    }
+
+    /**
+     * Returns an idle host for the key and command line, or starts a new one.
+     */
+    public static CompilerHost borrow( String hostKey, String hostCommand )
+        throws IOException
+    {
+        CompilerHost host;
+        while ( ( host = getIdle( hostKey, hostCommand ).poll() ) != null )
+        {
+            if ( host.isAlive() )
+            {
+                return host;
+            }
+            host.close();
+        }
+
+        String[] command;
+        try
+        {
+            command = CommandLineUtils.translateCommandline( hostCommand );
+        }
+        catch ( Exception e )
+        {
+            throw new IOException( "NPANDAY-040-012: Invalid compiler host command line: " + hostCommand );
+        }
+        return new CompilerHost( Lists.newArrayList( Arrays.asList( command ) ) );
+    }
+
+    /**
+     * Hands a host back after a successful request.
+     */
+    public static void release( String hostKey, String hostCommand, CompilerHost host )
+    {
+        getIdle( hostKey, hostCommand ).add( host );
+    }
+
+    /**
+     * Closes all idle hosts.
+     */
+    public static void closeAll()
+    {
+        for ( Queue<CompilerHost> hosts : IDLE.values() )
+        {
+            CompilerHost host;
+            while ( ( host = hosts.poll() ) != null )
+            {
+                host.close();
+            }
+        }
+    }
+
+    private static Queue<CompilerHost> getIdle( String hostKey, String hostCommand )
+    {
+        String key = hostKey + " " + hostCommand;
+        Queue<CompilerHost> hosts = IDLE.get( key );
+        if ( hosts == null )
+        {
+            IDLE.putIfAbsent( key, new ConcurrentLinkedQueue<CompilerHost>() );
+            hosts = IDLE.get( key );
+        }
+        return hosts;
+    }
+}
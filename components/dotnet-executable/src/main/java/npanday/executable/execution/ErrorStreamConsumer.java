@@ -20,6 +20,7 @@ package npanday.executable.execution;
  */
 
 import com.google.common.base.Preconditions;
+import npanday.executable.OutputConsumer;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
@@ -40,23 +41,62 @@ class ErrorStreamConsumer
     private boolean error;
 
     /**
-     * Buffer to store the stream
+     * Keeps the stream, or parts of it
      */
-    private StringBuffer sbe = new StringBuffer();
+    private OutputCapture capture;
 
     private Logger logger;
 
+    private OutputConsumer forward;
+
+    private long chars;
+
+    private StoppableCommandline commandline;
+
     public ErrorStreamConsumer( Logger logger )
+    {
+        this( logger, new OutputCapture.Full() );
+    }
+
+    /**
+     * @param capture keeps the output for {@link #toString()}
+     */
+    public ErrorStreamConsumer( Logger logger, OutputCapture capture )
     {
         Preconditions.checkArgument( logger != null, "logger must not be null" );
         this.logger = logger;
+        this.capture = capture;
 
         error = false;
     }
 
+    /**
+     * Passes all lines on to <code>forward</code> instead of logging and buffering them.
+     *
+     * @param commandline stopped as soon as <code>forward</code> is aborted, may be <code>null</code>
+     */
+    public ErrorStreamConsumer( Logger logger, OutputConsumer forward, StoppableCommandline commandline )
+    {
+        this( logger, new OutputCapture.None() );
+        this.forward = forward;
+        this.commandline = commandline;
+    }
+
     public void consumeLine( String line )
     {
-        sbe.append( line );
+        chars += line.length() + 1;
+        if ( forward != null )
+        {
+            error = true;
+            forward.consumeErrorLine( line );
+            if ( commandline != null && forward.isAborted() )
+            {
+                commandline.stop();
+            }
+            return;
+        }
+
+        capture.append( line );
         if ( logger != null )
         {
             logger.error( " | " + line );
@@ -81,6 +121,30 @@ class ErrorStreamConsumer
      */
     public String toString()
     {
-        return sbe.toString();
+        return capture.toString();
+    }
+
+    /**
+     * Returns the number of characters consumed, counting one for each line break.
+     */
+    public long getChars()
+    {
+        return chars;
+    }
+
+    /**
+     * Called once the stream has been consumed completely.
+     */
+    public void close()
+    {
+        capture.close();
+    }
+
+    /**
+     * Drops the kept output.
+     */
+    public void discard()
+    {
+        capture.discard();
     }
 }
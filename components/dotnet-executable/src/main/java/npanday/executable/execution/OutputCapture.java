@@ -0,0 +1,239 @@
+package npanday.executable.execution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Keeps (part of) the output of a process stream for {@link npanday.executable.CommandExecutor#getStandardOut()}
+ * and {@link npanday.executable.CommandExecutor#getStandardError()}. Lines are appended by the thread pumping
+ * the stream; they are read only after the process finished.
+ *
+ * @see CapturePolicy
+ */
+abstract class OutputCapture
+{
+    abstract void append( String line );
+
+    /**
+     * Releases resources held while capturing; the captured output stays available.
+     */
+    void close()
+    {
+    }
+
+    /**
+     * Drops the captured output and releases everything holding it.
+     */
+    void discard()
+    {
+    }
+
+    public abstract String toString();
+
+    /**
+     * Keeps all output; lines are concatenated without separators, as they always were.
+     */
+    static class Full
+        extends OutputCapture
+    {
+        private final StringBuffer buffer = new StringBuffer();
+
+        void append( String line )
+        {
+            buffer.append( line );
+        }
+
+        public String toString()
+        {
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * Drops all output.
+     */
+    static class None
+        extends OutputCapture
+    {
+        void append( String line )
+        {
+        }
+
+        public String toString()
+        {
+            return "";
+        }
+    }
+
+    /**
+     * Keeps the last characters of the output, one line per line, in a fixed size ring buffer.
+     */
+    static class Tail
+        extends OutputCapture
+    {
+        private final char[] ring;
+
+        private int position;
+
+        private boolean wrapped;
+
+        Tail( int size )
+        {
+            ring = new char[size];
+        }
+
+        synchronized void append( String line )
+        {
+            int length = line.length();
+            // only the end of a line longer than the buffer would survive
+            int start = Math.max( 0, length - ring.length );
+            for ( int i = start; i < length; i++ )
+            {
+                put( line.charAt( i ) );
+            }
+            put( '\n' );
+        }
+
+        private void put( char c )
+        {
+            ring[position++] = c;
+            if ( position == ring.length )
+            {
+                position = 0;
+                wrapped = true;
+            }
+        }
+
+        public synchronized String toString()
+        {
+            if ( !wrapped )
+            {
+                return new String( ring, 0, position );
+            }
+
+            StringBuilder builder = new StringBuilder( ring.length );
+            builder.append( ring, position, ring.length - position );
+            builder.append( ring, 0, position );
+
+            // drop the partially overwritten first line
+            int firstLineEnd = builder.indexOf( "\n" );
+            if ( firstLineEnd >= 0 && firstLineEnd < builder.length() - 1 )
+            {
+                builder.delete( 0, firstLineEnd + 1 );
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Writes the output to a file, one line per line; it is only read back if requested.
+     */
+    static class Spill
+        extends OutputCapture
+    {
+        private final File file;
+
+        private Writer writer;
+
+        private IOException failure;
+
+        private boolean closed;
+
+        private boolean discarded;
+
+        Spill( File file )
+        {
+            this.file = file;
+        }
+
+        synchronized void append( String line )
+        {
+            if ( failure != null || closed )
+            {
+                return;
+            }
+            try
+            {
+                if ( writer == null )
+                {
+                    writer = new BufferedWriter( new FileWriter( file ) );
+                }
+                writer.write( line );
+                writer.write( '\n' );
+            }
+            catch ( IOException e )
+            {
+                // keep consuming, the process must never block on its output
+                failure = e;
+                IOUtil.close( writer );
+            }
+        }
+
+        synchronized void close()
+        {
+            IOUtil.close( writer );
+            closed = true;
+        }
+
+        synchronized void discard()
+        {
+            close();
+            discarded = true;
+            file.delete();
+        }
+
+        File getFile()
+        {
+            return file;
+        }
+
+        public synchronized String toString()
+        {
+            if ( failure != null )
+            {
+                return "NPANDAY-040-015: Could not write output to " + file + ": " + failure.getMessage();
+            }
+            if ( writer == null || discarded )
+            {
+                return "";
+            }
+            try
+            {
+                if ( !closed )
+                {
+                    writer.flush();
+                }
+                return FileUtils.fileRead( file );
+            }
+            catch ( IOException e )
+            {
+                return "NPANDAY-040-016: Could not read output from " + file + ": " + e.getMessage();
+            }
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package npanday.executable.execution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples peak resident memory and CPU time of a running process and all its descendants from
+ * <code>/proc</code>, where available. Samples are taken periodically on a daemon thread, hence the figures are
+ * close lower bounds; processes living shorter than the sampling interval are missed.
+ * <p/>
+ * If the process only is a shell wrapping the actual command line, the shell itself is not accounted for. If
+ * neither the command nor any of its children could be sampled, no figures are reported.
+ */
+class ProcessSampler
+    implements Runnable
+{
+    private static final File PROC = new File( "/proc" );
+
+    private static final long INTERVAL = 50;
+
+    /**
+     * Clock ticks per second used in <code>/proc/&lt;pid&gt;/stat</code>; 100 on all common kernels.
+     */
+    private static final long TICKS_PER_SECOND = 100;
+
+    private final int pid;
+
+    /**
+     * The arguments of the wrapping shell, or <code>null</code> if the command was started directly.
+     */
+    private final List<String> wrapper;
+
+    /**
+     * The highest CPU ticks seen per process of the tree.
+     */
+    private final Map<Integer, Long> ticks = new HashMap<Integer, Long>();
+
+    private volatile boolean stopped;
+
+    private volatile long peakResidentKilobytes = -1;
+
+    private volatile long cpuTime = -1;
+
+    private Thread thread;
+
+    private ProcessSampler( int pid, List<String> wrapper )
+    {
+        this.pid = pid;
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * Starts sampling the process.
+     *
+     * @param wrapper the full command line of the wrapping shell, if the process is a <code>sh -c</code>
+     *                invocation of the actual command; <code>null</code> if it is the command itself
+     * @return the sampler, or <code>null</code> if the process can't be sampled on this platform
+     */
+    static ProcessSampler start( Process process, String[] wrapper )
+    {
+        if ( !new File( PROC, "self/stat" ).isFile() )
+        {
+            return null;
+        }
+        int pid = getPid( process );
+        if ( pid <= 0 )
+        {
+            return null;
+        }
+
+        ProcessSampler sampler = new ProcessSampler( pid, wrapper == null ? null : Arrays.asList( wrapper ) );
+        sampler.sample();
+        sampler.thread = new Thread( sampler, "npanday-process-sampler-" + pid );
+        sampler.thread.setDaemon( true );
+        sampler.thread.start();
+        return sampler;
+    }
+
+    public void run()
+    {
+        while ( !stopped && sample() )
+        {
+            try
+            {
+                Thread.sleep( INTERVAL );
+            }
+            catch ( InterruptedException e )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes a last sample and stops sampling.
+     */
+    void stop()
+    {
+        sample();
+        stopped = true;
+        thread.interrupt();
+    }
+
+    long getPeakResidentKilobytes()
+    {
+        return peakResidentKilobytes;
+    }
+
+    long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * @return false once the process is gone
+     */
+    private synchronized boolean sample()
+    {
+        if ( !new File( PROC, Integer.toString( pid ) ).isDirectory() )
+        {
+            return false;
+        }
+
+        List<Integer> tree = new ArrayList<Integer>();
+        if ( !isWrapper( pid ) )
+        {
+            tree.add( pid );
+        }
+        Map<Integer, List<Integer>> children = null;
+        List<Integer> parents = new ArrayList<Integer>();
+        parents.add( pid );
+        while ( !parents.isEmpty() )
+        {
+            int parent = parents.remove( parents.size() - 1 );
+            List<Integer> direct = readChildren( parent );
+            if ( direct == null )
+            {
+                if ( children == null )
+                {
+                    children = scanChildren();
+                }
+                direct = children.get( parent );
+            }
+            if ( direct != null )
+            {
+                tree.addAll( direct );
+                parents.addAll( direct );
+            }
+        }
+
+        long residentKilobytes = 0;
+        long peakOfSingle = -1;
+        for ( int process : tree )
+        {
+            long processTicks = readTicks( process );
+            if ( processTicks >= 0 )
+            {
+                Long seen = ticks.get( process );
+                ticks.put( process, seen == null ? processTicks : Math.max( seen, processTicks ) );
+            }
+
+            long[] memory = readMemory( process );
+            if ( memory != null )
+            {
+                residentKilobytes += memory[0];
+                peakOfSingle = Math.max( peakOfSingle, memory[1] );
+            }
+        }
+
+        if ( !ticks.isEmpty() )
+        {
+            long total = 0;
+            for ( long processTicks : ticks.values() )
+            {
+                total += processTicks;
+            }
+            cpuTime = Math.max( cpuTime, total * 1000 / TICKS_PER_SECOND );
+        }
+        if ( peakOfSingle >= 0 )
+        {
+            peakResidentKilobytes = Math.max( peakResidentKilobytes, Math.max( residentKilobytes, peakOfSingle ) );
+        }
+        return true;
+    }
+
+    /**
+     * The wrapping shell keeps its command line until it replaces itself with the command.
+     */
+    private boolean isWrapper( int process )
+    {
+        if ( wrapper == null )
+        {
+            return false;
+        }
+        try
+        {
+            String cmdline = FileUtils.fileRead( new File( PROC, process + "/cmdline" ) );
+            if ( cmdline.endsWith( "\0" ) )
+            {
+                cmdline = cmdline.substring( 0, cmdline.length() - 1 );
+            }
+            return Arrays.asList( cmdline.split( "\0", -1 ) ).equals( wrapper );
+        }
+        catch ( IOException e )
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Reads the children of all threads of the process.
+     *
+     * @return the children, or <code>null</code> if the kernel does not provide them
+     */
+    private static List<Integer> readChildren( int process )
+    {
+        File[] tasks = new File( PROC, process + "/task" ).listFiles();
+        if ( tasks == null || tasks.length == 0 || !new File( tasks[0], "children" ).isFile() )
+        {
+            return null;
+        }
+
+        List<Integer> children = new ArrayList<Integer>();
+        for ( File task : tasks )
+        {
+            try
+            {
+                for ( String child : FileUtils.fileRead( new File( task, "children" ) ).trim().split( " " ) )
+                {
+                    if ( child.length() > 0 )
+                    {
+                        children.add( Integer.valueOf( child ) );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                // the thread is gone
+            }
+            catch ( NumberFormatException e )
+            {
+                // skip the malformed entry
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Maps all processes to their children, by their parent ids.
+     */
+    private static Map<Integer, List<Integer>> scanChildren()
+    {
+        Map<Integer, List<Integer>> children = new HashMap<Integer, List<Integer>>();
+        String[] names = PROC.list();
+        if ( names == null )
+        {
+            return children;
+        }
+        for ( String name : names )
+        {
+            if ( name.length() == 0 || !Character.isDigit( name.charAt( 0 ) ) )
+            {
+                continue;
+            }
+            String[] fields = readStat( Integer.parseInt( name ) );
+            if ( fields == null )
+            {
+                continue;
+            }
+            try
+            {
+                // the parent id is field 4
+                Integer parent = Integer.valueOf( fields[1] );
+                List<Integer> siblings = children.get( parent );
+                if ( siblings == null )
+                {
+                    siblings = new ArrayList<Integer>();
+                    children.put( parent, siblings );
+                }
+                siblings.add( Integer.valueOf( name ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                // skip the process
+            }
+        }
+        return children;
+    }
+
+    /**
+     * @return the user and system ticks the process spent, or -1 if it is gone
+     */
+    private static long readTicks( int process )
+    {
+        String[] fields = readStat( process );
+        if ( fields == null )
+        {
+            return -1;
+        }
+        try
+        {
+            // utime and stime are fields 14 and 15; children are sampled on their own
+            return Long.parseLong( fields[11] ) + Long.parseLong( fields[12] );
+        }
+        catch ( RuntimeException e )
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the fields of <code>/proc/&lt;pid&gt;/stat</code> from field 3 on, or <code>null</code> if the
+     *         process is gone
+     */
+    private static String[] readStat( int process )
+    {
+        try
+        {
+            String stat = FileUtils.fileRead( new File( PROC, process + "/stat" ) );
+            // the command name in parentheses may contain spaces
+            return stat.substring( stat.lastIndexOf( ')' ) + 2 ).trim().split( " " );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        catch ( RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return the current and the highest resident set size in kilobytes, or <code>null</code> if unknown
+     */
+    private static long[] readMemory( int process )
+    {
+        long[] memory = new long[]{ -1, -1 };
+        try
+        {
+            for ( String line : FileUtils.fileRead( new File( PROC, process + "/status" ) ).split( "\n" ) )
+            {
+                if ( line.startsWith( "VmRSS:" ) )
+                {
+                    memory[0] = Long.parseLong( line.substring( 6 ).replace( "kB", "" ).trim() );
+                }
+                // the high water mark of the resident set size
+                else if ( line.startsWith( "VmHWM:" ) )
+                {
+                    memory[1] = Long.parseLong( line.substring( 6 ).replace( "kB", "" ).trim() );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
+        }
+        // a finished process is still listed as zombie, without memory information
+        return memory[0] < 0 || memory[1] < 0 ? null : memory;
+    }
+
+    private static int getPid( Process process )
+    {
+        try
+        {
+            // Java 9 and later
+            Method pid = Process.class.getMethod( "pid" );
+            return ( (Number) pid.invoke( process ) ).intValue();
+        }
+        catch ( Exception e )
+        {
+            // fall through
+        }
+
+        try
+        {
+            Field pid = process.getClass().getDeclaredField( "pid" );
+            pid.setAccessible( true );
+            return pid.getInt( process );
+        }
+        catch ( Exception e )
+        {
+            return -1;
+        }
+    }
+}
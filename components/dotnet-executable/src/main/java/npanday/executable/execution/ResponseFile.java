@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.execution;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes command line arguments to a response file, that can be passed to csc, vbc, mcs and
+ * most other .NET tools as <code>@file</code>.
+ * <p/>
+ * The arguments are streamed to the file one per line, quoted the same way as on the
+ * Windows command line, using the platform encoding.
+ */
+public class ResponseFile
+{
+    private static final char QUOTE = '\"';
+
+    private static final char[] ESCAPED = new char[]{ '\"' };
+
+    private static final char[] QUOTING_TRIGGERS = new char[]{ ' ' };
+
+    private ResponseFile()
+    {
+    }
+
+    /**
+     * Writes the arguments to <code>file</code>, replacing any previous contents.
+     */
+    public static void write( File file, List<String> arguments, ArgumentQuotingStrategy quotingStrategy )
+        throws IOException
+    {
+        File parent = file.getParentFile();
+        if ( parent != null && !parent.exists() && !parent.mkdirs() )
+        {
+            throw new IOException( "NPANDAY-040-024: Could not create directory " + parent );
+        }
+
+        Writer writer = new BufferedWriter( new FileWriter( file ) );
+        try
+        {
+            for ( String argument : arguments )
+            {
+                writer.write( quotingStrategy.quoteAndEscape( argument, QUOTE, ESCAPED, QUOTING_TRIGGERS, '\\', false ) );
+                writer.write( '\n' );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Checks if the arguments consist of nothing else than a reference to a response file.
+     */
+    public static boolean isResponseFileReference( List<String> arguments )
+    {
+        return arguments.size() == 1 && arguments.get( 0 ).startsWith( "@" );
+    }
+}
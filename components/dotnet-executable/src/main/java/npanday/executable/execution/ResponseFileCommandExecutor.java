@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.execution;
+
+import npanday.executable.ExecutionException;
+import npanday.executable.execution.shells.DirectShell;
+import org.codehaus.plexus.util.cli.shell.Shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Passes all arguments through a response file and starts the executable directly, without
+ * an intermediate shell process. This avoids command line length limits and quoting thousands
+ * of arguments for the shell.
+ * <p/>
+ * Only works for executables that understand <code>@file</code>. If the arguments already
+ * consist of a single response file reference, they are passed on unchanged.
+ */
+public class ResponseFileCommandExecutor
+    extends UnifiedShellCommandExecutor
+{
+    private final File responseFile;
+
+    /**
+     * @param responseFile where to write the arguments to; if <code>null</code>, a temporary file is
+     *                     used and deleted after the execution.
+     */
+    public ResponseFileCommandExecutor( ArgumentQuotingStrategy quotingStrategy, File responseFile )
+    {
+        super( quotingStrategy );
+        this.responseFile = responseFile;
+    }
+
+    @Override
+    public void executeCommand(
+        String executable, List<String> commands, File workingDirectory, boolean failsOnErrorOutput )
+        throws ExecutionException
+    {
+        if ( commands == null )
+        {
+            commands = new ArrayList<String>();
+        }
+
+        if ( commands.isEmpty() || ResponseFile.isResponseFileReference( commands ) )
+        {
+            super.executeCommand( executable, commands, workingDirectory, failsOnErrorOutput );
+            return;
+        }
+
+        File file = responseFile;
+        try
+        {
+            if ( file == null )
+            {
+                file = File.createTempFile( "npanday-", ".rsp" );
+            }
+            ResponseFile.write( file, commands, getQuotingStrategy() );
+        }
+        catch ( IOException e )
+        {
+            throw new ExecutionException( "NPANDAY-040-004: Could not write response file " + file, e );
+        }
+
+        getLogger().debug( "NPANDAY-040-005: Passing " + commands.size() + " arguments through " + file );
+
+        try
+        {
+            super.executeCommand(
+                executable, Collections.singletonList( "@" + file.getAbsolutePath() ), workingDirectory,
+                failsOnErrorOutput
+            );
+        }
+        finally
+        {
+            if ( responseFile == null )
+            {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    protected Shell getExtendedShell()
+    {
+        return new DirectShell();
+    }
+}
@@ -20,33 +20,72 @@ package npanday.executable.execution;
  */
 
 import com.google.common.base.Preconditions;
+import npanday.executable.OutputConsumer;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.cli.DefaultConsumer;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
- * StreamConsumer instance that buffers the entire output
+ * StreamConsumer instance that logs the output and keeps it as configured by the capture policy
  *
  * @author Shane Isbell
  */
 class StandardStreamConsumer
     implements StreamConsumer
 {
-    private StringBuffer sb = new StringBuffer();
+    private OutputCapture capture;
 
     private Logger logger;
 
+    private OutputConsumer forward;
+
+    private long chars;
+
+    private StoppableCommandline commandline;
+
 
     public StandardStreamConsumer( Logger logger )
+    {
+        this( logger, new OutputCapture.Full() );
+    }
+
+    /**
+     * @param capture keeps the output for {@link #toString()}
+     */
+    public StandardStreamConsumer( Logger logger, OutputCapture capture )
     {
         Preconditions.checkArgument( logger != null, "logger must not be null" );
 
         this.logger = logger;
+        this.capture = capture;
+    }
+
+    /**
+     * Passes all lines on to <code>forward</code> instead of logging and buffering them.
+     *
+     * @param commandline stopped as soon as <code>forward</code> is aborted, may be <code>null</code>
+     */
+    public StandardStreamConsumer( Logger logger, OutputConsumer forward, StoppableCommandline commandline )
+    {
+        this( logger, new OutputCapture.None() );
+        this.forward = forward;
+        this.commandline = commandline;
     }
 
     public void consumeLine( String line )
     {
-        sb.append( line );
+        chars += line.length() + 1;
+        if ( forward != null )
+        {
+            forward.consumeOutputLine( line );
+            if ( commandline != null && forward.isAborted() )
+            {
+                commandline.stop();
+            }
+            return;
+        }
+
+        capture.append( line );
         if ( logger != null )
         {
             logger.info( " | " + line );
@@ -60,6 +99,30 @@ class StandardStreamConsumer
      */
     public String toString()
     {
-        return sb.toString();
+        return capture.toString();
+    }
+
+    /**
+     * Returns the number of characters consumed, counting one for each line break.
+     */
+    public long getChars()
+    {
+        return chars;
+    }
+
+    /**
+     * Called once the stream has been consumed completely.
+     */
+    public void close()
+    {
+        capture.close();
+    }
+
+    /**
+     * Drops the kept output.
+     */
+    public void discard()
+    {
+        capture.discard();
     }
 }
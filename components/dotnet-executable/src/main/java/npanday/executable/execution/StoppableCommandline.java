@@ -0,0 +1,91 @@
+package npanday.executable.execution;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import npanday.executable.execution.shells.DirectShell;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.shell.Shell;
+
+/**
+ * Remembers the started process, so that it can be stopped from a stream consumer while
+ * <code>CommandLineUtils</code> waits for it, and samples its resource usage.
+ */
+class StoppableCommandline
+    extends Commandline
+{
+    private Process process;
+
+    private boolean stopped;
+
+    private ProcessSampler sampler;
+
+    StoppableCommandline( Shell shell )
+    {
+        super( shell );
+    }
+
+    @Override
+    public Process execute()
+        throws CommandLineException
+    {
+        Process started = super.execute();
+        synchronized ( this )
+        {
+            process = started;
+            // a shell wrapping the command line is not accounted for, only what it runs
+            sampler = ProcessSampler.start(
+                started, getShell() instanceof DirectShell ? null : getShellCommandline() );
+            if ( stopped )
+            {
+                process.destroy();
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Destroys the process; or, if it was not started yet, destroys it as soon as it is.
+     */
+    public synchronized void stop()
+    {
+        if ( !stopped )
+        {
+            stopped = true;
+            if ( process != null )
+            {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Returns the sampler of the started process, or <code>null</code> if it could not be sampled.
+     */
+    public synchronized ProcessSampler getSampler()
+    {
+        return sampler;
+    }
+
+    public synchronized boolean isStopped()
+    {
+        return stopped;
+    }
+}
@@ -20,14 +20,13 @@
 package npanday.executable.execution;
 
 import npanday.executable.ExecutionException;
+import npanday.executable.ExecutionMetrics;
 import npanday.executable.execution.shells.ExtendedBourneShell;
 import npanday.executable.execution.shells.ExtendedCmdShell;
 import npanday.executable.execution.shells.ExtendedCommandShell;
 import org.codehaus.plexus.util.Os;
 import org.codehaus.plexus.util.cli.CommandLineException;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
-import org.codehaus.plexus.util.cli.Commandline;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 import org.codehaus.plexus.util.cli.shell.Shell;
 
 import java.io.File;
@@ -76,7 +75,7 @@ public class UnifiedShellCommandExecutor
     /**
      * Standard Out
      */
-    private StreamConsumer stdOut;
+    private StandardStreamConsumer stdOut;
 
     /**
      * Standard Error
@@ -97,10 +96,11 @@ public class UnifiedShellCommandExecutor
         {
             commands = new ArrayList<String>();
         }
-        stdOut = new StandardStreamConsumer( getLogger() );
-        stdErr = new ErrorStreamConsumer( getLogger() );
+        StoppableCommandline commandline = new StoppableCommandline( getExtendedShell() );
 
-        Commandline commandline = new Commandline( getExtendedShell());
+        discardOutput();
+        stdOut = createOutputConsumer( commandline );
+        stdErr = createErrorConsumer( commandline );
 
         commandline.setExecutable( executable );
         commandline.addArguments( commands.toArray( new String[commands.size()] ) );
@@ -110,12 +110,22 @@ public class UnifiedShellCommandExecutor
             commandline.setWorkingDirectory( workingDirectory.getAbsolutePath() );
         }
 
+        metrics = new ExecutionMetrics( executable );
         boolean done = false;
         try
         {
             getLogger().info( " +--[ RUNNING: " + commandline.toString()  + "]");
 
             result = CommandLineUtils.executeCommandLine( commandline, stdOut, stdErr );
+            metrics.setExitCode( result );
+
+            if ( commandline.isStopped() )
+            {
+                throw new ExecutionException(
+                    "NPANDAY-040-013: Stopped execution on request of the output consumer: Command = "
+                        + commandline.toString()
+                );
+            }
 
             if ( ( failsOnErrorOutput && stdErr.hasError() ) || result != 0 )
             {
@@ -134,13 +144,34 @@ public class UnifiedShellCommandExecutor
             );
         }
         finally {
+            stdOut.close();
+            stdErr.close();
+            completeMetrics( commandline );
             if(!done){
                 getLogger().info( " +--[ FAILED, result = " + result + ", error output = " + stdErr.hasError() + "]");
             }
         }
     }
 
-    private Shell getExtendedShell()
+    private void completeMetrics( StoppableCommandline commandline )
+    {
+        metrics.setWallTime( System.currentTimeMillis() - metrics.getStarted() );
+        metrics.setOutputChars( stdOut.getChars() );
+        metrics.setErrorChars( stdErr.getChars() );
+
+        ProcessSampler sampler = commandline.getSampler();
+        if ( sampler != null )
+        {
+            sampler.stop();
+            metrics.setPeakResidentKilobytes( sampler.getPeakResidentKilobytes() );
+            metrics.setCpuTime( sampler.getCpuTime() );
+        }
+    }
+
+    /**
+     * Creates the shell the command line is passed to.
+     */
+    protected Shell getExtendedShell()
     {
         // Workaround for https://jira.codehaus.org/browse/PLXUTILS-147
 
@@ -162,6 +193,11 @@ public class UnifiedShellCommandExecutor
         }
     }
 
+    protected ArgumentQuotingStrategy getQuotingStrategy()
+    {
+        return quotingStrategy;
+    }
+
     public int getResult()
     {
         return result;
@@ -176,4 +212,13 @@ public class UnifiedShellCommandExecutor
     {
         return stdErr.toString();
     }
+
+    public void discardOutput()
+    {
+        if ( stdOut != null )
+        {
+            stdOut.discard();
+            stdErr.discard();
+        }
+    }
 }
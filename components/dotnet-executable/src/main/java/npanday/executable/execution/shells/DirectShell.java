@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.execution.shells;
+
+import org.codehaus.plexus.util.cli.shell.Shell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the executable directly instead of wrapping it into a <code>sh -c</code> or <code>cmd /C</code>
+ * invocation. Every argument is handed to the process as is, hence no quoting is required.
+ */
+public class DirectShell
+    extends Shell
+{
+    @Override
+    protected List getRawCommandLine( String executable, String[] arguments )
+    {
+        List<String> commandLine = new ArrayList<String>( arguments.length + 1 );
+        if ( executable != null )
+        {
+            commandLine.add( executable );
+        }
+        commandLine.addAll( Arrays.asList( arguments ) );
+        return commandLine;
+    }
+}
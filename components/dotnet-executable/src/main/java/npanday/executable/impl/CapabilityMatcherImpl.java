@@ -19,6 +19,7 @@ package npanday.executable.impl;
  * under the License.
  */
 
+import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 import npanday.PlatformUnsupportedException;
 import npanday.executable.CapabilityMatcher;
@@ -28,16 +29,26 @@ import npanday.executable.ExecutableRequirement;
 import npanday.executable.compiler.CompilerCapability;
 import npanday.executable.compiler.CompilerRequirement;
 import npanday.registry.RepositoryRegistry;
+import npanday.registry.impl.AbstractMultisourceRepository;
 import npanday.vendor.StateMachineProcessor;
 import npanday.vendor.VendorInfo;
 import npanday.vendor.VendorRequirement;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides an implementation of the <code>CapabilityMatcher</code> interface.
+ * <p/>
+ * The capabilities of each vendor are built once per content version of the compiler and executable plugins,
+ * and bucketed by profile. Matches for requirements without additional match policies are remembered, so
+ * that repeated lookups neither apply the policies again nor report an ambiguous match again.
  *
  * @author Shane Isbell
  * @plexus.component
@@ -47,6 +58,16 @@ public class CapabilityMatcherImpl
     extends AbstractLogEnabled
     implements CapabilityMatcher
 {
+    /**
+     * The number of vendor infos to keep capabilities for at most; the index is emptied once it grows beyond.
+     */
+    private static final int MAX_VENDOR_INFOS = 32;
+
+    /**
+     * The number of matches to remember at most; they are dropped once there are more.
+     */
+    private static final int MAX_MATCHES = 256;
+
     /**
      * @plexus.requirement
      */
@@ -57,7 +78,9 @@ public class CapabilityMatcherImpl
      */
     private StateMachineProcessor processor;
 
+    private volatile Index compilerIndex;
 
+    private volatile Index executableIndex;
 
     public CompilerCapability matchCompilerCapabilityFor( CompilerRequirement compilerRequirement,
                                                           List<ExecutableMatchPolicy> matchPolicies )
@@ -68,22 +91,30 @@ public class CapabilityMatcherImpl
             throw new PlatformUnsupportedException( "NPANDAY-065-006: The compiler requirement should not be null." );
         }
 
+        boolean remember = matchPolicies == null || matchPolicies.isEmpty();
         if ( matchPolicies == null )
         {
             matchPolicies = new ArrayList<ExecutableMatchPolicy>();
         }
 
         VendorInfo vendorInfo = matchVendorInfo(compilerRequirement.getVendorRequirement());
-        if ( matchPolicies == null )
-        {
-            matchPolicies = new ArrayList<ExecutableMatchPolicy>();
-        }
+        String operatingSystem = System.getProperty( "os.name" );
 
-        matchPolicies.add( MatchPolicyFactory.createOperatingSystemPolicy( System.getProperty( "os.name" ) ) );
-        matchPolicies.add( MatchPolicyFactory.createLanguagePolicy( compilerRequirement.getLanguage() ) );
-        matchPolicies.add( MatchPolicyFactory.createProfilePolicy( compilerRequirement.getProfile() ) );
+        Index index = getCompilerIndex();
+        MatchKey key = remember ? new MatchKey(
+            vendorInfo, operatingSystem, compilerRequirement.getProfile(), compilerRequirement.getLanguage() ) : null;
+        ExecutableCapability match = key != null ? index.matches.get( key ) : null;
+        if ( match == null )
+        {
+            matchPolicies.add( MatchPolicyFactory.createOperatingSystemPolicy( operatingSystem ) );
+            matchPolicies.add( MatchPolicyFactory.createLanguagePolicy( compilerRequirement.getLanguage() ) );
+            matchPolicies.add( MatchPolicyFactory.createProfilePolicy( compilerRequirement.getProfile() ) );
 
-        return (CompilerCapability) matchFromExecutableCapabilities( getCompilerCapabilities(vendorInfo), matchPolicies );
+            match = matchFromExecutableCapabilities(
+                getCompilerCapabilities( index, vendorInfo ), compilerRequirement.getProfile(), matchPolicies );
+            index.remember( key, match );
+        }
+        return (CompilerCapability) match;
     }
 
     public CompilerCapability matchCompilerCapabilityFor( CompilerRequirement compilerRequirement )
@@ -122,27 +153,48 @@ public class CapabilityMatcherImpl
                                                               List<ExecutableMatchPolicy> matchPolicies )
         throws PlatformUnsupportedException
     {
+        boolean remember = matchPolicies == null || matchPolicies.isEmpty();
         VendorInfo vendorInfo = matchVendorInfo(executableRequirement.getVendorRequirement());
         if ( matchPolicies == null )
         {
             matchPolicies = new ArrayList<ExecutableMatchPolicy>();
         }
 
-        matchPolicies.add( MatchPolicyFactory.createOperatingSystemPolicy( System.getProperty( "os.name" ) ) );
-        matchPolicies.add( MatchPolicyFactory.createProfilePolicy( executableRequirement.getProfile() ) );
-        matchPolicies.add( MatchPolicyFactory.createExecutableVersionPolicy(
-            executableRequirement.getExecutableVersion() ) );
+        String operatingSystem = System.getProperty( "os.name" );
+
+        Index index = getExecutableIndex();
+        MatchKey key = remember ? new MatchKey(
+            vendorInfo, operatingSystem, executableRequirement.getProfile(),
+            executableRequirement.getExecutableVersion() ) : null;
+        ExecutableCapability match = key != null ? index.matches.get( key ) : null;
+        if ( match == null )
+        {
+            matchPolicies.add( MatchPolicyFactory.createOperatingSystemPolicy( operatingSystem ) );
+            matchPolicies.add( MatchPolicyFactory.createProfilePolicy( executableRequirement.getProfile() ) );
+            matchPolicies.add( MatchPolicyFactory.createExecutableVersionPolicy(
+                executableRequirement.getExecutableVersion() ) );
 
-        return matchFromExecutableCapabilities( getExecutableCapabilities( vendorInfo ), matchPolicies );
+            match = matchFromExecutableCapabilities(
+                getExecutableCapabilities( index, vendorInfo ), executableRequirement.getProfile(), matchPolicies );
+            index.remember( key, match );
+        }
+        return match;
     }
 
 
-    private ExecutableCapability matchFromExecutableCapabilities( List<ExecutableCapability> executableCapabilities,
+    private ExecutableCapability matchFromExecutableCapabilities( Capabilities capabilities, String profile,
                                                                   List<ExecutableMatchPolicy> matchPolicies )
         throws PlatformUnsupportedException
     {
+        // only capabilities of the required profile can pass the profile policy
+        List<ExecutableCapability> candidates = capabilities.byProfile.get( normalize( profile ) );
+        if ( candidates == null )
+        {
+            candidates = Collections.emptyList();
+        }
+
         List<ExecutableCapability> matchingCapabilities = Lists.newArrayList();
-        for ( ExecutableCapability executableCapability : executableCapabilities )
+        for ( ExecutableCapability executableCapability : candidates )
         {
             if ( matchExecutableCapability( executableCapability, matchPolicies ) )
             {
@@ -157,7 +209,7 @@ public class CapabilityMatcherImpl
 
         if (matchingCapabilities.size() == 0){
             throw new PlatformUnsupportedException(
-                "NPANDAY-065-002: Could not match any of the " + executableCapabilities.size() + " capabilities with "
+                "NPANDAY-065-002: Could not match any of the " + capabilities.all.size() + " capabilities with "
                     + matchPolicies );
         }
 
@@ -209,24 +261,29 @@ public class CapabilityMatcherImpl
      * capabilities for the invoking platform.
      *
      * @return all platform capabilities (as defined in the compiler-plugins.xml file).
+     * @param index
      * @param vendorInfo
      */
-    private List<ExecutableCapability> getCompilerCapabilities( VendorInfo vendorInfo )
+    private Capabilities getCompilerCapabilities( Index index, VendorInfo vendorInfo )
         throws PlatformUnsupportedException
     {
-        CompilerPluginsRepository pluginsRepository =
-            (CompilerPluginsRepository) repositoryRegistry.find( "compiler-plugins" );
-
-        List<ExecutableCapability> primary = new ArrayList<ExecutableCapability>();
-        if ( pluginsRepository != null )
+        Capabilities capabilities = index.byVendorInfo.get( vendorInfo );
+        if ( capabilities == null )
         {
-            primary = pluginsRepository.getCompilerCapabilities(vendorInfo);
-        }
-        if ( primary.isEmpty() )
-        {
-            throw new PlatformUnsupportedException( "NPANDAY-065-003: No compiler capabilities configured" );
+            CompilerPluginsRepository pluginsRepository = (CompilerPluginsRepository) index.repository;
+
+            List<ExecutableCapability> primary = new ArrayList<ExecutableCapability>();
+            if ( pluginsRepository != null )
+            {
+                primary = pluginsRepository.getCompilerCapabilities(vendorInfo);
+            }
+            if ( primary.isEmpty() )
+            {
+                throw new PlatformUnsupportedException( "NPANDAY-065-003: No compiler capabilities configured" );
+            }
+            capabilities = index.add( vendorInfo, primary );
         }
-        return primary;
+        return capabilities;
     }
 
 
@@ -235,21 +292,197 @@ public class CapabilityMatcherImpl
      * capabilities for the invoking platform.
      *
      * @return all platform capabilities (as defined in the compiler-plugins.xml file).
+     * @param index
      * @param vendorInfo
      */
-    private List<ExecutableCapability> getExecutableCapabilities( VendorInfo vendorInfo )
+    private Capabilities getExecutableCapabilities( Index index, VendorInfo vendorInfo )
         throws PlatformUnsupportedException
     {
-        ExecutablePluginsRepository pluginsRepository =
-            (ExecutablePluginsRepository) repositoryRegistry.find( "executable-plugins" );
+        Capabilities capabilities = index.byVendorInfo.get( vendorInfo );
+        if ( capabilities == null )
+        {
+            ExecutablePluginsRepository pluginsRepository = (ExecutablePluginsRepository) index.repository;
+
+            List<ExecutableCapability> primary = pluginsRepository == null
+                ? new ArrayList<ExecutableCapability>()
+                : pluginsRepository.getCapabilities( vendorInfo );
+
+            if ( primary.isEmpty() )
+            {
+                throw new PlatformUnsupportedException( "NPANDAY-065-004: No executable capabilities configured" );
+            }
+            capabilities = index.add( vendorInfo, primary );
+        }
+        return capabilities;
+    }
 
-        List<ExecutableCapability> primary =  pluginsRepository.getCapabilities(vendorInfo);
+    /**
+     * Returns the index of the current compiler plugins; building a new one, if they changed since.
+     */
+    private Index getCompilerIndex()
+    {
+        AbstractMultisourceRepository repository =
+            (AbstractMultisourceRepository) repositoryRegistry.find( "compiler-plugins" );
+        Index current = compilerIndex;
+        if ( current == null || !current.isFor( repository ) )
+        {
+            // concurrent callers might build the same index twice, which does no harm
+            current = new Index( repository );
+            compilerIndex = current;
+        }
+        return current;
+    }
 
-        if ( primary.isEmpty() )
+    /**
+     * Returns the index of the current executable plugins; building a new one, if they changed since.
+     */
+    private Index getExecutableIndex()
+    {
+        AbstractMultisourceRepository repository =
+            (AbstractMultisourceRepository) repositoryRegistry.find( "executable-plugins" );
+        Index current = executableIndex;
+        if ( current == null || !current.isFor( repository ) )
         {
-            throw new PlatformUnsupportedException( "NPANDAY-065-004: No executable capabilities configured" );
+            current = new Index( repository );
+            executableIndex = current;
         }
-        return primary;
+        return current;
     }
 
+    /**
+     * Normalizes profiles the way the profile policy compares them.
+     */
+    private static String normalize( String profile )
+    {
+        return ( profile != null ) ? profile.toLowerCase().trim() : null;
+    }
+
+    /**
+     * The capabilities built from one content version of the compiler or executable plugins, by vendor info, and
+     * the matches found in them.
+     */
+    private static class Index
+    {
+        private final AbstractMultisourceRepository repository;
+
+        private final int contentVersion;
+
+        /**
+         * Vendor infos do not implement equals, so capabilities are kept per instance; the state machine processor
+         * hands out the same instance for the same requirement.
+         */
+        private final ConcurrentMap<VendorInfo, Capabilities> byVendorInfo =
+            new ConcurrentHashMap<VendorInfo, Capabilities>();
+
+        private final ConcurrentMap<MatchKey, ExecutableCapability> matches =
+            new ConcurrentHashMap<MatchKey, ExecutableCapability>();
+
+        Index( AbstractMultisourceRepository repository )
+        {
+            this.repository = repository;
+            // read before the capabilities, a concurrent reload then leads to another index
+            this.contentVersion = repository != null ? repository.getContentVersion() : -1;
+        }
+
+        boolean isFor( AbstractMultisourceRepository repository )
+        {
+            return this.repository == repository
+                && ( repository == null || contentVersion == repository.getContentVersion() );
+        }
+
+        Capabilities add( VendorInfo vendorInfo, List<ExecutableCapability> capabilities )
+        {
+            if ( byVendorInfo.size() >= MAX_VENDOR_INFOS )
+            {
+                byVendorInfo.clear();
+                matches.clear();
+            }
+            Capabilities added = new Capabilities( capabilities );
+            byVendorInfo.put( vendorInfo, added );
+            return added;
+        }
+
+        void remember( MatchKey key, ExecutableCapability match )
+        {
+            if ( key == null )
+            {
+                return;
+            }
+            if ( matches.size() >= MAX_MATCHES )
+            {
+                matches.clear();
+            }
+            matches.put( key, match );
+        }
+    }
+
+    /**
+     * The capabilities for one vendor info, in the order of the plugins files and bucketed by profile.
+     */
+    private static class Capabilities
+    {
+        private final List<ExecutableCapability> all;
+
+        private final Map<String, List<ExecutableCapability>> byProfile =
+            new HashMap<String, List<ExecutableCapability>>();
+
+        Capabilities( List<ExecutableCapability> capabilities )
+        {
+            all = Collections.unmodifiableList( new ArrayList<ExecutableCapability>( capabilities ) );
+            for ( ExecutableCapability capability : all )
+            {
+                String profile = normalize( capability.getProfile() );
+                List<ExecutableCapability> bucket = byProfile.get( profile );
+                if ( bucket == null )
+                {
+                    bucket = new ArrayList<ExecutableCapability>();
+                    byProfile.put( profile, bucket );
+                }
+                bucket.add( capability );
+            }
+        }
+    }
+
+    /**
+     * Everything a match without additional match policies depends on, besides the plugins.
+     */
+    private static final class MatchKey
+    {
+        private final VendorInfo vendorInfo;
+
+        private final String operatingSystem;
+
+        private final String profile;
+
+        /**
+         * The language for compilers, the executable version for executables.
+         */
+        private final String qualifier;
+
+        MatchKey( VendorInfo vendorInfo, String operatingSystem, String profile, String qualifier )
+        {
+            this.vendorInfo = vendorInfo;
+            this.operatingSystem = operatingSystem;
+            this.profile = profile;
+            this.qualifier = qualifier;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof MatchKey ) )
+            {
+                return false;
+            }
+            MatchKey other = (MatchKey) o;
+            return vendorInfo == other.vendorInfo && Objects.equal( operatingSystem, other.operatingSystem )
+                && Objects.equal( profile, other.profile ) && Objects.equal( qualifier, other.qualifier );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hashCode( System.identityHashCode( vendorInfo ), operatingSystem, profile, qualifier );
+        }
+    }
 }
@@ -20,11 +20,11 @@ package npanday.executable.impl;
  */
 
 import com.google.common.base.Objects;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import npanday.ArtifactType;
 import npanday.ArtifactTypeHelper;
+import npanday.FileStager;
 import npanday.PlatformUnsupportedException;
 import npanday.RepositoryNotFoundException;
 import npanday.executable.ExecutionException;
@@ -36,6 +36,7 @@ import npanday.executable.compiler.InvalidArtifactException;
 import npanday.executable.compiler.KeyInfo;
 import npanday.registry.Repository;
 import npanday.registry.RepositoryRegistry;
+import npanday.resolver.resolvers.ComReferenceResolver;
 import npanday.vendor.Vendor;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
@@ -54,12 +55,13 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * Provides an implementation of the Compiler Context.
  *
  * @author Shane Isbell
- * @plexus.component role="npanday.executable.compiler.CompilerContext"
+ * @plexus.component role="npanday.executable.compiler.CompilerContext" instantiation-strategy="per-lookup"
  */
 public final class CompilerContextImpl
     extends ExecutableContextImpl
@@ -89,6 +91,11 @@ public final class CompilerContextImpl
      */
     private RepositoryRegistry repositoryRegistry;
 
+    /**
+     * @plexus.requirement
+     */
+    private SourceScanCache sourceScanCache;
+
     /**
      * A logger for writing log messages
      */
@@ -431,14 +438,9 @@ public final class CompilerContextImpl
         }
     }
 
-    Set<File> expandedSourceFiles;
-
     public Set<File> getSourceFiles()
     {
-        // TODO: cache source files - but it seems that this instance is reused... ??
-        /*if (expandedSourceFiles == null)
-            expandedSourceFiles = expandSourceFiles();*/
-
+        // this instance is reused across compiles; the scan cache keeps repeated calls cheap
         return expandSourceFiles();
     }
 
@@ -446,7 +448,8 @@ public final class CompilerContextImpl
     {
         Set<File> files = Sets.newHashSet();
 
-        files.addAll( expandSources( getGeneratedSourcesDirectory() ) );
+        List<PendingScan> scans = Lists.newArrayList();
+        scans.add( expandSources( getGeneratedSourcesDirectory() ) );
 
         String defaultSourceRoot = isTestCompile()
             ? project.getBuild().getTestSourceDirectory()
@@ -474,22 +477,25 @@ public final class CompilerContextImpl
 
             for ( String root : additionalRoots )
             {
-                files.addAll( expandSources( new File( root ) ) );
+                scans.add( expandSources( new File( root ) ) );
             }
         }
 
         if ( isTestCompile() )
         {
-            files.addAll( expandTestSourceFilePatterns() );
+            scans.add( expandTestSourceFilePatterns() );
         }
         else if ( !isSourceAndTestsTogether() )
         {
-            files.addAll( expandMainSourceFilePatterns() );
+            scans.add( expandMainSourceFilePatterns() );
         }
         else
         {
-            List<File> mainSources = expandMainSourceFilePatterns();
-            List<File> testSources = expandTestSourceFilePatterns();
+            PendingScan mainScan = expandMainSourceFilePatterns();
+            PendingScan testScan = expandTestSourceFilePatterns();
+
+            List<File> mainSources = mainScan.getSources();
+            Set<File> testSources = Sets.newHashSet( testScan.getSources() );
 
             getLogger().debug(
                 "NPANDAY-061-014: Since tests (" + testSources.size()
@@ -497,10 +503,18 @@ public final class CompilerContextImpl
                     + " they will be excluded from main sources"
             );
 
-            List<File> sources = Lists.newArrayList();
-            sources.addAll( mainSources );
-            sources.removeAll( testSources );
-            files.addAll( sources );
+            for ( File source : mainSources )
+            {
+                if ( !testSources.contains( source ) )
+                {
+                    files.add( source );
+                }
+            }
+        }
+
+        for ( PendingScan scan : scans )
+        {
+            files.addAll( scan.getSources() );
         }
 
         logger.info(
@@ -511,7 +525,7 @@ public final class CompilerContextImpl
         return files;
     }
 
-    private List<File> expandMainSourceFilePatterns()
+    private PendingScan expandMainSourceFilePatterns()
     {
         getLogger().debug(
             "NPANDAY-061-012: Expanding main sources"
@@ -546,7 +560,7 @@ public final class CompilerContextImpl
         return expandSources( root, includes, excludes );
     }
 
-    private List<File> expandTestSourceFilePatterns()
+    private PendingScan expandTestSourceFilePatterns()
     {
         getLogger().debug(
             "NPANDAY-061-013: Expanding test sources"
@@ -595,67 +609,90 @@ public final class CompilerContextImpl
         return expandSources( root, includes, excludes );
     }
 
-    private List<File> expandSources( File directory )
+    private PendingScan expandSources( File directory )
     {
         return expandSources( directory, Lists.newArrayList( "**/*." + config.getLanguageFileExtension() ), null );
     }
 
-    private List<File> expandSources( File directory, Iterable<String> includes, Iterable<String> excludes )
+    private PendingScan expandSources( File directory, List<String> includes, List<String> excludes )
     {
-        if ( !directory.exists() || directory.list().length == 0 )
+        if ( !directory.isDirectory() || directory.list().length == 0 )
         {
             getLogger().debug( "NPANDAY-061-015: " + directory + " is empty; no sources found" );
-            return Lists.newArrayList();
+            return new PendingScan( directory, includes, excludes, null );
         }
 
-        DirectoryScanner scanner = createScanner( directory, includes, excludes );
-        scanner.scan();
+        return new PendingScan( directory, includes, excludes, sourceScanCache.scan( directory, includes, excludes ) );
+    }
 
-        List<File> files = Lists.newArrayList();
-        for ( String fs : scanner.getIncludedFiles() )
-        {
+    /**
+     * A scan that possibly still runs on the scan cache's worker threads.
+     */
+    private class PendingScan
+    {
+        private final File directory;
 
-            if ( !fs.endsWith( "." + config.getLanguageFileExtension() ) )
-            {
-                continue;
-            }
+        private final List<String> includes;
 
-            files.add( new File( directory, fs ) );
-        }
+        private final List<String> excludes;
+
+        private final Future<List<File>> scan;
 
-        if ( getLogger().isDebugEnabled() )
+        PendingScan( File directory, List<String> includes, List<String> excludes, Future<List<File>> scan )
         {
-            getLogger().debug(
-                "NPANDAY-061-016: scanned for source files:" + NEW_LINE + " - directory: " + directory.getAbsolutePath()
-                    + NEW_LINE + " - includes: " + includes + NEW_LINE + " - excludes: " + excludes + NEW_LINE
-                    + " - included (*.*): " + scanner.getIncludedFiles().length + NEW_LINE + " - included sources (*."
-                    + config.getLanguageFileExtension() + "): " + files.size() + NEW_LINE + " - excluded: "
-                    + scanner.getExcludedFiles().length + NEW_LINE + " - ignored: "
-                    + scanner.getNotIncludedFiles().length
-            );
+            this.directory = directory;
+            this.includes = includes;
+            this.excludes = excludes;
+            this.scan = scan;
         }
 
-        return files;
-    }
+        /**
+         * Waits for the scan and returns the included files having the language's file extension.
+         */
+        List<File> getSources()
+        {
+            List<File> files = Lists.newArrayList();
+            if ( scan == null )
+            {
+                return files;
+            }
 
-    private DirectoryScanner createScanner( File root, Iterable<String> includes, Iterable<String> excludes )
-    {
-        DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setBasedir( root );
+            List<File> included;
+            try
+            {
+                included = scan.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "NPANDAY-061-019: Interrupted while scanning " + directory, e );
+            }
+            catch ( java.util.concurrent.ExecutionException e )
+            {
+                throw new IllegalStateException( "NPANDAY-061-020: Could not scan " + directory, e.getCause() );
+            }
 
-        if ( includes != null )
-        {
-            scanner.setIncludes( Iterables.toArray( includes, String.class ) );
-        }
-        if ( excludes != null )
-        {
-            scanner.setExcludes( Iterables.toArray( excludes, String.class ) );
-        }
+            String extension = "." + config.getLanguageFileExtension();
+            for ( File file : included )
+            {
+                if ( file.getName().endsWith( extension ) )
+                {
+                    files.add( file );
+                }
+            }
 
-        // TODO: NPANDAY-210 Maven is usually case sensitive, right?
-        scanner.setCaseSensitive( false );
-        scanner.addDefaultExcludes();
-        return scanner;
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug(
+                    "NPANDAY-061-016: scanned for source files:" + NEW_LINE + " - directory: "
+                        + directory.getAbsolutePath() + NEW_LINE + " - includes: " + includes + NEW_LINE
+                        + " - excludes: " + excludes + NEW_LINE + " - included (*.*): " + included.size() + NEW_LINE
+                        + " - included sources (*" + extension + "): " + files.size()
+                );
+            }
+
+            return files;
+        }
     }
 
     public File getOutputDirectory()
@@ -712,11 +749,17 @@ public final class CompilerContextImpl
                 return;
             }
 
-            logger.info( "NPANDAY-000-000:[COM Reference] copying file [" + oldPath + "] to [" + target + "]" );
-            FileUtils.copyFileToDirectory( file, new File( target ) );
+            // interop dlls kept for later builds are linked where possible, and not copied again if unchanged
+            logger.info( "NPANDAY-000-000:[COM Reference] staging file [" + oldPath + "] to [" + target + "]" );
+            FileStager stager = new FileStager( new File( target ), new File( target ) );
+            stager.add( file );
+            stager.stage();
 
-            logger.info( "NPANDAY-000-000:[COM Reference] deleting directory [" + file.getParentFile() + "]" );
-            FileUtils.deleteDirectory( file.getParentFile() );
+            if ( ComReferenceResolver.isTemporary( file ) )
+            {
+                logger.info( "NPANDAY-000-000:[COM Reference] deleting directory [" + file.getParentFile() + "]" );
+                FileUtils.deleteDirectory( file.getParentFile() );
+            }
 
             logger.info( "NPANDAY-000-000:[COM Reference] updating artifact path to [" + newPath + "]" );
 
@@ -26,6 +26,7 @@ import npanday.executable.ExecutableCapability;
 import npanday.executable.compiler.MutableCompilerCapability;
 import npanday.model.compiler.plugins.*;
 import npanday.model.compiler.plugins.io.xpp3.CompilerPluginXpp3Reader;
+import npanday.model.compiler.plugins.io.xpp3.CompilerPluginXpp3Writer;
 import npanday.registry.ModelInterpolator;
 import npanday.registry.NPandayRepositoryException;
 import npanday.registry.Repository;
@@ -37,6 +38,7 @@ import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -71,6 +73,14 @@ public final class CompilerPluginsRepository
         return xpp3Reader.read( reader );
     }
 
+    @Override
+    protected boolean writeToWriter( Writer writer, CompilerPluginsModel model )
+        throws IOException
+    {
+        new CompilerPluginXpp3Writer().write( writer, model );
+        return true;
+    }
+
     @Override
     protected void mergeLoadedModel( CompilerPluginsModel model )
         throws NPandayRepositoryException
@@ -26,6 +26,7 @@ import npanday.executable.CommandExecutor;
 import npanday.executable.CommandFilter;
 import npanday.executable.ExecutableContext;
 import npanday.executable.ExecutionException;
+import npanday.executable.ExecutionReport;
 import npanday.executable.ExecutionResult;
 import npanday.executable.NetExecutable;
 import npanday.vendor.Vendor;
@@ -75,17 +76,34 @@ public class DefaultNetExecutable
         CommandExecutor commandExecutor = CommandExecutor.Factory.createDefaultCommmandExecutor(
             configuration);
         commandExecutor.setLogger( logger );
-        commandExecutor.executeCommand(
-            PathUtil.getExecutable(
-                executableContext.getExecutableName(), executableContext.getProbingPaths(), logger
-            ), commands, null, true
-        );
-
-        return new ExecutionResult(
-            commandExecutor.getResult(),
-            commandExecutor.getStandardOut(),
-            commandExecutor.getStandardError()
+        try
+        {
+            try
+            {
+                commandExecutor.executeCommand(
+                    PathUtil.getExecutable(
+                        executableContext.getExecutableName(), executableContext.getProbingPaths(), logger
+                    ), commands, null, true
+                );
+            }
+            finally
+            {
+                ExecutionReport.record(
+                    commandExecutor, executableContext.getVendor(), executableContext.getFrameworkVersion(), null,
+                    null, logger
+                );
+            }
+
+            return new ExecutionResult(
+                commandExecutor.getResult(),
+                commandExecutor.getStandardOut(),
+                commandExecutor.getStandardError()
             );
+        }
+        finally
+        {
+            commandExecutor.discardOutput();
+        }
 
     }
 
@@ -20,6 +20,7 @@ package npanday.executable.impl;
  */
 
 import npanday.executable.ExecutionException;
+import npanday.executable.ExecutionReport;
 import npanday.executable.CommandExecutor;
 import npanday.executable.*;
 import npanday.NPandayContext;
@@ -93,30 +94,38 @@ public class DefaultRepositoryNetExecutable
 
         try
         {
-            commandExecutor.executeCommand( getExecutable(), getCommands(), null, true );
-        }
-        catch ( ExecutionException e )
-        {
-            throw new ExecutionException(
-                "NPANDAY-063-000: Executable = " + getExecutable() + ", Args = " + commands, e
+            try
+            {
+                commandExecutor.executeCommand( getExecutable(), getCommands(), null, true );
+            }
+            catch ( ExecutionException e )
+            {
+                throw new ExecutionException(
+                    "NPANDAY-063-000: Executable = " + getExecutable() + ", Args = " + commands, e
+                );
+            }
+            finally
+            {
+                ExecutionReport.record( commandExecutor, getVendor(), null, null, null, logger );
+            }
+
+            String standardOut = commandExecutor.getStandardOut();
+            // TODO: find out under what situation this was needed and remove hard coding - can catch false positives (see MSBuild plugin need for /v:q), better to rely on exit code
+            if ( standardOut.contains( "error" ) && !standardOut.contains( "exit code = 0" ) )
+            {
+                throw new ExecutionException(
+                    "NPANDAY-063-001: Executable = " + getExecutable() + ", Args = " + commands
+                );
+            }
+
+            return new ExecutionResult(
+                commandExecutor.getResult(), standardOut, commandExecutor.getStandardError()
             );
         }
-
-        // TODO: find out under what situation this was needed and remove hard coding - can catch false positives (see MSBuild plugin need for /v:q), better to rely on exit code
-        if ( commandExecutor.getStandardOut().contains( "error" ) && !commandExecutor.getStandardOut().contains(
-            "exit code = 0"
-        ) )
+        finally
         {
-            throw new ExecutionException(
-                "NPANDAY-063-001: Executable = " + getExecutable() + ", Args = " + commands
-            );
+            commandExecutor.discardOutput();
         }
-
-        return new ExecutionResult(
-            commandExecutor.getResult(),
-            commandExecutor.getStandardOut(),
-            commandExecutor.getStandardError()
-        );
     }
 
     public Vendor getVendor()
@@ -80,6 +80,11 @@ public class ExecutableContextImpl
         return executableCapability.getVendorInfo().getVendor();
     }
 
+    public String getFrameworkVersion()
+    {
+        return executableCapability.getVendorInfo().getFrameworkVersion();
+    }
+
     public CommandFilter getCommandFilter()
     {
         return commandFilter;
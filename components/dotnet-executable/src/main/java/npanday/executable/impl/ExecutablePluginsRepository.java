@@ -30,6 +30,7 @@ import npanday.model.executable.plugins.ExecutablePlugin;
 import npanday.model.executable.plugins.ExecutablePluginsModel;
 import npanday.model.executable.plugins.Platform;
 import npanday.model.executable.plugins.io.xpp3.ExecutablePluginXpp3Reader;
+import npanday.model.executable.plugins.io.xpp3.ExecutablePluginXpp3Writer;
 import npanday.registry.ModelInterpolator;
 import npanday.registry.NPandayRepositoryException;
 import npanday.registry.Repository;
@@ -40,6 +41,7 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -72,6 +74,14 @@ public final class ExecutablePluginsRepository
         return xpp3Reader.read( reader );
     }
 
+    @Override
+    protected boolean writeToWriter( Writer writer, ExecutablePluginsModel model )
+        throws IOException
+    {
+        new ExecutablePluginXpp3Writer().write( writer, model );
+        return true;
+    }
+
     @Override
     protected void mergeLoadedModel( ExecutablePluginsModel model ) throws NPandayRepositoryException
     {
@@ -22,10 +22,14 @@ package npanday.executable.impl;
 import npanday.executable.ExecutableCapability;
 import npanday.executable.ExecutableMatchPolicy;
 import npanday.executable.compiler.CompilerCapability;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
 import org.apache.maven.artifact.versioning.VersionRange;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 /**
@@ -35,6 +39,12 @@ import static com.google.common.base.Strings.isNullOrEmpty;
  */
 final class MatchPolicyFactory
 {
+    /**
+     * The number of version ranges to keep parsed at most; the cache is emptied once it grows beyond.
+     */
+    private static final int MAX_RANGES = 256;
+
+    private static final ConcurrentMap<String, VersionRange> ranges = new ConcurrentHashMap<String, VersionRange>();
 
     /**
      * Constructor
@@ -118,12 +128,16 @@ final class MatchPolicyFactory
 
     public static ExecutableMatchPolicy createExecutableVersionPolicy( final String requiredExecutableVersion )
     {
+        final String required =
+            isNullOrEmpty( requiredExecutableVersion ) ? null : requiredExecutableVersion.toLowerCase().trim();
+        final ArtifactVersion requiredVersion = required == null ? null : new DefaultArtifactVersion( required );
+
         return new ExecutableMatchPolicy()
         {
             public boolean match( ExecutableCapability executableCapability )
             {
                 // if not specified, all versions are valid
-                if (isNullOrEmpty(requiredExecutableVersion))
+                if (required == null)
                     return true;
 
                 String offeredExecutableVersion = executableCapability.getExecutableVersion();
@@ -132,11 +146,17 @@ final class MatchPolicyFactory
                 if (isNullOrEmpty( offeredExecutableVersion ))
                     return true;
 
-                String required = requiredExecutableVersion.toLowerCase().trim();
                 offeredExecutableVersion = offeredExecutableVersion.toLowerCase().trim();
+
+                // a plain version is a soft requirement, and maven lets it contain any version
+                if ( offeredExecutableVersion.length() > 0 && offeredExecutableVersion.charAt( 0 ) != '['
+                    && offeredExecutableVersion.charAt( 0 ) != '(' )
+                {
+                    return true;
+                }
+
                 try {
-                    VersionRange range = VersionRange.createFromVersionSpec( offeredExecutableVersion );
-                    return range.containsVersion( new DefaultArtifactVersion( required ) );
+                    return getRange( offeredExecutableVersion ).containsVersion( requiredVersion );
                 } catch (InvalidVersionSpecificationException e) {
                     // fallback to just matching version if not a valid range
                     return required.equals(offeredExecutableVersion);
@@ -149,4 +169,24 @@ final class MatchPolicyFactory
             }
         };
     }
+
+    /**
+     * Parses the version range, or returns it from the cache. Ranges are not modified by matching, so they can
+     * be shared among all policies.
+     */
+    private static VersionRange getRange( String spec )
+        throws InvalidVersionSpecificationException
+    {
+        VersionRange range = ranges.get( spec );
+        if ( range == null )
+        {
+            if ( ranges.size() >= MAX_RANGES )
+            {
+                ranges.clear();
+            }
+            range = VersionRange.createFromVersionSpec( spec );
+            ranges.put( spec, range );
+        }
+        return range;
+    }
 }
@@ -36,7 +36,13 @@ import npanday.executable.compiler.CompilerExecutable;
 import npanday.executable.compiler.CompilerRequirement;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.codehaus.plexus.context.Context;
+import org.codehaus.plexus.context.ContextException;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Contextualizable;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -51,7 +57,7 @@ import java.util.List;
  */
 public class NetExecutableFactoryImpl
     extends AbstractLogEnabled
-    implements NetExecutableFactory
+    implements NetExecutableFactory, Contextualizable
 {
 
     /**
@@ -65,9 +71,10 @@ public class NetExecutableFactoryImpl
     private ExecutableContext executableContext;
 
     /**
-     * @plexus.requirement
+     * Used to look up a new compiler context for each compiler executable; those may still be executing
+     * while the next one is created.
      */
-    private CompilerContext compilerContext;
+    private PlexusContainer container;
 
     /**
      * @see NetExecutableFactory
@@ -122,6 +129,16 @@ public class NetExecutableFactoryImpl
         final CompilerCapability compilerCapability =
             capabilityMatcher.matchCompilerCapabilityFor( compilerRequirement );
 
+        CompilerContext compilerContext;
+        try
+        {
+            compilerContext = (CompilerContext) container.lookup( CompilerContext.ROLE );
+        }
+        catch ( ComponentLookupException e )
+        {
+            throw new PlatformUnsupportedException( "NPANDAY-066-015: Unable to create compiler context", e );
+        }
+
         // init does not need the executable paths to be set
         compilerContext.init( compilerCapability, compilerConfig, project );
 
@@ -143,4 +160,10 @@ public class NetExecutableFactoryImpl
             throw new PlatformUnsupportedException( "NPANDAY-066-007: Unable to find net executable", e );
         }
     }
+
+    public void contextualize( Context context )
+        throws ContextException
+    {
+        container = (PlexusContainer) context.get( PlexusConstants.PLEXUS_KEY );
+    }
 }
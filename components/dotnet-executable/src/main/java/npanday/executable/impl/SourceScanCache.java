@@ -0,0 +1,233 @@
+package npanday.executable.impl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Caches the results of scanning source directories, keyed on the root directory and the
+ * include and exclude patterns. A cached scan stays valid as long as none of the directories
+ * visited while scanning has been modified; adding, removing or renaming a file always touches
+ * its parent directory. Cache misses are scanned on a small pool of worker threads, so that
+ * independent roots can be scanned concurrently.
+ * <p/>
+ * The instance of this cache should span the full maven reactor build.
+ *
+ * @plexus.component role="npanday.executable.impl.SourceScanCache"
+ */
+public class SourceScanCache
+    extends AbstractLogEnabled
+    implements Disposable
+{
+    /**
+     * Directories modified within this interval before scanning may still change without
+     * their timestamp changing, on file systems with a coarse timestamp resolution.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private static final int MAX_THREADS = 4;
+
+    private final ConcurrentMap<String, Scan> scans = new ConcurrentHashMap<String, Scan>();
+
+    private ExecutorService executor;
+
+    /**
+     * Returns the files below <code>root</code> that match the patterns; either from the cache or
+     * by scanning on a worker thread.
+     */
+    public Future<List<File>> scan( final File root, List<String> includes, List<String> excludes )
+    {
+        final String key = root.getAbsolutePath() + "|" + includes + "|" + excludes;
+        final String[] includesArray = toArray( includes );
+        final String[] excludesArray = toArray( excludes );
+
+        Scan cached = scans.get( key );
+        if ( cached != null && cached.isValid() )
+        {
+            getLogger().debug( "NPANDAY-061-018: Using cached scan of " + root );
+            FutureTask<List<File>> done = new FutureTask<List<File>>( new ResultOf( cached ) );
+            done.run();
+            return done;
+        }
+
+        return getExecutor().submit(
+            new Callable<List<File>>()
+            {
+                public List<File> call()
+                {
+                    Scan scan = new Scan( root, includesArray, excludesArray );
+                    if ( scan.isCacheable() )
+                    {
+                        scans.put( key, scan );
+                    }
+                    else
+                    {
+                        scans.remove( key );
+                    }
+                    return scan.files;
+                }
+            }
+        );
+    }
+
+    /**
+     * Drops all cached scans.
+     */
+    public void clear()
+    {
+        scans.clear();
+    }
+
+    public synchronized void dispose()
+    {
+        if ( executor != null )
+        {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if ( executor == null )
+        {
+            int threads = Math.min( MAX_THREADS, Runtime.getRuntime().availableProcessors() );
+            ThreadFactory threadFactory =
+                new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "npanday-source-scan-%d" ).build();
+            executor = Executors.newFixedThreadPool( Math.max( 1, threads ), threadFactory );
+        }
+        return executor;
+    }
+
+    private static String[] toArray( List<String> patterns )
+    {
+        return patterns == null ? null : patterns.toArray( new String[patterns.size()] );
+    }
+
+    private static class ResultOf
+        implements Callable<List<File>>
+    {
+        private final Scan scan;
+
+        ResultOf( Scan scan )
+        {
+            this.scan = scan;
+        }
+
+        public List<File> call()
+        {
+            return scan.files;
+        }
+    }
+
+    /**
+     * The result of one scan along with the timestamps of all directories it visited.
+     */
+    private static class Scan
+    {
+        private final List<File> files;
+
+        private final Map<File, Long> visitedDirectories = new LinkedHashMap<File, Long>();
+
+        private final long scanStarted = System.currentTimeMillis();
+
+        Scan( File root, String[] includes, String[] excludes )
+        {
+            RecordingDirectoryScanner scanner = new RecordingDirectoryScanner();
+            scanner.setBasedir( root );
+            if ( includes != null )
+            {
+                scanner.setIncludes( includes );
+            }
+            if ( excludes != null )
+            {
+                scanner.setExcludes( excludes );
+            }
+
+            // TODO: NPANDAY-210 Maven is usually case sensitive, right?
+            scanner.setCaseSensitive( false );
+            scanner.addDefaultExcludes();
+            scanner.scan();
+
+            List<File> found = Lists.newArrayList();
+            for ( String file : scanner.getIncludedFiles() )
+            {
+                found.add( new File( root, file ) );
+            }
+            files = ImmutableList.copyOf( found );
+        }
+
+        boolean isCacheable()
+        {
+            for ( Long lastModified : visitedDirectories.values() )
+            {
+                if ( lastModified == 0 || lastModified >= scanStarted - TIMESTAMP_RESOLUTION )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isValid()
+        {
+            for ( Map.Entry<File, Long> directory : visitedDirectories.entrySet() )
+            {
+                if ( directory.getKey().lastModified() != directory.getValue() )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Remembers the timestamp of every directory before it gets listed.
+         */
+        private class RecordingDirectoryScanner
+            extends DirectoryScanner
+        {
+            @Override
+            protected void scandir( File dir, String vpath, boolean fast )
+            {
+                visitedDirectories.put( dir, dir.lastModified() );
+                super.scandir( dir, vpath, fast );
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import npanday.ArtifactType;
+import npanday.InputFingerprint;
+import npanday.resolver.filter.OrArtifactFilter;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.InversionArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.TypeArtifactFilter;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes which artifacts an {@link ArtifactFilter} lets through, by probing it with one artifact
+ * for every combination of scope and known artifact type. This only works for filters that solely
+ * look at scope and type; {@link #of} returns <code>null</code> for any other filter.
+ */
+final class ArtifactFilterSignature
+{
+    private static final String[] SCOPES = {
+        Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_RUNTIME, Artifact.SCOPE_TEST,
+        Artifact.SCOPE_SYSTEM
+    };
+
+    private static final List<String> TYPES;
+
+    static
+    {
+        Set<String> types = new LinkedHashSet<String>();
+        for ( ArtifactType type : ArtifactType.values() )
+        {
+            if ( type.getPackagingType() != null )
+            {
+                types.add( type.getPackagingType() );
+            }
+        }
+        types.add( "jar" );
+        types.add( "pom" );
+        TYPES = Collections.unmodifiableList( new ArrayList<String>( types ) );
+    }
+
+    private static final List<Artifact> PROBES;
+
+    static
+    {
+        List<Artifact> probes = new ArrayList<Artifact>();
+        for ( String scope : SCOPES )
+        {
+            for ( String type : TYPES )
+            {
+                probes.add(
+                    new DefaultArtifact(
+                        "npanday.probe", "probe", VersionRange.createFromVersion( "1.0" ), scope, type, null,
+                        new DefaultArtifactHandler( type )
+                    )
+                );
+            }
+        }
+        PROBES = Collections.unmodifiableList( probes );
+    }
+
+    /**
+     * Identifies the probes; encoded signatures are only valid for the same probes.
+     */
+    private static final String PROBES_KEY = InputFingerprint.digest( Arrays.asList( SCOPES ) + "|" + TYPES );
+
+    private final BitSet included;
+
+    private ArtifactFilterSignature( BitSet included )
+    {
+        this.included = included;
+    }
+
+    /**
+     * @return the signature, or <code>null</code> if the filter can't be described by scope and type.
+     */
+    static ArtifactFilterSignature of( ArtifactFilter filter )
+    {
+        BitSet included = new BitSet( PROBES.size() );
+        if ( filter == null )
+        {
+            included.set( 0, PROBES.size() );
+            return new ArtifactFilterSignature( included );
+        }
+
+        if ( !isScopeAndTypeOnly( filter ) )
+        {
+            return null;
+        }
+
+        for ( int i = 0; i < PROBES.size(); i++ )
+        {
+            if ( filter.include( PROBES.get( i ) ) )
+            {
+                included.set( i );
+            }
+        }
+        return new ArtifactFilterSignature( included );
+    }
+
+    /**
+     * @return if every artifact included by <code>other</code> is included by this filter, too.
+     */
+    boolean covers( ArtifactFilterSignature other )
+    {
+        BitSet notCovered = (BitSet) other.included.clone();
+        notCovered.andNot( included );
+        return notCovered.isEmpty();
+    }
+
+    private static boolean isScopeAndTypeOnly( ArtifactFilter filter )
+    {
+        if ( filter instanceof ScopeArtifactFilter || filter instanceof TypeArtifactFilter )
+        {
+            return true;
+        }
+        if ( filter instanceof OrArtifactFilter )
+        {
+            return areScopeAndTypeOnly( ( (OrArtifactFilter) filter ).getFilters() );
+        }
+        if ( filter instanceof AndArtifactFilter )
+        {
+            return areScopeAndTypeOnly( (Collection<?>) readField( filter, "filters" ) );
+        }
+        if ( filter instanceof InversionArtifactFilter )
+        {
+            Object inverted = readField( filter, "toInvert" );
+            return inverted instanceof ArtifactFilter && isScopeAndTypeOnly( (ArtifactFilter) inverted );
+        }
+        // the type filters of NPanday
+        return filter.getClass().getPackage() == OrArtifactFilter.class.getPackage();
+    }
+
+    private static boolean areScopeAndTypeOnly( Collection<?> filters )
+    {
+        if ( filters == null )
+        {
+            return false;
+        }
+        for ( Object filter : filters )
+        {
+            if ( !( filter instanceof ArtifactFilter ) || !isScopeAndTypeOnly( (ArtifactFilter) filter ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the signature for storing it beyond the build.
+     */
+    String encode()
+    {
+        StringBuilder encoded = new StringBuilder( PROBES_KEY ).append( ':' );
+        for ( int i = included.nextSetBit( 0 ); i >= 0; i = included.nextSetBit( i + 1 ) )
+        {
+            if ( encoded.charAt( encoded.length() - 1 ) != ':' )
+            {
+                encoded.append( ',' );
+            }
+            encoded.append( i );
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * @return the signature, or <code>null</code> if it was encoded for different probes.
+     */
+    static ArtifactFilterSignature decode( String encoded )
+    {
+        if ( encoded == null || !encoded.startsWith( PROBES_KEY + ":" ) )
+        {
+            return null;
+        }
+
+        BitSet included = new BitSet( PROBES.size() );
+        String indices = encoded.substring( PROBES_KEY.length() + 1 );
+        if ( indices.length() > 0 )
+        {
+            try
+            {
+                for ( String index : indices.split( "," ) )
+                {
+                    included.set( Integer.parseInt( index ) );
+                }
+            }
+            catch ( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+        return new ArtifactFilterSignature( included );
+    }
+
+    /**
+     * The composite filters of Maven do not expose their parts.
+     */
+    private static Object readField( Object object, String name )
+    {
+        try
+        {
+            Field field = object.getClass().getDeclaredField( name );
+            field.setAccessible( true );
+            return field.get( object );
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        return o instanceof ArtifactFilterSignature && included.equals( ( (ArtifactFilterSignature) o ).included );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return included.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ArtifactFilterSignature{" + included.cardinality() + " of " + PROBES.size() + "}";
+    }
+}
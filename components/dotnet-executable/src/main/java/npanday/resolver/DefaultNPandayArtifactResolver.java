@@ -22,6 +22,7 @@ package npanday.resolver;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -40,6 +41,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.annotation.Nullable;
 
@@ -57,11 +66,25 @@ public class DefaultNPandayArtifactResolver
 
     ArtifactResolver original;
 
-    private Set<Artifact> customResolveCache = Sets.newHashSet();
-    private Set<Artifact> customDependenciesCache = Sets.newHashSet();
+    // contributors may be called from several threads
+    private final Set<Artifact> customResolveCache = newConcurrentSet();
+    private final Set<Artifact> customDependenciesCache = newConcurrentSet();
+    private final Set<Artifact> contributedArtifacts = newConcurrentSet();
 
     private ArtifactFilter filter;
 
+    /**
+     * System property for the number of threads running the dependency contributors during a transitive
+     * resolution; <code>1</code> runs them one after another while the dependency tree is walked.
+     */
+    public static final String CONTRIBUTOR_THREADS = "npanday.resolver.threads";
+
+    private static final int DEFAULT_CONTRIBUTOR_THREADS = 4;
+
+    private volatile Contributions contributions;
+
+    private volatile ResolutionTrace trace;
+
     public void resolve( Artifact artifact, List remoteRepositories, ArtifactRepository localRepository ) throws
         ArtifactResolutionException,
         ArtifactNotFoundException
@@ -96,15 +119,104 @@ public class DefaultNPandayArtifactResolver
     {
         listeners = intercept( listeners, filter, localRepository, remoteRepositories );
 
-        return original.resolveTransitively(
-            artifacts, originatingArtifact, managedVersions, localRepository, remoteRepositories, source, filter,
-            listeners
-        );
-        
+        // complementary artifacts are looked up in the background while the tree is walked
+        int threads = getContributorThreads();
+        if ( threads > 1 )
+        {
+            contributions = new Contributions( threads );
+        }
+
+        ResolutionTrace tracing = trace;
+        ArtifactResolutionResult result;
+        try
+        {
+            if ( contributions != null )
+            {
+                resolveDirectDependencies( artifacts, filter );
+            }
+
+            long started = System.nanoTime();
+            result = original.resolveTransitively(
+                artifacts, originatingArtifact, managedVersions, localRepository, remoteRepositories, source, filter,
+                listeners
+            );
+            if ( tracing != null )
+            {
+                tracing.setResolverNanos( System.nanoTime() - started );
+            }
+
+            // the listener only sees artifacts before their files get resolved; contribute for the others now
+            for ( Object o : result.getArtifacts() )
+            {
+                Artifact artifact = (Artifact) o;
+                if ( artifact.isResolved() && !contributedArtifacts.contains( artifact )
+                    && ( filter == null || filter.include( artifact ) ) )
+                {
+                    runCustomDependencyContributors( artifact, localRepository, remoteRepositories );
+                }
+            }
+
+            if ( contributions != null )
+            {
+                long awaiting = System.nanoTime();
+                contributions.await();
+                if ( tracing != null )
+                {
+                    tracing.setAwaitNanos( System.nanoTime() - awaiting );
+                }
+            }
+        }
+        finally
+        {
+            if ( contributions != null )
+            {
+                contributions.shutdown();
+                contributions = null;
+            }
+        }
+
+        return result;
     }
 
 
 
+    /**
+     * Runs the resolving contributors for the direct dependencies in parallel, so that expensive ones,
+     * like generating COM interop assemblies, do not run one after another while the tree is walked.
+     * Failures are left to the listener, that resolves the same artifacts again.
+     */
+    private void resolveDirectDependencies( Set artifacts, final ArtifactFilter filter )
+        throws ArtifactNotFoundException
+    {
+        for ( Object o : artifacts )
+        {
+            final Artifact artifact = (Artifact) o;
+            if ( artifact.isResolved() || ( filter != null && !filter.include( artifact ) ) )
+            {
+                continue;
+            }
+
+            contributions.submit(
+                new Callable<Object>()
+                {
+                    public Object call()
+                    {
+                        try
+                        {
+                            runCustomResolvers( artifact );
+                        }
+                        catch ( ArtifactNotFoundException e )
+                        {
+                            getLogger().debug( "NPANDAY-147-011: Could not resolve " + artifact.getId() + " up front" );
+                        }
+                        return null;
+                    }
+                }
+            );
+        }
+        contributions.await();
+    }
+
     private List intercept( List listeners, ArtifactFilter filter, ArtifactRepository localRepository,
             List remoteRepositories )
     {
@@ -148,7 +260,9 @@ public class DefaultNPandayArtifactResolver
         for ( ArtifactResolvingContributor contributor : contributors )
         {
             Set<Artifact> additionalDependenciesCollector = Sets.newHashSet();
+            long started = System.nanoTime();
             contributor.tryResolve( artifact, additionalDependenciesCollector, filter );
+            traceContributor( contributor, "tryResolve", artifact, started );
 
             if ( artifact.isResolved() )
             {
@@ -168,7 +282,7 @@ public class DefaultNPandayArtifactResolver
         }
     }
     
-    protected void runCustomDependencyContributors(Artifact artifact, ArtifactRepository localRepository, List remoteRepositories) throws ArtifactNotFoundException
+    protected void runCustomDependencyContributors(final Artifact artifact, final ArtifactRepository localRepository, final List remoteRepositories) throws ArtifactNotFoundException
     {
         if ( !artifact.isResolved() )
         {
@@ -178,6 +292,33 @@ public class DefaultNPandayArtifactResolver
                             artifact.getGroupId(), artifact.getArtifactId(), artifact.getType(), artifact.getVersion()));
         }
 
+        if ( !contributedArtifacts.add( artifact ) )
+        {
+            return;
+        }
+
+        Contributions running = contributions;
+        if ( running == null )
+        {
+            contribute( artifact, localRepository, remoteRepositories );
+            return;
+        }
+
+        running.submit(
+            new Callable<Object>()
+            {
+                public Object call() throws ArtifactNotFoundException
+                {
+                    contribute( artifact, localRepository, remoteRepositories );
+                    return null;
+                }
+            }
+        );
+    }
+
+    private void contribute( Artifact artifact, ArtifactRepository localRepository, List remoteRepositories )
+        throws ArtifactNotFoundException
+    {
         getLogger().debug(
                 "NPANDAY-147-009: trying to find complementary artifacts for " + artifact.getId() + " using resolving contributors"
         );
@@ -185,16 +326,38 @@ public class DefaultNPandayArtifactResolver
         for ( ArtifactResolvingContributor contributor : contributors )
         {
             Set<Artifact> additionalDependenciesCollector = Sets.newHashSet();
+            long started = System.nanoTime();
             contributor.contribute(artifact, localRepository, remoteRepositories, additionalDependenciesCollector, filter);
+            traceContributor( contributor, "contribute", artifact, started );
 
             if ( additionalDependenciesCollector.size() > 0 )
             {
                addContributeArtifactsToDependenciesCache(additionalDependenciesCollector);
             }
         }
+    }
+
+    private void traceContributor( ArtifactResolvingContributor contributor, String phase, Artifact artifact,
+                                   long started )
+    {
+        ResolutionTrace tracing = trace;
+        if ( tracing != null )
+        {
+            tracing.contributorCalled(
+                contributor.getClass().getSimpleName(), phase, artifact, System.nanoTime() - started );
+        }
+    }
 
+    public void setTrace( ResolutionTrace trace )
+    {
+        this.trace = trace;
     }
-    
+
+    ResolutionTrace getTrace()
+    {
+        return trace;
+    }
+
     private void addContributeArtifactsToDependenciesCache(Set<Artifact> artifacts)
     {
     	if (artifacts == null || artifacts.isEmpty()) 
@@ -280,6 +443,16 @@ public class DefaultNPandayArtifactResolver
 
     public void initializeWithFilter(ArtifactFilter filter) {
         this.filter = filter;
+
+        // artifacts collected for an earlier resolution must not leak into this one
+        customResolveCache.clear();
+        customDependenciesCache.clear();
+        contributedArtifacts.clear();
+    }
+
+    private static Set<Artifact> newConcurrentSet()
+    {
+        return Sets.newSetFromMap( new ConcurrentHashMap<Artifact, Boolean>() );
     }
 
     public Set<Artifact> getCustomResolveCache()
@@ -291,4 +464,84 @@ public class DefaultNPandayArtifactResolver
     {
         return customDependenciesCache;
     }
+
+    private static int getContributorThreads()
+    {
+        String value = System.getProperty( CONTRIBUTOR_THREADS );
+        if ( value != null )
+        {
+            try
+            {
+                return Math.max( 1, Integer.parseInt( value.trim() ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                // use the default
+            }
+        }
+        return DEFAULT_CONTRIBUTOR_THREADS;
+    }
+
+    /**
+     * The contributions running in the background for one transitive resolution.
+     */
+    private static class Contributions
+    {
+        private final ExecutorService executor;
+
+        private final List<Future<Object>> pending = new CopyOnWriteArrayList<Future<Object>>();
+
+        Contributions( int threads )
+        {
+            ThreadFactory threadFactory =
+                new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "npanday-resolver-%d" ).build();
+            executor = Executors.newFixedThreadPool( threads, threadFactory );
+        }
+
+        void submit( Callable<Object> contribution )
+        {
+            pending.add( executor.submit( contribution ) );
+        }
+
+        /**
+         * Waits for all contributions, including those submitted while waiting.
+         */
+        void await() throws ArtifactNotFoundException
+        {
+            for ( int i = 0; i < pending.size(); i++ )
+            {
+                try
+                {
+                    pending.get( i ).get();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException( "NPANDAY-147-010: Interrupted while resolving complementary artifacts" );
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof ArtifactNotFoundException )
+                    {
+                        throw (ArtifactNotFoundException) cause;
+                    }
+                    if ( cause instanceof RuntimeException )
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException( cause );
+                }
+            }
+        }
+
+        void shutdown()
+        {
+            executor.shutdownNow();
+        }
+    }
 }
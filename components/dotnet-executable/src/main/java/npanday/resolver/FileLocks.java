@@ -0,0 +1,87 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * Takes file locks that exclude other processes as well as other class realms of the same JVM.
+ * <code>FileChannel.lock()</code> only waits for other processes; a second lock on the same file
+ * within the JVM fails with an {@link OverlappingFileLockException} instead, which happens when the
+ * components of several plugins write to the local repository at the same time. Since those
+ * components don't share any class, the lock is polled for until it is free.
+ */
+final class FileLocks
+{
+    private static final long POLL_INTERVAL = 10;
+
+    private static final long MAX_WAIT = 60 * 1000;
+
+    private FileLocks()
+    {
+    }
+
+    /**
+     * Locks the file exclusively, waiting up to a minute for other holders to release it.
+     *
+     * @throws IOException if the lock could not be taken
+     */
+    static FileLock lock( RandomAccessFile file, String description )
+        throws IOException
+    {
+        long deadline = System.currentTimeMillis() + MAX_WAIT;
+        while ( true )
+        {
+            try
+            {
+                FileLock lock = file.getChannel().tryLock();
+                if ( lock != null )
+                {
+                    return lock;
+                }
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                // held by another class realm of this JVM
+            }
+
+            if ( System.currentTimeMillis() > deadline )
+            {
+                throw new IOException( "NPANDAY-174-006: Timed out waiting for the lock on " + description );
+            }
+            try
+            {
+                Thread.sleep( POLL_INTERVAL );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                    "NPANDAY-174-007: Interrupted waiting for the lock on " + description
+                );
+            }
+        }
+    }
+}
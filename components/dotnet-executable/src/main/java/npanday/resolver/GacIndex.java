@@ -0,0 +1,556 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import npanday.ArtifactType;
+import npanday.ParsedVersion;
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Index of the assemblies installed into the global assembly caches, built by walking the GAC roots
+ * once instead of probing a guessed path for every artifact.
+ * <p/>
+ * A GAC root contains the <code>GAC*</code> directories, with a directory per assembly name below them,
+ * and a directory <code>[runtime_]version_culture_publicKeyToken</code> per installed version below
+ * those. By default the roots are <code>%SystemRoot%\assembly</code> and
+ * <code>%SystemRoot%\Microsoft.NET\assembly</code>; the system property <code>npanday.gac.roots</code>
+ * takes a list of other roots, separated by the path separator.
+ * <p/>
+ * The index is stored in the directory of the {@link NPandayResolutionCache} and reused as long as the
+ * modification times of the roots and their <code>GAC*</code> directories are the same. Since
+ * installing a new version of an already known assembly does not touch these, a lookup that fails
+ * rebuilds the index once per build before giving up.
+ *
+ * @plexus.component role="npanday.resolver.GacIndex"
+ */
+public class GacIndex
+    extends AbstractLogEnabled
+{
+    public static final String ROOTS = "npanday.gac.roots";
+
+    static final String FILE_NAME = "gac-index.properties";
+
+    private static final String ROOT_PREFIX = "root:";
+
+    private static final String DIRECTORY_PREFIX = "dir:";
+
+    private static final char SEPARATOR = '|';
+
+    private static final List<String> LEGACY_DIRECTORIES = Arrays.asList( "gac_msil", "gac_32", "gac_64", "gac" );
+
+    /** @plexus.requirement */
+    private NPandayResolutionCache cache;
+
+    private List<File> roots;
+
+    /**
+     * Entries by lower case assembly name.
+     */
+    private Map<String, List<Entry>> entries;
+
+    private boolean rebuilt;
+
+    /**
+     * Replaces the configured GAC roots; the index is rebuilt on the next lookup.
+     */
+    public synchronized void setRoots( List<File> roots )
+    {
+        this.roots = new ArrayList<File>( roots );
+        this.entries = null;
+        this.rebuilt = false;
+    }
+
+    public synchronized List<File> getRoots()
+    {
+        if ( roots == null )
+        {
+            roots = getConfiguredRoots();
+        }
+        return Collections.unmodifiableList( roots );
+    }
+
+    /**
+     * Finds the assembly of a GAC artifact. The artifact id is the assembly name, the classifier the
+     * public key token; a version with less than four parts matches the version padded with zeros, or
+     * else the highest version starting with it.
+     *
+     * @return the assembly, or <code>null</code> if it is not installed.
+     */
+    public synchronized File find( Artifact artifact )
+    {
+        Entry entry = lookup( artifact );
+        if ( ( entry == null || !entry.file.isFile() ) && !rebuilt )
+        {
+            getLogger().debug( "NPANDAY-177-000: Rebuilding GAC index, did not find " + artifact );
+            build();
+            entry = lookup( artifact );
+        }
+        return entry == null ? null : entry.file;
+    }
+
+    /**
+     * Describes what the GAC holds for the name of the artifact, for messages on a failed lookup.
+     */
+    public synchronized String describe( Artifact artifact )
+    {
+        List<Entry> candidates = getEntries().get( artifact.getArtifactId().toLowerCase( Locale.ENGLISH ) );
+        if ( candidates == null || candidates.isEmpty() )
+        {
+            return "no assembly named " + artifact.getArtifactId() + " in " + getRoots();
+        }
+
+        StringBuilder description = new StringBuilder( "installed are" );
+        for ( Entry candidate : candidates )
+        {
+            description.append( ' ' ).append( candidate.gac ).append( '/' ).append( candidate.version );
+            if ( candidate.culture.length() > 0 )
+            {
+                description.append( '_' ).append( candidate.culture );
+            }
+            description.append( "__" ).append( candidate.token );
+            if ( candidate.runtime.length() > 0 )
+            {
+                description.append( " (" ).append( candidate.runtime ).append( ')' );
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * @return the number of indexed assemblies.
+     */
+    public synchronized int size()
+    {
+        int size = 0;
+        for ( List<Entry> named : getEntries().values() )
+        {
+            size += named.size();
+        }
+        return size;
+    }
+
+    private Entry lookup( Artifact artifact )
+    {
+        List<Entry> candidates = getEntries().get( artifact.getArtifactId().toLowerCase( Locale.ENGLISH ) );
+        if ( candidates == null )
+        {
+            return null;
+        }
+
+        ArtifactType type = ArtifactType.getArtifactTypeForPackagingName( artifact.getType() );
+        String version = artifact.getVersion();
+        String padded = ParsedVersion.of( version ).pad( 4 );
+
+        Entry exact = null;
+        Entry partial = null;
+        for ( Entry candidate : candidates )
+        {
+            if ( !candidate.matches( type ) || !candidate.matchesToken( artifact.getClassifier() ) )
+            {
+                continue;
+            }
+
+            if ( candidate.version.equals( padded ) )
+            {
+                // culture neutral assemblies are preferred
+                if ( exact == null || ( candidate.culture.length() == 0 && exact.culture.length() > 0 ) )
+                {
+                    exact = candidate;
+                }
+            }
+            else if ( candidate.version.startsWith( version + "." ) && ( partial == null
+                || ParsedVersion.of( candidate.version ).compareNumbers( ParsedVersion.of( partial.version ) ) > 0 ) )
+            {
+                partial = candidate;
+            }
+        }
+        return exact != null ? exact : partial;
+    }
+
+    private Map<String, List<Entry>> getEntries()
+    {
+        if ( entries == null )
+        {
+            if ( !load() )
+            {
+                build();
+            }
+        }
+        return entries;
+    }
+
+    private void build()
+    {
+        long started = System.currentTimeMillis();
+        Map<String, List<Entry>> built = new HashMap<String, List<Entry>>();
+        Map<String, Long> stamps = new LinkedHashMap<String, Long>();
+        int count = 0;
+
+        for ( File root : getRoots() )
+        {
+            stamps.put( ROOT_PREFIX + root.getAbsolutePath(), root.lastModified() );
+            File[] gacs = root.listFiles();
+            if ( gacs == null )
+            {
+                continue;
+            }
+            for ( File gac : gacs )
+            {
+                if ( !gac.isDirectory() || !gac.getName().toLowerCase( Locale.ENGLISH ).startsWith( "gac" ) )
+                {
+                    continue;
+                }
+                stamps.put( DIRECTORY_PREFIX + gac.getAbsolutePath(), gac.lastModified() );
+                count += index( gac, built );
+            }
+        }
+
+        entries = built;
+        rebuilt = true;
+        getLogger().debug(
+            "NPANDAY-177-001: Indexed " + count + " GAC assemblies in " + ( System.currentTimeMillis() - started )
+                + "ms"
+        );
+        store( stamps );
+    }
+
+    private static int index( File gac, Map<String, List<Entry>> built )
+    {
+        int count = 0;
+        String gacName = gac.getName().toLowerCase( Locale.ENGLISH );
+        File[] names = gac.listFiles();
+        if ( names == null )
+        {
+            return 0;
+        }
+        for ( File name : names )
+        {
+            File[] versions = name.listFiles();
+            if ( versions == null )
+            {
+                continue;
+            }
+            for ( File version : versions )
+            {
+                File assembly = findAssembly( version, name.getName() );
+                Entry entry = assembly == null ? null : Entry.parse(
+                    gacName, name.getName(), version.getName(), assembly
+                );
+                if ( entry != null )
+                {
+                    add( built, entry );
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static File findAssembly( File versionDirectory, String name )
+    {
+        File dll = new File( versionDirectory, name + ".dll" );
+        if ( dll.isFile() )
+        {
+            return dll;
+        }
+        File exe = new File( versionDirectory, name + ".exe" );
+        return exe.isFile() ? exe : null;
+    }
+
+    private static void add( Map<String, List<Entry>> index, Entry entry )
+    {
+        String key = entry.name.toLowerCase( Locale.ENGLISH );
+        List<Entry> named = index.get( key );
+        if ( named == null )
+        {
+            named = new ArrayList<Entry>( 2 );
+            index.put( key, named );
+        }
+        named.add( entry );
+    }
+
+    /**
+     * Loads the stored index if the GAC roots did not change since it was built.
+     */
+    private boolean load()
+    {
+        File file = getFile();
+        if ( file == null || !file.isFile() )
+        {
+            return false;
+        }
+
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            getLogger().debug( "NPANDAY-177-002: Could not read GAC index " + file + ": " + e.getMessage() );
+            return false;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        if ( !isCurrent( properties ) )
+        {
+            return false;
+        }
+
+        Map<String, List<Entry>> loaded = new HashMap<String, List<Entry>>();
+        for ( String key : properties.stringPropertyNames() )
+        {
+            if ( key.startsWith( ROOT_PREFIX ) || key.startsWith( DIRECTORY_PREFIX ) )
+            {
+                continue;
+            }
+            String[] parts = key.split( "\\" + SEPARATOR );
+            Entry entry = parts.length != 3 ? null : Entry.parse(
+                parts[0], parts[1], parts[2], new File( properties.getProperty( key ) )
+            );
+            if ( entry != null )
+            {
+                add( loaded, entry );
+            }
+        }
+        entries = loaded;
+        return true;
+    }
+
+    private boolean isCurrent( Properties properties )
+    {
+        int roots = 0;
+        for ( String key : properties.stringPropertyNames() )
+        {
+            if ( key.startsWith( ROOT_PREFIX ) || key.startsWith( DIRECTORY_PREFIX ) )
+            {
+                File directory = new File( key.substring( key.indexOf( ':' ) + 1 ) );
+                if ( !String.valueOf( directory.lastModified() ).equals( properties.getProperty( key ) ) )
+                {
+                    return false;
+                }
+                if ( key.startsWith( ROOT_PREFIX ) )
+                {
+                    roots++;
+                    if ( !getRoots().contains( directory ) )
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return roots == getRoots().size();
+    }
+
+    private void store( Map<String, Long> stamps )
+    {
+        File file = getFile();
+        if ( file == null )
+        {
+            return;
+        }
+
+        Properties properties = new Properties();
+        for ( Map.Entry<String, Long> stamp : stamps.entrySet() )
+        {
+            properties.setProperty( stamp.getKey(), String.valueOf( stamp.getValue() ) );
+        }
+        for ( List<Entry> named : entries.values() )
+        {
+            for ( Entry entry : named )
+            {
+                properties.setProperty(
+                    entry.gac + SEPARATOR + entry.name + SEPARATOR + entry.directoryName, entry.file.getAbsolutePath()
+                );
+            }
+        }
+
+        OutputStream out = null;
+        try
+        {
+            File directory = file.getParentFile();
+            if ( !directory.exists() && !directory.mkdirs() && !directory.exists() )
+            {
+                throw new IOException( "Could not create directory " + directory );
+            }
+
+            // write to a temporary file of its own first, other builds might store or read the index concurrently
+            File temp = File.createTempFile( FILE_NAME, ".tmp", directory );
+            out = new FileOutputStream( temp );
+            properties.store( out, "NPanday GAC index" );
+            out.close();
+            out = null;
+            if ( !temp.renameTo( file ) )
+            {
+                file.delete();
+                if ( !temp.renameTo( file ) )
+                {
+                    temp.delete();
+                    throw new IOException( "Could not replace " + file );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "NPANDAY-177-003: Could not store GAC index " + file + ": " + e.getMessage() );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    private File getFile()
+    {
+        File directory = cache == null ? null : cache.getDirectory();
+        return directory == null ? null : new File( directory, FILE_NAME );
+    }
+
+    private static List<File> getConfiguredRoots()
+    {
+        List<File> configured = new ArrayList<File>();
+        String property = System.getProperty( ROOTS );
+        if ( property != null && property.trim().length() > 0 )
+        {
+            for ( String root : property.split( File.pathSeparator ) )
+            {
+                if ( root.trim().length() > 0 )
+                {
+                    configured.add( new File( root.trim() ) );
+                }
+            }
+            return configured;
+        }
+
+        String systemRoot = System.getenv( "SystemRoot" );
+        if ( systemRoot == null )
+        {
+            systemRoot = "C:\\WINDOWS";
+        }
+        configured.add( new File( systemRoot, "assembly" ) );
+        configured.add( new File( systemRoot, "Microsoft.NET" + File.separator + "assembly" ) );
+        return configured;
+    }
+
+    /**
+     * One installed assembly.
+     */
+    private static class Entry
+    {
+        private final String gac;
+
+        private final String name;
+
+        private final String directoryName;
+
+        private final String runtime;
+
+        private final String version;
+
+        private final String culture;
+
+        private final String token;
+
+        private final File file;
+
+        private Entry( String gac, String name, String directoryName, String runtime, String version, String culture,
+                       String token, File file )
+        {
+            this.gac = gac;
+            this.name = name;
+            this.directoryName = directoryName;
+            this.runtime = runtime;
+            this.version = version;
+            this.culture = culture;
+            this.token = token;
+            this.file = file;
+        }
+
+        /**
+         * Parses the name of a version directory, like <code>2.0.0.0__b77a5c561934e089</code> or
+         * <code>v4.0_4.0.0.0_de_b77a5c561934e089</code>.
+         */
+        static Entry parse( String gac, String name, String directoryName, File file )
+        {
+            String[] parts = directoryName.split( "_", -1 );
+            if ( parts.length == 4 && parts[0].startsWith( "v" ) )
+            {
+                return new Entry( gac, name, directoryName, parts[0], parts[1], parts[2], parts[3], file );
+            }
+            if ( parts.length == 3 )
+            {
+                return new Entry( gac, name, directoryName, "", parts[0], parts[1], parts[2], file );
+            }
+            return null;
+        }
+
+        /**
+         * The .NET 4 types only match assemblies below a runtime directory, the others only those
+         * without; the specific types only match their own GAC directory.
+         */
+        boolean matches( ArtifactType type )
+        {
+            switch ( type )
+            {
+                case GAC_MSIL4:
+                    return runtime.length() > 0 && gac.equals( "gac_msil" );
+                case GAC_32_4:
+                    return runtime.length() > 0 && gac.equals( "gac_32" );
+                case GAC_64_4:
+                    return runtime.length() > 0 && gac.equals( "gac_64" );
+                case GAC_MSIL:
+                case GAC_32:
+                case GAC_64:
+                case GAC:
+                    return runtime.length() == 0 && gac.equals( type.getPackagingType() );
+                default:
+                    return runtime.length() == 0 && LEGACY_DIRECTORIES.contains( gac );
+            }
+        }
+
+        boolean matchesToken( String classifier )
+        {
+            return classifier == null || classifier.length() == 0 || classifier.equalsIgnoreCase( token );
+        }
+    }
+}
@@ -58,7 +58,8 @@ public interface NPandayArtifactResolver
     extends ArtifactResolver
 {
     /**
-     * Should never try to resolve things that would get excluded by this filter.
+     * Starts a new resolution, that should never try to resolve things that would get excluded
+     * by this filter. Forgets the artifacts collected by earlier resolutions.
      * @param filter
      */
     public void initializeWithFilter(ArtifactFilter filter);
@@ -77,5 +78,10 @@ public interface NPandayArtifactResolver
      * Custom artifacts dependencies resolved by contributors. 
      */
     public Set<Artifact> getCustomDependenciesCache();
+
+    /**
+     * Records where the time of the following resolutions goes; <code>null</code> stops recording.
+     */
+    public void setTrace( ResolutionTrace trace );
 }
 
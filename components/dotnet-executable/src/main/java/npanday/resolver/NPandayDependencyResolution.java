@@ -22,24 +22,33 @@ package npanday.resolver;
 import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
 import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.model.Dependency;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.artifact.InvalidDependencyVersionException;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Resolves project dependencies to a required scope while executing custom
  * resolver logic for GAC, e.g.
+ * <p/>
+ * Resolutions are kept in the {@link ResolvedDependenciesCache} for the whole build; later requests
+ * with the same or a narrower filter get a filtered view of them.
  *
  * @author <a href="mailto:me@lcorneliussen.de>Lars Corneliussen, Faktum Software</a>
  * @plexus.component role="npanday.resolver.NPandayDependencyResolution" instantiation-strategy="per-lookup"
@@ -56,6 +65,15 @@ public class NPandayDependencyResolution
     /** @plexus.requirement */
     private ArtifactMetadataSource metaDataSource;
 
+    /** @plexus.requirement */
+    private ResolvedDependenciesCache resolvedDependenciesCache;
+
+    /** @plexus.requirement */
+    private NPandayResolutionCache resolutionCache;
+
+    /** @plexus.requirement */
+    private ResolutionReport resolutionReport;
+
     public Set<Artifact> require(MavenProject project, ArtifactRepository localRepository, String scope) throws
         ArtifactResolutionException
     {
@@ -72,8 +90,49 @@ public class NPandayDependencyResolution
         ArtifactResolutionException
     {
         long startTime = System.currentTimeMillis();
+        ResolutionTrace trace = ResolutionReport.isEnabled()
+            ? new ResolutionTrace( project.getId(), String.valueOf( filter ) )
+            : null;
 
+        ResolvedDependenciesCache.CachedResolution cached = resolvedDependenciesCache.get(
+            project, localRepository, filter
+        );
+        if ( cached == null && restoreSnapshot( project, localRepository, filter ) )
+        {
+            cached = resolvedDependenciesCache.get( project, localRepository, filter );
+        }
+        if ( cached != null )
+        {
+            Set<Artifact> dependencyArtifacts = new HashSet<Artifact>( cached.getDependencyArtifacts() );
+            if ( project.getDependencyArtifacts() != null )
+            {
+                dependencyArtifacts.addAll( project.getDependencyArtifacts() );
+            }
+            project.setDependencyArtifacts( dependencyArtifacts );
+
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug(
+                    "NPANDAY-148-010: Reusing resolved dependencies for " + project.getArtifact() + " with filter "
+                        + filter
+                );
+            }
+            if ( trace != null )
+            {
+                trace.setCached( true );
+                trace.finish( cached.getArtifacts().size() );
+                resolutionReport.record( trace, getTargetDirectory( project ), project.isExecutionRoot() );
+            }
+            return cached.getArtifacts();
+        }
+        long generation = resolvedDependenciesCache.getGeneration( project, localRepository );
+
+        resolutionCache.attach( new File( localRepository.getBasedir() ) );
         artifactResolver.initializeWithFilter(filter);
+        artifactResolver.setTrace( trace );
+        long lookups = resolutionCache.getLookups();
+        long storedHits = resolutionCache.getStoredHits();
+        long misses = resolutionCache.getMisses();
 
         if (getLogger().isDebugEnabled()) {
             getLogger().debug( "NPANDAY-148-007: Resolving dependencies for " + project.getArtifact() );
@@ -108,6 +167,23 @@ public class NPandayDependencyResolution
             Set<Artifact> resultRequire = Sets.newLinkedHashSet(result.getArtifacts());
             resultRequire.addAll(artifactResolver.getCustomDependenciesCache());
 
+            resolvedDependenciesCache.put(
+                project, localRepository, filter, generation, resultRequire, dependencyArtifacts
+            );
+            writeSnapshot( project, localRepository, filter, resultRequire, dependencyArtifacts );
+
+            if ( trace != null )
+            {
+                long storedHitsDelta = resolutionCache.getStoredHits() - storedHits;
+                long missesDelta = resolutionCache.getMisses() - misses;
+                trace.setCacheStatistics(
+                    resolutionCache.getLookups() - lookups - storedHitsDelta - missesDelta, storedHitsDelta,
+                    missesDelta
+                );
+                trace.finish( resultRequire.size() );
+                resolutionReport.record( trace, getTargetDirectory( project ), project.isExecutionRoot() );
+            }
+
             if (getLogger().isInfoEnabled()) {
                 long endTime = System.currentTimeMillis();
                 getLogger().info( "NPANDAY-148-009: Took " + (endTime - startTime) + "ms to resolve dependencies for " + project.getArtifact() + " with filter " + filter.toString() );
@@ -127,6 +203,160 @@ public class NPandayDependencyResolution
         {
             throw new ArtifactResolutionException( "NPANDAY-148-003: Could not resolve project dependencies", project.getArtifact(), e  );
         }
+        finally
+        {
+            artifactResolver.setTrace( null );
+            resolutionCache.flush();
+        }
+    }
+
+    /**
+     * Puts the dependencies resolved by an earlier build into the cache, if that build wrote a snapshot
+     * covering the filter and nothing changed since. Dependencies that may resolve differently without any
+     * local change, SNAPSHOTs and version ranges, are always resolved again; as they are when updates are forced.
+     *
+     * @return if the snapshot was restored.
+     */
+    private boolean restoreSnapshot( MavenProject project, ArtifactRepository localRepository, ArtifactFilter filter )
+    {
+        File file = getSnapshotFile( project );
+        ArtifactFilterSignature signature = ArtifactFilterSignature.of( filter );
+        if ( file == null || signature == null )
+        {
+            return false;
+        }
+
+        String volatileDependency = findVolatileDependency( project );
+        if ( volatileDependency != null )
+        {
+            getLogger().debug( "NPANDAY-148-016: Not using " + file + ", since " + volatileDependency );
+            return false;
+        }
+
+        ResolvedGraphSnapshot snapshot = ResolvedGraphSnapshot.read( file );
+        if ( snapshot == null
+            || !snapshot.covers( ResolvedDependenciesCache.describeInputs( project, localRepository ), signature ) )
+        {
+            return false;
+        }
+
+        String changed = snapshot.findChangedFile();
+        if ( changed != null )
+        {
+            getLogger().debug( "NPANDAY-148-014: Not using " + file + ", since " + changed + " changed" );
+            return false;
+        }
+
+        String snapshotVersion = snapshot.findSnapshotVersion();
+        if ( snapshotVersion != null )
+        {
+            getLogger().debug( "NPANDAY-148-017: Not using " + file + ", since it contains " + snapshotVersion );
+            return false;
+        }
+
+        Set<Artifact> artifacts = Sets.newLinkedHashSet();
+        Set<Artifact> dependencyArtifacts = Sets.newLinkedHashSet();
+        snapshot.restore( artifactFactory, artifacts, dependencyArtifacts );
+        resolvedDependenciesCache.put(
+            project, localRepository, snapshot.getSignature(),
+            resolvedDependenciesCache.getGeneration( project, localRepository ), artifacts, dependencyArtifacts
+        );
+
+        getLogger().debug(
+            "NPANDAY-148-013: Restored " + snapshot.size() + " resolved dependencies of " + project.getArtifact()
+                + " from " + file
+        );
+        return true;
+    }
+
+    private void writeSnapshot( MavenProject project, ArtifactRepository localRepository, ArtifactFilter filter,
+                                Set<Artifact> artifacts, Set<Artifact> dependencyArtifacts )
+    {
+        File file = getSnapshotFile( project );
+        ArtifactFilterSignature signature = ArtifactFilterSignature.of( filter );
+        if ( file == null || signature == null )
+        {
+            return;
+        }
+
+        try
+        {
+            ResolvedGraphSnapshot.write(
+                file, ResolvedDependenciesCache.describeInputs( project, localRepository ), signature, artifacts,
+                dependencyArtifacts, ResolvedGraphSnapshot.read( file )
+            );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "NPANDAY-148-015: Could not write " + file + ": " + e.getMessage() );
+        }
+    }
+
+    /**
+     * @return a description of the first declared dependency that may resolve differently in another Maven
+     *         invocation, or of the repository updates are forced for; <code>null</code> if there is none
+     */
+    static String findVolatileDependency( MavenProject project )
+    {
+        for ( Dependency dependency : (List<Dependency>) project.getDependencies() )
+        {
+            String version = dependency.getVersion();
+            if ( version == null )
+            {
+                continue;
+            }
+            if ( ArtifactUtils.isSnapshot( version ) )
+            {
+                return dependency.getManagementKey() + " is a SNAPSHOT";
+            }
+            if ( version.startsWith( "[" ) || version.startsWith( "(" ) )
+            {
+                return dependency.getManagementKey() + " is declared with the range " + version;
+            }
+        }
+
+        // -U sets the update policy of every repository to always
+        for ( ArtifactRepository repository : (List<ArtifactRepository>) project.getRemoteArtifactRepositories() )
+        {
+            if ( isAlwaysUpdated( repository.getReleases() ) || isAlwaysUpdated( repository.getSnapshots() ) )
+            {
+                return "updates are forced for " + repository.getId();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAlwaysUpdated( ArtifactRepositoryPolicy policy )
+    {
+        return policy != null && policy.isEnabled()
+            && ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS.equals( policy.getUpdatePolicy() );
+    }
+
+    private static File getSnapshotFile( MavenProject project )
+    {
+        File targetDirectory = getTargetDirectory( project );
+        if ( targetDirectory == null || !ResolvedGraphSnapshot.isEnabled() )
+        {
+            return null;
+        }
+        return new File( targetDirectory, ResolvedGraphSnapshot.FILE_NAME );
+    }
+
+    private static File getTargetDirectory( MavenProject project )
+    {
+        if ( project.getBuild() == null || project.getBuild().getDirectory() == null )
+        {
+            return null;
+        }
+        return new File( project.getBuild().getDirectory() );
+    }
+
+    /**
+     * Forgets the dependencies resolved for the project; to be called after its dependencies were changed.
+     */
+    public void invalidate( MavenProject project )
+    {
+        resolvedDependenciesCache.invalidate( project );
     }
 
     private void addResolvedSpecialsToProjectDependencies(ArtifactResolutionResult result, Set<Artifact> dependencyArtifacts)
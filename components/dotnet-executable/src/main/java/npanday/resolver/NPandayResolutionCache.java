@@ -19,40 +19,458 @@
 
 package npanday.resolver;
 
-import com.google.common.collect.Sets;
+import npanday.SingleFlightCache;
 import org.apache.maven.artifact.Artifact;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.codehaus.plexus.util.IOUtil;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Hashtable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The instance of this cache should span the full maven reactor build.
- * Resolving the artifact file once pr. artifact id is enough.
+ * Resolving the artifact file once pr. artifact id is enough; concurrent resolutions of the same
+ * artifact wait for each other, see {@link #resolve}. The least recently used entries are dropped
+ * when the cache grows beyond ten thousand artifacts.
+ * <p/>
+ * Once {@link #attach attached} to a local repository, results stored along with a fingerprint of
+ * their source also survive the build, in <code>.npanday-cache/resolutions.properties</code> below
+ * the local repository. A file found earlier is reused as long as its size and last modification
+ * time did not change; an artifact that could not be found is not looked for again until the
+ * fingerprint changes or {@link #NEGATIVE_TTL} minutes have passed. Concurrent builds sharing the
+ * local repository, and the instances of several plugins within one build, merge their results into the
+ * file under a file lock.
  *
  * @author <a href="mailto:me@lcorneliussen.de>Lars Corneliussen, Faktum Software</a>
  * @plexus.component role="npanday.resolver.NPandayResolutionCache"
  */
 public class NPandayResolutionCache
         extends AbstractLogEnabled
+        implements Disposable
 {
-    private Hashtable<String, File> cache = new Hashtable<String, File>();
+    /**
+     * System property for the number of minutes an artifact that was not found is remembered; defaults to a day.
+     */
+    public static final String NEGATIVE_TTL = "npanday.resolutionCache.negativeTtl";
+
+    /**
+     * System property to keep the results in memory only, when set to <code>false</code>.
+     */
+    public static final String PERSISTENT = "npanday.resolutionCache.persistent";
+
+    static final String DIRECTORY = ".npanday-cache";
+
+    private static final String FILE_NAME = "resolutions.properties";
+
+    private static final String LOCK_FILE_NAME = "resolutions.lock";
+
+    private static final long DEFAULT_NEGATIVE_TTL_MINUTES = 24 * 60;
+
+    private static final String MISSING = "-";
+
+    private static final char SEPARATOR = '|';
+
+    private static final int MAX_ENTRIES = 10000;
+
+    /**
+     * Stands for artifacts that could not be found.
+     */
+    private static final File NOT_FOUND = new File( MISSING );
+
+    private final SingleFlightCache<String, File> cache = new SingleFlightCache<String, File>( MAX_ENTRIES );
+
+    private final ConcurrentMap<String, String> stored = new ConcurrentHashMap<String, String>();
+
+    private final ConcurrentMap<String, String> changed = new ConcurrentHashMap<String, String>();
+
+    private File directory;
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong storedHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
 
     public void put(Artifact artifact){
-        cache.put(artifact.getId(), artifact.getFile());
+        // artifacts that could not be found are remembered, too
+        cache.put(artifact.getId(), artifact.isResolved() && artifact.getFile() != null ? artifact.getFile() : NOT_FOUND);
     }
 
     public Boolean applyTo(Artifact artifact){
-        String key = artifact.getId();
-        if (cache.containsKey(key)){
-           File resolvedFile = cache.get(key);
-           if (resolvedFile != null){
-               artifact.setFile(resolvedFile);
-               artifact.setResolved(true);
-           }
-           return true;
-       }
-       return false;
+        File resolvedFile;
+        try
+        {
+            resolvedFile = cache.getIfPresent( artifact.getId() );
+        }
+        catch ( ExecutionException e )
+        {
+            return false;
+        }
+
+        if (resolvedFile == null){
+            return false;
+        }
+        apply(artifact, resolvedFile);
+        return true;
+    }
+
+    /**
+     * Resolves an artifact only once per artifact id: from memory, from an earlier build with the same
+     * fingerprint, or by calling the resolver. Concurrent calls for the same artifact wait for the first
+     * one instead of resolving it again.
+     *
+     * @param fingerprint describes the source the artifact is resolved from; <code>null</code> to keep the
+     *                    result in memory only.
+     * @param resolver    returns the file of the artifact, or <code>null</code> if it can't be found.
+     * @return if the artifact was resolved.
+     * @throws ExecutionException if the resolver failed.
+     */
+    public boolean resolve( final Artifact artifact, final String fingerprint, final Callable<File> resolver )
+        throws ExecutionException
+    {
+        lookups.incrementAndGet();
+        File file = cache.get(
+            artifact.getId(), new Callable<File>()
+            {
+                public File call() throws Exception
+                {
+                    if ( fingerprint != null )
+                    {
+                        File earlier = getStored( artifact.getId(), fingerprint );
+                        if ( earlier != null )
+                        {
+                            storedHits.incrementAndGet();
+                            return earlier;
+                        }
+                    }
+
+                    misses.incrementAndGet();
+                    File resolved = resolver.call();
+                    if ( fingerprint != null )
+                    {
+                        store( artifact.getId(), fingerprint, resolved );
+                    }
+                    return resolved == null ? NOT_FOUND : resolved;
+                }
+            }
+        );
+        apply( artifact, file );
+        return file != NOT_FOUND;
+    }
+
+    /**
+     * @return the number of calls to {@link #resolve} so far.
+     */
+    public long getLookups()
+    {
+        return lookups.get();
+    }
+
+    /**
+     * @return the number of calls to {@link #resolve} answered from an earlier build.
+     */
+    public long getStoredHits()
+    {
+        return storedHits.get();
+    }
+
+    /**
+     * @return the number of calls to {@link #resolve} that had to call the resolver.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Remembers the result of resolving an artifact, also for later builds.
+     *
+     * @param fingerprint describes the source the artifact was resolved from; a later lookup only
+     *                    succeeds with the same fingerprint.
+     */
+    public void put( Artifact artifact, String fingerprint )
+    {
+        put( artifact );
+        store( artifact.getId(), fingerprint, artifact.isResolved() ? artifact.getFile() : null );
+    }
+
+    /**
+     * Applies the result of an earlier resolution with the same fingerprint, if there is a valid one.
+     *
+     * @return if the artifact was resolved before; it remains unresolved if it could not be found then.
+     */
+    public Boolean applyTo( Artifact artifact, String fingerprint )
+    {
+        if ( applyTo( artifact ) )
+        {
+            return true;
+        }
+
+        File file = getStored( artifact.getId(), fingerprint );
+        if ( file == null )
+        {
+            return false;
+        }
+        cache.put( artifact.getId(), file );
+        apply( artifact, file );
+        return true;
+    }
+
+    private static void apply( Artifact artifact, File file )
+    {
+        if ( file != NOT_FOUND )
+        {
+            artifact.setFile( file );
+            artifact.setResolved( true );
+        }
+    }
+
+    private void store( String id, String fingerprint, File file )
+    {
+        String value = fingerprint + SEPARATOR + ( file == null || !file.isFile()
+            ? MISSING + SEPARATOR + System.currentTimeMillis()
+            : stamp( file ) + SEPARATOR + file.getAbsolutePath() );
+
+        stored.put( id, value );
+        changed.put( id, value );
+    }
+
+    /**
+     * @return the file stored by an earlier build, {@link #NOT_FOUND} if it recently could not be found,
+     *         or <code>null</code> if there is no valid entry with this fingerprint.
+     */
+    private File getStored( String id, String fingerprint )
+    {
+        String value = stored.get( id );
+        if ( value == null || !value.startsWith( fingerprint + SEPARATOR ) )
+        {
+            return null;
+        }
+
+        String[] parts = value.substring( fingerprint.length() + 1 ).split( "\\" + SEPARATOR, 2 );
+        if ( parts.length != 2 )
+        {
+            return null;
+        }
+
+        if ( MISSING.equals( parts[0] ) )
+        {
+            long age = System.currentTimeMillis() - Long.parseLong( parts[1] );
+            if ( age < 0 || age > getNegativeTtl() )
+            {
+                return null;
+            }
+            getLogger().debug( "NPANDAY-174-000: " + id + " was not found in a recent build" );
+            return NOT_FOUND;
+        }
+
+        File file = new File( parts[1] );
+        if ( !file.isFile() || !stamp( file ).equals( parts[0] ) )
+        {
+            return null;
+        }
+        getLogger().debug( "NPANDAY-174-001: " + id + " was resolved to " + file + " in an earlier build" );
+        return file;
+    }
+
+    /**
+     * Loads the results of earlier builds stored below the local repository; results are only kept in
+     * memory until this is called.
+     */
+    public synchronized void attach( File localRepository )
+    {
+        if ( localRepository == null || !Boolean.valueOf( System.getProperty( PERSISTENT, "true" ) ) )
+        {
+            return;
+        }
+
+        File attachTo = new File( localRepository, DIRECTORY );
+        if ( attachTo.equals( directory ) )
+        {
+            return;
+        }
+
+        directory = attachTo;
+        stored.clear();
+        try
+        {
+            for ( Map.Entry<Object, Object> entry : readLocked().entrySet() )
+            {
+                stored.put( (String) entry.getKey(), (String) entry.getValue() );
+            }
+            stored.putAll( changed );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "NPANDAY-174-002: Could not read resolution cache in " + directory + ": " + e.getMessage() );
+        }
+    }
+
+    /**
+     * @return the directory below the local repository this cache keeps its files in; or <code>null</code>
+     *         if it is not attached to one.
+     */
+    public synchronized File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Merges the results of this build into the stored cache.
+     */
+    public synchronized void flush()
+    {
+        if ( directory == null || changed.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            writeLocked();
+            changed.clear();
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "NPANDAY-174-003: Could not write resolution cache in " + directory + ": " + e.getMessage() );
+        }
+    }
+
+    public void dispose()
+    {
+        flush();
+    }
+
+    private Properties readLocked() throws IOException
+    {
+        RandomAccessFile lockFile = openLockFile();
+        try
+        {
+            FileLock lock = FileLocks.lock( lockFile, getLockFile().getPath() );
+            try
+            {
+                return read();
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            lockFile.close();
+        }
+    }
+
+    private void writeLocked() throws IOException
+    {
+        RandomAccessFile lockFile = openLockFile();
+        try
+        {
+            FileLock lock = FileLocks.lock( lockFile, getLockFile().getPath() );
+            try
+            {
+                // merge with what concurrent builds stored in the meantime
+                Properties properties = read();
+                properties.putAll( changed );
+
+                File file = new File( directory, FILE_NAME );
+                File temp = new File( directory, FILE_NAME + ".tmp" );
+                OutputStream out = new FileOutputStream( temp );
+                try
+                {
+                    properties.store( out, "NPanday resolution cache" );
+                }
+                finally
+                {
+                    IOUtil.close( out );
+                }
+                if ( ( file.exists() && !file.delete() ) || !temp.renameTo( file ) )
+                {
+                    throw new IOException( "NPANDAY-174-004: Could not replace " + file );
+                }
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            lockFile.close();
+        }
+    }
+
+    private RandomAccessFile openLockFile() throws IOException
+    {
+        if ( !directory.exists() && !directory.mkdirs() )
+        {
+            throw new IOException( "NPANDAY-174-005: Could not create directory " + directory );
+        }
+        return new RandomAccessFile( getLockFile(), "rw" );
+    }
+
+    private File getLockFile()
+    {
+        return new File( directory, LOCK_FILE_NAME );
+    }
+
+    private Properties read() throws IOException
+    {
+        Properties properties = new Properties();
+        File file = new File( directory, FILE_NAME );
+        if ( file.isFile() )
+        {
+            InputStream in = new FileInputStream( file );
+            try
+            {
+                properties.load( in );
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+        return properties;
+    }
+
+    private static long getNegativeTtl()
+    {
+        long minutes = DEFAULT_NEGATIVE_TTL_MINUTES;
+        String value = System.getProperty( NEGATIVE_TTL );
+        if ( value != null )
+        {
+            try
+            {
+                minutes = Long.parseLong( value.trim() );
+            }
+            catch ( NumberFormatException e )
+            {
+                // keep the default
+            }
+        }
+        return minutes * 60 * 1000;
+    }
+
+    /**
+     * Size and last modification time of a file.
+     */
+    public static String stamp( File file )
+    {
+        return file.length() + ":" + file.lastModified();
     }
 }
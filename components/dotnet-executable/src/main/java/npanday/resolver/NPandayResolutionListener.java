@@ -73,6 +73,12 @@ public class NPandayResolutionListener
             return;
         }
 
+        ResolutionTrace trace = resolver.getTrace();
+        if ( trace != null )
+        {
+            trace.artifactIncluded( artifact );
+        }
+
         try
         {
             resolver.runArtifactContributors( artifact, localRepository, remoteRepositories );
@@ -85,6 +91,11 @@ public class NPandayResolutionListener
 
     public void omitForNearer( Artifact omitted, Artifact kept )
     {
+        ResolutionTrace trace = resolver.getTrace();
+        if ( trace != null )
+        {
+            trace.omittedForNearer( omitted, kept );
+        }
     }
 
     public void updateScope( Artifact artifact, String scope )
@@ -97,6 +108,11 @@ public class NPandayResolutionListener
 
     public void omitForCycle( Artifact artifact )
     {
+        ResolutionTrace trace = resolver.getTrace();
+        if ( trace != null )
+        {
+            trace.omittedForCycle( artifact );
+        }
     }
 
     public void updateScopeCurrentPom( Artifact artifact, String ignoredScope )
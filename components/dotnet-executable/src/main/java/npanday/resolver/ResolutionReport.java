@@ -0,0 +1,524 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the {@link ResolutionTrace}s of the build. When the build ends, every module gets
+ * <code>npanday-resolution.json</code> and <code>npanday-resolution.html</code> in its target
+ * directory, covering all resolutions of the module; <code>npanday-resolution-summary.json</code> in
+ * the target directory of the execution root sums up the reactor. If the execution root did not
+ * resolve any dependencies, the summary goes to the target directory of the first module.
+ * <p/>
+ * Every plugin has its own instance of this component, which only sees the resolutions of that plugin.
+ * Hence each instance stores what it saw as a part in a directory shared by the Maven invocation, and
+ * writes the reports from all parts stored so far; the instance disposed of last writes the complete
+ * reports. The parts are removed when the JVM exits.
+ * <p/>
+ * The reports are only collected if the system property <code>npanday.resolutionReport</code> is set
+ * to <code>true</code>.
+ *
+ * @plexus.component role="npanday.resolver.ResolutionReport"
+ */
+public class ResolutionReport
+    extends AbstractLogEnabled
+    implements Disposable
+{
+    public static final String FILE_NAME = "npanday-resolution";
+
+    public static final String SUMMARY_FILE_NAME = "npanday-resolution-summary.json";
+
+    private static final String PROPERTY = "npanday.resolutionReport";
+
+    private static final String PARTS_PREFIX = "npanday-resolution-";
+
+    private static final String PART_EXTENSION = ".part";
+
+    private static final String LOCK_FILE_NAME = "parts.lock";
+
+    /**
+     * Parts left behind by a JVM that did not exit normally are removed after a day.
+     */
+    private static final long STALE_PARTS_AGE = 24 * 60 * 60 * 1000L;
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final Map<String, Module> modules = new LinkedHashMap<String, Module>();
+
+    private final String partName =
+        System.currentTimeMillis() + "-" + System.identityHashCode( this ) + "-" + instances.incrementAndGet();
+
+    private File partsDirectory;
+
+    public static boolean isEnabled()
+    {
+        return "true".equals( System.getProperty( PROPERTY ) );
+    }
+
+    /**
+     * Adds a resolution to the report of its module; the reports are written on {@link #dispose()}.
+     *
+     * @param targetDirectory the target directory of the module, or <code>null</code> if unknown
+     * @param executionRoot   if the module is the root of the build, where the summary is written to
+     */
+    public synchronized void record( ResolutionTrace trace, File targetDirectory, boolean executionRoot )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+
+        getLogger().debug( "NPANDAY-176-000: " + trace.toJson() );
+
+        Module module = modules.get( trace.getModule() );
+        if ( module == null )
+        {
+            module = new Module( trace.getModule(), targetDirectory );
+            modules.put( trace.getModule(), module );
+        }
+        module.executionRoot |= executionRoot;
+        module.add( trace );
+    }
+
+    /**
+     * Sets the directory the parts of all instances are stored in; by default, a directory in the
+     * temporary directory that is specific to the running JVM.
+     */
+    void setPartsDirectory( File partsDirectory )
+    {
+        this.partsDirectory = partsDirectory;
+    }
+
+    private File getPartsDirectory()
+    {
+        if ( partsDirectory == null )
+        {
+            String jvm = ManagementFactory.getRuntimeMXBean().getName() + "-"
+                + ManagementFactory.getRuntimeMXBean().getStartTime();
+            partsDirectory = new File(
+                System.getProperty( "java.io.tmpdir" ), PARTS_PREFIX + jvm.replaceAll( "[^A-Za-z0-9-]", "_" )
+            );
+        }
+        return partsDirectory;
+    }
+
+    /**
+     * Stores the resolutions seen by this instance, and writes the report of every module and the summary
+     * of the reactor from the resolutions seen by all instances so far.
+     */
+    public synchronized void writeReports()
+    {
+        File directory = getPartsDirectory();
+        try
+        {
+            boolean created = !directory.exists();
+            if ( created && !directory.mkdirs() )
+            {
+                throw new IOException( "NPANDAY-176-004: Could not create directory " + directory );
+            }
+            if ( created )
+            {
+                directory.deleteOnExit();
+                removeStaleParts( directory );
+            }
+
+            List<Module> merged;
+            File lockFile = new File( directory, LOCK_FILE_NAME );
+            RandomAccessFile lock = new RandomAccessFile( lockFile, "rw" );
+            lockFile.deleteOnExit();
+            try
+            {
+                FileLock fileLock = FileLocks.lock( lock, lockFile.getPath() );
+                try
+                {
+                    writePart( new File( directory, partName + PART_EXTENSION ) );
+                    merged = readParts( directory );
+                }
+                finally
+                {
+                    fileLock.release();
+                }
+            }
+            finally
+            {
+                lock.close();
+            }
+
+            for ( Module module : merged )
+            {
+                if ( module.targetDirectory != null )
+                {
+                    write( new File( module.targetDirectory, FILE_NAME + ".json" ), module.toJson() );
+                    write( new File( module.targetDirectory, FILE_NAME + ".html" ), module.toHtml() );
+                }
+            }
+            File summaryDirectory = getSummaryDirectory( merged );
+            if ( summaryDirectory != null )
+            {
+                File summary = new File( summaryDirectory, SUMMARY_FILE_NAME );
+                write( summary, toSummaryJson( merged ) );
+                getLogger().info( "NPANDAY-176-003: Wrote resolution summary to " + summary );
+            }
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "NPANDAY-176-001: Could not write resolution report: " + e.getMessage() );
+        }
+    }
+
+    private void writePart( File file )
+        throws IOException
+    {
+        ObjectOutputStream out = new ObjectOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+        try
+        {
+            out.writeObject( new ArrayList<Module>( modules.values() ) );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        file.deleteOnExit();
+    }
+
+    /**
+     * Merges the parts of all instances, ordered by the time their modules were first resolved.
+     */
+    private List<Module> readParts( File directory )
+        throws IOException
+    {
+        Map<String, Module> merged = new LinkedHashMap<String, Module>();
+        File[] parts = directory.listFiles();
+        Arrays.sort( parts );
+        for ( File part : parts )
+        {
+            if ( !part.getName().endsWith( PART_EXTENSION ) )
+            {
+                continue;
+            }
+
+            List<Module> partModules;
+            ObjectInputStream in = new ObjectInputStream( new BufferedInputStream( new FileInputStream( part ) ) );
+            try
+            {
+                partModules = (List<Module>) in.readObject();
+            }
+            catch ( ClassNotFoundException e )
+            {
+                throw new IOException( "NPANDAY-176-005: Could not read " + part + ": " + e.getMessage() );
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+
+            for ( Module module : partModules )
+            {
+                Module existing = merged.get( module.id );
+                if ( existing == null )
+                {
+                    merged.put( module.id, module );
+                }
+                else
+                {
+                    existing.merge( module );
+                }
+            }
+        }
+
+        List<Module> sorted = new ArrayList<Module>( merged.values() );
+        Collections.sort(
+            sorted, new Comparator<Module>()
+            {
+                public int compare( Module a, Module b )
+                {
+                    return a.firstRecorded < b.firstRecorded ? -1 : a.firstRecorded > b.firstRecorded ? 1 : 0;
+                }
+            }
+        );
+        return sorted;
+    }
+
+    private static File getSummaryDirectory( List<Module> modules )
+    {
+        File first = null;
+        for ( Module module : modules )
+        {
+            if ( module.targetDirectory == null )
+            {
+                continue;
+            }
+            if ( module.executionRoot )
+            {
+                return module.targetDirectory;
+            }
+            if ( first == null )
+            {
+                first = module.targetDirectory;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Removes the parts of other JVMs that were not removed on exit.
+     */
+    private static void removeStaleParts( File directory )
+    {
+        File[] siblings = directory.getParentFile().listFiles();
+        if ( siblings == null )
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for ( File sibling : siblings )
+        {
+            if ( sibling.isDirectory() && sibling.getName().startsWith( PARTS_PREFIX ) && !sibling.equals( directory )
+                && now - sibling.lastModified() > STALE_PARTS_AGE )
+            {
+                File[] parts = sibling.listFiles();
+                for ( int i = 0; parts != null && i < parts.length; i++ )
+                {
+                    parts[i].delete();
+                }
+                sibling.delete();
+            }
+        }
+    }
+
+    /**
+     * Sums up the resolutions seen by this instance, see {@link #toSummaryJson(List)}.
+     */
+    public synchronized String toSummaryJson()
+    {
+        return toSummaryJson( new ArrayList<Module>( modules.values() ) );
+    }
+
+    /**
+     * Sums up the resolutions of every module: their count, how many were reused from the
+     * {@link ResolvedDependenciesCache}, and the time spent in total, in Maven and in each contributor.
+     */
+    private static String toSummaryJson( List<Module> modules )
+    {
+        StringBuilder json = new StringBuilder( 256 + modules.size() * 256 );
+        json.append( "{\"modules\":[" );
+        boolean first = true;
+        for ( Module module : modules )
+        {
+            json.append( first ? "{" : ",{" );
+            first = false;
+
+            json.append( "\"module\":" );
+            ResolutionTrace.appendValue( json, module.id );
+            json.append( ",\"resolutions\":" ).append( module.json.size() );
+            json.append( ",\"cached\":" ).append( module.cached );
+            json.append( ",\"totalMs\":" ).append( module.totalMillis );
+            json.append( ",\"mavenMs\":" ).append( module.mavenMillis );
+            json.append( ",\"contributorMs\":{" );
+            boolean firstContributor = true;
+            for ( Map.Entry<String, Long> contributor : module.contributorMillis.entrySet() )
+            {
+                if ( !firstContributor )
+                {
+                    json.append( ',' );
+                }
+                firstContributor = false;
+                ResolutionTrace.appendValue( json, contributor.getKey() ).append( ':' ).append(
+                    contributor.getValue() );
+            }
+            json.append( "}}" );
+        }
+        return json.append( "]}" ).toString();
+    }
+
+    /**
+     * Writes the reports and logs the time each module spent resolving dependencies.
+     */
+    public synchronized void dispose()
+    {
+        if ( modules.isEmpty() )
+        {
+            return;
+        }
+        writeReports();
+        if ( !getLogger().isInfoEnabled() )
+        {
+            return;
+        }
+
+        for ( Module module : modules.values() )
+        {
+            getLogger().info(
+                "NPANDAY-176-002: Resolved dependencies of " + module.id + " " + module.json.size() + " time(s) in "
+                    + module.totalMillis + "ms"
+            );
+        }
+    }
+
+    private static void write( File file, String content )
+        throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if ( !parent.exists() && !parent.mkdirs() )
+        {
+            throw new IOException( "Could not create directory " + parent );
+        }
+
+        Writer writer = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * The resolutions of one module, rendered as they are recorded, so that they can be stored in a part.
+     */
+    private static class Module
+        implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        private File targetDirectory;
+
+        private final long firstRecorded = System.currentTimeMillis();
+
+        private boolean executionRoot;
+
+        private final List<String> json = new ArrayList<String>();
+
+        private final List<String> html = new ArrayList<String>();
+
+        private int cached;
+
+        private long totalMillis;
+
+        private long mavenMillis;
+
+        private final Map<String, Long> contributorMillis = new LinkedHashMap<String, Long>();
+
+        Module( String id, File targetDirectory )
+        {
+            this.id = id;
+            this.targetDirectory = targetDirectory;
+        }
+
+        void add( ResolutionTrace trace )
+        {
+            json.add( trace.toJson() );
+            StringBuilder fragment = new StringBuilder( 2048 );
+            trace.appendHtml( fragment );
+            html.add( fragment.toString() );
+
+            if ( trace.isCached() )
+            {
+                cached++;
+            }
+            totalMillis += Math.max( 0, trace.getTotalMillis() );
+            mavenMillis += Math.max( 0, trace.getMavenMillis() );
+            addContributorMillis( trace.getContributorMillis() );
+        }
+
+        void merge( Module other )
+        {
+            if ( targetDirectory == null )
+            {
+                targetDirectory = other.targetDirectory;
+            }
+            executionRoot |= other.executionRoot;
+            json.addAll( other.json );
+            html.addAll( other.html );
+            cached += other.cached;
+            totalMillis += other.totalMillis;
+            mavenMillis += other.mavenMillis;
+            addContributorMillis( other.contributorMillis );
+        }
+
+        private void addContributorMillis( Map<String, Long> millis )
+        {
+            for ( Map.Entry<String, Long> contributor : millis.entrySet() )
+            {
+                Long sum = contributorMillis.get( contributor.getKey() );
+                contributorMillis.put( contributor.getKey(), ( sum == null ? 0 : sum ) + contributor.getValue() );
+            }
+        }
+
+        String toJson()
+        {
+            StringBuilder json = new StringBuilder( this.json.size() * 1024 );
+            json.append( '[' );
+            for ( int i = 0; i < this.json.size(); i++ )
+            {
+                if ( i > 0 )
+                {
+                    json.append( ",\n" );
+                }
+                json.append( this.json.get( i ) );
+            }
+            return json.append( "]\n" ).toString();
+        }
+
+        String toHtml()
+        {
+            StringBuilder html = new StringBuilder( this.html.size() * 2048 );
+            html.append( "<html><head><meta charset=\"UTF-8\"><title>Dependency resolution of " ).append(
+                ResolutionTrace.escapeHtml( id ) ).append( "</title></head><body>\n" );
+            html.append( "<h1>Dependency resolution of " ).append( ResolutionTrace.escapeHtml( id ) ).append(
+                "</h1>\n" );
+            for ( String fragment : this.html )
+            {
+                html.append( fragment );
+            }
+            return html.append( "</body></html>\n" ).toString();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records where the time of one dependency resolution goes: the time spent in each contributor, in
+ * the Maven resolver and waiting for background contributions, the hits and misses of the
+ * {@link NPandayResolutionCache}, and the artifacts that were omitted from the tree.
+ * <p/>
+ * Contributors may report from several threads at once.
+ */
+public class ResolutionTrace
+{
+    private static final int MAX_EVENTS = 50;
+
+    private static final int MAX_SLOWEST_ARTIFACTS = 10;
+
+    private final String module;
+
+    private final String filter;
+
+    private final long started = System.currentTimeMillis();
+
+    private final long startedNanos = System.nanoTime();
+
+    private final Thread resolvingThread = Thread.currentThread();
+
+    private final ConcurrentMap<String, Timing> contributors = new ConcurrentHashMap<String, Timing>();
+
+    private final ConcurrentMap<String, AtomicLong> artifactNanos = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final AtomicLong inlineContributorNanos = new AtomicLong();
+
+    private final AtomicInteger included = new AtomicInteger();
+
+    private final AtomicInteger omittedForNearer = new AtomicInteger();
+
+    private final AtomicInteger omittedForCycle = new AtomicInteger();
+
+    private final List<String> events = Collections.synchronizedList( new ArrayList<String>() );
+
+    private volatile boolean cached;
+
+    private volatile long resolverNanos = -1;
+
+    private volatile long awaitNanos = -1;
+
+    private volatile long totalNanos = -1;
+
+    private volatile int artifacts = -1;
+
+    private volatile long cacheHits;
+
+    private volatile long cacheStoredHits;
+
+    private volatile long cacheMisses;
+
+    public ResolutionTrace( String module, String filter )
+    {
+        this.module = module;
+        this.filter = filter;
+    }
+
+    public String getModule()
+    {
+        return module;
+    }
+
+    /**
+     * Records one call of a contributor for an artifact.
+     *
+     * @param phase either <code>tryResolve</code> or <code>contribute</code>
+     */
+    public void contributorCalled( String contributor, String phase, Artifact artifact, long nanos )
+    {
+        String key = contributor + "." + phase;
+        Timing timing = contributors.get( key );
+        if ( timing == null )
+        {
+            contributors.putIfAbsent( key, new Timing() );
+            timing = contributors.get( key );
+        }
+        timing.calls.incrementAndGet();
+        timing.nanos.addAndGet( nanos );
+
+        AtomicLong perArtifact = artifactNanos.get( artifact.getId() );
+        if ( perArtifact == null )
+        {
+            artifactNanos.putIfAbsent( artifact.getId(), new AtomicLong() );
+            perArtifact = artifactNanos.get( artifact.getId() );
+        }
+        perArtifact.addAndGet( nanos );
+
+        if ( Thread.currentThread() == resolvingThread )
+        {
+            inlineContributorNanos.addAndGet( nanos );
+        }
+    }
+
+    public void artifactIncluded( Artifact artifact )
+    {
+        included.incrementAndGet();
+    }
+
+    public void omittedForNearer( Artifact omitted, Artifact kept )
+    {
+        omittedForNearer.incrementAndGet();
+        addEvent( "omitted " + omitted.getId() + " for nearer " + kept.getVersion() );
+    }
+
+    public void omittedForCycle( Artifact artifact )
+    {
+        omittedForCycle.incrementAndGet();
+        addEvent( "omitted " + artifact.getId() + " for cycle" );
+    }
+
+    private void addEvent( String event )
+    {
+        if ( events.size() < MAX_EVENTS )
+        {
+            events.add( event );
+        }
+    }
+
+    /**
+     * Marks this as served from the {@link ResolvedDependenciesCache}.
+     */
+    public void setCached( boolean cached )
+    {
+        this.cached = cached;
+    }
+
+    public boolean isCached()
+    {
+        return cached;
+    }
+
+    /**
+     * @param nanos time spent in the Maven resolver, including the contributors called inline
+     */
+    public void setResolverNanos( long nanos )
+    {
+        this.resolverNanos = nanos;
+    }
+
+    /**
+     * @param nanos time spent waiting for contributions running in the background
+     */
+    public void setAwaitNanos( long nanos )
+    {
+        this.awaitNanos = nanos;
+    }
+
+    /**
+     * Differences of the {@link NPandayResolutionCache} statistics during this resolution; they include
+     * lookups of modules resolving at the same time.
+     */
+    public void setCacheStatistics( long hits, long storedHits, long misses )
+    {
+        this.cacheHits = hits;
+        this.cacheStoredHits = storedHits;
+        this.cacheMisses = misses;
+    }
+
+    public void finish( int artifacts )
+    {
+        this.artifacts = artifacts;
+        this.totalNanos = System.nanoTime() - startedNanos;
+    }
+
+    public long getTotalMillis()
+    {
+        return toMillis( totalNanos );
+    }
+
+    /**
+     * @return the time of the Maven resolver without the contributors it called, or <code>-1</code> if unknown
+     */
+    public long getMavenMillis()
+    {
+        return resolverNanos < 0 ? -1 : toMillis( Math.max( 0, resolverNanos - inlineContributorNanos.get() ) );
+    }
+
+    /**
+     * @return the cumulated time of the contributors by <code>contributor.phase</code>
+     */
+    public Map<String, Long> getContributorMillis()
+    {
+        Map<String, Long> millis = new TreeMap<String, Long>();
+        for ( Map.Entry<String, Timing> entry : contributors.entrySet() )
+        {
+            millis.put( entry.getKey(), toMillis( entry.getValue().nanos.get() ) );
+        }
+        return millis;
+    }
+
+    public String toJson()
+    {
+        StringBuilder json = new StringBuilder( 1024 );
+        json.append( '{' );
+        appendString( json, "module", module ).append( ',' );
+        appendString( json, "filter", filter ).append( ',' );
+        json.append( "\"cached\":" ).append( cached ).append( ',' );
+        appendNumber( json, "started", started ).append( ',' );
+        appendNumber( json, "totalMs", getTotalMillis() ).append( ',' );
+        appendNumber( json, "mavenMs", getMavenMillis() ).append( ',' );
+        appendNumber( json, "awaitContributionsMs", toMillis( awaitNanos ) ).append( ',' );
+        appendNumber( json, "artifacts", artifacts ).append( ',' );
+        appendNumber( json, "included", included.get() ).append( ',' );
+        appendNumber( json, "omittedForNearer", omittedForNearer.get() ).append( ',' );
+        appendNumber( json, "omittedForCycle", omittedForCycle.get() ).append( ',' );
+
+        json.append( "\"cache\":{" );
+        appendNumber( json, "hits", cacheHits ).append( ',' );
+        appendNumber( json, "storedHits", cacheStoredHits ).append( ',' );
+        appendNumber( json, "misses", cacheMisses ).append( "}," );
+
+        json.append( "\"contributors\":[" );
+        boolean first = true;
+        for ( Map.Entry<String, Timing> entry : new TreeMap<String, Timing>( contributors ).entrySet() )
+        {
+            json.append( first ? "{" : ",{" );
+            first = false;
+            appendString( json, "name", entry.getKey() ).append( ',' );
+            appendNumber( json, "calls", entry.getValue().calls.get() ).append( ',' );
+            appendNumber( json, "totalMs", toMillis( entry.getValue().nanos.get() ) ).append( '}' );
+        }
+        json.append( "]," );
+
+        json.append( "\"slowestArtifacts\":[" );
+        first = true;
+        for ( Map.Entry<String, Long> entry : getSlowestArtifacts() )
+        {
+            json.append( first ? "{" : ",{" );
+            first = false;
+            appendString( json, "id", entry.getKey() ).append( ',' );
+            appendNumber( json, "contributorMs", toMillis( entry.getValue() ) ).append( '}' );
+        }
+        json.append( "]," );
+
+        json.append( "\"events\":[" );
+        first = true;
+        synchronized ( events )
+        {
+            for ( String event : events )
+            {
+                if ( !first )
+                {
+                    json.append( ',' );
+                }
+                first = false;
+                appendValue( json, event );
+            }
+        }
+        json.append( "]" );
+        return json.append( '}' ).toString();
+    }
+
+    /**
+     * Renders this resolution as a section of the HTML report.
+     */
+    public void appendHtml( StringBuilder html )
+    {
+        html.append( "<h2>" ).append( escapeHtml( filter ) ).append( cached ? " (cached)" : "" ).append( "</h2>\n" );
+        html.append( "<table>\n" );
+        appendRow( html, "Total", getTotalMillis() + " ms" );
+        appendRow( html, "Maven resolver", getMavenMillis() + " ms" );
+        appendRow( html, "Waiting for contributions", toMillis( awaitNanos ) + " ms" );
+        appendRow( html, "Artifacts", String.valueOf( artifacts ) );
+        appendRow( html, "Omitted for nearer / cycle", omittedForNearer.get() + " / " + omittedForCycle.get() );
+        appendRow(
+            html, "Cache hits / stored hits / misses", cacheHits + " / " + cacheStoredHits + " / " + cacheMisses );
+        for ( Map.Entry<String, Timing> entry : new TreeMap<String, Timing>( contributors ).entrySet() )
+        {
+            appendRow(
+                html, entry.getKey(),
+                entry.getValue().calls.get() + " calls, " + toMillis( entry.getValue().nanos.get() ) + " ms" );
+        }
+        for ( Map.Entry<String, Long> entry : getSlowestArtifacts() )
+        {
+            appendRow( html, entry.getKey(), toMillis( entry.getValue() ) + " ms in contributors" );
+        }
+        html.append( "</table>\n" );
+    }
+
+    private List<Map.Entry<String, Long>> getSlowestArtifacts()
+    {
+        Map<String, Long> snapshot = new TreeMap<String, Long>();
+        for ( Map.Entry<String, AtomicLong> entry : artifactNanos.entrySet() )
+        {
+            snapshot.put( entry.getKey(), entry.getValue().get() );
+        }
+
+        List<Map.Entry<String, Long>> slowest = new ArrayList<Map.Entry<String, Long>>( snapshot.entrySet() );
+        Collections.sort(
+            slowest, new Comparator<Map.Entry<String, Long>>()
+            {
+                public int compare( Map.Entry<String, Long> a, Map.Entry<String, Long> b )
+                {
+                    return b.getValue().compareTo( a.getValue() );
+                }
+            }
+        );
+        return slowest.size() > MAX_SLOWEST_ARTIFACTS ? slowest.subList( 0, MAX_SLOWEST_ARTIFACTS ) : slowest;
+    }
+
+    private static void appendRow( StringBuilder html, String name, String value )
+    {
+        html.append( "<tr><th>" ).append( escapeHtml( name ) ).append( "</th><td>" ).append(
+            escapeHtml( value ) ).append( "</td></tr>\n" );
+    }
+
+    static String escapeHtml( String value )
+    {
+        if ( value == null )
+        {
+            return "";
+        }
+        return value.replace( "&", "&amp;" ).replace( "<", "&lt;" ).replace( ">", "&gt;" ).replace( "\"", "&quot;" );
+    }
+
+    private static long toMillis( long nanos )
+    {
+        return nanos < 0 ? -1 : nanos / 1000000;
+    }
+
+    private static StringBuilder appendNumber( StringBuilder json, String name, long value )
+    {
+        return json.append( '"' ).append( name ).append( "\":" ).append( value );
+    }
+
+    private static StringBuilder appendString( StringBuilder json, String name, String value )
+    {
+        json.append( '"' ).append( name ).append( "\":" );
+        return appendValue( json, value );
+    }
+
+    static StringBuilder appendValue( StringBuilder json, String value )
+    {
+        if ( value == null )
+        {
+            return json.append( "null" );
+        }
+
+        json.append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                json.append( '\\' ).append( c );
+            }
+            else if ( c < 0x20 )
+            {
+                json.append( String.format( "\\u%04x", (int) c ) );
+            }
+            else
+            {
+                json.append( c );
+            }
+        }
+        return json.append( '"' );
+    }
+
+    private static class Timing
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicLong nanos = new AtomicLong();
+    }
+}
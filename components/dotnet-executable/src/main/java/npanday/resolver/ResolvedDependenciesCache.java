@@ -0,0 +1,338 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import npanday.InputFingerprint;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.AbstractLogEnabled;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the dependencies resolved for each project, so that the mojos of one module do not
+ * resolve the same dependencies over and over again. A resolution is reused for every later
+ * request with the same or a narrower filter, which then gets a filtered view of it.
+ * <p/>
+ * Resolutions of a project are dropped when its declared or managed dependencies, its repositories
+ * or the local repository change, when a resolved file disappears, or on {@link #invalidate}.
+ * Requests with filters that look at more than scope and type are never cached.
+ * <p/>
+ * The instance of this cache should span the full maven reactor build.
+ *
+ * @plexus.component role="npanday.resolver.ResolvedDependenciesCache"
+ */
+public class ResolvedDependenciesCache
+    extends AbstractLogEnabled
+{
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final ConcurrentMap<String, ProjectResolutions> projects =
+        new ConcurrentHashMap<String, ProjectResolutions>();
+
+    /**
+     * Looks for a resolution covering the filter.
+     *
+     * @return the cached resolution, or <code>null</code> if the dependencies have to be resolved.
+     */
+    public CachedResolution get( MavenProject project, ArtifactRepository localRepository, ArtifactFilter filter )
+    {
+        ArtifactFilterSignature signature = ArtifactFilterSignature.of( filter );
+        if ( signature == null )
+        {
+            return null;
+        }
+
+        ProjectResolutions resolutions = getResolutions( project, localRepository );
+        for ( Resolution resolution : resolutions.list )
+        {
+            if ( !resolution.signature.covers( signature ) )
+            {
+                continue;
+            }
+
+            if ( !resolution.isValid() )
+            {
+                getLogger().debug( "NPANDAY-148-011: Dropping resolution of " + project.getArtifact()
+                                       + " since resolved files are missing" );
+                resolutions.list.remove( resolution );
+                continue;
+            }
+
+            return new CachedResolution( resolution, filter );
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current generation of the resolutions for this project; must be obtained before
+     * resolving and passed to {@link #put}, so that a resolution started before an invalidation is
+     * not stored afterwards.
+     */
+    public long getGeneration( MavenProject project, ArtifactRepository localRepository )
+    {
+        return getResolutions( project, localRepository ).generation;
+    }
+
+    /**
+     * Stores a resolution, replacing all resolutions with narrower filters.
+     *
+     * @param artifacts           the resolved artifacts
+     * @param dependencyArtifacts the direct dependencies of the project after resolution
+     */
+    public void put( MavenProject project, ArtifactRepository localRepository, ArtifactFilter filter,
+                     long generation, Set<Artifact> artifacts, Set<Artifact> dependencyArtifacts )
+    {
+        put( project, localRepository, ArtifactFilterSignature.of( filter ), generation, artifacts,
+             dependencyArtifacts );
+    }
+
+    void put( MavenProject project, ArtifactRepository localRepository, ArtifactFilterSignature signature,
+              long generation, Set<Artifact> artifacts, Set<Artifact> dependencyArtifacts )
+    {
+        if ( signature == null )
+        {
+            return;
+        }
+
+        ProjectResolutions resolutions = getResolutions( project, localRepository );
+        if ( resolutions.generation != generation )
+        {
+            return;
+        }
+
+        Resolution resolution = new Resolution( signature, artifacts, dependencyArtifacts );
+        synchronized ( resolutions )
+        {
+            for ( Resolution existing : resolutions.list )
+            {
+                if ( existing.signature.covers( signature ) )
+                {
+                    return;
+                }
+            }
+            for ( Resolution existing : resolutions.list )
+            {
+                if ( signature.covers( existing.signature ) )
+                {
+                    resolutions.list.remove( existing );
+                }
+            }
+            resolutions.list.add( resolution );
+        }
+    }
+
+    /**
+     * Drops all resolutions of a project; to be called when its dependencies get changed.
+     */
+    public void invalidate( MavenProject project )
+    {
+        projects.remove( getKey( project ) );
+    }
+
+    /**
+     * Drops all resolutions.
+     */
+    public void clear()
+    {
+        projects.clear();
+    }
+
+    private ProjectResolutions getResolutions( MavenProject project, ArtifactRepository localRepository )
+    {
+        String key = getKey( project );
+        String inputs = describeInputs( project, localRepository );
+        while ( true )
+        {
+            ProjectResolutions resolutions = projects.get( key );
+            if ( resolutions != null && resolutions.inputs.equals( inputs ) )
+            {
+                return resolutions;
+            }
+
+            ProjectResolutions created = new ProjectResolutions( inputs );
+            if ( resolutions == null ? projects.putIfAbsent( key, created ) == null
+                : projects.replace( key, resolutions, created ) )
+            {
+                if ( resolutions != null )
+                {
+                    getLogger().debug( "NPANDAY-148-012: Dependencies of " + project.getArtifact()
+                                           + " changed; dropping cached resolutions" );
+                }
+                return created;
+            }
+        }
+    }
+
+    private static String getKey( MavenProject project )
+    {
+        return project.getId() + "@" + project.getBasedir();
+    }
+
+    /**
+     * @return a digest of everything the resolved dependencies of the project depend on, besides the
+     *         contents of the repositories.
+     */
+    static String describeInputs( MavenProject project, ArtifactRepository localRepository )
+    {
+        StringBuilder inputs = new StringBuilder();
+        List<?> dependencies = project.getDependencies();
+        if ( dependencies != null )
+        {
+            for ( Object o : dependencies )
+            {
+                Dependency dependency = (Dependency) o;
+                inputs.append( dependency.getManagementKey() ).append( ':' ).append( dependency.getClassifier() )
+                    .append( ':' ).append( dependency.getVersion() ).append( ':' ).append( dependency.getScope() )
+                    .append( ':' ).append( dependency.getSystemPath() ).append( ':' ).append( dependency.isOptional() );
+                for ( Object e : dependency.getExclusions() )
+                {
+                    Exclusion exclusion = (Exclusion) e;
+                    inputs.append( "!" ).append( exclusion.getGroupId() ).append( ':' ).append(
+                        exclusion.getArtifactId() );
+                }
+                inputs.append( '\n' );
+            }
+        }
+
+        Map<?, ?> managedVersions = project.getManagedVersionMap();
+        if ( managedVersions != null )
+        {
+            Map<String, String> sorted = new TreeMap<String, String>();
+            for ( Map.Entry<?, ?> entry : managedVersions.entrySet() )
+            {
+                Artifact managed = (Artifact) entry.getValue();
+                sorted.put( String.valueOf( entry.getKey() ), managed.getId() + ":" + managed.getScope() );
+            }
+            inputs.append( sorted ).append( '\n' );
+        }
+
+        List<?> repositories = project.getRemoteArtifactRepositories();
+        if ( repositories != null )
+        {
+            for ( Object o : repositories )
+            {
+                ArtifactRepository repository = (ArtifactRepository) o;
+                inputs.append( repository.getId() ).append( '=' ).append( repository.getUrl() ).append( '\n' );
+            }
+        }
+
+        if ( localRepository != null )
+        {
+            inputs.append( localRepository.getBasedir() );
+        }
+        return InputFingerprint.digest( inputs.toString() );
+    }
+
+    private static class ProjectResolutions
+    {
+        private final String inputs;
+
+        private final long generation = GENERATIONS.incrementAndGet();
+
+        private final List<Resolution> list = new CopyOnWriteArrayList<Resolution>();
+
+        ProjectResolutions( String inputs )
+        {
+            this.inputs = inputs;
+        }
+    }
+
+    private static class Resolution
+    {
+        private final ArtifactFilterSignature signature;
+
+        private final Set<Artifact> artifacts;
+
+        private final Set<Artifact> dependencyArtifacts;
+
+        Resolution( ArtifactFilterSignature signature, Set<Artifact> artifacts, Set<Artifact> dependencyArtifacts )
+        {
+            this.signature = signature;
+            this.artifacts = ImmutableSet.copyOf( artifacts );
+            this.dependencyArtifacts = ImmutableSet.copyOf( dependencyArtifacts );
+        }
+
+        boolean isValid()
+        {
+            for ( Artifact artifact : artifacts )
+            {
+                if ( artifact.getFile() != null && !artifact.getFile().exists() )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A cached resolution, filtered for one request.
+     */
+    public static class CachedResolution
+    {
+        private final Set<Artifact> artifacts;
+
+        private final Set<Artifact> dependencyArtifacts;
+
+        CachedResolution( Resolution resolution, ArtifactFilter filter )
+        {
+            Set<Artifact> view = Sets.newLinkedHashSet();
+            for ( Artifact artifact : resolution.artifacts )
+            {
+                if ( filter == null || filter.include( artifact ) )
+                {
+                    view.add( artifact );
+                }
+            }
+            artifacts = view;
+            dependencyArtifacts = resolution.dependencyArtifacts;
+        }
+
+        /**
+         * @return the resolved artifacts that pass the filter of the request.
+         */
+        public Set<Artifact> getArtifacts()
+        {
+            return artifacts;
+        }
+
+        /**
+         * @return the direct dependencies of the project, including those added during resolution.
+         */
+        public Set<Artifact> getDependencyArtifacts()
+        {
+            return dependencyArtifacts;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package npanday.resolver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import npanday.InputFingerprint;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary snapshot of the dependencies resolved for a module: coordinates, scope, type,
+ * file, size, modification time and digest of every artifact. It is written to the target directory
+ * after the dependencies were resolved, so that a later Maven invocation with unchanged dependencies
+ * can read it instead of resolving them again.
+ * <p/>
+ * A snapshot only applies to requests whose filter is covered by the one it was written for, and only
+ * as long as all files, and the POMs next to them, still have the recorded size and modification time.
+ * Snapshots containing SNAPSHOT versions are never used, since those may be updated remotely.
+ */
+public class ResolvedGraphSnapshot
+{
+    public static final String FILE_NAME = "npanday-resolved-graph.bin";
+
+    /**
+     * System property that turns the snapshots off if set to <code>false</code>.
+     */
+    public static final String PROPERTY = "npanday.resolvedGraphSnapshot";
+
+    private static final int MAGIC = 0x4E504752;
+
+    private static final int FORMAT = 2;
+
+    private static final int RESULT = 1;
+
+    private static final int DIRECT = 2;
+
+    private final String inputs;
+
+    private final String signature;
+
+    private final List<Entry> entries;
+
+    private ResolvedGraphSnapshot( String inputs, String signature, List<Entry> entries )
+    {
+        this.inputs = inputs;
+        this.signature = signature;
+        this.entries = entries;
+    }
+
+    public static boolean isEnabled()
+    {
+        return !"false".equals( System.getProperty( PROPERTY ) );
+    }
+
+    /**
+     * @return the digest of the dependency declarations this snapshot was resolved for.
+     */
+    public String getInputs()
+    {
+        return inputs;
+    }
+
+    ArtifactFilterSignature getSignature()
+    {
+        return ArtifactFilterSignature.decode( signature );
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return the SHA-1 digest of the artifact's file, as recorded when the snapshot was written;
+     *         <code>null</code> if unknown.
+     */
+    public String getDigest( Artifact artifact )
+    {
+        for ( Entry entry : entries )
+        {
+            if ( entry.matches( artifact ) )
+            {
+                return entry.digest;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return if this snapshot can answer a request of the filter for the dependency declarations.
+     */
+    boolean covers( String inputs, ArtifactFilterSignature requested )
+    {
+        ArtifactFilterSignature recorded = getSignature();
+        return this.inputs.equals( inputs ) && recorded != null && requested != null && recorded.covers( requested );
+    }
+
+    /**
+     * @return a description of the first file or POM that changed since the snapshot was written, or
+     *         <code>null</code> if none changed.
+     */
+    public String findChangedFile()
+    {
+        for ( Entry entry : entries )
+        {
+            if ( entry.path.length() == 0 )
+            {
+                continue;
+            }
+            File file = new File( entry.path );
+            if ( file.length() != entry.size || file.lastModified() != entry.lastModified )
+            {
+                return entry.path;
+            }
+            File pom = new File( entry.pomPath );
+            if ( pom.length() != entry.pomSize || pom.lastModified() != entry.pomLastModified )
+            {
+                return entry.pomPath;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the first SNAPSHOT version among the resolved artifacts, or <code>null</code> if there is none.
+     */
+    public String findSnapshotVersion()
+    {
+        for ( Entry entry : entries )
+        {
+            if ( ArtifactUtils.isSnapshot( entry.version ) )
+            {
+                return entry.groupId + ":" + entry.artifactId + ":" + entry.version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recreates the resolved artifacts.
+     *
+     * @param artifacts           receives the resolved artifacts
+     * @param dependencyArtifacts receives the direct dependencies of the project, including those added
+     *                            during resolution
+     */
+    public void restore( ArtifactFactory artifactFactory, Set<Artifact> artifacts, Set<Artifact> dependencyArtifacts )
+    {
+        for ( Entry entry : entries )
+        {
+            Artifact artifact = artifactFactory.createDependencyArtifact(
+                entry.groupId, entry.artifactId, VersionRange.createFromVersion( entry.version ), entry.type,
+                Strings.emptyToNull( entry.classifier ), Strings.emptyToNull( entry.scope )
+            );
+            if ( entry.path.length() > 0 )
+            {
+                artifact.setFile( new File( entry.path ) );
+                artifact.setResolved( true );
+            }
+            if ( ( entry.flags & RESULT ) != 0 )
+            {
+                artifacts.add( artifact );
+            }
+            if ( ( entry.flags & DIRECT ) != 0 )
+            {
+                dependencyArtifacts.add( artifact );
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot; digests are taken from the previous snapshot for files that did not change.
+     */
+    static void write( File file, String inputs, ArtifactFilterSignature signature, Set<Artifact> artifacts,
+                       Set<Artifact> dependencyArtifacts, ResolvedGraphSnapshot previous ) throws IOException
+    {
+        Map<String, Entry> previousEntries = new HashMap<String, Entry>();
+        if ( previous != null )
+        {
+            for ( Entry entry : previous.entries )
+            {
+                previousEntries.put( entry.path, entry );
+            }
+        }
+
+        Set<Artifact> all = new LinkedHashSet<Artifact>( artifacts );
+        all.addAll( dependencyArtifacts );
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if ( !parent.exists() && !parent.mkdirs() )
+        {
+            throw new IOException( "NPANDAY-178-000: Could not create directory " + parent );
+        }
+
+        File temp = new File( file.getPath() + ".tmp" );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT );
+            writeString( out, inputs );
+            writeString( out, signature.encode() );
+            out.writeInt( all.size() );
+            for ( Artifact artifact : all )
+            {
+                int flags = ( artifacts.contains( artifact ) ? RESULT : 0 )
+                    | ( dependencyArtifacts.contains( artifact ) ? DIRECT : 0 );
+                File artifactFile = artifact.isResolved() ? artifact.getFile() : null;
+                String path = artifactFile == null ? "" : artifactFile.getAbsolutePath();
+                long size = artifactFile == null ? 0 : artifactFile.length();
+                long lastModified = artifactFile == null ? 0 : artifactFile.lastModified();
+                File pom = artifactFile == null ? null : getPomFile( artifact, artifactFile );
+
+                String digest = "";
+                if ( artifactFile != null && artifactFile.isFile() )
+                {
+                    Entry earlier = previousEntries.get( path );
+                    digest = earlier != null && earlier.size == size && earlier.lastModified == lastModified
+                        ? earlier.digest
+                        : InputFingerprint.digest( artifactFile );
+                }
+
+                out.writeByte( flags );
+                writeString( out, artifact.getGroupId() );
+                writeString( out, artifact.getArtifactId() );
+                writeString( out, artifact.getVersion() );
+                writeString( out, artifact.getType() );
+                writeString( out, artifact.getClassifier() );
+                writeString( out, artifact.getScope() );
+                writeString( out, path );
+                out.writeLong( size );
+                out.writeLong( lastModified );
+                writeString( out, digest );
+                writeString( out, pom == null ? "" : pom.getAbsolutePath() );
+                out.writeLong( pom == null ? 0 : pom.length() );
+                out.writeLong( pom == null ? 0 : pom.lastModified() );
+            }
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+
+        if ( ( file.exists() && !file.delete() ) || !temp.renameTo( file ) )
+        {
+            temp.delete();
+            throw new IOException( "NPANDAY-178-001: Could not replace " + file );
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @return the snapshot, or <code>null</code> if there is none or it can't be read.
+     */
+    static ResolvedGraphSnapshot read( File file )
+    {
+        if ( file == null || !file.isFile() )
+        {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate( (int) channel.size() );
+            while ( buffer.hasRemaining() && channel.read( buffer ) >= 0 )
+            {
+                // read all
+            }
+            buffer.flip();
+
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != FORMAT )
+            {
+                return null;
+            }
+            String inputs = readString( buffer );
+            String signature = readString( buffer );
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<Entry>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                entries.add(
+                    new Entry(
+                        buffer.get(), readString( buffer ), readString( buffer ), readString( buffer ),
+                        readString( buffer ), readString( buffer ), readString( buffer ), readString( buffer ),
+                        buffer.getLong(), buffer.getLong(), readString( buffer ), readString( buffer ),
+                        buffer.getLong(), buffer.getLong()
+                    )
+                );
+            }
+            return new ResolvedGraphSnapshot( inputs, signature, Collections.unmodifiableList( entries ) );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        catch ( RuntimeException e )
+        {
+            // truncated or corrupt
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Returns the POM that declared the dependencies of the artifact, found next to it in the local
+     * repository; it may not exist, for example for artifacts from the GAC.
+     */
+    private static File getPomFile( Artifact artifact, File artifactFile )
+    {
+        return new File( artifactFile.getParentFile(), artifact.getArtifactId() + "-" + artifact.getVersion() + ".pom" );
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException
+    {
+        byte[] bytes = ( value == null ? "" : value ).getBytes( Charsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    private static String readString( ByteBuffer buffer )
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get( bytes );
+        return new String( bytes, Charsets.UTF_8 );
+    }
+
+    private static class Entry
+    {
+        private final int flags;
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final String version;
+
+        private final String type;
+
+        private final String classifier;
+
+        private final String scope;
+
+        private final String path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String digest;
+
+        private final String pomPath;
+
+        private final long pomSize;
+
+        private final long pomLastModified;
+
+        Entry( int flags, String groupId, String artifactId, String version, String type, String classifier,
+               String scope, String path, long size, long lastModified, String digest, String pomPath, long pomSize,
+               long pomLastModified )
+        {
+            this.flags = flags;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.type = type;
+            this.classifier = classifier;
+            this.scope = scope;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = Strings.emptyToNull( digest );
+            this.pomPath = pomPath;
+            this.pomSize = pomSize;
+            this.pomLastModified = pomLastModified;
+        }
+
+        boolean matches( Artifact artifact )
+        {
+            return groupId.equals( artifact.getGroupId() ) && artifactId.equals( artifact.getArtifactId() )
+                && type.equals( artifact.getType() ) && version.equals( artifact.getVersion() )
+                && classifier.equals( Strings.nullToEmpty( artifact.getClassifier() ) );
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -54,6 +55,11 @@ public class OrArtifactFilter
         filters.add( artifactFilter );
     }
 
+    public List getFilters()
+    {
+        return Collections.unmodifiableList( filters );
+    }
+
     @Override
     public String toString() {
         return "Or{" + filters + '}';
@@ -20,16 +20,22 @@
 package npanday.resolver.resolvers;
 
 import npanday.ArtifactTypeHelper;
+import npanday.InputFingerprint;
+import npanday.PlatformUnsupportedException;
+import npanday.executable.CapabilityMatcher;
+import npanday.executable.ExecutableCapability;
 import npanday.executable.ExecutableRequirement;
 import npanday.executable.ExecutionResult;
 import npanday.executable.NetExecutable;
 import npanday.executable.NetExecutableFactory;
 import npanday.resolver.ArtifactResolvingContributor;
 import npanday.resolver.NPandayResolutionCache;
+import npanday.vendor.VendorInfo;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.Os;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -42,6 +48,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author <a href="mailto:me@lcorneliussen.de>Lars Corneliussen, Faktum Software</a>
@@ -51,12 +59,21 @@ public class ComReferenceResolver
     extends AbstractLogEnabled
     implements ArtifactResolvingContributor
 {
+    private static final String INTEROP_DIRECTORY = "interop";
+
+    private static final String TEMP_PREFIX = "interop-dll-";
+
+    private static final String KEYFILE_SWITCH = "/keyfile:";
+
     /** @plexus.requirement */
     NPandayResolutionCache cache;
 
     /** @plexus.requirement */
     protected NetExecutableFactory netExecutableFactory;
 
+    /** @plexus.requirement */
+    protected CapabilityMatcher capabilityMatcher;
+
     public void contribute(Artifact artifact, ArtifactRepository localRepository, List remoteRepositories,
                            Set<Artifact> additionalDependenciesCollector, ArtifactFilter filter)
 	{
@@ -67,103 +84,197 @@ public class ComReferenceResolver
     {
         // resolve com reference
         // flow:
-        // 1. generate the interop dll in temp folder and resolve to that path during dependency resolution
-        // 2. cut and paste the dll to buildDirectory and update the paths once we grab the reference of
+        // 1. generate the interop dll in temp folder (or reuse the one kept by an earlier build) and resolve to
+        //    that path during dependency resolution
+        // 2. stage the dll into the buildDirectory and update the paths once we grab the reference of
         // MavenProject (CompilerContext.java)
         if ( ArtifactTypeHelper.isComReference(artifact.getType()) )
         {
-            if (cache.applyTo(artifact)){
-                return;
-            }
-
-            String tokenId = artifact.getClassifier();
-            String interopPath;
+            final String name = artifact.getArtifactId();
+            final String tokenId = artifact.getClassifier();
+            final String id = artifact.getId();
             try
             {
-                interopPath = generateInteropDll( artifact.getArtifactId(), tokenId );
-            }
-            catch ( IOException e )
-            {
-                getLogger().error(
-                    "NPANDAY-150-002: Error creating interop dll for " + artifact.getId()
-                );
-                return;
-            }
+                // concurrent builds referencing the same component wait for the first one; failures are not cached
+                cache.resolve( artifact, null, new Callable<File>()
+                {
+                    public File call() throws IOException
+                    {
+                        String interopPath;
+                        try
+                        {
+                            interopPath = generateInteropDll( name, tokenId );
+                        }
+                        catch ( IOException e )
+                        {
+                            throw new IOException( "NPANDAY-150-002: Error creating interop dll for " + id );
+                        }
 
-            File f = new File( interopPath );
+                        File f = new File( interopPath );
 
-            if ( !f.exists() )
+                        if ( !f.exists() )
+                        {
+                            throw new IOException(
+                                "NPANDAY-150-001: Dependency com_reference File not found:" + interopPath + " for " + id
+                            );
+                        }
+                        return f;
+                    }
+                } );
+            }
+            catch ( ExecutionException e )
             {
-                getLogger().error(
-                    "NPANDAY-150-001: Dependency com_reference File not found:" + interopPath + " for " + artifact.getId()
-                );
-                return;
+                getLogger().error( e.getCause().getMessage() );
             }
-
-            artifact.setFile( f );
-            artifact.setResolved( true );
-            cache.put(artifact);
         }
     }
 
     private String generateInteropDll( String name, String classifier )
         throws IOException
     {
+        String comReferenceAbsolutePath = "";
+        try
+        {
+            comReferenceAbsolutePath = resolveComReferencePath( name, classifier );
+        }
+        catch ( Exception e )
+        {
+            throw new IOException( e.getMessage() );
+        }
+
+        List<String> params = getInteropParameters( comReferenceAbsolutePath, name );
+        String interopFileName = "Interop." + name + ".dll";
+
+        // interop dlls generated by earlier builds are kept below the local repository, shared by all
+        // modules referencing the same type library
+        File storeDirectory = null;
+        if ( cache.getDirectory() != null )
+        {
+            storeDirectory = new File(
+                cache.getDirectory(), INTEROP_DIRECTORY + File.separator + fingerprint(
+                comReferenceAbsolutePath, classifier, getTlbimpIdentity(), params
+            ) );
+            File stored = new File( storeDirectory, interopFileName );
+            if ( stored.isFile() )
+            {
+                getLogger().debug( "NPANDAY-150-003: Reusing " + stored + " for " + comReferenceAbsolutePath );
+                return stored.getAbsolutePath();
+            }
+        }
 
         File tmpDir;
-        String comReferenceAbsolutePath = "";
         try
         {
-            tmpDir = getTempDirectory();
+            tmpDir = getTempDirectory( storeDirectory == null ? null : storeDirectory.getParentFile() );
         }
         catch ( IOException e )
         {
             throw new IOException( "Unable to create temporary directory" );
         }
 
+        String interopAbsolutePath = tmpDir.getAbsolutePath() + File.separator + interopFileName;
+        params.add( 1, "/out:" + interopAbsolutePath );
+
         try
         {
-            comReferenceAbsolutePath = resolveComReferencePath( name, classifier );
+            final NetExecutable executable = netExecutableFactory.getExecutable( newTlbimpRequirement(), params, null );
+            executable.execute();
         }
         catch ( Exception e )
         {
             throw new IOException( e.getMessage() );
         }
 
-        String interopAbsolutePath = tmpDir.getAbsolutePath() + File.separator + "Interop." + name + ".dll";
-        List<String> params = getInteropParameters( interopAbsolutePath, comReferenceAbsolutePath, name );
+        if ( storeDirectory != null && new File( interopAbsolutePath ).isFile() )
+        {
+            // a concurrent build might have stored the same interop dll in the meantime
+            if ( tmpDir.renameTo( storeDirectory ) || new File( storeDirectory, interopFileName ).isFile() )
+            {
+                FileUtils.deleteDirectory( tmpDir );
+                return new File( storeDirectory, interopFileName ).getAbsolutePath();
+            }
+        }
+
+        return interopAbsolutePath;
+    }
+
+    /**
+     * Interop dlls in temporary directories are moved to the build directory, while those kept for later
+     * builds must stay where they are.
+     */
+    public static boolean isTemporary( File interopFile )
+    {
+        return interopFile.getParentFile().getName().startsWith( TEMP_PREFIX );
+    }
+
+    /**
+     * Identifies the type library by path and timestamp, the reference by its classifier token, and
+     * the TLBIMP used to generate the interop dll by vendor, versions and location.
+     */
+    private static String fingerprint( String comReferenceAbsolutePath, String classifier, String tlbimp,
+                                       List<String> params )
+    {
+        StringBuilder fingerprint = new StringBuilder();
+        File typeLibrary = new File( comReferenceAbsolutePath );
+        fingerprint.append( comReferenceAbsolutePath ).append( '|' ).append(
+            typeLibrary.isFile() ? NPandayResolutionCache.stamp( typeLibrary ) : "" );
+        fingerprint.append( '|' ).append( classifier ).append( '|' ).append( tlbimp );
+        for ( String param : params )
+        {
+            fingerprint.append( '|' ).append( param );
+            if ( param.startsWith( KEYFILE_SWITCH ) )
+            {
+                File keyfile = new File( param.substring( KEYFILE_SWITCH.length() ) );
+                fingerprint.append( ':' ).append( keyfile.isFile() ? NPandayResolutionCache.stamp( keyfile ) : "" );
+            }
+        }
+        return InputFingerprint.digest( fingerprint.toString() );
+    }
 
+    private String getTlbimpIdentity()
+        throws IOException
+    {
+        ExecutableCapability capability;
         try
         {
-            final NetExecutable executable = netExecutableFactory.getExecutable(
-                    new ExecutableRequirement( "MICROSOFT", null, null, "TLBIMP" ), params, null
-            );
-            executable.execute();
+            capability = capabilityMatcher.matchExecutableCapabilityFor( newTlbimpRequirement() );
         }
-        catch ( Exception e )
+        catch ( PlatformUnsupportedException e )
         {
             throw new IOException( e.getMessage() );
         }
 
-        return interopAbsolutePath;
+        VendorInfo vendorInfo = capability.getVendorInfo();
+        return capability.getIdentifier() + ':' + capability.getExecutableVersion() + ':' + (
+            vendorInfo == null
+                ? ""
+                : vendorInfo.getVendor() + ":" + vendorInfo.getVendorVersion() + ":" + vendorInfo.getFrameworkVersion()
+                    + ":" + vendorInfo.getExecutablePaths() );
+    }
+
+    private static ExecutableRequirement newTlbimpRequirement()
+    {
+        return new ExecutableRequirement( "MICROSOFT", null, null, "TLBIMP" );
     }
 
-    private File getTempDirectory()
+    private File getTempDirectory( File parent )
         throws IOException
     {
-        File tempFile = File.createTempFile( "interop-dll-", "" );
+        if ( parent != null && !parent.exists() )
+        {
+            parent.mkdirs();
+        }
+        File tempFile = File.createTempFile( TEMP_PREFIX, "", parent );
         File tmpDir = new File( tempFile.getParentFile(), tempFile.getName() );
         tempFile.delete();
         tmpDir.mkdir();
         return tmpDir;
     }
 
-    private List<String> getInteropParameters( String interopAbsolutePath, String comRerefenceAbsolutePath,
-                                               String namespace )
+    private List<String> getInteropParameters( String comRerefenceAbsolutePath, String namespace )
     {
         List<String> parameters = new ArrayList<String>();
         parameters.add( comRerefenceAbsolutePath );
-        parameters.add( "/out:" + interopAbsolutePath );
         parameters.add( "/namespace:" + namespace );
         try
         {
@@ -220,7 +331,7 @@ public class ComReferenceResolver
             if ( key != "" )
             {
                 keyfile = currentWorkingDir + File.separator + key;
-                parameters.add( "/keyfile:" + keyfile );
+                parameters.add( KEYFILE_SWITCH + keyfile );
             }
             // end code for checking of strong name key or signing of projects
         }
@@ -20,8 +20,8 @@
 package npanday.resolver.resolvers;
 
 import npanday.ArtifactTypeHelper;
-import npanday.PathUtil;
 import npanday.resolver.ArtifactResolvingContributor;
+import npanday.resolver.GacIndex;
 import npanday.resolver.NPandayResolutionCache;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -31,6 +31,8 @@ import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author <a href="mailto:me@lcorneliussen.de>Lars Corneliussen, Faktum Software</a>
@@ -42,42 +44,44 @@ public class GacResolver
     /** @plexus.requirement */
     NPandayResolutionCache cache;
 
-    public void tryResolve(Artifact artifact, Set<Artifact> additionalDependenciesCollector, ArtifactFilter filter) throws
+    /** @plexus.requirement */
+    GacIndex gacIndex;
+
+    public void tryResolve(final Artifact artifact, Set<Artifact> additionalDependenciesCollector, ArtifactFilter filter) throws
         ArtifactNotFoundException
     {
 
-        File artifactFile = null;
         String artifactType = artifact.getType();
 
         if ( ArtifactTypeHelper.isDotnetAnyGac( artifactType ) )
         {
-            if (cache.applyTo(artifact)){
-                return;
-            }
-
-            if ( !ArtifactTypeHelper.isDotnet4Gac( artifactType ) )
-            {
-                artifactFile = PathUtil.getGlobalAssemblyCacheFileFor(
-                    artifact, new File( "C:\\WINDOWS\\assembly\\" )
-                );
-            }
-            else
-            {
-                artifactFile = PathUtil.getGACFile4Artifact( artifact );
-            }
-
-            if ( artifactFile.exists() )
+            try
             {
-                artifact.setFile( artifactFile );
-                artifact.setResolved( true );
-                cache.put(artifact);
+                // missing assemblies are not cached, they might get installed any time
+                cache.resolve( artifact, "gac:" + gacIndex.getRoots(), new Callable<File>()
+                {
+                    public File call() throws ArtifactNotFoundException
+                    {
+                        File artifactFile = gacIndex.find( artifact );
+                        if ( artifactFile == null )
+                        {
+                            throw new ArtifactNotFoundException(
+                                "NPANDAY-158-001: Could not resolve gac-dependency " + artifact + ", "
+                                    + gacIndex.describe( artifact ),
+                                artifact
+                            );
+                        }
+                        return artifactFile;
+                    }
+                } );
             }
-            else
+            catch ( ExecutionException e )
             {
-                throw new ArtifactNotFoundException(
-                    "NPANDAY-158-001: Could not resolve gac-dependency " + artifact + ", tried " + artifactFile,
-                    artifact
-                );
+                if ( e.getCause() instanceof ArtifactNotFoundException )
+                {
+                    throw (ArtifactNotFoundException) e.getCause();
+                }
+                throw new ArtifactNotFoundException( e.getCause().getMessage(), artifact );
             }
         }
 
@@ -1,7 +1,10 @@
 package npanday.resolver.resolvers;
 
+import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import npanday.resolver.NPandayResolutionCache;
 import org.apache.maven.artifact.Artifact;
@@ -69,10 +72,10 @@ public class PdbAssemblyResolver extends AbstractLogEnabled implements ArtifactR
      * @param filter
      * @throws ArtifactNotFoundException
      */
-    private void tryResolveArtifactPdbAssembly(Artifact artifact, ArtifactRepository localRepository,
-                                               List remoteRepositories, Set<Artifact> additionalDependenciesCollector, ArtifactFilter filter) throws ArtifactNotFoundException
+    private void tryResolveArtifactPdbAssembly(final Artifact artifact, final ArtifactRepository localRepository,
+                                               final List remoteRepositories, Set<Artifact> additionalDependenciesCollector, ArtifactFilter filter) throws ArtifactNotFoundException
     {
-        Artifact pdbArtifact = artifactFactory.createArtifactWithClassifier(artifact.getGroupId(), artifact.getArtifactId(), 
+        final Artifact pdbArtifact = artifactFactory.createArtifactWithClassifier(artifact.getGroupId(), artifact.getArtifactId(), 
                 artifact.getVersion(), ArtifactType.DOTNET_SYMBOLS.getPackagingType(), artifact.getClassifier());
         pdbArtifact.setScope(artifact.getScope());
         pdbArtifact.setRelease(artifact.isRelease());
@@ -83,21 +86,31 @@ public class PdbAssemblyResolver extends AbstractLogEnabled implements ArtifactR
             return;
         }
 
-        Boolean wasCached = cache.applyTo(pdbArtifact);
-        if (!wasCached) {
-            try {
-                mavenResolver.resolve(pdbArtifact, remoteRepositories, localRepository);
-                // the complimentary artifact should have the same scope as the leading one
-                getLogger().debug("NPANDAY-157-001: found a pdb for " + artifact.getId());
+        // a changed assembly may come with a pdb that could not be found before
+        String fingerprint = artifact.getFile() != null && artifact.getFile().isFile()
+            ? NPandayResolutionCache.stamp( artifact.getFile() )
+            : artifact.getVersion();
+        try {
+            // concurrent builds looking for the same pdb wait for the first one
+            cache.resolve(pdbArtifact, fingerprint, new Callable<File>()
+            {
+                public File call() throws ArtifactResolutionException
+                {
+                    try {
+                        mavenResolver.resolve(pdbArtifact, remoteRepositories, localRepository);
+                        // the complimentary artifact should have the same scope as the leading one
+                        getLogger().debug("NPANDAY-157-001: found a pdb for " + artifact.getId());
 
-            } catch (ArtifactNotFoundException e) {
-                getLogger().debug("NPANDAY-157-002: no pdb found for " + artifact.getId());
-            } catch (ArtifactResolutionException e) {
-                throw new ArtifactNotFoundException(e.getMessage(), artifact);
-            }
-
-            cache.put(pdbArtifact);
+                    } catch (ArtifactNotFoundException e) {
+                        getLogger().debug("NPANDAY-157-002: no pdb found for " + artifact.getId());
+                    }
+                    return pdbArtifact.isResolved() ? pdbArtifact.getFile() : null;
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new ArtifactNotFoundException(e.getCause().getMessage(), artifact);
         }
+
         if (pdbArtifact.isResolved()){
             additionalDependenciesCollector.add(pdbArtifact);
         }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable
+
+import npanday.executable.execution.UnifiedShellCommandExecutor
+import npanday.executable.execution.quoting.CustomSwitchAwareQuotingStrategy
+import npanday.vendor.Vendor
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.codehaus.plexus.util.Os
+import org.junit.After
+import org.junit.Test
+import static org.junit.Assert.*
+
+class ExecutionReportTest
+{
+    Logger logger = new ConsoleLogger( Logger.LEVEL_INFO, "test" )
+
+    File targetDirectory = new File( "target/test-resources/execution-report-test" )
+
+    @After
+    void tearDown()
+    {
+        System.clearProperty( "npanday.executionReport" )
+        targetDirectory.deleteDir()
+    }
+
+    @Test
+    void formatsMetricsAsJson()
+    {
+        def metrics = new ExecutionMetrics( "/opt/mono/bin/mcs" )
+        metrics.module = 'My "Module".dll'
+        metrics.exitCode = 0
+        metrics.wallTime = 42
+
+        def json = metrics.toJson()
+        assertTrue( json.startsWith( '{"executable":"mcs","vendor":null,"frameworkVersion":null,' ) )
+        assertTrue( json.contains( '"module":"My \\"Module\\".dll"' ) )
+        assertTrue( json.contains( '"wallTimeMs":42,"exitCode":0,' ) )
+        assertTrue( json.endsWith( '"peakRssKb":-1,"cpuTimeMs":-1}' ) )
+    }
+
+    @Test
+    void recordsTaggedExecutions()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def cmd = new UnifiedShellCommandExecutor( new CustomSwitchAwareQuotingStrategy() )
+        cmd.executeCommand( "echo", ["hello"] )
+
+        def metrics = cmd.metrics
+        assertEquals( "echo", metrics.executable )
+        assertEquals( 0, metrics.exitCode )
+        assertEquals( 6, metrics.outputChars )
+        assertTrue( metrics.wallTime >= 0 )
+
+        ExecutionReport.record( cmd, Vendor.MICROSOFT, "4.0", "Module.dll", targetDirectory, logger )
+        ExecutionReport.record( cmd, Vendor.MICROSOFT, "4.0", "Module.dll", targetDirectory, logger )
+
+        def lines = new File( targetDirectory, ExecutionReport.FILE_NAME ).readLines()
+        assertEquals( 2, lines.size() )
+        assertTrue( lines[0].contains( '"vendor":"MICROSOFT","frameworkVersion":"4.0","module":"Module.dll"' ) )
+    }
+
+    @Test
+    void samplesProcessesWhereProcIsAvailable()
+    {
+        if ( !new File( "/proc/self/stat" ).isFile() ) return;
+
+        def cmd = new UnifiedShellCommandExecutor( new CustomSwitchAwareQuotingStrategy() )
+        cmd.executeCommand( "sleep", ["0.3"] )
+
+        assertTrue( cmd.metrics.peakResidentKilobytes > 0 )
+        assertTrue( cmd.metrics.cpuTime >= 0 )
+    }
+
+    @Test
+    void samplesChildrenInsteadOfTheWrappingShell()
+    {
+        if ( !new File( "/proc/self/stat" ).isFile() ) return;
+
+        targetDirectory.mkdirs()
+        def script = new File( targetDirectory, "busy.sh" )
+        // the loop and the memory run in forked subshells, the script itself hardly uses any of them
+        script.text = 'i=0\n( while [ $i -lt 300000 ]; do i=$((i+1)); done )\n' +
+            '( x=$(head -c 30000000 /dev/zero | tr "\\000" a); sleep 0.5 )\necho done\n'
+
+        def cmd = new UnifiedShellCommandExecutor( new CustomSwitchAwareQuotingStrategy() )
+        cmd.executeCommand( "sh", [script.absolutePath] )
+
+        assertTrue( "peak rss " + cmd.metrics.peakResidentKilobytes, cmd.metrics.peakResidentKilobytes > 20000 )
+        assertTrue( "cpu time " + cmd.metrics.cpuTime, cmd.metrics.cpuTime >= 100 )
+    }
+
+    @Test
+    void reportCanBeRedirectedOrTurnedOff()
+    {
+        def single = new File( targetDirectory, "build.jsonl" )
+        System.setProperty( "npanday.executionReport", single.path )
+        ExecutionReport.record( new ExecutionMetrics( "csc" ), null, logger )
+        assertTrue( single.isFile() )
+
+        System.setProperty( "npanday.executionReport", "false" )
+        ExecutionReport.record( new ExecutionMetrics( "csc" ), targetDirectory, logger )
+        assertFalse( new File( targetDirectory, ExecutionReport.FILE_NAME ).exists() )
+    }
+}
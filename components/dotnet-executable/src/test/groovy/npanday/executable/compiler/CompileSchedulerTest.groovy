@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.compiler
+
+import npanday.executable.ExecutionException
+import npanday.executable.NetExecutable
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.Before
+import org.junit.Test
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static org.junit.Assert.*
+
+class CompileSchedulerTest
+{
+    CompileScheduler scheduler = new CompileScheduler()
+
+    @Before
+    void setUp()
+    {
+        scheduler.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "scheduler" ) )
+    }
+
+    @Test
+    void compilesIndependentUnitsConcurrently()
+    {
+        def units = [new CompileScheduler.Unit( "a" ), new CompileScheduler.Unit( "b" ), new CompileScheduler.Unit( "c" )]
+        def allStarted = new CountDownLatch( 3 )
+
+        scheduler.run( units, 3, planner {
+            allStarted.countDown()
+            assertTrue( "compiles did not overlap", allStarted.await( 10, TimeUnit.SECONDS ) )
+        } )
+
+        units.each { assertEquals( CompileScheduler.State.COMPILED, it.state ) }
+    }
+
+    @Test
+    void plansDependentsAfterTheirUpstreamCompiled()
+    {
+        def a = new CompileScheduler.Unit( "a" )
+        def b = new CompileScheduler.Unit( "b" )
+        b.dependsOn( a )
+        def statesOfA = []
+
+        scheduler.run( [b, a], 2, [plan: { unit ->
+            if ( unit == b )
+            {
+                statesOfA << a.state
+            }
+            scheduler.submit( [execute: { Thread.sleep( 50 ); null }] as NetExecutable )
+        }] as CompileScheduler.Planner )
+
+        assertEquals( [CompileScheduler.State.COMPILED], statesOfA )
+        assertEquals( CompileScheduler.State.COMPILED, b.state )
+    }
+
+    @Test
+    void unitsWithoutCompileAreUpToDate()
+    {
+        def a = new CompileScheduler.Unit( "a" )
+        def b = new CompileScheduler.Unit( "b" )
+        b.dependsOn( a )
+
+        scheduler.run( [a, b], 2, [plan: { unit -> }] as CompileScheduler.Planner )
+
+        assertEquals( CompileScheduler.State.UP_TO_DATE, a.state )
+        assertEquals( CompileScheduler.State.UP_TO_DATE, b.state )
+    }
+
+    @Test
+    void skipsDependentsOfFailedUnits()
+    {
+        def a = new CompileScheduler.Unit( "a" )
+        def b = new CompileScheduler.Unit( "b" )
+        def c = new CompileScheduler.Unit( "c" )
+        b.dependsOn( a )
+
+        try
+        {
+            scheduler.run( [a, b, c], 2, [plan: { unit ->
+                scheduler.submit( [execute: {
+                    if ( unit == a ) throw new ExecutionException( "broken" )
+                    null
+                }] as NetExecutable )
+            }] as CompileScheduler.Planner )
+            fail( "expected failure" )
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.message, e.message.contains( "[a]" ) )
+        }
+
+        assertEquals( CompileScheduler.State.FAILED, a.state )
+        assertEquals( CompileScheduler.State.SKIPPED, b.state )
+        assertEquals( CompileScheduler.State.COMPILED, c.state )
+    }
+
+    @Test
+    void honorsTheConcurrencyCap()
+    {
+        def units = (1..4).collect { new CompileScheduler.Unit( "u" + it ) }
+        def current = new AtomicInteger()
+        def maximum = new AtomicInteger()
+
+        scheduler.run( units, 2, planner {
+            int now = current.incrementAndGet()
+            synchronized ( maximum )
+            {
+                maximum.set( Math.max( maximum.get(), now ) )
+            }
+            Thread.sleep( 50 )
+            current.decrementAndGet()
+        } )
+
+        assertEquals( 2, maximum.get() )
+    }
+
+    private CompileScheduler.Planner planner( Closure compile )
+    {
+        return [plan: { unit -> scheduler.submit( [execute: { compile(); null }] as NetExecutable ) }] as CompileScheduler.Planner
+    }
+}
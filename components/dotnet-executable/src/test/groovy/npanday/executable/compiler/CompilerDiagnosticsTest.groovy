@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.compiler
+
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.Test
+
+import static npanday.executable.compiler.CompilerDiagnostic.Severity.ERROR
+import static npanday.executable.compiler.CompilerDiagnostic.Severity.FATAL
+import static npanday.executable.compiler.CompilerDiagnostic.Severity.WARNING
+
+class CompilerDiagnosticsTest
+{
+    Logger logger = new ConsoleLogger(Logger.LEVEL_ERROR, "test")
+
+    @Test
+    void parsesCscError()
+    {
+        def diagnostic = CompilerDiagnostic.parse('C:\\src\\Program.cs(12,5): error CS1002: ; expected')
+
+        assert diagnostic.file == 'C:\\src\\Program.cs'
+        assert diagnostic.line == 12
+        assert diagnostic.column == 5
+        assert diagnostic.code == 'CS1002'
+        assert diagnostic.severity == ERROR
+        assert diagnostic.message == '; expected'
+    }
+
+    @Test
+    void parsesVbcWarningWithoutColumn()
+    {
+        def diagnostic = CompilerDiagnostic.parse("Module.vb(3) : warning BC42024: Unused local variable: 'x'.")
+
+        assert diagnostic.file == 'Module.vb'
+        assert diagnostic.line == 3
+        assert diagnostic.column == 0
+        assert diagnostic.code == 'BC42024'
+        assert diagnostic.severity == WARNING
+    }
+
+    @Test
+    void parsesDiagnosticsWithoutLocation()
+    {
+        def error = CompilerDiagnostic.parse("error CS2001: Source file 'Missing.cs' could not be found")
+        assert error.file == null
+        assert error.severity == ERROR
+        assert error.toString() == "error CS2001: Source file 'Missing.cs' could not be found"
+
+        def fatal = CompilerDiagnostic.parse('fatal error CS2008: No inputs specified')
+        assert fatal.severity == FATAL
+        assert fatal.isError()
+        assert fatal.isFatal()
+    }
+
+    @Test
+    void recognizesFatalErrors()
+    {
+        assert CompilerDiagnostic.parse("error CS2001: Source file 'Missing.cs' could not be found").fatal
+        assert CompilerDiagnostic.parse("error CS0006: Metadata file 'Missing.dll' could not be found").fatal
+        assert CompilerDiagnostic.parse("vbc : error BC2017: could not find library 'Missing.dll'").fatal
+        assert !CompilerDiagnostic.parse('A.cs(2,1): error CS1002: ; expected').fatal
+        assert !CompilerDiagnostic.parse('A.cs(1,1): warning CS0016: not an error').fatal
+    }
+
+    @Test
+    void ignoresOtherLines()
+    {
+        assert CompilerDiagnostic.parse('Microsoft (R) Visual C# Compiler version 4.0.30319.1') == null
+        assert CompilerDiagnostic.parse('Compilation failed: 1 error(s), 0 warnings') == null
+        assert CompilerDiagnostic.parse('') == null
+    }
+
+    @Test
+    void countsAndKeepsFirstErrors()
+    {
+        def diagnostics = new CompilerDiagnostics(logger, false)
+        diagnostics.consumeOutputLine('Microsoft (R) Visual C# Compiler')
+        (1..500).each { diagnostics.consumeErrorLine("A.cs($it,1): warning CS0168: unused") }
+        (1..20).each { diagnostics.consumeOutputLine("A.cs($it,1): error CS1002: ; expected") }
+
+        assert diagnostics.warningCount == 500
+        assert diagnostics.errorCount == 20
+        assert diagnostics.errors.size() == CompilerDiagnostics.MAX_KEPT_ERRORS
+        assert diagnostics.errors[0].line == 1
+        assert !diagnostics.aborted
+        assert diagnostics.toString().startsWith('20 error(s), 500 warning(s)')
+    }
+
+    @Test
+    void abortsOnFirstFatalErrorWhenAsked()
+    {
+        def diagnostics = new CompilerDiagnostics(logger, true)
+        diagnostics.consumeOutputLine('A.cs(1,1): warning CS0168: unused')
+        diagnostics.consumeOutputLine('A.cs(2,1): error CS1002: ; expected')
+        assert !diagnostics.aborted
+
+        diagnostics.consumeOutputLine("error CS2001: Source file 'Missing.cs' could not be found")
+        assert diagnostics.aborted
+        assert diagnostics.errorCount == 2
+    }
+}
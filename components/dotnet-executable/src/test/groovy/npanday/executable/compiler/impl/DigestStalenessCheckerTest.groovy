@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.compiler.impl
+
+import npanday.InputFingerprint
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class DigestStalenessCheckerTest
+{
+    DigestStalenessChecker checker = new DigestStalenessChecker()
+
+    File dir
+
+    File artifact
+
+    File reference
+
+    @Before
+    void setUp()
+    {
+        dir = File.createTempFile("staleness", "")
+        dir.delete()
+        dir.mkdirs()
+
+        artifact = new File(dir, "Module.dll")
+        artifact.text = "compiled"
+        reference = new File(dir, "Reference.dll")
+        reference.text = "reference"
+    }
+
+    @After
+    void tearDown()
+    {
+        dir.deleteDir()
+    }
+
+    InputFingerprint inputs(String switches)
+    {
+        InputFingerprint inputs = checker.createInputs(artifact)
+        inputs.addValue("parameters", switches)
+        inputs.addFile(reference)
+        return inputs
+    }
+
+    @Test
+    void staleWithoutRecordedInputs()
+    {
+        assert checker.findChange(artifact, inputs("/optimize")) == "no fingerprint recorded"
+    }
+
+    @Test
+    void upToDateAfterRecording()
+    {
+        checker.recordInputs(artifact, inputs("/optimize"))
+
+        assert new File(dir, "Module.dll.npanday-inputs").isFile()
+        assert checker.findChange(artifact, inputs("/optimize")) == null
+    }
+
+    @Test
+    void touchedButIdenticalReferenceIsUpToDate()
+    {
+        checker.recordInputs(artifact, inputs("/optimize"))
+        reference.setLastModified(reference.lastModified() + 60000)
+
+        assert checker.findChange(artifact, inputs("/optimize")) == null
+    }
+
+    @Test
+    void changedReferenceIsStale()
+    {
+        checker.recordInputs(artifact, inputs("/optimize"))
+        reference.text = "rebuilt reference"
+
+        assert checker.findChange(artifact, inputs("/optimize")) == "changed file:" + reference.absolutePath
+    }
+
+    @Test
+    void changedSwitchesAreStale()
+    {
+        checker.recordInputs(artifact, inputs("/optimize"))
+
+        assert checker.findChange(artifact, inputs("/debug")) == "changed value:parameters"
+    }
+
+    @Test
+    void missingArtifactIsStale()
+    {
+        checker.recordInputs(artifact, inputs("/optimize"))
+        artifact.delete()
+
+        assert checker.findChange(artifact, inputs("/optimize")) != null
+    }
+}
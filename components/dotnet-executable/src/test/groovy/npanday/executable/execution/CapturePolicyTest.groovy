@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.execution
+
+import npanday.executable.CommandExecutor
+import npanday.executable.execution.quoting.CustomSwitchAwareQuotingStrategy
+import org.codehaus.plexus.util.Os
+import org.junit.Test
+import static org.junit.Assert.*
+
+class CapturePolicyTest
+{
+    File spillDirectory = new File( "target/test-resources/capture-policy-test" )
+
+    @Test
+    void parsesPolicies()
+    {
+        assertSame( CapturePolicy.FULL, CapturePolicy.parse( "full" ) )
+        assertEquals( "none", CapturePolicy.parse( "none" ).toString() )
+        assertEquals( "tail:64", CapturePolicy.parse( "tail" ).toString() )
+        assertEquals( "tail:8", CapturePolicy.parse( " TAIL:8 " ).toString() )
+        assertEquals( "file", CapturePolicy.parse( "file" ).toString() )
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    void rejectsUnknownPolicies()
+    {
+        CapturePolicy.parse( "tail:lots" )
+    }
+
+    @Test
+    void tailKeepsTheLastCompleteLines()
+    {
+        def tail = new OutputCapture.Tail( 16 )
+        tail.append( "first line" )
+        tail.append( "second" )
+        tail.append( "third" )
+
+        assertEquals( "second\nthird\n", tail.toString() )
+    }
+
+    @Test
+    void tailKeepsTheEndOfLongLines()
+    {
+        def tail = new OutputCapture.Tail( 8 )
+        tail.append( "0123456789abcdef" )
+
+        assertEquals( "9abcdef\n", tail.toString() )
+    }
+
+    @Test
+    void spillWritesLinesToFile()
+    {
+        def spill = (OutputCapture.Spill) CapturePolicy.parse( "file:" + spillDirectory.path ).newCapture( "out" )
+        spill.append( "a" )
+        spill.append( "b" )
+        spill.close()
+
+        assertEquals( ["a", "b"], spill.file.readLines() )
+        assertEquals( "a\nb\n", spill.toString() )
+    }
+
+    @Test
+    void discardDeletesTheSpillFile()
+    {
+        def spill = (OutputCapture.Spill) CapturePolicy.parse( "file:" + spillDirectory.path ).newCapture( "out" )
+        spill.append( "a" )
+        spill.close()
+        assertTrue( spill.file.exists() )
+
+        spill.discard()
+        assertFalse( spill.file.exists() )
+        assertEquals( "", spill.toString() )
+    }
+
+    @Test
+    void executorDeletesSpillFilesOfThePreviousCommand()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def directory = new File( spillDirectory, "executor" )
+        directory.deleteDir()
+        def configuration = new Properties()
+        configuration.setProperty( "capture", "file:" + directory.path )
+        def cmd = CommandExecutor.Factory.createDefaultCommmandExecutor( configuration )
+
+        cmd.executeCommand( "echo", ["first"] )
+        assertEquals( 2, directory.list().length )
+        cmd.executeCommand( "echo", ["second"] )
+        assertEquals( 2, directory.list().length )
+        assertEquals( "second\n", cmd.standardOut )
+
+        cmd.discardOutput()
+        assertEquals( 0, directory.list().length )
+        assertEquals( "", cmd.standardOut )
+    }
+
+    @Test
+    void executorHonoursConfiguredPolicy()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def configuration = new Properties()
+        configuration.setProperty( "capture", "none" )
+        def cmd = CommandExecutor.Factory.createDefaultCommmandExecutor( configuration )
+        cmd.executeCommand( "echo", ["hello"] )
+        assertEquals( "", cmd.standardOut )
+
+        configuration.setProperty( "capture", "tail:1" )
+        cmd = CommandExecutor.Factory.createDefaultCommmandExecutor( configuration )
+        cmd.executeCommand( "echo", ["hello"] )
+        assertEquals( "hello\n", cmd.standardOut )
+    }
+
+    @Test
+    void defaultsToFullCapture()
+    {
+        def cmd = new UnifiedShellCommandExecutor( new CustomSwitchAwareQuotingStrategy() )
+        assertSame( CapturePolicy.FULL, cmd.capturePolicy )
+    }
+}
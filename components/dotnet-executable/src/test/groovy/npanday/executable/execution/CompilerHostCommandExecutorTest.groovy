@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.execution
+
+import npanday.executable.CommandExecutor
+import npanday.executable.ExecutionException
+import npanday.executable.OutputConsumer
+import npanday.executable.execution.quoting.CustomSwitchAwareQuotingStrategy
+import org.codehaus.plexus.util.Os
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class CompilerHostCommandExecutorTest
+{
+    static String hostCommand( String mainClass )
+    {
+        def java = new File( System.getProperty( "java.home" ), "bin/java" ).absolutePath
+        def classpath = System.getProperty( "surefire.test.class.path" ) ?: System.getProperty( "java.class.path" )
+        return "\"$java\" -cp \"$classpath\" $mainClass"
+    }
+
+    CompilerHostCommandExecutor executor( String hostCommand, String hostKey = "test" )
+    {
+        return new CompilerHostCommandExecutor( hostKey, hostCommand,
+                                                new UnifiedShellCommandExecutor( new CustomSwitchAwareQuotingStrategy() ) )
+    }
+
+    @Test
+    void reusesTheHostForSubsequentCommands()
+    {
+        def cmd = executor( hostCommand( EchoCompilerHost.name ) )
+
+        cmd.executeCommand( "csc", ["/target:library", "a b.cs"] )
+        def first = cmd.standardOut
+        cmd.executeCommand( "csc", ["line\nbreak"] )
+        def second = cmd.standardOut
+
+        assertTrue( first, first.endsWith( "csc /target:library a b.cs" ) )
+        assertTrue( second, second.endsWith( "csc line\nbreak" ) )
+        assertEquals( ( first =~ /#(\d+)/ )[0][1].toInteger() + 1, ( second =~ /#(\d+)/ )[0][1].toInteger() )
+    }
+
+    @Test
+    void keepsSeparateHostsPerKey()
+    {
+        def first = executor( hostCommand( EchoCompilerHost.name ), "first-vendor/2.0" )
+        def second = executor( hostCommand( EchoCompilerHost.name ), "second-vendor/4.0" )
+
+        first.executeCommand( "csc", ["a.cs"] )
+        second.executeCommand( "csc", ["b.cs"] )
+
+        assertTrue( first.standardOut, first.standardOut.startsWith( "#1 " ) )
+        assertTrue( second.standardOut, second.standardOut.startsWith( "#1 " ) )
+    }
+
+    @Test
+    void pluginConfigurationTakesPrecedence()
+    {
+        System.setProperty( "npanday." + CommandExecutor.Factory.COMPILER_HOST, "global-host" )
+        try
+        {
+            def configuration = new Properties()
+            configuration.put( CommandExecutor.Factory.COMPILER_HOST, "plugin-host" )
+
+            assertEquals( "plugin-host", CommandExecutor.Factory.getCompilerHostCommand( configuration ) )
+            assertEquals( "global-host", CommandExecutor.Factory.getCompilerHostCommand( new Properties() ) )
+            assertFalse(
+                CommandExecutor.Factory.createDefaultCommmandExecutor( configuration ) instanceof CompilerHostCommandExecutor )
+        }
+        finally
+        {
+            System.clearProperty( "npanday." + CommandExecutor.Factory.COMPILER_HOST )
+        }
+    }
+
+    @Test
+    void reportsFailingCommands()
+    {
+        def cmd = executor( hostCommand( EchoCompilerHost.name ) )
+        try
+        {
+            cmd.executeCommand( "csc", ["fail"] )
+            fail( "expected failure" )
+        }
+        catch ( ExecutionException e )
+        {
+            assertEquals( 1, cmd.result )
+            assertEquals( "failing", cmd.standardError )
+        }
+    }
+
+    @Test
+    void fallsBackWhenNoHostCanBeStarted()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def cmd = executor( "npanday-no-such-compiler-host" )
+        cmd.executeCommand( "echo", ["one-shot"] )
+
+        assertEquals( "one-shot", cmd.standardOut.trim() )
+    }
+
+    @Test
+    void fallsBackWhenTheHostDies()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def cmd = executor( hostCommand( EchoCompilerHost.name ) )
+        cmd.executeCommand( "echo", ["crash"] )
+
+        assertEquals( "crash", cmd.standardOut.trim() )
+    }
+
+    @Test
+    void doesNotRunAgainAfterPassingOnOutput()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def output = []
+        def errors = []
+        def cmd = executor( hostCommand( EchoCompilerHost.name ) )
+        cmd.outputConsumer = [
+            consumeOutputLine: { String line -> output << line },
+            consumeErrorLine: { String line -> errors << line },
+            isAborted: { false }
+        ] as OutputConsumer
+        try
+        {
+            cmd.executeCommand( "echo", ["partial"] )
+            fail( "expected failure" )
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.message, e.message.startsWith( "NPANDAY-040-021" ) )
+        }
+
+        assertEquals( [], output )
+        assertEquals( ["error CS0001: half way"], errors )
+    }
+
+    @Test
+    void streamsOutputAndStopsWhenTheConsumerAborts()
+    {
+        def output = []
+        def cmd = executor( hostCommand( EchoCompilerHost.name ) )
+        cmd.outputConsumer = [
+            consumeOutputLine: { String line -> output << line },
+            consumeErrorLine: { String line -> },
+            isAborted: { !output.isEmpty() }
+        ] as OutputConsumer
+
+        long start = System.currentTimeMillis()
+        try
+        {
+            cmd.executeCommand( "csc", ["slow"] )
+            fail( "expected failure" )
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.message, e.message.startsWith( "NPANDAY-040-020" ) )
+        }
+
+        assertEquals( ["first"], output )
+        assertTrue( System.currentTimeMillis() - start < 30000 )
+    }
+
+    @Test
+    void fallsBackWhenTheHostTimesOut()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def cmd = executor( hostCommand( EchoCompilerHost.name ) )
+        cmd.timeout = 1000
+        cmd.executeCommand( "echo", ["hang"] )
+
+        assertEquals( "hang", cmd.standardOut.trim() )
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.execution
+
+/**
+ * Stands in for a real compiler host in tests: echoes each request, numbered, instead of compiling.
+ * Arguments <code>fail</code> and <code>crash</code> make it report an error or exit without answering;
+ * <code>partial</code> makes it exit after reporting an error, without completing the answer.
+ * <code>hang</code> makes it never answer, <code>slow</code> makes it answer one line and then stall.
+ */
+class EchoCompilerHost
+{
+    static void main( String[] args )
+    {
+        def reader = new BufferedReader( new InputStreamReader( System.in, "UTF-8" ) )
+        def writer = new PrintWriter( new OutputStreamWriter( System.out, "UTF-8" ) )
+        int requests = 0
+        def request = []
+
+        String line
+        while ( ( line = reader.readLine() ) != null )
+        {
+            if ( line != "run" )
+            {
+                request << CompilerHost.unescape( line.substring( line.indexOf( ' ' ) + 1 ) )
+                continue
+            }
+
+            if ( request.contains( "crash" ) )
+            {
+                System.exit( 3 )
+            }
+            if ( request.contains( "hang" ) )
+            {
+                Thread.sleep( 60000 )
+            }
+            if ( request.contains( "slow" ) )
+            {
+                writer.print( "out first\n" )
+                writer.flush()
+                Thread.sleep( 60000 )
+            }
+            if ( request.contains( "partial" ) )
+            {
+                writer.print( "err error CS0001: half way\n" )
+                writer.flush()
+                System.exit( 3 )
+            }
+
+            writer.print( "out " + CompilerHost.escape( "#" + ( ++requests ) + " " + request.join( " " ) ) + "\n" )
+            if ( request.contains( "fail" ) )
+            {
+                writer.print( "err failing\n" )
+                writer.print( "exit 1\n" )
+            }
+            else
+            {
+                writer.print( "exit 0\n" )
+            }
+            writer.flush()
+            request = []
+        }
+    }
+}
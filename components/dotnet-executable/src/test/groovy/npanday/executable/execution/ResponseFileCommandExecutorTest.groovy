@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.execution
+
+import npanday.executable.CommandExecutor
+import npanday.executable.execution.quoting.CustomSwitchAwareQuotingStrategy
+import org.codehaus.plexus.util.Os
+import org.junit.Test
+import static org.junit.Assert.*
+
+class ResponseFileCommandExecutorTest
+{
+    File responseFile = new File( "target/test-resources/response-file-test/args.rsp" )
+
+    @Test
+    void writesOneQuotedArgumentPerLine()
+    {
+        ResponseFile.write( responseFile, ["/out:a b.dll", "/debug", "c:\\src\\x.cs"],
+                            new CustomSwitchAwareQuotingStrategy() )
+
+        assertEquals( ['/out:"a b.dll"', '/debug', 'c:\\src\\x.cs'], responseFile.readLines() )
+    }
+
+    @Test
+    void passesOnlyTheResponseFile()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def cmd = new ResponseFileCommandExecutor( new CustomSwitchAwareQuotingStrategy(), responseFile )
+        cmd.executeCommand( "echo", ["a b", "c"] )
+
+        assertEquals( "@" + responseFile.absolutePath, cmd.standardOut.trim() )
+        assertEquals( ['"a b"', 'c'], responseFile.readLines() )
+    }
+
+    @Test
+    void keepsExistingResponseFileReferences()
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) ) return;
+
+        def cmd = new ResponseFileCommandExecutor( new CustomSwitchAwareQuotingStrategy(), null )
+        cmd.executeCommand( "echo", ["@some.rsp"] )
+
+        assertEquals( "@some.rsp", cmd.standardOut.trim() )
+    }
+
+    @Test
+    void isOptIn()
+    {
+        assertTrue( CommandExecutor.Factory.createDefaultCommmandExecutor( null ) instanceof UnifiedShellCommandExecutor )
+        assertFalse( CommandExecutor.Factory.createDefaultCommmandExecutor( null ) instanceof ResponseFileCommandExecutor )
+
+        def configuration = new Properties()
+        configuration.setProperty( "responsefile", "true" )
+        assertTrue( CommandExecutor.Factory.createDefaultCommmandExecutor( configuration ) instanceof ResponseFileCommandExecutor )
+    }
+
+    @Test
+    void systemPropertyIsLeftToCompilers()
+    {
+        System.setProperty( "npanday.responsefile", "true" )
+        try
+        {
+            assertFalse( CommandExecutor.Factory.createDefaultCommmandExecutor( null ) instanceof ResponseFileCommandExecutor )
+            assertFalse( CommandExecutor.Factory.isResponseFileEnabled( new Properties() ) )
+        }
+        finally
+        {
+            System.clearProperty( "npanday.responsefile" )
+        }
+        assertTrue( CommandExecutor.Factory.createDefaultCommmandExecutor( null, responseFile, true ) instanceof ResponseFileCommandExecutor )
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package npanday.executable.impl
+
+import npanday.PlatformUnsupportedException
+import npanday.executable.ExecutableCapability
+import npanday.executable.ExecutableMatchPolicy
+import npanday.executable.compiler.CompilerRequirement
+import npanday.model.compiler.plugins.CompilerPlugin
+import npanday.model.compiler.plugins.CompilerPluginsModel
+import npanday.model.compiler.plugins.Platform
+import npanday.model.settings.Framework
+import npanday.registry.RepositoryRegistry
+import npanday.vendor.StateMachineProcessor
+import npanday.vendor.Vendor
+import npanday.vendor.VendorInfo
+import npanday.vendor.impl.SettingsBasedVendorInfo
+import org.codehaus.plexus.logging.Logger
+import org.junit.Before
+import org.junit.Test
+
+class CapabilityMatcherImplTest
+{
+    CompilerPluginsRepository repository
+
+    CapabilityMatcherImpl matcher
+
+    List<String> warnings = []
+
+    @Before
+    void setUp()
+    {
+        repository = new CompilerPluginsRepository()
+        repository.mergeLoadedModel(model(
+            plugin("csharp", "C_SHARP"),
+            plugin("vb", "VB"),
+            plugin("csharp-duplicate", "C_SHARP")
+        ))
+
+        VendorInfo vendorInfo = newVendorInfo()
+        matcher = new CapabilityMatcherImpl()
+        matcher.enableLogging([
+            debug: { String message, Throwable error = null -> },
+            warn: { String message, Throwable error = null -> warnings << message }
+        ] as Logger)
+        matcher.@repositoryRegistry = [find: { name -> name == "compiler-plugins" ? repository : null }] as RepositoryRegistry
+        matcher.@processor = [process: { requirement -> vendorInfo }] as StateMachineProcessor
+    }
+
+    @Test
+    void remembersMatches()
+    {
+        def csharp = matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP"))
+        def vb = matcher.matchCompilerCapabilityFor(requirement("full", "VB"))
+
+        assert csharp.identifier == "csharp"
+        assert vb.identifier == "vb"
+        assert matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP")).is(csharp)
+    }
+
+    @Test
+    void reportsAmbiguityOnce()
+    {
+        3.times { matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP")) }
+
+        assert warnings.size() == 1
+        assert warnings[0].startsWith("NPANDAY-065-010")
+    }
+
+    @Test
+    void rebuildsOnNewContentVersion()
+    {
+        def before = matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP"))
+        repository.incrementContentVersion()
+        def after = matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP"))
+
+        assert !after.is(before)
+        assert after.identifier == "csharp"
+        assert warnings.size() == 2
+    }
+
+    @Test(expected = PlatformUnsupportedException.class)
+    void failsForUnknownProfile()
+    {
+        matcher.matchCompilerCapabilityFor(requirement("COMPACT", "C_SHARP"))
+    }
+
+    @Test
+    void appliesAdditionalPoliciesEveryTime()
+    {
+        matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP"))
+
+        def policy = [
+            match: { ExecutableCapability capability -> capability.identifier != "csharp" },
+            toString: { "not csharp" }
+        ] as ExecutableMatchPolicy
+        def match = matcher.matchCompilerCapabilityFor(requirement("FULL", "C_SHARP"), [policy])
+
+        assert match.identifier == "csharp-duplicate"
+    }
+
+    CompilerRequirement requirement(String profile, String language)
+    {
+        return new CompilerRequirement(Vendor.MICROSOFT, "4.0", "4.0", profile, language)
+    }
+
+    CompilerPluginsModel model(CompilerPlugin... plugins)
+    {
+        def model = new CompilerPluginsModel()
+        plugins.each { model.addCompilerPlugin(it) }
+        return model
+    }
+
+    CompilerPlugin plugin(String identifier, String language)
+    {
+        def platform = new Platform()
+        platform.operatingSystem = System.getProperty("os.name")
+
+        def plugin = new CompilerPlugin()
+        plugin.identifier = identifier
+        plugin.language = language
+        plugin.addPlatform(platform)
+        return plugin
+    }
+
+    VendorInfo newVendorInfo()
+    {
+        def vendor = new npanday.model.settings.Vendor()
+        vendor.vendorName = "MICROSOFT"
+        vendor.vendorVersion = "4.0"
+
+        def framework = new Framework()
+        framework.frameworkVersion = "4.0"
+        return new SettingsBasedVendorInfo(vendor, framework)
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.impl
+
+import npanday.model.compiler.plugins.CompilerPluginsModel
+import npanday.model.compiler.plugins.io.xpp3.CompilerPluginXpp3Writer
+import npanday.registry.impl.ContextAwareModelInterpolator
+import org.codehaus.plexus.util.FileUtils
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class CompilerPluginsRepositoryTest
+{
+    File dir
+
+    String previous
+
+    @Before
+    void setUp()
+    {
+        dir = File.createTempFile("compiler-plugins", "")
+        dir.delete()
+        dir.mkdirs()
+
+        previous = System.getProperty("npanday.registry.snapshots")
+        System.setProperty("npanday.registry.snapshots", new File(dir, "snapshots").path)
+    }
+
+    @After
+    void tearDown()
+    {
+        if (previous == null)
+        {
+            System.clearProperty("npanday.registry.snapshots")
+        }
+        else
+        {
+            System.setProperty("npanday.registry.snapshots", previous)
+        }
+        FileUtils.deleteDirectory(dir)
+    }
+
+    @Test
+    void loadsSameModelFromSnapshot()
+    {
+        def source = new File(dir, "compiler-plugins.xml")
+        source.text = getClass().getResource("/META-INF/npanday/compiler-plugins.xml").text
+        source.lastModified = System.currentTimeMillis() - 60000
+
+        def parsed = load(source)
+        assert new File(dir, "snapshots").listFiles().findAll { it.name.endsWith(".snapshot") }.size() == 1
+
+        def fromSnapshot = load(source)
+
+        assert !fromSnapshot.isEmpty()
+        assert write(fromSnapshot) == write(parsed)
+    }
+
+    List load(File source)
+    {
+        def repository = new CompilerPluginsRepository()
+        repository.@interpolator = new ContextAwareModelInterpolator()
+        repository.load(source.toURI().toURL())
+        return repository.@compilerPlugins
+    }
+
+    String write(List plugins)
+    {
+        def model = new CompilerPluginsModel()
+        model.compilerPlugins = plugins
+        def writer = new StringWriter()
+        new CompilerPluginXpp3Writer().write(writer, model)
+        return writer.toString()
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.executable.impl
+
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class SourceScanCacheTest
+{
+    SourceScanCache cache
+
+    File root
+
+    @Before
+    void setUp()
+    {
+        cache = new SourceScanCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_INFO, "test"))
+
+        root = File.createTempFile("sources", "")
+        root.delete()
+        new File(root, "sub").mkdirs()
+        new File(root, "A.cs").text = "class A {}"
+        new File(root, "sub/B.cs").text = "class B {}"
+        new File(root, "sub/readme.txt").text = "ignored"
+        makeOld(root)
+    }
+
+    @After
+    void tearDown()
+    {
+        cache.dispose()
+        root.deleteDir()
+    }
+
+    void makeOld(File directory)
+    {
+        directory.eachDirRecurse { it.setLastModified(System.currentTimeMillis() - 60000) }
+        directory.setLastModified(System.currentTimeMillis() - 60000)
+    }
+
+    List<String> scan()
+    {
+        cache.scan(root, ["**/*.cs"], ["**/obj/**"]).get().collect { it.name }.sort()
+    }
+
+    @Test
+    void scansMatchingFiles()
+    {
+        assert scan() == ["A.cs", "B.cs"]
+    }
+
+    @Test
+    void detectsAddedFiles()
+    {
+        assert scan() == ["A.cs", "B.cs"]
+
+        new File(root, "sub/C.cs").text = "class C {}"
+
+        assert scan() == ["A.cs", "B.cs", "C.cs"]
+    }
+
+    @Test
+    void detectsRemovedDirectories()
+    {
+        assert scan() == ["A.cs", "B.cs"]
+
+        new File(root, "sub").deleteDir()
+
+        assert scan() == ["A.cs"]
+    }
+
+    @Test
+    void keepsPatternsApart()
+    {
+        assert scan() == ["A.cs", "B.cs"]
+        assert cache.scan(root, ["*.cs"], null).get().collect { it.name } == ["A.cs"]
+    }
+}
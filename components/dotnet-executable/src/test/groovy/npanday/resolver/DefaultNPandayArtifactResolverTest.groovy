@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import java.util.concurrent.atomic.AtomicInteger
+import org.apache.maven.artifact.Artifact
+import org.apache.maven.artifact.repository.ArtifactRepository
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult
+import org.apache.maven.artifact.resolver.ArtifactResolver
+import org.apache.maven.artifact.resolver.ResolutionNode
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.After
+import org.junit.Test
+
+import static npanday.resolver.TestArtifacts.artifact
+
+class DefaultNPandayArtifactResolverTest
+{
+    @After
+    void clearProperties()
+    {
+        System.clearProperty(DefaultNPandayArtifactResolver.CONTRIBUTOR_THREADS)
+    }
+
+    static File tempFile()
+    {
+        File file = File.createTempFile("artifact", ".dll")
+        file.deleteOnExit()
+        return file
+    }
+
+    DefaultNPandayArtifactResolver createResolver(ArtifactResolutionResult result, ArtifactResolvingContributor contributor)
+    {
+        def resolver = new DefaultNPandayArtifactResolver()
+        resolver.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        resolver.contributors = [contributor]
+        resolver.original = [resolveTransitively: { Object[] args -> result }] as ArtifactResolver
+        resolver.initializeWithFilter(null)
+        return resolver
+    }
+
+    ArtifactResolutionResult resultWith(int count)
+    {
+        def result = new ArtifactResolutionResult()
+        result.artifactResolutionNodes = (1..count).collect {
+            new ResolutionNode(artifact(artifactId: "library" + it, file: tempFile()), [])
+        } as Set
+        return result
+    }
+
+    @Test
+    void runsContributorsInParallel()
+    {
+        def contributor = new SlowPdbContributor()
+        def resolver = createResolver(resultWith(8), contributor)
+
+        resolver.resolveTransitively([] as Set, null, [:], null, [], null, null, [])
+
+        assert resolver.customDependenciesCache.size() == 8
+        assert contributor.maximum.get() > 1
+        assert contributor.running.get() == 0
+    }
+
+    @Test
+    void runsContributorsInlineWithOneThread()
+    {
+        System.setProperty(DefaultNPandayArtifactResolver.CONTRIBUTOR_THREADS, "1")
+        def contributor = new SlowPdbContributor()
+        def resolver = createResolver(resultWith(4), contributor)
+
+        resolver.resolveTransitively([] as Set, null, [:], null, [], null, null, [])
+
+        assert resolver.customDependenciesCache.size() == 4
+        assert contributor.maximum.get() == 1
+    }
+
+    @Test
+    void tracesContributorTimes()
+    {
+        def resolver = createResolver(resultWith(3), new SlowPdbContributor())
+        def trace = new ResolutionTrace("test:module", "null")
+        resolver.trace = trace
+
+        resolver.resolveTransitively([] as Set, null, [:], null, [], null, null, [])
+        trace.finish(3)
+
+        assert trace.contributorMillis.keySet() == ["SlowPdbContributor.contribute"] as Set
+        assert trace.contributorMillis["SlowPdbContributor.contribute"] >= 150
+        assert trace.mavenMillis >= 0
+        def json = trace.toJson()
+        assert json.contains('"name":"SlowPdbContributor.contribute","calls":3')
+        assert json.contains('"id":"test:library1:dotnet-library:1.0"')
+    }
+
+    @Test
+    void resolvesDirectDependenciesInParallel()
+    {
+        def contributor = new SlowInteropContributor()
+        def resolver = createResolver(resultWith(1), contributor)
+        def direct = (1..4).collect { artifact(artifactId: "reference" + it, type: "com_reference") } as Set
+
+        resolver.resolveTransitively(direct, null, [:], null, [], null, null, [])
+
+        assert direct.every { it.resolved }
+        assert resolver.customResolveCache == direct
+        assert contributor.maximum.get() > 1
+    }
+
+    @Test(expected = ArtifactNotFoundException)
+    void reportsFailedContributions()
+    {
+        def failing = [
+            tryResolve: { Object[] args -> },
+            contribute: { Object[] args -> throw new ArtifactNotFoundException("missing", args[0]) }
+        ] as ArtifactResolvingContributor
+        def resolver = createResolver(resultWith(2), failing)
+
+        resolver.resolveTransitively([] as Set, null, [:], null, [], null, null, [])
+    }
+}
+
+/**
+ * Looks up a pdb for every library, slowly.
+ */
+class SlowPdbContributor implements ArtifactResolvingContributor
+{
+    AtomicInteger running = new AtomicInteger()
+    AtomicInteger maximum = new AtomicInteger()
+
+    void tryResolve(Artifact artifact, Set<Artifact> collector, ArtifactFilter filter)
+    {
+    }
+
+    void contribute(Artifact artifact, ArtifactRepository localRepository, List remoteRepositories,
+                    Set<Artifact> collector, ArtifactFilter filter)
+    {
+        int now = running.incrementAndGet()
+        synchronized (maximum)
+        {
+            maximum.set(Math.max(maximum.get(), now))
+        }
+        Thread.sleep(50)
+        collector.add(TestArtifacts.artifact(artifactId: artifact.artifactId, type: "dotnet-symbols",
+                                             file: DefaultNPandayArtifactResolverTest.tempFile()))
+        running.decrementAndGet()
+    }
+}
+
+/**
+ * Generates an interop assembly for every COM reference, slowly.
+ */
+class SlowInteropContributor implements ArtifactResolvingContributor
+{
+    AtomicInteger running = new AtomicInteger()
+    AtomicInteger maximum = new AtomicInteger()
+
+    void tryResolve(Artifact artifact, Set<Artifact> collector, ArtifactFilter filter)
+    {
+        if (artifact.type != "com_reference")
+        {
+            return
+        }
+        int now = running.incrementAndGet()
+        synchronized (maximum)
+        {
+            maximum.set(Math.max(maximum.get(), now))
+        }
+        Thread.sleep(50)
+        artifact.file = File.createTempFile("Interop." + artifact.artifactId, ".dll")
+        artifact.file.deleteOnExit()
+        artifact.resolved = true
+        running.decrementAndGet()
+    }
+
+    void contribute(Artifact artifact, ArtifactRepository localRepository, List remoteRepositories,
+                    Set<Artifact> collector, ArtifactFilter filter)
+    {
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import java.util.concurrent.CountDownLatch
+import org.apache.maven.artifact.Artifact
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static npanday.resolver.TestArtifacts.artifact
+
+class GacIndexTest
+{
+    File directory
+
+    File legacyRoot
+
+    File root4
+
+    @Before
+    void setUp()
+    {
+        directory = File.createTempFile("gac", "")
+        directory.delete()
+        legacyRoot = new File(directory, "assembly")
+        root4 = new File(directory, "Microsoft.NET/assembly")
+
+        install(legacyRoot, "GAC_MSIL", "System.Web", "2.0.0.0__b03f5f7f11d50a3a")
+        install(legacyRoot, "GAC_32", "System.Data", "2.0.0.0__b77a5c561934e089")
+        install(legacyRoot, "GAC_MSIL", "Library", "1.2.0.0__0123456789abcdef")
+        install(legacyRoot, "GAC_MSIL", "Library", "1.2.3.0__0123456789abcdef")
+        install(legacyRoot, "GAC_MSIL", "Library", "1.10.0.0__0123456789abcdef")
+        install(root4, "GAC_MSIL", "System.Web", "v4.0_4.0.0.0_de_b03f5f7f11d50a3a")
+        install(root4, "GAC_MSIL", "System.Web", "v4.0_4.0.0.0__b03f5f7f11d50a3a")
+    }
+
+    @After
+    void tearDown()
+    {
+        directory.deleteDir()
+    }
+
+    static File install(File root, String gac, String name, String version)
+    {
+        File file = new File(root, "$gac/$name/$version/${name}.dll")
+        file.parentFile.mkdirs()
+        file.text = name
+        return file
+    }
+
+    GacIndex newIndex(NPandayResolutionCache cache = null)
+    {
+        def index = new GacIndex()
+        index.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        index.cache = cache
+        index.roots = [legacyRoot, root4]
+        return index
+    }
+
+    @Test
+    void findsAssembliesOfTheMatchingGac()
+    {
+        def index = newIndex()
+
+        assert index.size() == 7
+        assert index.find(artifact(artifactId: "System.Web", version: "2.0.0.0", type: "gac_msil",
+                                   classifier: "b03f5f7f11d50a3a")) ==
+               new File(legacyRoot, "GAC_MSIL/System.Web/2.0.0.0__b03f5f7f11d50a3a/System.Web.dll")
+        assert index.find(artifact(artifactId: "system.web", version: "4.0.0.0", type: "gac_msil4",
+                                   classifier: "b03f5f7f11d50a3a")) ==
+               new File(root4, "GAC_MSIL/System.Web/v4.0_4.0.0.0__b03f5f7f11d50a3a/System.Web.dll")
+        assert index.find(artifact(artifactId: "System.Data", version: "2.0.0.0", type: "gac_32",
+                                   classifier: "b77a5c561934e089")) != null
+        assert index.find(artifact(artifactId: "System.Data", version: "2.0.0.0", type: "gac_generic",
+                                   classifier: "b77a5c561934e089")) != null
+        assert index.find(artifact(artifactId: "System.Data", version: "2.0.0.0", type: "gac_64",
+                                   classifier: "b77a5c561934e089")) == null
+        assert index.find(artifact(artifactId: "System.Web", version: "4.0.0.0", type: "gac_msil",
+                                   classifier: "b03f5f7f11d50a3a")) == null
+        assert index.find(artifact(artifactId: "System.Web", version: "2.0.0.0", type: "gac_msil",
+                                   classifier: "0000000000000000")) == null
+    }
+
+    @Test
+    void matchesPartialVersions()
+    {
+        def index = newIndex()
+
+        assert index.find(artifact(artifactId: "Library", version: "1.2", type: "gac_msil",
+                                   classifier: "0123456789abcdef")).parentFile.name ==
+               "1.2.0.0__0123456789abcdef"
+        assert index.find(artifact(artifactId: "Library", version: "1.2.3", type: "gac_msil",
+                                   classifier: "0123456789abcdef")).parentFile.name ==
+               "1.2.3.0__0123456789abcdef"
+        assert index.find(artifact(artifactId: "Library", version: "1", type: "gac_msil",
+                                   classifier: "0123456789abcdef")).parentFile.name ==
+               "1.10.0.0__0123456789abcdef"
+    }
+
+    @Test
+    void describesInstalledVersionsOnMisses()
+    {
+        def index = newIndex()
+
+        assert index.describe(artifact(artifactId: "System.Web", version: "3.0", type: "gac_msil")) ==
+               "installed are gac_msil/2.0.0.0__b03f5f7f11d50a3a gac_msil/4.0.0.0_de__b03f5f7f11d50a3a (v4.0)" +
+               " gac_msil/4.0.0.0__b03f5f7f11d50a3a (v4.0)"
+        assert index.describe(artifact(artifactId: "Missing", version: "1.0", type: "gac_msil"))
+               .startsWith("no assembly named Missing")
+    }
+
+    @Test
+    void reusesStoredIndexWhileRootsAreUnchanged()
+    {
+        def repository = new File(directory, "repository")
+        def cache = new NPandayResolutionCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        cache.attach(repository)
+
+        assert newIndex(cache).size() == 7
+        assert new File(cache.directory, GacIndex.FILE_NAME).isFile()
+
+        // not visible to the stored index, since the GAC directories did not change
+        def stamp = new File(legacyRoot, "GAC_MSIL").lastModified()
+        install(legacyRoot, "GAC_MSIL", "Library", "2.0.0.0__0123456789abcdef")
+        new File(legacyRoot, "GAC_MSIL").lastModified = stamp
+
+        def index = newIndex(cache)
+        assert index.size() == 7
+        assert index.find(artifact(artifactId: "Library", version: "1.2", type: "gac_msil",
+                                   classifier: "0123456789abcdef")) != null
+
+        // a miss rebuilds the index once
+        assert index.find(artifact(artifactId: "Library", version: "2.0", type: "gac_msil",
+                                   classifier: "0123456789abcdef")) != null
+        assert index.size() == 8
+    }
+
+    @Test
+    void rebuildsWhenGacDirectoriesChange()
+    {
+        def cache = new NPandayResolutionCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        cache.attach(new File(directory, "repository"))
+
+        assert newIndex(cache).size() == 7
+
+        install(legacyRoot, "GAC_MSIL", "Other", "1.0.0.0__0123456789abcdef")
+        new File(legacyRoot, "GAC_MSIL").lastModified = System.currentTimeMillis() + 10000
+
+        assert newIndex(cache).size() == 8
+    }
+
+    @Test
+    void storesConcurrentlyWithinOneJvm()
+    {
+        def cache = new NPandayResolutionCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        cache.attach(new File(directory, "repository"))
+        def warnings = Collections.synchronizedList([])
+        def ignore = { String message, Throwable throwable = null -> }
+        def logger = [debug: ignore, info: ignore, isDebugEnabled: { false }, isInfoEnabled: { false },
+                      warn: { String message, Throwable throwable = null -> warnings << message },
+                      error: { String message, Throwable throwable = null -> warnings << message }] as Logger
+
+        def start = new CountDownLatch(1)
+        def threads = (0..1).collect { int i ->
+            Thread.start {
+                start.await()
+                20.times {
+                    def index = newIndex(cache)
+                    index.enableLogging(logger)
+                    // every miss rebuilds and stores the index
+                    index.find(artifact(artifactId: "Missing", version: "1.0", type: "gac_msil"))
+                }
+            }
+        }
+        start.countDown()
+        threads*.join()
+
+        assert warnings == []
+        assert cache.directory.list().findAll { it.endsWith(".tmp") } == []
+        assert newIndex(cache).size() == 7
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import java.util.concurrent.CountDownLatch
+import org.apache.maven.artifact.Artifact
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static npanday.resolver.TestArtifacts.artifact
+
+class NPandayResolutionCacheTest
+{
+    File repository
+
+    @Before
+    void createRepository()
+    {
+        repository = File.createTempFile("repository", "")
+        repository.delete()
+        repository.mkdirs()
+    }
+
+    @After
+    void clearProperties()
+    {
+        System.clearProperty(NPandayResolutionCache.NEGATIVE_TTL)
+    }
+
+    NPandayResolutionCache newCache()
+    {
+        def cache = new NPandayResolutionCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        cache.attach(repository)
+        return cache
+    }
+
+    File createFile()
+    {
+        File file = new File(repository, "library.pdb")
+        file.text = "pdb"
+        return file
+    }
+
+    @Test
+    void reusesResultsOfEarlierBuilds()
+    {
+        def file = createFile()
+        def cache = newCache()
+        cache.put(artifact(artifactId: "library", type: "dotnet-symbols", file: file), "v1")
+        cache.flush()
+
+        def resolved = artifact(artifactId: "library", type: "dotnet-symbols")
+        assert newCache().applyTo(resolved, "v1")
+        assert resolved.resolved
+        assert resolved.file == file
+    }
+
+    @Test
+    void ignoresResultsWithOtherFingerprint()
+    {
+        def cache = newCache()
+        cache.put(artifact(artifactId: "library", type: "dotnet-symbols", file: createFile()), "v1")
+        cache.flush()
+
+        assert !newCache().applyTo(artifact(artifactId: "library", type: "dotnet-symbols"), "v2")
+    }
+
+    @Test
+    void ignoresChangedFiles()
+    {
+        def file = createFile()
+        def cache = newCache()
+        cache.put(artifact(artifactId: "library", type: "dotnet-symbols", file: file), "v1")
+        cache.flush()
+
+        file.text = "changed pdb"
+
+        assert !newCache().applyTo(artifact(artifactId: "library", type: "dotnet-symbols"), "v1")
+    }
+
+    @Test
+    void remembersMissingArtifactsForSomeTime()
+    {
+        def cache = newCache()
+        cache.put(artifact(artifactId: "library", type: "dotnet-symbols"), "v1")
+        cache.flush()
+
+        def missing = artifact(artifactId: "library", type: "dotnet-symbols")
+        assert newCache().applyTo(missing, "v1")
+        assert !missing.resolved
+
+        System.setProperty(NPandayResolutionCache.NEGATIVE_TTL, "-1")
+        assert !newCache().applyTo(artifact(artifactId: "library", type: "dotnet-symbols"), "v1")
+    }
+
+    @Test
+    void mergesResultsOfConcurrentBuilds()
+    {
+        def first = newCache()
+        def second = newCache()
+
+        first.put(artifact(artifactId: "library", type: "dotnet-symbols", file: createFile()), "v1")
+        first.flush()
+        second.put(artifact(artifactId: "other", type: "dotnet-symbols"), "v1")
+        second.flush()
+
+        assert newCache().applyTo(artifact(artifactId: "library", type: "dotnet-symbols"), "v1")
+    }
+
+    @Test
+    void flushesConcurrentlyWithinOneJvm()
+    {
+        def caches = [newCache(), newCache()]
+        def errors = Collections.synchronizedList([])
+        def start = new CountDownLatch(1)
+        def threads = (0..1).collect { int i ->
+            Thread.start {
+                start.await()
+                try
+                {
+                    50.times { int n ->
+                        caches[i].put(artifact(artifactId: "library-" + i + "-" + n, type: "dotnet-symbols"), "v1")
+                        caches[i].flush()
+                    }
+                }
+                catch (Throwable e)
+                {
+                    errors << e
+                }
+            }
+        }
+        start.countDown()
+        threads*.join()
+
+        assert errors == []
+        def merged = newCache()
+        (0..1).each { int i ->
+            50.times { int n ->
+                assert merged.applyTo(artifact(artifactId: "library-" + i + "-" + n, type: "dotnet-symbols"), "v1")
+            }
+        }
+    }
+
+    @Test
+    void keepsResultsInMemoryWhenNotAttached()
+    {
+        def cache = new NPandayResolutionCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        cache.put(artifact(artifactId: "library", type: "dotnet-symbols", file: createFile()), "v1")
+        cache.flush()
+
+        assert cache.directory == null
+        assert !new File(repository, NPandayResolutionCache.DIRECTORY).exists()
+        assert cache.applyTo(artifact(artifactId: "library", type: "dotnet-symbols"), "v1")
+    }
+}
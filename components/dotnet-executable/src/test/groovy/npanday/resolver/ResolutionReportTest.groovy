@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static npanday.resolver.TestArtifacts.artifact
+
+class ResolutionReportTest
+{
+    File directory
+
+    File parts
+
+    ResolutionReport report
+
+    @Before
+    void setUp()
+    {
+        directory = File.createTempFile("resolution-report", "")
+        directory.delete()
+        directory.mkdirs()
+        parts = File.createTempFile("resolution-parts", "")
+        parts.delete()
+
+        System.setProperty("npanday.resolutionReport", "true")
+        report = newReport()
+    }
+
+    ResolutionReport newReport()
+    {
+        def report = new ResolutionReport()
+        report.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+        report.partsDirectory = parts
+        return report
+    }
+
+    @After
+    void tearDown()
+    {
+        System.clearProperty("npanday.resolutionReport")
+        directory.deleteDir()
+        parts.deleteDir()
+    }
+
+    ResolutionTrace trace(String module)
+    {
+        def trace = new ResolutionTrace(module, "compile")
+        trace.artifactIncluded(artifact(artifactId: "a", version: "1.0"))
+        trace.omittedForNearer(artifact(artifactId: "a", version: "0.9"), artifact(artifactId: "a", version: "1.0"))
+        trace.omittedForCycle(artifact(artifactId: "b", version: "1.0"))
+        trace.contributorCalled("GacResolver", "tryResolve", artifact(artifactId: "a", version: "1.0"), 3000000)
+        trace.contributorCalled("GacResolver", "tryResolve", artifact(artifactId: "c", version: "1.0"), 1000000)
+        trace.setCacheStatistics(4, 2, 1)
+        trace.finish(1)
+        return trace
+    }
+
+    @Test
+    void writesModuleReports()
+    {
+        def target = new File(directory, "module/target")
+
+        report.record(trace("test:module:1.0"), target, false)
+        report.record(trace("test:module:1.0"), target, false)
+        assert !target.exists()
+
+        report.dispose()
+
+        def json = new File(target, "npanday-resolution.json").text
+        assert json.startsWith("[{")
+        assert json.count('"module":"test:module:1.0"') == 2
+        assert json.contains('"omittedForNearer":1,"omittedForCycle":1')
+        assert json.contains('"cache":{"hits":4,"storedHits":2,"misses":1}')
+        assert json.contains('"name":"GacResolver.tryResolve","calls":2,"totalMs":4')
+        assert json.contains('"slowestArtifacts":[{"id":"test:a:dotnet-library:1.0","contributorMs":3}')
+        assert json.contains('"events":["omitted test:a:dotnet-library:0.9 for nearer 1.0","omitted test:b:dotnet-library:1.0 for cycle"]')
+
+        def html = new File(target, "npanday-resolution.html").text
+        assert html.contains("<h1>Dependency resolution of test:module:1.0</h1>")
+        assert html.contains("<tr><th>GacResolver.tryResolve</th><td>2 calls, 4 ms</td></tr>")
+    }
+
+    @Test
+    void summarizesTheReactor()
+    {
+        def cached = new ResolutionTrace("test:other:1.0", "runtime")
+        cached.cached = true
+        cached.finish(0)
+
+        report.record(trace("test:module:1.0"), new File(directory, "module"), false)
+        report.record(cached, null, false)
+        report.record(trace("test:root:1.0"), directory, true)
+        report.dispose()
+
+        assert !new File(directory, "module/" + ResolutionReport.SUMMARY_FILE_NAME).exists()
+        def summary = new File(directory, ResolutionReport.SUMMARY_FILE_NAME).text
+        assert summary.startsWith('{"modules":[{"module":"test:module:1.0","resolutions":1,"cached":0')
+        assert summary.contains('"contributorMs":{"GacResolver.tryResolve":4}')
+        assert summary.contains('{"module":"test:other:1.0","resolutions":1,"cached":1')
+    }
+
+    @Test
+    void summaryGoesToFirstModuleWithoutExecutionRoot()
+    {
+        def module = new File(directory, "module")
+        report.record(trace("test:module:1.0"), module, false)
+        report.record(trace("test:other:1.0"), new File(directory, "other"), false)
+        report.dispose()
+
+        assert new File(module, ResolutionReport.SUMMARY_FILE_NAME).isFile()
+    }
+
+    @Test
+    void mergesTheReportsOfAllPlugins()
+    {
+        def module = new File(directory, "module")
+        def compiler = report
+        def resolver = newReport()
+
+        compiler.record(trace("test:module:1.0"), module, false)
+        resolver.record(trace("test:module:1.0"), module, false)
+        resolver.record(trace("test:root:1.0"), directory, true)
+        resolver.dispose()
+        compiler.dispose()
+
+        assert new File(module, "npanday-resolution.json").text.count('"module":"test:module:1.0"') == 2
+        assert new File(module, "npanday-resolution.html").text.count("<h2>compile</h2>") == 2
+        assert !new File(module, ResolutionReport.SUMMARY_FILE_NAME).exists()
+        def summary = new File(directory, ResolutionReport.SUMMARY_FILE_NAME).text
+        assert summary.startsWith('{"modules":[{"module":"test:module:1.0","resolutions":2,"cached":0')
+        assert summary.contains('"contributorMs":{"GacResolver.tryResolve":8}')
+        assert summary.contains('{"module":"test:root:1.0","resolutions":1')
+    }
+
+    @Test
+    void isOffByDefault()
+    {
+        System.clearProperty("npanday.resolutionReport")
+
+        report.record(trace("test:module:1.0"), directory, true)
+        report.dispose()
+
+        assert !ResolutionReport.isEnabled()
+        assert directory.list().length == 0
+    }
+
+    @Test
+    void escapesValues()
+    {
+        def trace = new ResolutionTrace('test:"quoted"', "<filter>")
+        trace.finish(0)
+
+        assert trace.toJson().startsWith('{"module":"test:\\"quoted\\"","filter":"<filter>"')
+        def html = new StringBuilder()
+        trace.appendHtml(html)
+        assert html.toString().startsWith("<h2>&lt;filter&gt;</h2>")
+    }
+}
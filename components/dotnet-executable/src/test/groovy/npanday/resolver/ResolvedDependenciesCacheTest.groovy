@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import org.apache.maven.artifact.Artifact
+import org.apache.maven.artifact.resolver.filter.AndArtifactFilter
+import org.apache.maven.artifact.resolver.filter.ExcludesArtifactFilter
+import org.apache.maven.artifact.resolver.filter.InversionArtifactFilter
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter
+import org.apache.maven.model.Dependency
+import org.apache.maven.model.Model
+import org.apache.maven.project.MavenProject
+import org.codehaus.plexus.logging.Logger
+import org.codehaus.plexus.logging.console.ConsoleLogger
+import org.junit.Before
+import org.junit.Test
+import npanday.resolver.filter.DotnetSymbolsArtifactFilter
+
+import static npanday.resolver.TestArtifacts.artifact
+
+class ResolvedDependenciesCacheTest
+{
+    ResolvedDependenciesCache cache
+    MavenProject project
+
+    Artifact library = artifact(artifactId: "library", type: "dotnet-library", scope: "compile")
+    Artifact symbols = artifact(artifactId: "library", type: "dotnet-symbols", scope: "compile")
+    Artifact testLibrary = artifact(artifactId: "nunit", type: "dotnet-library", scope: "test")
+
+    @Before
+    void setUp()
+    {
+        cache = new ResolvedDependenciesCache()
+        cache.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"))
+
+        project = new MavenProject(new Model(groupId: "test", artifactId: "project", version: "1.0"))
+        project.model.addDependency(new Dependency(groupId: "test", artifactId: "library", version: "1.0"))
+    }
+
+    static def scope(String scope, boolean withSymbols = true)
+    {
+        def filter = new AndArtifactFilter()
+        filter.add(new ScopeArtifactFilter(scope))
+        if (!withSymbols)
+        {
+            filter.add(new InversionArtifactFilter(new DotnetSymbolsArtifactFilter()))
+        }
+        return filter
+    }
+
+    void put(def filter, Set<Artifact> artifacts)
+    {
+        long generation = cache.getGeneration(project, null)
+        cache.put(project, null, filter, generation, artifacts, [library] as Set)
+    }
+
+    @Test
+    void missesWhenNothingWasResolved()
+    {
+        assert cache.get(project, null, scope("compile")) == null
+    }
+
+    @Test
+    void reusesResolutionWithSameFilter()
+    {
+        put(scope("test"), [library, symbols, testLibrary] as Set)
+
+        def cached = cache.get(project, null, scope("test"))
+
+        assert cached.artifacts == [library, symbols, testLibrary] as Set
+        assert cached.dependencyArtifacts == [library] as Set
+    }
+
+    @Test
+    void filtersWiderResolutionForNarrowerFilter()
+    {
+        put(scope("test"), [library, symbols, testLibrary] as Set)
+
+        assert cache.get(project, null, scope("compile", false)).artifacts == [library] as Set
+    }
+
+    @Test
+    void missesForWiderFilter()
+    {
+        put(scope("compile", false), [library] as Set)
+
+        assert cache.get(project, null, scope("compile")) == null
+        assert cache.get(project, null, scope("test", false)) == null
+    }
+
+    @Test
+    void doesNotCacheUnknownFilters()
+    {
+        def filter = new ExcludesArtifactFilter(["test:library"])
+        put(filter, [testLibrary] as Set)
+
+        assert cache.get(project, null, filter) == null
+    }
+
+    @Test
+    void dropsResolutionsWhenDependenciesChange()
+    {
+        put(scope("test"), [library] as Set)
+
+        project.model.addDependency(new Dependency(groupId: "test", artifactId: "other", version: "1.0"))
+
+        assert cache.get(project, null, scope("test")) == null
+    }
+
+    @Test
+    void dropsResolutionsWithMissingFiles()
+    {
+        File file = File.createTempFile("library", ".dll")
+        library.file = file
+        put(scope("test"), [library] as Set)
+        file.delete()
+
+        assert cache.get(project, null, scope("test")) == null
+    }
+
+    @Test
+    void ignoresResolutionsStartedBeforeInvalidation()
+    {
+        long generation = cache.getGeneration(project, null)
+        cache.invalidate(project)
+        cache.put(project, null, scope("test"), generation, [library] as Set, [library] as Set)
+
+        assert cache.get(project, null, scope("test")) == null
+    }
+}
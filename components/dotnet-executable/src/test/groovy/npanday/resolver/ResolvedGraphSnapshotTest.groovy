@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import npanday.InputFingerprint
+import org.apache.maven.artifact.Artifact
+import org.apache.maven.artifact.DefaultArtifact
+import org.apache.maven.artifact.factory.ArtifactFactory
+import org.apache.maven.artifact.handler.DefaultArtifactHandler
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy
+import org.apache.maven.artifact.repository.DefaultArtifactRepository
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter
+import org.apache.maven.artifact.versioning.VersionRange
+import org.apache.maven.model.Dependency
+import org.apache.maven.model.Model
+import org.apache.maven.project.MavenProject
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static npanday.resolver.TestArtifacts.artifact
+
+class ResolvedGraphSnapshotTest
+{
+    File directory
+
+    File snapshotFile
+
+    Artifact library
+
+    Artifact gacLibrary
+
+    @Before
+    void setUp()
+    {
+        directory = File.createTempFile("snapshot", "")
+        directory.delete()
+        directory.mkdirs()
+        snapshotFile = new File(directory, ResolvedGraphSnapshot.FILE_NAME)
+
+        library = artifact(artifactId: "library", file: createFile("library.dll"))
+        gacLibrary = artifact(artifactId: "System.Web", type: "gac_msil", classifier: "b03f5f7f11d50a3a",
+                              file: createFile("System.Web.dll"))
+    }
+
+    @After
+    void tearDown()
+    {
+        directory.deleteDir()
+    }
+
+    File createFile(String name)
+    {
+        File file = new File(directory, name)
+        file.text = name
+        return file
+    }
+
+    static ArtifactFactory factory()
+    {
+        [createDependencyArtifact: { String groupId, String artifactId, VersionRange version, String type,
+                                     String classifier, String scope ->
+            new DefaultArtifact(groupId, artifactId, version, scope, type, classifier, new DefaultArtifactHandler(type))
+        }] as ArtifactFactory
+    }
+
+    void write(def filter = null)
+    {
+        ResolvedGraphSnapshot.write(snapshotFile, "inputs", ArtifactFilterSignature.of(filter),
+                                    [library, gacLibrary] as Set, [gacLibrary] as Set, null)
+    }
+
+    @Test
+    void restoresResolvedArtifacts()
+    {
+        write()
+
+        def snapshot = ResolvedGraphSnapshot.read(snapshotFile)
+        assert snapshot.inputs == "inputs"
+        assert snapshot.size() == 2
+        assert snapshot.findChangedFile() == null
+        assert snapshot.getDigest(gacLibrary) == InputFingerprint.digest(gacLibrary.file)
+
+        Set<Artifact> artifacts = new LinkedHashSet<Artifact>()
+        Set<Artifact> dependencyArtifacts = new LinkedHashSet<Artifact>()
+        snapshot.restore(factory(), artifacts, dependencyArtifacts)
+
+        assert artifacts as List == [library, gacLibrary]
+        assert dependencyArtifacts as List == [gacLibrary]
+        def restored = artifacts.find { it.type == "gac_msil" }
+        assert restored.resolved
+        assert restored.file == gacLibrary.file
+        assert restored.classifier == "b03f5f7f11d50a3a"
+        assert restored.scope == "compile"
+        assert dependencyArtifacts.iterator().next().is(restored)
+    }
+
+    @Test
+    void onlyCoversNarrowerFiltersForTheSameInputs()
+    {
+        write(new ScopeArtifactFilter("runtime"))
+
+        def snapshot = ResolvedGraphSnapshot.read(snapshotFile)
+        assert snapshot.covers("inputs", ArtifactFilterSignature.of(new ScopeArtifactFilter("runtime")))
+        assert !snapshot.covers("inputs", ArtifactFilterSignature.of(new ScopeArtifactFilter("compile")))
+        assert !snapshot.covers("inputs", ArtifactFilterSignature.of(null))
+        assert !snapshot.covers("other", ArtifactFilterSignature.of(new ScopeArtifactFilter("runtime")))
+    }
+
+    @Test
+    void detectsChangedFiles()
+    {
+        write()
+
+        library.file.text = "changed library"
+
+        assert ResolvedGraphSnapshot.read(snapshotFile).findChangedFile() == library.file.absolutePath
+    }
+
+    @Test
+    void detectsChangedPoms()
+    {
+        File pom = createFile("library-1.0.pom")
+        write()
+
+        pom.text = "<project>changed</project>"
+
+        assert ResolvedGraphSnapshot.read(snapshotFile).findChangedFile() == pom.absolutePath
+    }
+
+    @Test
+    void detectsAddedPoms()
+    {
+        write()
+
+        File pom = createFile("library-1.0.pom")
+
+        assert ResolvedGraphSnapshot.read(snapshotFile).findChangedFile() == pom.absolutePath
+    }
+
+    @Test
+    void reportsSnapshotVersions()
+    {
+        write()
+        assert ResolvedGraphSnapshot.read(snapshotFile).findSnapshotVersion() == null
+
+        library = artifact(artifactId: "library", version: "1.0-SNAPSHOT",
+                           file: createFile("library-1.0-SNAPSHOT.dll"))
+        write()
+
+        assert ResolvedGraphSnapshot.read(snapshotFile).findSnapshotVersion() == "test:library:1.0-SNAPSHOT"
+    }
+
+    @Test
+    void reportsVolatileDependencies()
+    {
+        def project = new MavenProject(new Model(groupId: "test", artifactId: "project", version: "1.0"))
+        project.remoteArtifactRepositories = []
+        project.dependencies = [new Dependency(groupId: "test", artifactId: "library", version: "1.0")]
+        assert NPandayDependencyResolution.findVolatileDependency(project) == null
+
+        project.dependencies = [new Dependency(groupId: "test", artifactId: "library", version: "1.0-SNAPSHOT")]
+        assert NPandayDependencyResolution.findVolatileDependency(project) =~ /SNAPSHOT/
+
+        project.dependencies = [new Dependency(groupId: "test", artifactId: "library", version: "[1.0,2.0)")]
+        assert NPandayDependencyResolution.findVolatileDependency(project) =~ /range/
+
+        project.dependencies = [new Dependency(groupId: "test", artifactId: "library", version: "1.0")]
+        def policy = new ArtifactRepositoryPolicy(true, ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS, null)
+        project.remoteArtifactRepositories = [
+            new DefaultArtifactRepository("central", "http://localhost", new DefaultRepositoryLayout(), policy, policy)
+        ]
+        assert NPandayDependencyResolution.findVolatileDependency(project) == "updates are forced for central"
+    }
+
+    @Test
+    void ignoresUnreadableSnapshots()
+    {
+        assert ResolvedGraphSnapshot.read(snapshotFile) == null
+
+        snapshotFile.text = "not a snapshot"
+        assert ResolvedGraphSnapshot.read(snapshotFile) == null
+
+        write()
+        byte[] bytes = snapshotFile.readBytes()
+        new FileOutputStream(snapshotFile).withStream { it.write(bytes, 0, bytes.length - 20) }
+        assert ResolvedGraphSnapshot.read(snapshotFile) == null
+    }
+
+    @Test
+    void encodesFilterSignatures()
+    {
+        def signature = ArtifactFilterSignature.of(new ScopeArtifactFilter("compile"))
+
+        assert ArtifactFilterSignature.decode(signature.encode()) == signature
+        assert ArtifactFilterSignature.decode("unknown:1,2") == null
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.resolver
+
+import org.apache.maven.artifact.Artifact
+import org.apache.maven.artifact.DefaultArtifact
+import org.apache.maven.artifact.handler.DefaultArtifactHandler
+import org.apache.maven.artifact.versioning.VersionRange
+
+/**
+ * Creates the artifacts used by the resolver tests. Unless given, they are compile scoped dotnet-library
+ * artifacts with group id test and version 1.0; those given a file are marked as resolved.
+ */
+class TestArtifacts
+{
+    static Artifact artifact(Map properties)
+    {
+        String type = properties.type ?: "dotnet-library"
+        def artifact = new DefaultArtifact(properties.groupId ?: "test", properties.artifactId,
+                                           VersionRange.createFromVersion(properties.version ?: "1.0"),
+                                           properties.scope ?: "compile", type, properties.classifier,
+                                           new DefaultArtifactHandler(type))
+        if (properties.file != null)
+        {
+            artifact.file = properties.file
+            artifact.resolved = true
+        }
+        return artifact
+    }
+}
@@ -19,14 +19,12 @@
 
 package npanday.nuget;
 
-import org.codehaus.plexus.util.StringUtils;
+import npanday.ParsedVersion;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A four-digit .NET version.
@@ -48,8 +46,6 @@ public final class DotnetVersion
 
     private static final String FORMAT = "(\\d+)\\.(\\d+)(?:\\.)?(\\d*)(?:\\.)?(\\d*)";
 
-    private static final Pattern PATTERN = Pattern.compile( DotnetVersion.FORMAT );
-
     private final int major;
 
     private final int minor;
@@ -58,6 +54,16 @@ public final class DotnetVersion
 
     private final int build;
 
+    /**
+     * Major and minor packed into one value, so that versions compare in two steps.
+     */
+    private final long high;
+
+    /**
+     * Patch and build packed into one value.
+     */
+    private final long low;
+
     public DotnetVersion( @Nonnegative final int major, @Nonnegative final int minor, @Nonnegative final int patch )
     {
         this( major, minor, patch, 0 );
@@ -88,6 +94,8 @@ public final class DotnetVersion
         this.minor = minor;
         this.patch = patch;
         this.build = build;
+        this.high = ( (long) major << 32 ) | minor;
+        this.low = ( (long) patch << 32 ) | build;
     }
 
     /**
@@ -98,35 +106,35 @@ public final class DotnetVersion
      */
     public static DotnetVersion parse( @Nonnull final String version )
     {
-        final Matcher matcher = DotnetVersion.PATTERN.matcher( version );
-        if ( !matcher.matches() )
+        final ParsedVersion parsed = ParsedVersion.of( version );
+        final int size = parsed.size();
+        if ( !parsed.isDotted() || size < 2 || countDots( version ) > 3 || parsed.getNumber( 0 ) < 0
+            || parsed.getNumber( 1 ) < 0 || !isNumberOrEmpty( parsed, 2 ) || !isNumberOrEmpty( parsed, 3 ) )
         {
             throw new IllegalArgumentException( "<" + version + "> does not match format " + DotnetVersion.FORMAT );
         }
 
-        final int major = Integer.valueOf( matcher.group( 1 ) );
-        final int minor = Integer.valueOf( matcher.group( 2 ) );
-        final int patch;
-        final String patchMatch = matcher.group( 3 );
-        if ( StringUtils.isNotEmpty( patchMatch ) )
-        {
-            patch = Integer.valueOf( patchMatch );
-        }
-        else
-        {
-            patch = 0;
-        }
-        final int build;
-        final String buildMatch = matcher.group( 4 );
-        if ( StringUtils.isNotEmpty( buildMatch ) )
-        {
-            build = Integer.valueOf( buildMatch );
-        }
-        else
+        return new DotnetVersion(
+            parsed.getNumber( 0 ), parsed.getNumber( 1 ), Math.max( 0, parsed.getNumber( 2 ) ),
+            Math.max( 0, parsed.getNumber( 3 ) ) );
+    }
+
+    private static int countDots( String version )
+    {
+        int dots = 0;
+        for ( int i = 0; i < version.length(); i++ )
         {
-            build = 0;
+            if ( version.charAt( i ) == '.' )
+            {
+                dots++;
+            }
         }
-        return new DotnetVersion( major, minor, patch, build );
+        return dots;
+    }
+
+    private static boolean isNumberOrEmpty( ParsedVersion parsed, int index )
+    {
+        return parsed.isNumber( index ) || parsed.getToken( index ).length() == 0;
     }
 
     @Override
@@ -149,47 +157,20 @@ public final class DotnetVersion
         }
 
         final DotnetVersion other = (DotnetVersion) object;
-        if ( other.major != this.major || other.minor != this.minor || other.patch != this.patch
-            || other.build != this.build )
-        {
-            return false;
-        }
-        return true;
+        return other.high == this.high && other.low == this.low;
     }
 
     public int compareTo( final DotnetVersion other )
     {
-        if ( equals( other ) )
+        if ( this.high != other.high )
         {
-            return 0;
+            return this.high < other.high ? -1 : 1;
         }
-
-        if ( this.major < other.major )
-        {
-            return -1;
-        }
-        else if ( this.major == other.major )
+        if ( this.low != other.low )
         {
-            if ( this.minor < other.minor )
-            {
-                return -1;
-            }
-            else if ( this.minor == other.minor )
-            {
-                if ( this.patch < other.patch )
-                {
-                    return -1;
-                }
-                else if ( this.patch == other.patch )
-                {
-                    if ( this.build < other.build )
-                    {
-                        return -1;
-                    }
-                }
-            }
+            return this.low < other.low ? -1 : 1;
         }
-        return 1;
+        return 0;
     }
 
     @Override
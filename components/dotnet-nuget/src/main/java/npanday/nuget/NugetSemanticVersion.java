@@ -22,8 +22,8 @@ package npanday.nuget;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Port of Nugets SemanticVersion as of version 1.7
@@ -33,8 +33,14 @@ import java.util.regex.Pattern;
 public class NugetSemanticVersion
     implements Comparable<NugetSemanticVersion>
 {
-    private static Pattern _semanticVersionRegex = Pattern.compile("^(\\d+(\\s*\\.\\s*\\d+){0,3})(-[a-z][0-9a-z-]*)?$", Pattern.CASE_INSENSITIVE);
-    private static Pattern _strictSemanticVersionRegex = Pattern.compile("^(\\d+(\\.\\d+){2})(-[a-z][0-9a-z-]*)?$", Pattern.CASE_INSENSITIVE);
+    /**
+     * The number of loosely parsed versions to keep interned at most; the cache is emptied once it grows beyond.
+     */
+    private static final int MAX_INTERNED = 1024;
+
+    private static final ConcurrentMap<String, NugetSemanticVersion> _interned =
+        new ConcurrentHashMap<String, NugetSemanticVersion>();
+
     private String _originalString;
 
     public NugetSemanticVersion( int major, int minor, int build, int revision )
@@ -92,12 +98,35 @@ public class NugetSemanticVersion
 
     /**
      * Parses a version string using loose semantic versioning rules that allows 2-4 version components followed by an optional special version.
+     * Equal strings return the same instance, as long as it is interned.
      * @param version
      * @return
      */
     public static NugetSemanticVersion tryParse( String version )
     {
-        return tryParseInternal( version, _semanticVersionRegex );
+        if (Strings.isNullOrEmpty( version ))
+        {
+            return null;
+        }
+
+        NugetSemanticVersion semVer = _interned.get( version );
+        if ( semVer == null )
+        {
+            semVer = tryParseInternal( version, false );
+            if ( semVer != null )
+            {
+                if ( _interned.size() >= MAX_INTERNED )
+                {
+                    _interned.clear();
+                }
+                NugetSemanticVersion existing = _interned.putIfAbsent( version, semVer );
+                if ( existing != null )
+                {
+                    semVer = existing;
+                }
+            }
+        }
+        return semVer;
     }
 
     /**
@@ -105,30 +134,111 @@ public class NugetSemanticVersion
      */
     public static NugetSemanticVersion tryParseStrict( String version )
     {
-        return tryParseInternal( version, _strictSemanticVersionRegex );
+        return tryParseInternal( version, true );
     }
 
-    private static NugetSemanticVersion tryParseInternal( String version, Pattern regex )
+    /**
+     * Scans <code>\d+(\s*\.\s*\d+){0,3}(-[a-z][0-9a-z-]*)?</code> in one pass; strict parsing allows no whitespace
+     * and exactly three components.
+     */
+    private static NugetSemanticVersion tryParseInternal( String version, boolean strict )
     {
         if (Strings.isNullOrEmpty( version ))
         {
             return null;
         }
 
-        Matcher match = regex.matcher( version.trim() );
-        DotnetVersion versionValue;
-        if (!match.matches() || null == (versionValue = DotnetVersion.parse( match.group( 1 ) )))
+        String value = version.trim();
+        int length = value.length();
+        int dash = value.indexOf( '-' );
+        int end = dash < 0 ? length : dash;
+
+        String release = null;
+        if ( dash >= 0 )
+        {
+            if ( dash + 1 == length || !isLetter( value.charAt( dash + 1 ) ) )
+            {
+                return null;
+            }
+            for ( int i = dash + 2; i < length; i++ )
+            {
+                char c = value.charAt( i );
+                if ( !isLetter( c ) && !isDigit( c ) && c != '-' )
+                {
+                    return null;
+                }
+            }
+            release = value.substring( dash + 1 );
+        }
+
+        int[] components = new int[4];
+        int count = 0;
+        long current = -1;
+        boolean whitespaceAfterDigits = false;
+        for ( int i = 0; i < end; i++ )
+        {
+            char c = value.charAt( i );
+            if ( isDigit( c ) )
+            {
+                if ( whitespaceAfterDigits )
+                {
+                    return null;
+                }
+                current = ( current < 0 ? 0 : current * 10 ) + ( c - '0' );
+                if ( current > Integer.MAX_VALUE )
+                {
+                    return null;
+                }
+            }
+            else if ( c == '.' )
+            {
+                if ( current < 0 || count == 3 )
+                {
+                    return null;
+                }
+                components[count++] = (int) current;
+                current = -1;
+                whitespaceAfterDigits = false;
+            }
+            else if ( !strict && isWhitespace( c ) )
+            {
+                whitespaceAfterDigits = current >= 0;
+            }
+            else
+            {
+                return null;
+            }
+        }
+        if ( current < 0 || whitespaceAfterDigits )
         {
             return null;
         }
+        components[count++] = (int) current;
 
-        String release = match.group( 3 );
-        if (release != null && release.startsWith( "-" ))
-            release = release.substring( 1 );
+        if ( strict ? count != 3 : count < 2 )
+        {
+            return null;
+        }
 
+        DotnetVersion versionValue = new DotnetVersion( components[0], components[1], components[2], components[3] );
         return new NugetSemanticVersion(versionValue, release, version.replace( " ", "" ));
     }
 
+    private static boolean isDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter( char c )
+    {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' );
+    }
+
+    private static boolean isWhitespace( char c )
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     @Override
     public String toString()
     {
@@ -154,7 +264,7 @@ public class NugetSemanticVersion
     {
         if (this == other)
         {
-            return 1;
+            return 0;
         }
 
         int result = version.compareTo(other.version );
@@ -164,8 +274,8 @@ public class NugetSemanticVersion
             return result;
         }
 
-        boolean empty = Strings.isNullOrEmpty( specialVersion );
-        boolean otherEmpty = Strings.isNullOrEmpty(other.specialVersion );
+        boolean empty = specialVersion.length() == 0;
+        boolean otherEmpty = other.specialVersion.length() == 0;
         if (empty && otherEmpty)
         {
             return 0;
@@ -20,8 +20,6 @@
 package npanday.nuget;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Iterables;
 
 /**
  * Port of Nugets VersionSpec as of version 1.7
@@ -55,8 +53,6 @@ public class NugetVersionSpec
         return versionBuilder.toString();
     }
 
-    static Splitter VERSIONS_IN_RANGE = Splitter.on( "," ).omitEmptyStrings().trimResults();
-
     public static NugetVersionSpec parse (String value){
         NugetVersionSpec spec = tryParse( value );
         Preconditions.checkArgument( spec != null, "Version spec '" + value + "' is invalid!");
@@ -116,15 +112,41 @@ public class NugetVersionSpec
         value = value.substring( 1, value.length() - 1 );
 
         // Split by comma, and make sure we don't get more than two pieces
-        String[] parts = Iterables.toArray( VERSIONS_IN_RANGE.split( value ), String.class );
-        if ( parts.length > 2 || parts.length == 0 )
+        String minVersionString = null;
+        String maxVersionString = null;
+        int start = 0;
+        while ( start <= value.length() )
+        {
+            int comma = value.indexOf( ',', start );
+            int end = comma < 0 ? value.length() : comma;
+            String part = value.substring( start, end ).trim();
+            if ( part.length() > 0 )
+            {
+                if ( maxVersionString != null )
+                {
+                    return null;
+                }
+                if ( minVersionString == null )
+                {
+                    minVersionString = part;
+                }
+                else
+                {
+                    maxVersionString = part;
+                }
+            }
+            start = end + 1;
+        }
+        if ( minVersionString == null )
         {
             return null;
         }
 
         // If there is only one piece, we use it for both min and max
-        String minVersionString = parts[0];
-        String maxVersionString = ( parts.length == 2 ) ? parts[1] : parts[0];
+        if ( maxVersionString == null )
+        {
+            maxVersionString = minVersionString;
+        }
 
         NugetSemanticVersion minVersion = NugetSemanticVersion.tryParse( minVersionString );
         NugetSemanticVersion maxVersion = NugetSemanticVersion.tryParse( maxVersionString );
@@ -63,4 +63,35 @@ class DotnetVersionTest {
         assert DotnetVersion.parse("1.1.1") == DotnetVersion.parse("1.1.1")
         assert DotnetVersion.parse("1.1.1.1") == DotnetVersion.parse("1.1.1.1")
     }
+
+    @Test
+    void parse_empty_components()
+    {
+        assert DotnetVersion.parse("1.2.") == new DotnetVersion(1, 2, 0)
+        assert DotnetVersion.parse("1.2..3") == new DotnetVersion(1, 2, 0, 3)
+    }
+
+    @Test
+    void parse_invalid()
+    {
+        ["1", "1.", ".1.2", "1.2.3.4.", "1.2.3.4.5", "1_2", "1.2a", "1.2+", "1.99999999999"].each { version ->
+            try
+            {
+                DotnetVersion.parse(version)
+                assert false, "Expected invalid version " + version
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    void compare_large_components()
+    {
+        assert DotnetVersion.parse("1.2147483647") < DotnetVersion.parse("2.0")
+        assert DotnetVersion.parse("1.0.0.2147483647") < DotnetVersion.parse("1.0.1.0")
+        assert DotnetVersion.parse("1.0.0.2147483647").compareTo(DotnetVersion.parse("1.0.0.2147483647")) == 0
+    }
 }
@@ -1,3 +1,4 @@
+import npanday.nuget.DotnetVersion
 import npanday.nuget.NugetSemanticVersion
 import org.junit.Test
 /*
@@ -70,4 +71,34 @@ class NugetSemanticVersionTest {
         assert NugetSemanticVersion.parse("1.1.1-a") == NugetSemanticVersion.parse("1.1.1-a")
         assert NugetSemanticVersion.parse("1.1.1.1-a") == NugetSemanticVersion.parse("1.1.1.1-a")
     }
+
+    @Test
+    void parse_loose(){
+        assert NugetSemanticVersion.tryParse("1") == null
+        assert NugetSemanticVersion.tryParse("1.2.3.4.5") == null
+        assert NugetSemanticVersion.tryParse("1.2-") == null
+        assert NugetSemanticVersion.tryParse("1.2-1a") == null
+        assert NugetSemanticVersion.tryParse("1 2") == null
+        assert NugetSemanticVersion.tryParse("1.99999999999") == null
+
+        def version = NugetSemanticVersion.tryParse(" 1 . 2-Beta-2 ")
+        assert version.version == new DotnetVersion(1, 2, 0)
+        assert version.specialVersion == "Beta-2"
+        assert version.toString() == "1.2-Beta-2"
+    }
+
+    @Test
+    void parse_strict(){
+        assert NugetSemanticVersion.tryParseStrict("1.2.3-alpha").version == new DotnetVersion(1, 2, 3)
+        assert NugetSemanticVersion.tryParseStrict("1.2") == null
+        assert NugetSemanticVersion.tryParseStrict("1.2.3.4") == null
+        assert NugetSemanticVersion.tryParseStrict("1 .2.3") == null
+    }
+
+    @Test
+    void interning(){
+        def version = NugetSemanticVersion.parse("2.5.1-rc")
+        assert version.is(NugetSemanticVersion.parse(new String("2.5.1-rc")))
+        assert version.compareTo(version) == 0
+    }
 }
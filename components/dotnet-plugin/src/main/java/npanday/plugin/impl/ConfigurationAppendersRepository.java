@@ -22,6 +22,7 @@ package npanday.plugin.impl;
 import npanday.model.configurationappenders.ConfigurationAppender;
 import npanday.model.configurationappenders.ConfigurationAppenderModel;
 import npanday.model.configurationappenders.io.xpp3.ConfigurationAppendersXpp3Reader;
+import npanday.model.configurationappenders.io.xpp3.ConfigurationAppendersXpp3Writer;
 import npanday.registry.ModelInterpolator;
 import npanday.registry.NPandayRepositoryException;
 import npanday.registry.Repository;
@@ -31,6 +32,7 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
@@ -59,6 +61,14 @@ public class ConfigurationAppendersRepository
            return xpp3Reader.read( reader );
     }
 
+    @Override
+    protected boolean writeToWriter( Writer writer, ConfigurationAppenderModel model )
+        throws IOException
+    {
+        new ConfigurationAppendersXpp3Writer().write( writer, model );
+        return true;
+    }
+
     @Override
     protected void mergeLoadedModel( ConfigurationAppenderModel model )
         throws NPandayRepositoryException
@@ -24,11 +24,15 @@ import npanday.registry.NPandayRepositoryException;
 import npanday.registry.Repository;
 import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.util.IOUtil;
 
 import javax.naming.OperationNotSupportedException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Hashtable;
@@ -72,38 +76,116 @@ public abstract class AbstractMultisourceRepository<T>
     private void loadAndMerge( URL sourceUrl )
         throws NPandayRepositoryException
     {
-        T model;
+        RepositorySnapshots snapshots =
+            getInterpolator() instanceof ContextAwareModelInterpolator ? RepositorySnapshots.getDefault() : null;
+
+        T model = snapshots != null ? loadFromSnapshot( snapshots, sourceUrl ) : null;
+        if ( model == null )
+        {
+            String source;
+            try
+            {
+                source = readSource( sourceUrl );
+                model = loadFromReader( new StringReader( source ), properties );
+            }
+            catch ( IOException e )
+            {
+                throw new NPandayRepositoryException(
+                    "NPANDAY-111-000: An error occurred while reading " + sourceUrl + " into "
+                        + getClass().getSimpleName(), e );
+            }
+            catch ( org.codehaus.plexus.util.xml.pull.XmlPullParserException e )
+            {
+                throw new NPandayRepositoryException(
+                    "NPANDAY-111-001: Could not read " + sourceUrl + " into " + getClass().getSimpleName(), e );
+            }
+
+            try
+            {
+                interpolateModel( model );
+            }
+            catch ( InterpolationException e )
+            {
+                throw new NPandayRepositoryException(
+                    "NPANDAY-111-001: Error on interpolating model from " + sourceUrl, e );
+            }
+
+            if ( snapshots != null )
+            {
+                saveSnapshot( snapshots, sourceUrl, source, model );
+            }
+        }
+
+        normalizeInterpolatedModelNodes( model );
+
+        mergeLoadedModel( model );
+        incrementContentVersion();
+    }
+
+    private static String readSource( URL sourceUrl )
+        throws IOException
+    {
+        Reader reader = new InputStreamReader( sourceUrl.openStream() );
+        try
+        {
+            return IOUtil.toString( reader );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * Reads the interpolated model from its snapshot; failing snapshots are ignored, the source is then read
+     * again.
+     */
+    private T loadFromSnapshot( RepositorySnapshots snapshots, URL sourceUrl )
+    {
         try
         {
-            Reader reader = new InputStreamReader( sourceUrl.openStream() );
-            model = loadFromReader( reader, properties );
+            String snapshot = snapshots.read( getClass().getName(), sourceUrl );
+            if ( snapshot == null )
+            {
+                return null;
+            }
+            T model = loadFromReader( new StringReader( snapshot ), properties );
+            debug( "NPANDAY-179-002: Loaded " + sourceUrl + " into " + getClass().getSimpleName() + " from snapshot" );
+            return model;
         }
         catch ( IOException e )
         {
-            throw new NPandayRepositoryException(
-                "NPANDAY-111-000: An error occurred while reading " + sourceUrl + " into " + getClass().getSimpleName(),
-                e );
+            debug( "NPANDAY-179-003: Could not read snapshot of " + sourceUrl + ": " + e.getMessage() );
         }
         catch ( org.codehaus.plexus.util.xml.pull.XmlPullParserException e )
         {
-            throw new NPandayRepositoryException(
-                "NPANDAY-111-001: Could not read " + sourceUrl + " into " + getClass().getSimpleName(), e );
+            debug( "NPANDAY-179-003: Could not read snapshot of " + sourceUrl + ": " + e.getMessage() );
         }
+        return null;
+    }
 
+    private void saveSnapshot( RepositorySnapshots snapshots, URL sourceUrl, String source, T model )
+    {
         try
         {
-            interpolateModel( model );
+            StringWriter writer = new StringWriter();
+            if ( writeToWriter( writer, model ) )
+            {
+                snapshots.write( getClass().getName(), sourceUrl, source, writer.toString() );
+            }
         }
-        catch ( InterpolationException e )
+        catch ( IOException e )
         {
-            throw new NPandayRepositoryException(
-                "NPANDAY-111-001: Error on interpolating model from " + sourceUrl, e );
+            debug( "NPANDAY-179-004: Could not write snapshot of " + sourceUrl + ": " + e.getMessage() );
         }
+    }
 
-        normalizeInterpolatedModelNodes( model );
-
-        mergeLoadedModel( model );
-        incrementContentVersion();
+    private void debug( String message )
+    {
+        if ( getLogger() != null )
+        {
+            getLogger().debug( message );
+        }
     }
 
     protected void normalizeInterpolatedModelNodes( T model ){
@@ -132,6 +214,18 @@ public abstract class AbstractMultisourceRepository<T>
     protected abstract T loadFromReader( Reader reader, Hashtable properties )
         throws IOException, org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
+    /**
+     * Writes the model in the format read by {@link #loadFromReader}. Repositories supporting this keep snapshots
+     * of their interpolated models, which spares parsing and interpolating the sources in later builds.
+     *
+     * @return <code>false</code>, if the repository does not support snapshots
+     */
+    protected boolean writeToWriter( Writer writer, T model )
+        throws IOException
+    {
+        return false;
+    }
+
     protected abstract void mergeLoadedModel( T model )
         throws NPandayRepositoryException;
 
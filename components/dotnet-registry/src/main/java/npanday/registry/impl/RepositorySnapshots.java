@@ -0,0 +1,325 @@
+package npanday.registry.impl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.Interpolator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps binary snapshots of interpolated repository models, so that later builds can skip parsing and
+ * interpolating the original sources. A snapshot belongs to one repository class and source URL. It is only
+ * used while the source file, or the jar containing it, has the same timestamp and size, and while all
+ * expressions in the source still interpolate to the values they had when the snapshot was written.
+ * <p/>
+ * Snapshots are kept below the local repository. Set the system property <code>npanday.registry.snapshots</code>
+ * to <code>false</code> to turn them off, or to a directory to keep them there.
+ */
+final class RepositorySnapshots
+{
+    public static final String PROPERTY = "npanday.registry.snapshots";
+
+    static final String DIRECTORY_NAME = ".npanday-registry";
+
+    private static final int MAGIC = 0x4e505253;
+
+    /**
+     * Increase whenever the layout of the snapshot files changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Sources modified within this interval before writing the snapshot may still change without their timestamp
+     * or size changing, on file systems with a coarse timestamp resolution.
+     */
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private static final Pattern EXPRESSION = Pattern.compile( "\\$\\{[^}]+\\}" );
+
+    private static RepositorySnapshots defaultSnapshots;
+
+    private final File directory;
+
+    RepositorySnapshots( File directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the snapshots configured through the system properties, or <code>null</code> if they are turned
+     * off.
+     */
+    static synchronized RepositorySnapshots getDefault()
+    {
+        String configured = System.getProperty( PROPERTY );
+        if ( "false".equals( configured ) )
+        {
+            return null;
+        }
+
+        File directory;
+        if ( configured != null && configured.length() > 0 && !"true".equals( configured ) )
+        {
+            directory = new File( configured );
+        }
+        else
+        {
+            String localRepository = System.getProperty( "maven.repo.local" );
+            if ( localRepository == null || localRepository.length() == 0 )
+            {
+                localRepository = new File( System.getProperty( "user.home" ), ".m2/repository" ).getPath();
+            }
+            directory = new File( localRepository, DIRECTORY_NAME );
+        }
+
+        if ( defaultSnapshots == null || !defaultSnapshots.directory.equals( directory ) )
+        {
+            defaultSnapshots = new RepositorySnapshots( directory );
+        }
+        return defaultSnapshots;
+    }
+
+    /**
+     * Returns the interpolated model stored for the source, or <code>null</code> if there is no snapshot or it
+     * is outdated.
+     */
+    String read( String repositoryClass, URL source )
+        throws IOException
+    {
+        File stamp = getStampFile( source );
+        File snapshot = getSnapshotFile( repositoryClass, source );
+        if ( stamp == null || !stamp.exists() || !snapshot.exists() )
+        {
+            return null;
+        }
+
+        DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( snapshot ) ) );
+        try
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION )
+            {
+                return null;
+            }
+            if ( !repositoryClass.equals( in.readUTF() ) || !source.toExternalForm().equals( in.readUTF() ) )
+            {
+                return null;
+            }
+            if ( in.readLong() != stamp.lastModified() || in.readLong() != stamp.length() )
+            {
+                return null;
+            }
+
+            int expressions = in.readInt();
+            if ( expressions > 0 )
+            {
+                Interpolator interpolator = ContextAwareModelInterpolator.buildInterpolator( null );
+                for ( int i = 0; i < expressions; i++ )
+                {
+                    String expression = in.readUTF();
+                    String value = in.readUTF();
+                    if ( !value.equals( interpolate( interpolator, expression ) ) )
+                    {
+                        return null;
+                    }
+                }
+            }
+
+            byte[] model = new byte[in.readInt()];
+            in.readFully( model );
+            return new String( model, "UTF-8" );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Stores the interpolated model for the source.
+     *
+     * @param originalSource the source before interpolation; the values of its expressions become part of the
+     *                       snapshot
+     * @param model          the interpolated model, as read by the repository
+     */
+    void write( String repositoryClass, URL source, String originalSource, String model )
+        throws IOException
+    {
+        File stamp = getStampFile( source );
+        if ( stamp == null || !stamp.exists()
+            || stamp.lastModified() >= System.currentTimeMillis() - TIMESTAMP_RESOLUTION )
+        {
+            return;
+        }
+        if ( !directory.exists() && !directory.mkdirs() && !directory.exists() )
+        {
+            throw new IOException( "NPANDAY-179-000: Could not create directory " + directory );
+        }
+
+        Set<String> expressions = new LinkedHashSet<String>();
+        Matcher matcher = EXPRESSION.matcher( originalSource );
+        while ( matcher.find() )
+        {
+            expressions.add( matcher.group() );
+        }
+
+        // write to a temporary file first, other builds might read the snapshot concurrently
+        File snapshot = getSnapshotFile( repositoryClass, source );
+        File temporary = File.createTempFile( snapshot.getName(), ".tmp", directory );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temporary ) ) );
+        try
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT_VERSION );
+            out.writeUTF( repositoryClass );
+            out.writeUTF( source.toExternalForm() );
+            out.writeLong( stamp.lastModified() );
+            out.writeLong( stamp.length() );
+
+            out.writeInt( expressions.size() );
+            if ( !expressions.isEmpty() )
+            {
+                Interpolator interpolator = ContextAwareModelInterpolator.buildInterpolator( null );
+                for ( String expression : expressions )
+                {
+                    out.writeUTF( expression );
+                    out.writeUTF( interpolate( interpolator, expression ) );
+                }
+            }
+
+            byte[] bytes = model.getBytes( "UTF-8" );
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        if ( !temporary.renameTo( snapshot ) )
+        {
+            snapshot.delete();
+            if ( !temporary.renameTo( snapshot ) )
+            {
+                temporary.delete();
+                throw new IOException( "NPANDAY-179-001: Could not write snapshot " + snapshot );
+            }
+        }
+    }
+
+    File getDirectory()
+    {
+        return directory;
+    }
+
+    private File getSnapshotFile( String repositoryClass, URL source )
+    {
+        return new File( directory, digest( repositoryClass + "|" + source.toExternalForm() ) + ".snapshot" );
+    }
+
+    /**
+     * Returns the file whose timestamp and size identify the content of the source: the file itself, or the jar
+     * containing it. Returns <code>null</code> for other sources, which are never snapshotted.
+     */
+    static File getStampFile( URL source )
+    {
+        try
+        {
+            if ( "file".equals( source.getProtocol() ) )
+            {
+                return new File( source.toURI() );
+            }
+            if ( "jar".equals( source.getProtocol() ) )
+            {
+                String path = source.getPath();
+                int separator = path.indexOf( "!/" );
+                if ( separator > 0 )
+                {
+                    URL jar = new URL( path.substring( 0, separator ) );
+                    return "file".equals( jar.getProtocol() ) ? new File( jar.toURI() ) : null;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        catch ( URISyntaxException e )
+        {
+            return null;
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return null;
+        }
+        return null;
+    }
+
+    private static String interpolate( Interpolator interpolator, String expression )
+    {
+        try
+        {
+            return interpolator.interpolate( expression );
+        }
+        catch ( InterpolationException e )
+        {
+            // never equal to a stored value, so that the source gets interpolated again
+            return "\u0000" + e.getMessage();
+        }
+    }
+
+    private static String digest( String value )
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance( "SHA-1" ).digest( value.getBytes( "UTF-8" ) );
+            StringBuilder hex = new StringBuilder();
+            for ( byte b : hash )
+            {
+                hex.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+            }
+            return hex.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( e );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.registry.impl
+
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import org.codehaus.plexus.util.FileUtils
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class RepositorySnapshotsTest
+{
+  File dir
+  RepositorySnapshots snapshots
+
+  @Before
+  void setUp()
+  {
+    dir = File.createTempFile("snapshots", "")
+    dir.delete()
+    dir.mkdirs()
+    snapshots = new RepositorySnapshots(new File(dir, "snapshots"))
+  }
+
+  @After
+  void tearDown()
+  {
+    FileUtils.deleteDirectory(dir)
+  }
+
+  File source(String name, String content)
+  {
+    def file = new File(dir, name)
+    file.text = content
+    // snapshots of sources modified just now are not written
+    file.lastModified = System.currentTimeMillis() - 60000
+    return file
+  }
+
+  @Test
+  void testSnapshotIsReadBack()
+  {
+    def url = source("plugins.xml", "<model/>").toURI().toURL()
+
+    assert snapshots.read("Repository", url) == null
+
+    snapshots.write("Repository", url, "<model/>", "<model>interpolated</model>")
+
+    assert snapshots.read("Repository", url) == "<model>interpolated</model>"
+    assert snapshots.read("OtherRepository", url) == null
+  }
+
+  @Test
+  void testChangedSourceInvalidatesSnapshot()
+  {
+    def file = source("plugins.xml", "<model/>")
+    def url = file.toURI().toURL()
+    snapshots.write("Repository", url, "<model/>", "<model/>")
+
+    file.text = "<model></model>"
+    file.lastModified = System.currentTimeMillis() - 30000
+
+    assert snapshots.read("Repository", url) == null
+  }
+
+  @Test
+  void testRecentlyModifiedSourceIsNotSnapshotted()
+  {
+    def file = source("plugins.xml", "<model/>")
+    file.lastModified = System.currentTimeMillis()
+    def url = file.toURI().toURL()
+
+    snapshots.write("Repository", url, "<model/>", "<model/>")
+
+    assert snapshots.read("Repository", url) == null
+  }
+
+  @Test
+  void testSourceInJarIsStampedByJar()
+  {
+    def jar = new File(dir, "plugin.jar")
+    def out = new JarOutputStream(new FileOutputStream(jar))
+    out.putNextEntry(new JarEntry("META-INF/npanday/plugins.xml"))
+    out.write("<model/>".bytes)
+    out.close()
+    jar.lastModified = System.currentTimeMillis() - 60000
+
+    def url = new URL("jar:" + jar.toURI().toURL() + "!/META-INF/npanday/plugins.xml")
+    assert RepositorySnapshots.getStampFile(url) == jar
+
+    snapshots.write("Repository", url, "<model/>", "<model/>")
+    assert snapshots.read("Repository", url) == "<model/>"
+
+    assert RepositorySnapshots.getStampFile(new URL("http://localhost/plugins.xml")) == null
+  }
+
+  @Test
+  void testChangedExpressionValueInvalidatesSnapshot()
+  {
+    def path = System.getenv("PATH")
+    def raw = '<model>${env.PATH}</model>'
+    def url = source("plugins.xml", raw).toURI().toURL()
+
+    snapshots.write("Repository", url, raw, "<model>" + path + "</model>")
+    assert snapshots.read("Repository", url) == "<model>" + path + "</model>"
+
+    // pretend the value recorded was different from the current one
+    def file = snapshots.directory.listFiles().find { it.name.endsWith(".snapshot") }
+    def bytes = file.readBytes()
+    def recorded = path.getBytes("UTF-8")
+    int i = indexOf(bytes, recorded)
+    assert i > 0
+    bytes[i] = (byte) (bytes[i] == 'x' as char ? 'y' as char : 'x' as char)
+    file.withOutputStream { it.write(bytes) }
+
+    assert snapshots.read("Repository", url) == null
+  }
+
+  @Test
+  void testSnapshotsCanBeTurnedOff()
+  {
+    def previous = System.getProperty(RepositorySnapshots.PROPERTY)
+    try
+    {
+      System.setProperty(RepositorySnapshots.PROPERTY, "false")
+      assert RepositorySnapshots.getDefault() == null
+
+      System.setProperty(RepositorySnapshots.PROPERTY, dir.path)
+      assert RepositorySnapshots.getDefault().directory == dir
+    }
+    finally
+    {
+      if (previous == null)
+      {
+        System.clearProperty(RepositorySnapshots.PROPERTY)
+      }
+      else
+      {
+        System.setProperty(RepositorySnapshots.PROPERTY, previous)
+      }
+    }
+  }
+
+  static int indexOf(byte[] bytes, byte[] part)
+  {
+    for (int i = 0; i <= bytes.length - part.length; i++)
+    {
+      if ((0..<part.length).every { bytes[i + it] == part[it] })
+      {
+        return i
+      }
+    }
+    return -1
+  }
+}
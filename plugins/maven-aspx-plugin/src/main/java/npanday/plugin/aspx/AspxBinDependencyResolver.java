@@ -19,6 +19,7 @@
 
 package npanday.plugin.aspx;
 
+import npanday.FileStager;
 import npanday.LocalRepositoryUtil;
 import npanday.PathUtil;
 import npanday.resolver.NPandayDependencyResolution;
@@ -29,10 +30,11 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 
@@ -65,6 +67,15 @@ public class AspxBinDependencyResolver
      */
     private NPandayDependencyResolution dependencyResolution;
 
+    /**
+     * Specifies if dependencies should be hard linked to the bin directory instead of copied, where the
+     * file system supports it. Only enable this if nothing writes to the bin directory, since writes would
+     * go through to the local repository.
+     *
+     * @parameter expression="${aspx.linkDependencies}" default-value="false"
+     */
+    private boolean linkDependencies;
+
     /**
      * The scope up to which dependencies should be included.
      *
@@ -108,23 +119,24 @@ public class AspxBinDependencyResolver
 
         ScopeArtifactFilter filter = new ScopeArtifactFilter( scope );
 
+        List<Artifact> included = new ArrayList<Artifact>();
         for (Artifact dependency : dependencies) {
 
             if (!filter.include( dependency )){
                 continue;
             }
+            included.add( dependency );
+        }
 
-            try {
-                File targetFile = new File(binDir, PathUtil.getPlainArtifactFileName(dependency));
-                if (!targetFile.exists()) {
-                    getLog().debug("NPANDAY-157-001: copy dependency " +  dependency + " to " + targetFile);
-                    FileUtils.copyFile(dependency.getFile(), targetFile);
-                }
-            }
-            catch (IOException ioe) {
-                throw new MojoExecutionException("NPANDAY-157-002: Error copying dependency " + dependency, ioe);
-                
-            }
+        try {
+            // updated dependencies replace older copies, unchanged ones are skipped; the Bin folder is part of
+            // the sources, hence the manifest of the copied files is kept in the build directory
+            FileStager.Result result = PathUtil.copyPlainArtifactFilesToDirectory(
+                included, binDir, linkDependencies, new File( project.getBuild().getDirectory() ) );
+            getLog().info( "NPANDAY-157-001: copied dependencies to " + binDir + ": " + result );
+        }
+        catch (IOException ioe) {
+            throw new MojoExecutionException("NPANDAY-157-002: Error copying dependencies to " + binDir, ioe);
         }
     }
 
@@ -20,9 +20,8 @@ package npanday.plugin.compile;
  */
 
 import npanday.ArtifactType;
-import npanday.ArtifactTypeHelper;
+import npanday.InputFingerprint;
 import npanday.LocalRepositoryUtil;
-import npanday.PathUtil;
 import npanday.PlatformUnsupportedException;
 import npanday.assembler.AssemblerContext;
 import npanday.assembler.AssemblyInfo;
@@ -30,20 +29,27 @@ import npanday.assembler.AssemblyInfo.TargetFramework;
 import npanday.assembler.AssemblyInfoException;
 import npanday.assembler.AssemblyInfoMarshaller;
 import npanday.executable.ExecutionException;
+import npanday.executable.compiler.CompileScheduler;
 import npanday.executable.compiler.CompilerConfig;
+import npanday.executable.compiler.CompilerDiagnostics;
 import npanday.executable.compiler.CompilerExecutable;
 import npanday.executable.compiler.CompilerRequirement;
+import npanday.executable.compiler.StalenessChecker;
+import npanday.model.settings.NPandaySettings;
+import npanday.model.settings.io.xpp3.NPandaySettingsXpp3Writer;
 import npanday.registry.RepositoryRegistry;
 import npanday.resolver.NPandayDependencyResolution;
 import npanday.resolver.filter.DotnetAssemblyArtifactFilter;
 import npanday.resolver.filter.DotnetSymbolsArtifactFilter;
 import npanday.resolver.filter.OrArtifactFilter;
+import npanday.vendor.SettingsRepository;
 import npanday.vendor.SettingsUtil;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.InversionArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
@@ -64,11 +70,14 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -121,6 +130,24 @@ public abstract class AbstractCompilerMojo
      */
     private NPandayDependencyResolution dependencyResolution;
 
+    /**
+     * @component
+     */
+    private CompileScheduler compileScheduler;
+
+    /**
+     * The role-hint of the staleness checker that decides whether the artifact has to be recompiled.
+     * <code>digest</code> compares content digests of the inputs, which are stored next to the artifact.
+     *
+     * @parameter expression="${npanday.stalenessChecker}" default-value="digest"
+     */
+    protected String stalenessChecker;
+
+    /**
+     * @component role="npanday.executable.compiler.StalenessChecker"
+     */
+    private Map<String, StalenessChecker> stalenessCheckers;
+
     /**
      * The location of the local Maven repository.
      *
@@ -1162,13 +1189,15 @@ public abstract class AbstractCompilerMojo
         long startTime = System.currentTimeMillis();
 
         String scope = test ? "test" : "compile";
+        Set<Artifact> dependencies;
         try
         {
             AndArtifactFilter filter = new AndArtifactFilter();
             filter.add(new ScopeArtifactFilter(scope));
             filter.add(new InversionArtifactFilter(new DotnetSymbolsArtifactFilter()));
 
-            dependencyResolution.require( project, LocalRepositoryUtil.create( localRepository ), filter );
+            dependencies =
+                dependencyResolution.require( project, LocalRepositoryUtil.create( localRepository ), filter );
         }
         catch ( ArtifactResolutionException e )
         {
@@ -1216,28 +1245,50 @@ public abstract class AbstractCompilerMojo
             {
                 // System.Runtime.Versioning.TargetFrameworkAttribute support
                 generateAssemblyAttributesIfNecessary(compilerExecutable.getTargetFramework());
+            }
 
-                Boolean sourceFilesUpToDate = (Boolean) super.getPluginContext().get("SOURCE_FILES_UP_TO_DATE");
-                if ((sourceFilesUpToDate != null && sourceFilesUpToDate) &&
-                        System.getProperty("forceCompile") == null && compilerExecutable.getCompiledArtifact() != null &&
-                        compilerExecutable.getCompiledArtifact().exists())
+            final StalenessChecker checker = getStalenessChecker();
+            final InputFingerprint inputs =
+                    collectInputs(checker, compiledArtifact, compilerExecutable, dependencies, test);
+
+            if (System.getProperty("forceCompile") == null && compilerExecutable.isUpToDate()
+                    && isUpToDateWithInputs(checker, compiledArtifact, inputs))
+            {
+                getLog().info("NPANDAY-900-003: Nothing to compile - all classes are up-to-date");
+                if (!test)
                 {
-                    if (isUpToDateWithPomAndSettingsAndDependencies(compilerExecutable.getCompiledArtifact()))
-                    {
-                        getLog().info("NPANDAY-900-003: Nothing to compile - all classes are up-to-date");
-                        attachArtifact(compiledArtifact, classifier);
-                        return;
-                    }
+                    attachArtifact(compiledArtifact, classifier);
                 }
+                return;
             }
 
             FileUtils.mkdir(project.getBuild().getDirectory());
 
-            long startTimeCompile = System.currentTimeMillis();
-            compilerExecutable.execute();
-            long endTimeCompile = System.currentTimeMillis();
-
-            getLog().info("NPANDAY-900-004: Compile Time = " + (endTimeCompile - startTimeCompile) + " ms");
+            if (compileScheduler.isPlanning())
+            {
+                // the reactor-compile goal runs the compile concurrently with other modules
+                getLog().info("NPANDAY-900-017: Scheduled compile of " + compiledArtifact.getName());
+                final File artifact = compiledArtifact;
+                compileScheduler.submit(compilerExecutable, new Callable<Object>()
+                {
+                    public Object call()
+                    {
+                        recordInputs(checker, artifact, inputs);
+                        return null;
+                    }
+                });
+            }
+            else
+            {
+                long startTimeCompile = System.currentTimeMillis();
+                compilerExecutable.execute();
+                long endTimeCompile = System.currentTimeMillis();
+
+                CompilerDiagnostics diagnostics = compilerExecutable.getDiagnostics();
+                getLog().info("NPANDAY-900-004: Compile Time = " + (endTimeCompile - startTimeCompile) + " ms"
+                        + (diagnostics == null ? "" : ", Warnings = " + diagnostics.getWarningCount()));
+                recordInputs(checker, compiledArtifact, inputs);
+            }
 
 
             if (!test)
@@ -1343,56 +1394,113 @@ public abstract class AbstractCompilerMojo
     }
 
 
-    protected boolean isUpToDateWithPomAndSettingsAndDependencies(File targetFile)
+    protected StalenessChecker getStalenessChecker() throws MojoExecutionException
     {
-        File settingsFile = PathUtil.buildSettingsFilePath(settingsPath);
-        Artifact latestDependencyModification =
-                this.getLatestDependencyModification(project.getDependencyArtifacts());
-
-        //TODO: Different parameters from the command line should also cause an update
-        //TODO: Change in resource should cause an update
-        if (targetFile.lastModified() < pomFile.lastModified())
+        StalenessChecker checker = stalenessCheckers.get(stalenessChecker);
+        if (checker == null)
         {
-            getLog().info("NPANDAY-900-007: Project pom has changed. Forcing a recompile.");
-            return false;
+            throw new MojoExecutionException("NPANDAY-900-018: Unknown staleness checker '" + stalenessChecker
+                    + "', available are " + stalenessCheckers.keySet());
         }
-        else if (settingsFile.exists() && targetFile.lastModified() < settingsFile.lastModified())
+        return checker;
+    }
+
+    /**
+     * Collects everything besides the sources and resources that goes into the compiled artifact: the project
+     * model, the vendor settings, the referenced assemblies, the key file and the extra compiler switches.
+     * Sources, resources and the final command line are covered by the compiler itself, see
+     * {@link CompilerExecutable#isUpToDate()}.
+     *
+     * @param dependencies the resolved direct and transitive references in the scope of the compile; the mojos
+     *                     do not require dependency resolution, hence the project does not know them
+     */
+    protected InputFingerprint collectInputs(StalenessChecker checker, File artifact,
+                                             CompilerExecutable compilerExecutable, Set<Artifact> dependencies,
+                                             boolean test)
+            throws MojoExecutionException
+    {
+        InputFingerprint inputs = checker.createInputs(artifact);
+        try
         {
-            getLog().info("NPANDAY-900-008:Project settings has changed. Forcing a recompile.");
-            return false;
+            StringWriter model = new StringWriter();
+            new MavenXpp3Writer().write(model, project.getModel());
+            inputs.addValue("model", model.toString());
+
+            inputs.addValue("settings", describeVendorSettings(compilerExecutable));
+            inputs.addValue("parameters", String.valueOf(getParameters()));
+
+            for (Artifact dependency : dependencies)
+            {
+                if (dependency.getFile() != null)
+                {
+                    inputs.addFile(dependency.getFile());
+                }
+            }
+
+            File key = test ? testKeyfile : keyfile;
+            if (key != null)
+            {
+                inputs.addFile(key);
+            }
         }
-        else if (latestDependencyModification != null &&
-                targetFile.lastModified() < latestDependencyModification.getFile().lastModified())
+        catch (IOException e)
         {
-            getLog().info(
-                    "NPANDAY-900-009: Detected change in module dependency. Forcing a recompile: Changed Artifact = " +
-                            latestDependencyModification);
-            return false;
+            throw new MojoExecutionException("NPANDAY-900-019: Could not collect the compiler inputs", e);
         }
-        return true;
+        return inputs;
     }
 
-
-    protected Artifact getLatestDependencyModification(Set<Artifact> artifacts)
+    /**
+     * Writes the default setup and the configured vendors matching the one used by the compiler; changes to
+     * other vendors do not affect the compiled artifact.
+     */
+    private String describeVendorSettings(CompilerExecutable compilerExecutable) throws IOException
     {
-        if (artifacts == null)
+        SettingsRepository settingsRepository = SettingsUtil.findSettingsFromRegistry(repositoryRegistry);
+        if (settingsRepository == null || settingsRepository.isEmpty())
         {
             return null;
         }
-        Artifact lastModArtifact = null;
-        for (Artifact artifact : artifacts)
+
+        String vendorName = compilerExecutable.getVendor() == null ? null
+                : compilerExecutable.getVendor().getVendorName();
+
+        NPandaySettings settings = new NPandaySettings();
+        settings.setDefaultSetup(settingsRepository.getDefaultSetup());
+        for (npanday.model.settings.Vendor configuredVendor : settingsRepository.getVendors())
         {
-            if (lastModArtifact == null && !ArtifactTypeHelper.isDotnetAnyGac( artifact.getType() ))
+            if (vendorName == null || vendorName.equalsIgnoreCase(configuredVendor.getVendorName()))
             {
-                lastModArtifact = artifact;
-            }
-            else if (!ArtifactTypeHelper.isDotnetAnyGac( artifact.getType() ) &&
-                    artifact.getFile().lastModified() > lastModArtifact.getFile().lastModified())
-            {
-                lastModArtifact = artifact;
+                settings.addVendor(configuredVendor);
             }
         }
-        return lastModArtifact;
+
+        StringWriter writer = new StringWriter();
+        new NPandaySettingsXpp3Writer().write(writer, settings);
+        return writer.toString();
+    }
+
+    protected boolean isUpToDateWithInputs(StalenessChecker checker, File artifact, InputFingerprint inputs)
+    {
+        String change = checker.findChange(artifact, inputs);
+        if (change != null)
+        {
+            getLog().info("NPANDAY-900-007: Compiler inputs have changed (" + change + "). Forcing a recompile.");
+            return false;
+        }
+        return true;
+    }
+
+    private void recordInputs(StalenessChecker checker, File artifact, InputFingerprint inputs)
+    {
+        try
+        {
+            checker.recordInputs(artifact, inputs);
+        }
+        catch (IOException e)
+        {
+            getLog().warn("NPANDAY-900-008: Could not record the compiler inputs for " + artifact.getName(), e);
+        }
     }
 
     private void generateAssemblyAttributesIfNecessary(String frameworkName) throws MojoExecutionException
@@ -0,0 +1,219 @@
+package npanday.plugin.compile;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import npanday.ArtifactType;
+import npanday.executable.ExecutionException;
+import npanday.executable.compiler.CompileScheduler;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.PluginManager;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles all .NET modules in the reactor, running the compiles of modules that don't depend on
+ * each other at the same time. A module is compiled as soon as the modules it depends on are done.
+ * <p/>
+ * The modules are compiled exactly like the <code>compile</code> and <code>testCompile</code> goals
+ * would do; when the reactor build reaches those goals afterwards, they find the compiled artifacts
+ * up-to-date and just attach them, in the usual module order. Run it after the sources and resources
+ * have been generated, for example:
+ * <pre>
+ * mvn process-resources org.apache.npanday.plugins:maven-compile-plugin:reactor-compile install
+ * </pre>
+ *
+ * @goal reactor-compile
+ * @aggregator
+ * @description Compiles independent .NET modules of the reactor concurrently
+ */
+public class ReactorCompilerMojo
+    extends AbstractMojo
+{
+    /**
+     * Packagings bound to the compile goals, see <code>CompileLifecycleMap</code>.
+     */
+    private static final Set<ArtifactType> COMPILED_TYPES = ImmutableSet.of(
+        ArtifactType.DOTNET_LIBRARY, ArtifactType.LIBRARY, ArtifactType.SHARP_DEVELOP_ADDIN,
+        ArtifactType.VISUAL_STUDIO_ADDIN, ArtifactType.DOTNET_EXECUTABLE, ArtifactType.DOTNET_WINDOWS_EXECUTABLE,
+        ArtifactType.EXE, ArtifactType.WINEXE, ArtifactType.DOTNET_MODULE, ArtifactType.MODULE
+    );
+
+    /**
+     * @parameter expression="${reactorProjects}"
+     * @required
+     * @readonly
+     */
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * @parameter expression="${session}"
+     * @required
+     * @readonly
+     */
+    private MavenSession session;
+
+    /**
+     * @parameter expression="${plugin}"
+     * @required
+     * @readonly
+     */
+    private PluginDescriptor plugin;
+
+    /**
+     * The maximum number of compiles running at the same time; defaults to the number of processors.
+     *
+     * @parameter expression="${npanday.compile.threads}" default-value="0"
+     */
+    private int threads;
+
+    /**
+     * Skips compiling of unit tests
+     *
+     * @parameter expression = "${skipTestCompile}" default-value = "false"
+     */
+    private boolean skipTestCompile;
+
+    /**
+     * @component
+     */
+    private PluginManager pluginManager;
+
+    /**
+     * @component
+     */
+    private CompileScheduler compileScheduler;
+
+    public void execute()
+        throws MojoExecutionException
+    {
+        List<CompileScheduler.Unit> units = Lists.newArrayList();
+        Map<String, ModuleCompile> compiles = Maps.newHashMap();
+        Map<String, ModuleCompile> testCompiles = Maps.newHashMap();
+
+        for ( MavenProject project : reactorProjects )
+        {
+            if ( !COMPILED_TYPES.contains( ArtifactType.getArtifactTypeForPackagingName( project.getPackaging() ) ) )
+            {
+                continue;
+            }
+
+            String key = ArtifactUtils.versionlessKey( project.getGroupId(), project.getArtifactId() );
+            ModuleCompile compile = new ModuleCompile( project, "compile" );
+            units.add( compile );
+            compiles.put( key, compile );
+
+            if ( !skipTestCompile )
+            {
+                ModuleCompile testCompile = new ModuleCompile( project, "testCompile" );
+                testCompile.dependsOn( compile );
+                units.add( testCompile );
+                testCompiles.put( key, testCompile );
+            }
+        }
+
+        for ( MavenProject project : reactorProjects )
+        {
+            String key = ArtifactUtils.versionlessKey( project.getGroupId(), project.getArtifactId() );
+            ModuleCompile compile = compiles.get( key );
+            if ( compile == null )
+            {
+                continue;
+            }
+
+            for ( Dependency dependency : (List<Dependency>) project.getDependencies() )
+            {
+                ModuleCompile upstream = compiles.get(
+                    ArtifactUtils.versionlessKey( dependency.getGroupId(), dependency.getArtifactId() )
+                );
+                if ( upstream == null )
+                {
+                    continue;
+                }
+
+                if ( Artifact.SCOPE_TEST.equals( dependency.getScope() ) )
+                {
+                    if ( testCompiles.containsKey( key ) )
+                    {
+                        testCompiles.get( key ).dependsOn( upstream );
+                    }
+                }
+                else
+                {
+                    compile.dependsOn( upstream );
+                }
+            }
+        }
+
+        int maxThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        getLog().info(
+            "NPANDAY-906-000: Compiling " + compiles.size() + " modules with up to " + maxThreads
+                + " concurrent compiles"
+        );
+
+        try
+        {
+            compileScheduler.run(
+                units, maxThreads, new CompileScheduler.Planner()
+                {
+                    public void plan( CompileScheduler.Unit unit )
+                        throws Exception
+                    {
+                        ModuleCompile compile = (ModuleCompile) unit;
+                        pluginManager.executeMojo(
+                            compile.project, new MojoExecution( plugin.getMojo( compile.goal ) ), session
+                        );
+                    }
+                }
+            );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new MojoExecutionException( "NPANDAY-906-001: Reactor compile failed", e );
+        }
+    }
+
+    private static class ModuleCompile
+        extends CompileScheduler.Unit
+    {
+        private final MavenProject project;
+
+        private final String goal;
+
+        ModuleCompile( MavenProject project, String goal )
+        {
+            super( project.getArtifactId() + ":" + goal );
+            this.project = project;
+            this.goal = goal;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package npanday.plugin.compile
+
+import npanday.executable.compiler.impl.DigestStalenessChecker
+import npanday.registry.RepositoryRegistry
+import org.apache.maven.artifact.Artifact
+import org.apache.maven.artifact.DefaultArtifact
+import org.apache.maven.artifact.handler.DefaultArtifactHandler
+import org.apache.maven.artifact.versioning.VersionRange
+import org.apache.maven.model.Model
+import org.apache.maven.project.MavenProject
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class CompileInputsTest
+{
+    File dir
+
+    CompilerMojo mojo
+
+    DigestStalenessChecker checker = new DigestStalenessChecker()
+
+    @Before
+    void setUp()
+    {
+        dir = File.createTempFile("compile-inputs", "")
+        dir.delete()
+        dir.mkdirs()
+
+        Model model = new Model()
+        model.groupId = "test"
+        model.artifactId = "Module"
+        model.version = "1.0"
+
+        mojo = new CompilerMojo()
+        mojo.project = new MavenProject(model)
+        def registry = AbstractCompilerMojo.getDeclaredField("repositoryRegistry")
+        registry.accessible = true
+        registry.set(mojo, [find: { name -> null }] as RepositoryRegistry)
+    }
+
+    @After
+    void tearDown()
+    {
+        dir.deleteDir()
+    }
+
+    @Test
+    void changedTransitiveReferenceCausesRecompile()
+    {
+        def compiled = file("Module.dll", "compiled")
+        def direct = artifact("Direct", file("Direct.dll", "direct"))
+        def transitive = artifact("Transitive", file("Transitive.dll", "transitive"))
+        // the project itself does not know the resolved references
+        assert mojo.project.artifacts.isEmpty()
+
+        def dependencies = [direct, transitive] as Set
+        checker.recordInputs(compiled, mojo.collectInputs(checker, compiled, null, dependencies, false))
+        assert checker.findChange(compiled, mojo.collectInputs(checker, compiled, null, dependencies, false)) == null
+
+        transitive.file.text = "changed"
+
+        assert checker.findChange(compiled, mojo.collectInputs(checker, compiled, null, dependencies, false)) != null
+    }
+
+    File file(String name, String content)
+    {
+        def file = new File(dir, name)
+        file.text = content
+        return file
+    }
+
+    static Artifact artifact(String artifactId, File file)
+    {
+        def artifact = new DefaultArtifact("test", artifactId, VersionRange.createFromVersion("1.0"), "compile",
+            "dotnet-library", null, new DefaultArtifactHandler("dll"))
+        artifact.file = file
+        return artifact
+    }
+}
@@ -21,6 +21,7 @@ package npanday.plugin.resolver;
 
 import com.google.common.base.Strings;
 import npanday.ArtifactType;
+import npanday.FileStager;
 import npanday.LocalRepositoryUtil;
 import npanday.PathUtil;
 import npanday.registry.RepositoryRegistry;
@@ -40,10 +41,10 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -108,6 +109,15 @@ public class CopyDependenciesMojo
      */
     private File outputDirectory;
 
+    /**
+     * Specifies if dependencies should be hard linked to the output directory instead of copied, where the
+     * file system supports it. Only enable this if nothing writes to the copied files, since writes would
+     * go through to the local repository. Unchanged files are left alone either way.
+     *
+     * @parameter expression="${copyDependencies.link}" default-value="false"
+     */
+    private boolean linkDependencies;
+
     /**
      * @parameter default-value="false"
      */
@@ -212,6 +222,7 @@ public class CopyDependenciesMojo
             } ));
         }
 
+        List<Artifact> included = new ArrayList<Artifact>();
         for ( Artifact dependency : artifacts )
         {
             if ( !includeFilter.include( dependency ) )
@@ -220,25 +231,19 @@ public class CopyDependenciesMojo
 
                 continue;
             }
+            included.add( dependency );
+        }
 
-            try
-            {
-                File targetFile = new File( outputDirectory, PathUtil.getPlainArtifactFileName( dependency ) );
-                if ( !targetFile.exists()
-                    || targetFile.lastModified() != dependency.getFile().lastModified()
-                    || targetFile.length() != dependency.getFile().length() )
-                {
-                    getLog().info( "NPANDAY-158-004: copy " + dependency.getFile() + " to " + targetFile );
-                    FileUtils.copyFile( dependency.getFile(), targetFile );
-                }
-                else{
-                    getLog().debug( "NPANDAY-158-007: dependency " + dependency + " is yet up to date" );
-                }
-            }
-            catch ( IOException ioe )
-            {
-                throw new MojoExecutionException( "NPANDAY-158-005: Error copying dependency " + dependency, ioe );
-            }
+        try
+        {
+            FileStager.Result result = PathUtil.copyPlainArtifactFilesToDirectory(
+                included, outputDirectory, linkDependencies, new File( project.getBuild().getDirectory() )
+            );
+            getLog().info( "NPANDAY-158-004: Copied dependencies to " + outputDirectory + ": " + result );
+        }
+        catch ( IOException ioe )
+        {
+            throw new MojoExecutionException( "NPANDAY-158-005: Error copying dependencies", ioe );
         }
     }
 
@@ -134,10 +134,6 @@ public class ListDependenciesMojo
         Set<Artifact> artifacts;
         try
         {
-            // TODO: Workarround. Somehow in the first run, PDBs wont be part of the result!
-            dependencyResolution.require(
-                    project, LocalRepositoryUtil.create( localRepository ), includeFilter
-            );
             artifacts = dependencyResolution.require(
                 project, LocalRepositoryUtil.create( localRepository ), includeFilter
             );
@@ -20,6 +20,7 @@
 package npanday.plugin.test;
 
 import npanday.ArtifactTypeHelper;
+import npanday.FileStager;
 import npanday.LocalRepositoryUtil;
 import npanday.PathUtil;
 import npanday.PlatformUnsupportedException;
@@ -163,6 +164,16 @@ public class TesterMojo
      */
     private Boolean resolvePdbs;
 
+    /**
+     * Specifies if assemblies should be staged to the test directory as hard links instead of copies,
+     * where the file system supports it. Files that did not change since the last run are left alone
+     * either way. Only enable this if neither the test runner nor the tests write to the assemblies in the
+     * test directory, since writes would go through to the local repository.
+     *
+     * @parameter expression = "${test.linkAssemblies}" default-value="false"
+     */
+    private boolean linkAssemblies;
+
 
     private File getExecutableHome() 
     {
@@ -258,6 +269,9 @@ public class TesterMojo
             );
         }
 
+        FileStager stager =
+            new FileStager( new File( testAssemblyPath ), new File( project.getBuild().getDirectory() ) );
+        stager.setLink( linkAssemblies );
         for ( Artifact artifact : artifacts )
         {
             if ( ArtifactTypeHelper.isDotnetAnyGac( artifact.getType() ) )
@@ -265,41 +279,30 @@ public class TesterMojo
                 continue;
             }
 
-            try
-            {
-                PathUtil.copyPlainArtifactFileToDirectory( artifact, new File( testAssemblyPath ) );
-            }
-            catch ( IOException e )
-            {
-                throw new MojoExecutionException( "NPANDAY-1100-002: Error on copying artifact " + artifact, e );
-            }
+            stager.add( artifact.getFile(), PathUtil.getPlainArtifactFileName( artifact ) );
         }
 
-        try
+        if ( project.getArtifact() != null && project.getArtifact().getFile() != null
+            && project.getArtifact().getFile().exists() )
         {
-            if ( project.getArtifact() != null && project.getArtifact().getFile() != null
-                && project.getArtifact().getFile().exists() )
-            {
-                FileUtils.copyFileToDirectory( project.getArtifact().getFile(), new File( testAssemblyPath ) );
-            }
+            stager.add( project.getArtifact().getFile() );
         }
-        catch ( IOException e )
+
+        stager.add( new File( testFileName ) );
+        File pdbTestFile = new File( pdbTestFileName );
+        if ( pdbTestFile.exists() )
         {
-            throw new MojoExecutionException( "NPANDAY-1100-004: Unable to copy library to target directory: ", e );
+            stager.add( pdbTestFile );
         }
 
         try
         {
-            FileUtils.copyFileToDirectory( new File( testFileName ), new File( testAssemblyPath ) );
-            File pdbTestFile = new File( pdbTestFileName );
-            if ( pdbTestFile.exists() ) 
-            {
-                FileUtils.copyFileToDirectory( pdbTestFile, new File( testAssemblyPath ) );
-            }
+            FileStager.Result staged = stager.stage();
+            getLog().info( "NPANDAY-1100-013: Staged test assemblies to " + testAssemblyPath + ": " + staged );
         }
         catch ( IOException e )
         {
-            throw new MojoExecutionException( "NPANDAY-1100-005: Unable to copy library to target directory: ", e );
+            throw new MojoExecutionException( "NPANDAY-1100-002: Error on staging test assemblies", e );
         }
 
         FileUtils.mkdir( reportsDirectory );